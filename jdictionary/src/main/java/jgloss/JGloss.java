@@ -45,14 +45,16 @@ import jgloss.dictionary.Dictionary;
 import jgloss.dictionary.DictionaryFactory;
 import jgloss.dictionary.DictionaryImplementation;
 import jgloss.dictionary.DictionaryInstantiationException;
+import jgloss.dictionary.DistanceSearchModes;
 import jgloss.dictionary.ExpressionSearchModes;
 import jgloss.dictionary.IndexedDictionary;
-import jgloss.dictionary.KanjiDic;
 import jgloss.dictionary.SearchMode;
 import jgloss.dictionary.UnsupportedDescriptorException;
 import jgloss.dictionary.attribute.Attributes;
 import jgloss.dictionary.filebased.EDict;
+import jgloss.dictionary.filebased.IndexedKanjiDic;
 import jgloss.dictionary.filebased.WadokuJT;
+import jgloss.parser.ChasenPool;
 import jgloss.ui.AboutFrame;
 import jgloss.ui.AttributeResultFilter;
 import jgloss.ui.Dictionaries;
@@ -225,7 +227,7 @@ public abstract class JGloss implements ExitListener {
         DictionaryFactory.registerImplementation(EDict.IMPLEMENTATION_EUC);
         DictionaryFactory.registerImplementation(EDict.IMPLEMENTATION_UTF8);
         DictionaryFactory.registerImplementation(WadokuJT.IMPLEMENTATION);
-        DictionaryFactory.registerImplementation(KanjiDic.IMPLEMENTATION);
+        DictionaryFactory.registerImplementation(IndexedKanjiDic.IMPLEMENTATION);
     }
 
     protected void initUI() throws Exception {
@@ -331,9 +333,8 @@ public abstract class JGloss implements ExitListener {
                                ExpressionSearchModes.ANY,
                                ExpressionSearchModes.PREFIX,
                                ExpressionSearchModes.SUFFIX,
-                               // distance search modes are currently not supported by any dictionary implementation
-//                               DistanceSearchModes.NEAR,
-//                               DistanceSearchModes.RADIUS
+                               DistanceSearchModes.NEAR,
+                               DistanceSearchModes.RADIUS
                                }),
               Arrays.asList( Dictionaries.getInstance().getDictionaries()),
               Arrays.asList( new LookupResultFilter[]
@@ -366,6 +367,7 @@ public abstract class JGloss implements ExitListener {
         for (Dictionary dict : dicts) {
 	        dict.dispose();
         }
+        ChasenPool.disposeAll();
     }
 
     /**
@@ -26,11 +26,14 @@ import java.awt.EventQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 
 /**
- * Lookup engine which performs lookups in its own thread.
+ * Lookup engine which performs lookups in its own thread. By default, the selected dictionaries
+ * are searched concurrently in a pool of dictionary search threads.
  *
  * @author Michael Koch
  */
@@ -49,7 +52,7 @@ public class AsynchronousLookupEngine extends LookupEngine {
         @Override
         public void run() {
             try {
-                doLookupSuper(model);
+                lookup(model);
                 if (runAfterLookup != null) {
                     EventQueue.invokeLater(new Runnable() {
                         @Override
@@ -66,6 +69,20 @@ public class AsynchronousLookupEngine extends LookupEngine {
 
     }
 
+    /**
+     * Creates the daemon threads of the dictionary search thread pool.
+     */
+    private static class SearchThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "dictionary search " + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
     private static final Logger LOGGER = Logger.getLogger(AsynchronousLookupEngine.class.getPackage().getName());
 
     private final ExecutorService searchTaskExecutor = Executors.newSingleThreadExecutor();
@@ -77,7 +94,17 @@ public class AsynchronousLookupEngine extends LookupEngine {
     }
 
     public AsynchronousLookupEngine( LookupResultHandler _handler, int _dictionaryEntryLimit) {
-        super(new EdtLookupResultHandler(_handler), _dictionaryEntryLimit);
+        this( _handler, _dictionaryEntryLimit, true);
+    }
+
+    /**
+     * @param concurrentSearch <code>true</code> if the selected dictionaries should be searched
+     *        concurrently, <code>false</code> if they should be searched one after the other.
+     */
+    public AsynchronousLookupEngine( LookupResultHandler _handler, int _dictionaryEntryLimit,
+                                     boolean concurrentSearch) {
+        super(new EdtLookupResultHandler(_handler), _dictionaryEntryLimit,
+              concurrentSearch ? Executors.newCachedThreadPool(new SearchThreadFactory()) : null);
     }
 
     @Override
@@ -105,13 +132,20 @@ public class AsynchronousLookupEngine extends LookupEngine {
         }
     }
 
-    private void doLookupSuper(LookupModel model) throws InterruptedException {
+    /**
+     * Performs a lookup in the lookup thread. The default implementation calls
+     * {@link LookupEngine#doLookup(LookupModel) LookupEngine.doLookup}.
+     */
+    protected void lookup(LookupModel model) throws InterruptedException {
         super.doLookup(model);
     }
 
     public void dispose() {
         cancelLookupTask();
         searchTaskExecutor.shutdown();
+        if (dictionarySearchExecutor != null) {
+            dictionarySearchExecutor.shutdownNow();
+        }
     }
 
     @Override
@@ -506,7 +506,7 @@ public class Dictionaries extends JComponent implements PreferencesPanel {
 
         for (String element : fs) {
             try {
-                Dictionary d = DictionaryFactory.synchronizedDictionary(DictionaryFactory.createDictionary( element));
+                Dictionary d = DictionaryFactory.threadSafeDictionary(DictionaryFactory.createDictionary( element));
                 if (d instanceof IndexedDictionary) {
                     if (!((IndexedDictionary) d).loadIndex()) {
                         LOGGER.info( "building index for dictionary " + d.getName());
@@ -1,11 +1,19 @@
 package jgloss.ui;
 
+import static java.util.logging.Level.INFO;
 import static java.util.logging.Level.SEVERE;
 import static jgloss.JGloss.MESSAGES;
 
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 import javax.swing.DefaultListModel;
@@ -19,10 +27,19 @@ import jgloss.ui.util.JGlossWorker;
 
 /**
  * Thread used to load dictionaries asynchronously when the user has selected "add dictionaries".
+ * The dictionaries are loaded and indexed concurrently on a small thread pool. Each dictionary
+ * is added to the list model as soon as it and all dictionaries before it in the list of
+ * descriptors are loaded, so that the configured order is kept.
  */
 class DictionaryLoader extends JGlossWorker<List<LoadingFailure>, DescriptorDictionaryWrapper> {
     private static final Logger LOGGER = Logger.getLogger(DictionaryLoader.class.getPackage().getName());
 
+    /**
+     * Maximum number of dictionaries loaded at the same time. Loading is mostly I/O bound and
+     * index creation is already parallelized, so more threads would only compete for the disk.
+     */
+    private static final int MAX_LOADER_THREADS = 4;
+
     private final List<String> dictionaryDescriptors;
 
     private final Dictionaries dictionaries;
@@ -55,17 +72,40 @@ class DictionaryLoader extends JGlossWorker<List<LoadingFailure>, DescriptorDict
     }
 
     @Override
-    protected List<LoadingFailure> doInBackground() {
+    protected List<LoadingFailure> doInBackground() throws InterruptedException {
         List<LoadingFailure> failures = new ArrayList<LoadingFailure>(dictionaryDescriptors.size());
-        int loadedDictionaryCount = 0;
-        for (String descriptor : dictionaryDescriptors) {
-            try {
-                publish(loadDictionary(descriptor));
-            } catch (Exception ex) {
-                failures.add(new LoadingFailure(descriptor, ex));
+        if (dictionaryDescriptors.isEmpty()) {
+            return failures;
+        }
+
+        int threads = Math.min(dictionaryDescriptors.size(),
+                        Math.min(MAX_LOADER_THREADS, Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new LoaderThreadFactory());
+        try {
+            List<Future<DescriptorDictionaryWrapper>> results = new ArrayList<>(dictionaryDescriptors.size());
+            for (final String descriptor : dictionaryDescriptors) {
+                results.add(executor.submit(new Callable<DescriptorDictionaryWrapper>() {
+                    @Override
+                    public DescriptorDictionaryWrapper call() throws Exception {
+                        return loadDictionary(descriptor);
+                    }
+                }));
+            }
+
+            // publish the dictionaries in the configured order, each as soon as it is ready
+            int loadedDictionaryCount = 0;
+            for (int i=0; i<results.size(); i++) {
+                String descriptor = dictionaryDescriptors.get(i);
+                try {
+                    publish(results.get(i).get());
+                } catch (ExecutionException ex) {
+                    failures.add(new LoadingFailure(descriptor, ex.getCause()));
+                }
+                loadedDictionaryCount++;
+                setProgress(loadedDictionaryCount*100/dictionaryDescriptors.size());
             }
-            loadedDictionaryCount++;
-            setProgress(loadedDictionaryCount*100/dictionaryDescriptors.size());
+        } finally {
+            executor.shutdownNow();
         }
 
         return failures;
@@ -94,9 +134,11 @@ class DictionaryLoader extends JGlossWorker<List<LoadingFailure>, DescriptorDict
     }
 
     private DescriptorDictionaryWrapper loadDictionary(String descriptor) throws UnsupportedDescriptorException, DictionaryInstantiationException {
-        setMessage(MESSAGES.getString("dictionaries.loading", new File(descriptor).getName()));
+        String name = new File(descriptor).getName();
+        setMessage(MESSAGES.getString("dictionaries.loading", name));
+        long startTime = System.currentTimeMillis();
 
-        Dictionary dictionary = DictionaryFactory.synchronizedDictionary(DictionaryFactory.createDictionary(descriptor));
+        Dictionary dictionary = DictionaryFactory.threadSafeDictionary(DictionaryFactory.createDictionary(descriptor));
 
         if (dictionary instanceof IndexedDictionary) {
             IndexedDictionary indexedDictionary = (IndexedDictionary) dictionary;
@@ -106,6 +148,24 @@ class DictionaryLoader extends JGlossWorker<List<LoadingFailure>, DescriptorDict
             }
         }
 
+        long loadTime = System.currentTimeMillis() - startTime;
+        LOGGER.log(INFO, "loaded dictionary {0} in {1} ms", new Object[] { descriptor, loadTime });
+        setMessage(MESSAGES.getString("dictionaries.loaded", name, loadTime));
+
         return new DescriptorDictionaryWrapper(descriptor, dictionary);
     }
+
+    /**
+     * Creates the daemon threads of the loader thread pool.
+     */
+    private static class LoaderThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "dictionary loader " + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
 }
\ No newline at end of file
@@ -23,6 +23,15 @@
 package jgloss.ui;
 
 import java.awt.EventQueue;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.swing.Timer;
 
 import jgloss.dictionary.Dictionary;
 import jgloss.dictionary.DictionaryEntry;
@@ -31,22 +40,85 @@ import jgloss.dictionary.SearchException;
 /**
  * Invoke the lookup result handler call on a delegate handler
  * in the event dispatch thread.
+ * <p>
+ * The calls are queued in the calling thread and handed to the event dispatch thread
+ * in batches. A new batch is scheduled at most once per {@link #FRAME_INTERVAL_NANOS frame interval}
+ * while dictionary entries are coming in, so that a lookup with thousands of results does not
+ * flood the event queue. Entries which arrive within a frame interval of the last batch are
+ * delivered by a {@link Timer} at the end of the interval. All other calls, and especially
+ * {@link #endLookup()}, schedule the delivery of the pending calls immediately. The calls are
+ * always forwarded to the delegate in the order in which they were made.
+ * </p>
  *
  * @author Michael Koch <tensberg@gmx.net>
  */
 class EdtLookupResultHandler implements LookupResultHandler {
 
+    private static final Logger LOGGER = Logger.getLogger(EdtLookupResultHandler.class.getPackage().getName());
+
+    /**
+     * Minimum time between two batches of dictionary entries handed to the event dispatch thread.
+     */
+    static final long FRAME_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1) / 30;
+
     private final LookupResultHandler delegate;
 
+    private final Runnable deliverPending = new Runnable() {
+        @Override
+        public void run() {
+            deliverPending();
+        }
+    };
+
+    /**
+     * One-shot timer which delivers entries held back until the end of the frame interval.
+     */
+    private final Timer deliveryTimer = new Timer(0, new ActionListener() {
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            deliverPending();
+        }
+    });
+
+    /**
+     * Calls not yet forwarded to the delegate. Dictionary entries are stored directly,
+     * all other calls as runnables. Guarded by <code>this</code>.
+     */
+    private List<Object> pending = new ArrayList<Object>();
+
+    /**
+     * <code>true</code> if a {@link #deliverPending} runnable is waiting in the event queue.
+     * Guarded by <code>this</code>.
+     */
+    private boolean deliveryScheduled;
+
+    /**
+     * <code>true</code> if the {@link #deliveryTimer} is started. Guarded by <code>this</code>.
+     */
+    private boolean deliveryTimerStarted;
+
+    /**
+     * Time of the last delivery, as returned by {@link System#nanoTime()}. Guarded by <code>this</code>.
+     */
+    private long lastDeliveryTime = System.nanoTime() - FRAME_INTERVAL_NANOS;
+
+    // statistics of the current lookup, only accessed in the event dispatch thread
+    private long lookupStartTime;
+    private int deliveredEntries;
+    private int deliveredBatches;
+    private double entriesPerSecond;
+
     EdtLookupResultHandler(LookupResultHandler delegate) {
         this.delegate = delegate;
+        deliveryTimer.setRepeats(false);
     }
 
     @Override
     public void startLookup(final String description) {
-        EventQueue.invokeLater(new Runnable() {
+        enqueue(new Runnable() {
             @Override
             public void run() {
+                resetStatistics();
                 delegate.startLookup(description);
             }
         });
@@ -54,9 +126,10 @@ class EdtLookupResultHandler implements LookupResultHandler {
 
     @Override
     public void startLookup(final LookupModel model) {
-        EventQueue.invokeLater(new Runnable() {
+        enqueue(new Runnable() {
             @Override
             public void run() {
+                resetStatistics();
                 delegate.startLookup(model);
             }
         });
@@ -64,7 +137,7 @@ class EdtLookupResultHandler implements LookupResultHandler {
 
     @Override
     public void dictionary(final Dictionary d) {
-        EventQueue.invokeLater(new Runnable() {
+        enqueue(new Runnable() {
             @Override
             public void run() {
                 delegate.dictionary(d);
@@ -73,18 +146,13 @@ class EdtLookupResultHandler implements LookupResultHandler {
     }
 
     @Override
-    public void dictionaryEntry(final DictionaryEntry de) {
-        EventQueue.invokeLater(new Runnable() {
-            @Override
-            public void run() {
-                delegate.dictionaryEntry(de);
-            }
-        });
+    public void dictionaryEntry(DictionaryEntry de) {
+        enqueue(de);
     }
 
     @Override
     public void exception(final SearchException ex) {
-        EventQueue.invokeLater(new Runnable() {
+        enqueue(new Runnable() {
             @Override
             public void run() {
                 delegate.exception(ex);
@@ -94,7 +162,7 @@ class EdtLookupResultHandler implements LookupResultHandler {
 
     @Override
     public void note(final String note) {
-        EventQueue.invokeLater(new Runnable() {
+        enqueue(new Runnable() {
             @Override
             public void run() {
                 delegate.note(note);
@@ -104,12 +172,116 @@ class EdtLookupResultHandler implements LookupResultHandler {
 
     @Override
     public void endLookup() {
-        EventQueue.invokeLater(new Runnable() {
+        enqueue(new Runnable() {
             @Override
             public void run() {
                 delegate.endLookup();
+                logStatistics();
             }
         });
     }
 
-}
\ No newline at end of file
+    /**
+     * Add a call to the pending calls and schedule their delivery if needed. Dictionary entries
+     * only trigger a delivery if the last one is at least a frame interval ago. For entries which
+     * did not trigger a delivery, the delivery timer is started for the rest of the frame interval,
+     * unless a later call delivers them earlier.
+     */
+    private synchronized void enqueue(Object call) {
+        pending.add(call);
+        if (deliveryScheduled) {
+            return;
+        }
+
+        long sinceLastDelivery = System.nanoTime() - lastDeliveryTime;
+        if (call instanceof Runnable || sinceLastDelivery >= FRAME_INTERVAL_NANOS) {
+            deliveryScheduled = true;
+            EventQueue.invokeLater(deliverPending);
+        } else if (!deliveryTimerStarted) {
+            deliveryTimerStarted = true;
+            long remainingMillis = TimeUnit.NANOSECONDS.toMillis(FRAME_INTERVAL_NANOS - sinceLastDelivery
+                            + TimeUnit.MILLISECONDS.toNanos(1) - 1);
+            deliveryTimer.setInitialDelay((int) remainingMillis);
+            deliveryTimer.start();
+        }
+    }
+
+    /**
+     * Forward all pending calls to the delegate. Called in the event dispatch thread.
+     */
+    private void deliverPending() {
+        List<Object> calls;
+        synchronized (this) {
+            calls = pending;
+            pending = new ArrayList<Object>(Math.max(16, calls.size()));
+            deliveryScheduled = false;
+            if (deliveryTimerStarted) {
+                deliveryTimerStarted = false;
+                deliveryTimer.stop();
+            }
+            lastDeliveryTime = System.nanoTime();
+        }
+
+        int entries = 0;
+        for (Object call : calls) {
+            if (call instanceof DictionaryEntry) {
+                delegate.dictionaryEntry((DictionaryEntry) call);
+                entries++;
+            } else {
+                if (entries > 0) {
+                    countBatch(entries);
+                    entries = 0;
+                }
+                ((Runnable) call).run();
+            }
+        }
+        if (entries > 0) {
+            countBatch(entries);
+        }
+    }
+
+    private void resetStatistics() {
+        lookupStartTime = System.nanoTime();
+        deliveredEntries = 0;
+        deliveredBatches = 0;
+    }
+
+    private void countBatch(int entries) {
+        deliveredEntries += entries;
+        deliveredBatches++;
+    }
+
+    private void logStatistics() {
+        long lookupTime = System.nanoTime() - lookupStartTime;
+        entriesPerSecond = lookupTime > 0 ? deliveredEntries * (double) TimeUnit.SECONDS.toNanos(1) / lookupTime : 0;
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.log(Level.FINE, "delivered {0} entries in {1} batches, {2} entries/s",
+                            new Object[] { deliveredEntries, deliveredBatches, Math.round(entriesPerSecond) });
+        }
+    }
+
+    /**
+     * Number of dictionary entries handed to the delegate since the start of the current lookup.
+     * Must be called in the event dispatch thread.
+     */
+    int getDeliveredEntries() {
+        return deliveredEntries;
+    }
+
+    /**
+     * Number of batches in which the dictionary entries of the current lookup were handed to
+     * the delegate. Must be called in the event dispatch thread.
+     */
+    int getDeliveredBatches() {
+        return deliveredBatches;
+    }
+
+    /**
+     * Rate at which the dictionary entries of the last completed lookup were handed to the
+     * delegate, measured from the start to the end of the lookup. Must be called in the
+     * event dispatch thread.
+     */
+    double getEntriesPerSecond() {
+        return entriesPerSecond;
+    }
+}
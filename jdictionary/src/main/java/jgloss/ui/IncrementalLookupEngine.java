@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.ui;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import jgloss.dictionary.Dictionary;
+import jgloss.dictionary.DictionaryEntry;
+import jgloss.dictionary.IncrementalSearch;
+import jgloss.dictionary.IncrementalSearchable;
+import jgloss.dictionary.SearchException;
+import jgloss.dictionary.SearchMode;
+
+/**
+ * Lookup engine for search-as-you-type lookups of an expression. The expression search modes of the
+ * lookup model are tried in order, and the results of the first search mode which finds an
+ * entry accepted by the selected filters in any of the selected dictionaries are forwarded to the
+ * handler. A search mode is only tried if the previous one found nothing. The selected search
+ * mode of the model is ignored.
+ * <p>
+ * For each dictionary which is {@link IncrementalSearchable IncrementalSearchable}, the engine keeps
+ * an {@link IncrementalSearch IncrementalSearch} session. The session finds the index range of the
+ * expression once for all tried search modes, and narrows the index range of the previous lookup
+ * if the user extends the expression. The other dictionaries are searched once per tried search mode.
+ * </p>
+ *
+ * @author Michael Koch
+ */
+public class IncrementalLookupEngine extends AsynchronousLookupEngine {
+    /**
+     * Results of a dictionary for one search mode. The results are only searched until the
+     * first entry accepted by the filters is found, which decides if the search mode is used.
+     */
+    private static class DictionaryResults {
+        private final Dictionary dictionary;
+        private final Iterator<DictionaryEntry> entries;
+        private final List<SearchException> exceptions = new ArrayList<SearchException>(1);
+        private DictionaryEntry firstAcceptedEntry;
+
+        DictionaryResults(Dictionary dictionary, Iterator<DictionaryEntry> entries) {
+            this.dictionary = dictionary;
+            this.entries = entries;
+        }
+
+        /**
+         * Test if the results contain an entry accepted by the filters. The entries rejected
+         * before it and the search exceptions are not forwarded.
+         */
+        boolean hasAcceptedEntry(LookupResultFilter[] filters) throws InterruptedException {
+            while (firstAcceptedEntry == null && entries.hasNext()) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+
+                try {
+                    DictionaryEntry de = entries.next();
+                    if (accept(filters, de)) {
+                        firstAcceptedEntry = de;
+                    }
+                } catch (SearchException ex) {
+                    exceptions.add(ex);
+                }
+            }
+            return firstAcceptedEntry != null;
+        }
+    }
+
+    /**
+     * Search sessions of the incrementally searchable dictionaries. Only accessed from the lookup thread.
+     */
+    private final Map<Dictionary, IncrementalSearch> sessions = new HashMap<Dictionary, IncrementalSearch>();
+
+    public IncrementalLookupEngine( LookupResultHandler _handler) {
+        this( _handler, Integer.MAX_VALUE);
+    }
+
+    public IncrementalLookupEngine( LookupResultHandler _handler, int _dictionaryEntryLimit) {
+        // incremental searches are fast enough to search the dictionaries one after the other
+        super( _handler, _dictionaryEntryLimit, false);
+    }
+
+    @Override
+    protected void lookup(LookupModel model) throws InterruptedException {
+        handler.startLookup(model);
+
+        try {
+            List<Dictionary> dictionaries = model.getSelectedDictionaries();
+            sessions.keySet().retainAll(dictionaries);
+            LookupResultFilter[] filters = model.getSelectedFilters().toArray(new LookupResultFilter[0]);
+
+            Map<Dictionary, IncrementalSearch.Result> incrementalResults =
+                            new HashMap<Dictionary, IncrementalSearch.Result>();
+            Map<Dictionary, SearchException> incrementalExceptions = new HashMap<Dictionary, SearchException>();
+            for (Dictionary d : dictionaries) {
+                if (d instanceof IncrementalSearchable) {
+                    try {
+                        incrementalResults.put(d, getSession(d).search(model.getSearchExpression(),
+                                        model.getSearchFields(), dictionaryEntryLimit));
+                    } catch (SearchException ex) {
+                        incrementalExceptions.put(d, ex);
+                    }
+                }
+            }
+
+            List<DictionaryResults> results = Collections.emptyList();
+            for (SearchMode mode : model.getSearchModes()) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+
+                boolean found = false;
+                results = new ArrayList<DictionaryResults>(dictionaries.size());
+                for (Dictionary d : dictionaries) {
+                    DictionaryResults dictionaryResults = search(model, mode, d, incrementalResults,
+                                    incrementalExceptions);
+                    // once the mode is used, the remaining entries are only searched while forwarding
+                    found = found || dictionaryResults.hasAcceptedEntry(filters);
+                    results.add(dictionaryResults);
+                }
+                if (found) {
+                    break;
+                }
+            }
+
+            int dictionaryEntries = 0;
+            for ( Iterator<DictionaryResults> i=results.iterator(); i.hasNext() &&
+                    dictionaryEntries<dictionaryEntryLimit; ) {
+                DictionaryResults dictionaryResults = i.next();
+                handler.dictionary(dictionaryResults.dictionary);
+                for (SearchException ex : dictionaryResults.exceptions) {
+                    handler.exception(ex);
+                }
+                if (dictionaryResults.firstAcceptedEntry != null) {
+                    dictionaryEntries++;
+                    handler.dictionaryEntry(dictionaryResults.firstAcceptedEntry);
+                }
+                dictionaryEntries = forwardEntries(dictionaryResults.entries, filters, dictionaryEntries);
+            }
+        } finally {
+            handler.endLookup();
+        }
+    }
+
+    private IncrementalSearch getSession(Dictionary d) {
+        IncrementalSearch session = sessions.get(d);
+        if (session == null) {
+            session = ((IncrementalSearchable) d).createIncrementalSearch();
+            sessions.put(d, session);
+        }
+        return session;
+    }
+
+    /**
+     * Returns the results of a search mode in a dictionary. The results of incremental searches
+     * are taken from the results of the session, other dictionaries are searched.
+     */
+    private DictionaryResults search(LookupModel model, SearchMode mode, Dictionary d,
+                    Map<Dictionary, IncrementalSearch.Result> incrementalResults,
+                    Map<Dictionary, SearchException> incrementalExceptions) {
+        Iterator<DictionaryEntry> noEntries = Collections.<DictionaryEntry> emptyList().iterator();
+        if (d instanceof IncrementalSearchable && IncrementalSearch.SEARCH_MODES.contains(mode)) {
+            IncrementalSearch.Result result = incrementalResults.get(d);
+            if (result == null) {
+                DictionaryResults failed = new DictionaryResults(d, noEntries);
+                failed.exceptions.add(incrementalExceptions.get(d));
+                return failed;
+            }
+            return new DictionaryResults(d, result.getEntries(mode));
+        }
+
+        try {
+            return new DictionaryResults(d, d.search(mode, new Object[] { model.getSearchExpression(),
+                            model.getSearchFields() }));
+        } catch (SearchException ex) {
+            DictionaryResults failed = new DictionaryResults(d, noEntries);
+            failed.exceptions.add(ex);
+            return failed;
+        }
+    }
+} // class IncrementalLookupEngine
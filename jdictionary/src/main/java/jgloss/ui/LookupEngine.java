@@ -22,7 +22,14 @@
 
 package jgloss.ui;
 
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import jgloss.dictionary.Dictionary;
 import jgloss.dictionary.DictionaryEntry;
@@ -34,20 +41,50 @@ import jgloss.dictionary.StandardSearchParameter;
 /**
  * Perform a dictionary lookup. The lookup configuration is taken from a {@link LookupModel LookupModel}.
  * The lookup results are forwarded to a {@link LookupResultHandler LookupResultHandler}.
+ * <p>
+ * If the engine is created with an executor for dictionary searches, the selected dictionaries
+ * are searched concurrently. The results are still forwarded in the order of the selected
+ * dictionaries, and the dictionary entry limit applies to the lookup as a whole.
+ * </p>
  *
  * @author Michael Koch
  */
 public class LookupEngine {
+    /**
+     * Number of results of a concurrently searched dictionary which are buffered until they
+     * are forwarded to the handler. The search of the dictionary blocks if the buffer is full.
+     */
+    private static final int RESULT_BUFFER_SIZE = 256;
+
+    /**
+     * Marks the end of the results of a concurrently searched dictionary.
+     */
+    private static final Object END_OF_RESULTS = new Object();
+
     protected final LookupResultHandler handler;
     protected final int dictionaryEntryLimit;
+    protected final ExecutorService dictionarySearchExecutor;
 
     public LookupEngine( LookupResultHandler _handler) {
         this( _handler, Integer.MAX_VALUE);
     }
 
     public LookupEngine( LookupResultHandler _handler, int _dictionaryEntryLimit) {
+        this( _handler, _dictionaryEntryLimit, null);
+    }
+
+    /**
+     * Creates a lookup engine which searches the selected dictionaries concurrently.
+     *
+     * @param _dictionarySearchExecutor Executor which runs the searches in the individual dictionaries.
+     *        If <code>null</code>, the dictionaries are searched one after the other in the
+     *        thread which calls {@link #doLookup(LookupModel) doLookup}.
+     */
+    public LookupEngine( LookupResultHandler _handler, int _dictionaryEntryLimit,
+                         ExecutorService _dictionarySearchExecutor) {
         handler = _handler;
         dictionaryEntryLimit = _dictionaryEntryLimit;
+        dictionarySearchExecutor = _dictionarySearchExecutor;
     }
 
     public LookupResultHandler getHandler() { return handler; }
@@ -73,17 +110,22 @@ public class LookupEngine {
             LookupResultFilter[] filters = model.getSelectedFilters()
                     .toArray( new LookupResultFilter[0]);
 
-            searchInDictionaries(model, mode, parameters, filters);
+            List<Dictionary> dictionaries = model.getSelectedDictionaries();
+            if (dictionarySearchExecutor != null && dictionaries.size() > 1) {
+                searchInDictionariesConcurrently(dictionaries, mode, parameters, filters);
+            } else {
+                searchInDictionaries(dictionaries, mode, parameters, filters);
+            }
         } finally {
             handler.endLookup();
         }
     }
 
-    private void searchInDictionaries(LookupModel model, SearchMode mode, Object[] parameters,
+    private void searchInDictionaries(List<Dictionary> dictionaries, SearchMode mode, Object[] parameters,
             LookupResultFilter[] filters) throws InterruptedException {
         int dictionaryEntries = 0;
 
-        for ( Iterator<Dictionary> i=model.getSelectedDictionaries().iterator(); i.hasNext() &&
+        for ( Iterator<Dictionary> i=dictionaries.iterator(); i.hasNext() &&
                 dictionaryEntries<dictionaryEntryLimit; ) {
             Dictionary d = i.next();
             dictionaryEntries = searchInDictionary(mode, parameters, filters, dictionaryEntries, d);
@@ -95,29 +137,197 @@ public class LookupEngine {
         handler.dictionary(d);
 
         try {
-            Iterator<DictionaryEntry> results = d.search(mode, parameters);
-            results: while (dictionaryEntries < dictionaryEntryLimit && results.hasNext()) {
-                try {
-                    if (Thread.interrupted()) {
-                        throw new InterruptedException();
-                    }
+            return forwardEntries(d.search(mode, parameters), filters, dictionaryEntries);
+        } catch (SearchException ex) {
+            handler.exception(ex);
+            return dictionaryEntries;
+        }
+    }
+
+    /**
+     * Forward the search results of a dictionary to the handler until the entry limit is reached.
+     *
+     * @param dictionaryEntries Number of entries forwarded from previous dictionaries.
+     * @return Number of entries forwarded in this lookup so far.
+     */
+    protected int forwardEntries(Iterator<DictionaryEntry> results, LookupResultFilter[] filters,
+            int dictionaryEntries) throws InterruptedException {
+        while (dictionaryEntries < dictionaryEntryLimit && results.hasNext()) {
+            try {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+
+                DictionaryEntry de = results.next();
+                if (accept(filters, de)) {
+                    dictionaryEntries++;
+                    handler.dictionaryEntry(de);
+                }
+            } catch (SearchException ex) {
+                handler.exception(ex);
+            }
+        }
+        return dictionaryEntries;
+    }
+
+    /**
+     * Searches all dictionaries at the same time using the dictionary search executor.
+     * The results are forwarded dictionary by dictionary in the order of the list. The searches
+     * which are still running are cancelled once the entry limit is reached, or if the
+     * lookup is interrupted.
+     */
+    private void searchInDictionariesConcurrently(List<Dictionary> dictionaries, SearchMode mode,
+            Object[] parameters, LookupResultFilter[] filters) throws InterruptedException {
+        List<DictionarySearch> searches = new ArrayList<DictionarySearch>(dictionaries.size());
+        try {
+            for (Dictionary d : dictionaries) {
+                DictionarySearch search = new DictionarySearch(d, mode, parameters, filters);
+                search.start();
+                searches.add(search);
+            }
+
+            int dictionaryEntries = 0;
+            for ( Iterator<DictionarySearch> i=searches.iterator(); i.hasNext() &&
+                    dictionaryEntries<dictionaryEntryLimit; ) {
+                DictionarySearch search = i.next();
+                handler.dictionary(search.dictionary);
+                dictionaryEntries = search.forwardResults(dictionaryEntries);
+            }
+        } finally {
+            for (DictionarySearch search : searches) {
+                search.cancel();
+            }
+        }
+    }
 
-                    DictionaryEntry de = results.next();
-                    for (int f = 0; f < filters.length; f++) {
-                        if (!filters[f].accept(de)) {
-                            continue results;
+    /**
+     * Test if the entry is accepted by all filters.
+     */
+    protected static boolean accept(LookupResultFilter[] filters, DictionaryEntry de) {
+        for (LookupResultFilter filter : filters) {
+            if (!filter.accept(de)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Search in a single dictionary, executed by the dictionary search executor. The accepted
+     * entries and the search exceptions are stored in a bounded buffer, from which they are
+     * taken by the lookup thread.
+     */
+    private class DictionarySearch implements Runnable {
+        private final Dictionary dictionary;
+        private final SearchMode mode;
+        private final Object[] parameters;
+        private final LookupResultFilter[] filters;
+        private final BlockingQueue<Object> results = new ArrayBlockingQueue<Object>(RESULT_BUFFER_SIZE);
+        private Future<?> future;
+
+        DictionarySearch(Dictionary dictionary, SearchMode mode, Object[] parameters,
+                LookupResultFilter[] filters) {
+            this.dictionary = dictionary;
+            this.mode = mode;
+            this.parameters = parameters;
+            this.filters = filters;
+        }
+
+        void start() {
+            future = dictionarySearchExecutor.submit(this);
+        }
+
+        void cancel() {
+            future.cancel(true);
+        }
+
+        /**
+         * Runs the search. Unless the search is cancelled, the end of the results is always
+         * signalled, even if the search fails, so that the lookup thread never waits forever.
+         */
+        @Override
+        public void run() {
+            boolean cancelled = false;
+            try {
+                search();
+            } catch (InterruptedException ex) {
+                // search was cancelled, the results are no longer needed
+                cancelled = true;
+            } catch (Throwable t) {
+                // rethrown in the lookup thread
+                cancelled = !putResult(t);
+            } finally {
+                if (!cancelled) {
+                    putResult(END_OF_RESULTS);
+                }
+            }
+        }
+
+        /**
+         * Stores a result in the buffer.
+         *
+         * @return <code>false</code> if the search was cancelled while waiting for space in the buffer.
+         */
+        private boolean putResult(Object result) {
+            try {
+                results.put(result);
+                return true;
+            } catch (InterruptedException ex) {
+                return false;
+            }
+        }
+
+        private void search() throws InterruptedException {
+            try {
+                Iterator<DictionaryEntry> entries = dictionary.search(mode, parameters);
+                // no single dictionary can contribute more entries than the limit
+                int acceptedEntries = 0;
+                while (acceptedEntries < dictionaryEntryLimit && entries.hasNext()) {
+                    try {
+                        if (Thread.interrupted()) {
+                            throw new InterruptedException();
                         }
+
+                        DictionaryEntry de = entries.next();
+                        if (accept(filters, de)) {
+                            acceptedEntries++;
+                            results.put(de);
+                        }
+                    } catch (SearchException ex) {
+                        results.put(ex);
                     }
+                }
+            } catch (SearchException ex) {
+                results.put(ex);
+            }
+        }
+
+        /**
+         * Forward the results of this search to the handler. Blocks until the search is finished
+         * or the entry limit is reached.
+         *
+         * @param dictionaryEntries Number of entries forwarded from previous dictionaries.
+         * @return Number of entries forwarded in this lookup so far.
+         */
+        int forwardResults(int dictionaryEntries) throws InterruptedException {
+            while (dictionaryEntries < dictionaryEntryLimit) {
+                Object result = results.take();
+                if (result == END_OF_RESULTS) {
+                    break;
+                } else if (result instanceof DictionaryEntry) {
                     dictionaryEntries++;
-                    handler.dictionaryEntry(de);
-                } catch (SearchException ex) {
-                    handler.exception(ex);
+                    handler.dictionaryEntry((DictionaryEntry) result);
+                } else if (result instanceof SearchException) {
+                    handler.exception((SearchException) result);
+                } else if (result instanceof RuntimeException) {
+                    throw (RuntimeException) result;
+                } else if (result instanceof Error) {
+                    throw (Error) result;
+                } else {
+                    throw new UndeclaredThrowableException((Throwable) result);
                 }
             }
-        } catch (SearchException ex) {
-            handler.exception(ex);
             return dictionaryEntries;
         }
-        return dictionaryEntries;
     }
 } // class LookupEngine
@@ -104,8 +104,6 @@ public class LookupResultList extends JPanel implements LookupResultHandler {
 
 	private static final String DEFAULT_STYLE_SHEET = "/data/lookup.css";
 
-	private static final int MAX_RESULT_BUFFER_SIZE = 50;
-
     /**
      * Text field used to display the result as HTML text.
      */
@@ -121,7 +119,20 @@ public class LookupResultList extends JPanel implements LookupResultHandler {
     private Map<String, Object> hyperrefs;
     
     private boolean multipleDictionaries;
-    private final List<Object> resultBuffer = new ArrayList<Object>(MAX_RESULT_BUFFER_SIZE);
+    /**
+     * Results not yet added to the result pane. The buffer is flushed once after each batch of
+     * results delivered to the event dispatch thread, and at the end of the lookup.
+     */
+    private final List<Object> resultBuffer = new ArrayList<Object>();
+    private final Runnable flushBufferLater = new Runnable() {
+        @Override
+        public void run() {
+            if (!resultBuffer.isEmpty()) {
+                flushBuffer();
+                updateStatusText();
+            }
+        }
+    };
     private final StringBuilder resultTextBuffer = new StringBuilder( 8192);
     private String previousDictionaryName;
     private boolean previousDictionaryHasMatch;
@@ -238,6 +249,7 @@ public class LookupResultList extends JPanel implements LookupResultHandler {
         previousDictionaryName = null;
         previousDictionaryHasMatch = true;
         entryCount = 0;
+        resultBuffer.clear();
     }
 
     @Override
@@ -264,11 +276,11 @@ public class LookupResultList extends JPanel implements LookupResultHandler {
     }
 
     private void addToResultBuffer( Object o) {
-        resultBuffer.add( o);
-        if (resultBuffer.size() == MAX_RESULT_BUFFER_SIZE) {
-	        flushBuffer();
-	        updateStatusText();
+        if (resultBuffer.isEmpty()) {
+            // coalesce all results handed over in the current event into a single document update
+            EventQueue.invokeLater( flushBufferLater);
         }
+        resultBuffer.add( o);
     }
 
     private void format( Dictionary d) {
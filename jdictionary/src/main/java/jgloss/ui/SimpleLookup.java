@@ -32,7 +32,6 @@ import java.awt.event.ActionListener;
 import java.lang.ref.WeakReference;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Iterator;
 
 import javax.swing.JLabel;
 import javax.swing.JPanel;
@@ -89,11 +88,18 @@ public class SimpleLookup extends JPanel implements ActionListener, HyperlinkLis
     } // class WeakDictionaryChangeListener
 
     private static class SearchOnTextChangeListener implements DocumentListener {
+    	/**
+    	 * Delay in milliseconds between the last change of the text and the search. A lookup of
+    	 * a typed prefix in the 20000 entry EDICT fixture of the <code>IncrementalSearchBenchmark</code>
+    	 * takes 0.02 ms in the median and less than 40 ms for 99% of the prefixes, so the delay
+    	 * only has to combine keystrokes typed in quick succession.
+    	 */
+    	private static final int SEARCH_DELAY = 50;
 
     	private final Timer delayedActionTimer;
 
     	SearchOnTextChangeListener(ActionListener searchActionListener) {
-    		delayedActionTimer = new Timer(500, searchActionListener);
+    		delayedActionTimer = new Timer(SEARCH_DELAY, searchActionListener);
     		delayedActionTimer.setRepeats(false);
     	}
 
@@ -121,7 +127,7 @@ public class SimpleLookup extends JPanel implements ActionListener, HyperlinkLis
     private final JTextField expression;
     private final LookupModel modelPrototype;
 
-    private final AsynchronousLookupEngine engine;
+    private final IncrementalLookupEngine engine;
     private final LookupResultProxy lookupResultProxy;
     private final LookupResultList list;
 
@@ -184,7 +190,7 @@ public class SimpleLookup extends JPanel implements ActionListener, HyperlinkLis
 
         this.add( list, BorderLayout.CENTER);
         lookupResultProxy = new LookupResultProxy(list);
-        engine = new AsynchronousLookupEngine( lookupResultProxy);
+        engine = new IncrementalLookupEngine( lookupResultProxy);
 
         expression.getDocument().addDocumentListener(new SearchOnTextChangeListener(this));
     }
@@ -204,24 +210,12 @@ public class SimpleLookup extends JPanel implements ActionListener, HyperlinkLis
         	expression.setText( text);
         }
 
-        final LookupModel model = modelPrototype.clone();
+        LookupModel model = modelPrototype.clone();
         model.setSearchExpression( text);
 
-        // Try a lookup with each search mode until at least one entry is found.
-        // To do this in asynchronous search mode, a runnable is created which is executed
-        // after a search ends. If the search did not find any results, the runnable selects
-        // the next search mode and repeats the search.
-        final Iterator<SearchMode> searchModes = Arrays.asList(model.getSearchModes()).iterator();
-        model.selectSearchMode(searchModes.next());
-        engine.doLookup( model, new Runnable() {
-            @Override
-            public void run() {
-                if (list.getEntryCount() == 0 && searchModes.hasNext()) {
-                    model.selectSearchMode(searchModes.next());
-                    engine.doLookup(model, this);
-                }
-            }
-        });
+        // The engine shows the results of the first search mode of the model
+        // which finds at least one entry.
+        engine.doLookup( model);
     }
 
     public void addHyperlinkListener( HyperlinkListener listener) {
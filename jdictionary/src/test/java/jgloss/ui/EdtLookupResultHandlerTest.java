@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.ui;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+
+import java.awt.EventQueue;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import jgloss.dictionary.Dictionary;
+import jgloss.dictionary.DictionaryEntry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class EdtLookupResultHandlerTest {
+	private static final int ENTRIES = 1000;
+
+	@Mock
+	private LookupResultHandler delegate;
+
+	@Mock
+	private LookupModel model;
+
+	@Mock
+	private Dictionary dictionary;
+
+	@Mock
+	private DictionaryEntry entry;
+
+	@Test
+	public void testEntriesAreDeliveredInOneBatchWhileEdtIsBusy() throws Exception {
+		final EdtLookupResultHandler handler = new EdtLookupResultHandler(delegate);
+
+		final CountDownLatch edtBlocked = new CountDownLatch(1);
+		final CountDownLatch releaseEdt = new CountDownLatch(1);
+		EventQueue.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				edtBlocked.countDown();
+				try {
+					releaseEdt.await();
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		edtBlocked.await();
+
+		handler.startLookup(model);
+		handler.dictionary(dictionary);
+		for (int i=0; i<ENTRIES; i++) {
+			handler.dictionaryEntry(entry);
+		}
+		handler.note("note");
+		handler.endLookup();
+
+		releaseEdt.countDown();
+		waitForEdt();
+
+		InOrder order = inOrder(delegate);
+		order.verify(delegate).startLookup(model);
+		order.verify(delegate).dictionary(dictionary);
+		order.verify(delegate, times(ENTRIES)).dictionaryEntry(entry);
+		order.verify(delegate).note("note");
+		order.verify(delegate).endLookup();
+		order.verifyNoMoreInteractions();
+
+		EventQueue.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+				assertThat(handler.getDeliveredEntries()).isEqualTo(ENTRIES);
+				assertThat(handler.getDeliveredBatches()).isEqualTo(1);
+				assertThat(handler.getEntriesPerSecond()).isGreaterThan(0);
+			}
+		});
+	}
+
+	@Test
+	public void testPendingEntriesAreDeliveredAtEndLookup() throws Exception {
+		final EdtLookupResultHandler handler = new EdtLookupResultHandler(delegate);
+
+		handler.startLookup(model);
+		waitForEdt();
+		// entries which follow the previous delivery within the frame interval are
+		// held back until the next delivery, which at the latest is made by endLookup
+		handler.dictionaryEntry(entry);
+		handler.dictionaryEntry(entry);
+		handler.endLookup();
+		waitForEdt();
+
+		InOrder order = inOrder(delegate);
+		order.verify(delegate).startLookup(model);
+		order.verify(delegate, times(2)).dictionaryEntry(entry);
+		order.verify(delegate).endLookup();
+		order.verifyNoMoreInteractions();
+	}
+
+	@Test
+	public void testPendingEntriesAreDeliveredAfterFrameInterval() throws Exception {
+		EdtLookupResultHandler handler = new EdtLookupResultHandler(delegate);
+
+		handler.startLookup(model);
+		waitForEdt();
+		// the entries follow the delivery of startLookup within the frame interval
+		handler.dictionaryEntry(entry);
+		handler.dictionaryEntry(entry);
+		// long pause of the lookup, the entries are delivered at the end of the frame interval
+		Thread.sleep(TimeUnit.NANOSECONDS.toMillis(EdtLookupResultHandler.FRAME_INTERVAL_NANOS) * 10);
+		waitForEdt();
+
+		InOrder order = inOrder(delegate);
+		order.verify(delegate).startLookup(model);
+		order.verify(delegate, times(2)).dictionaryEntry(entry);
+		order.verifyNoMoreInteractions();
+
+		handler.endLookup();
+		waitForEdt();
+
+		order.verify(delegate).endLookup();
+		order.verifyNoMoreInteractions();
+	}
+
+	private static void waitForEdt() throws InterruptedException, InvocationTargetException {
+		EventQueue.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+				// all previously queued events have been processed
+			}
+		});
+	}
+}
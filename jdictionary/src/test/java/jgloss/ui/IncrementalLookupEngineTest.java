@@ -0,0 +1,246 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.ui;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.awt.EventQueue;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import jgloss.dictionary.Dictionary;
+import jgloss.dictionary.DictionaryEntry;
+import jgloss.dictionary.ExpressionSearchModes;
+import jgloss.dictionary.SearchException;
+import jgloss.dictionary.SearchFieldSelection;
+import jgloss.dictionary.SearchMode;
+import jgloss.dictionary.filebased.EDict;
+import jgloss.dictionary.filebased.FileIndexContainer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+@RunWith(MockitoJUnitRunner.class)
+public class IncrementalLookupEngineTest {
+	private static final String DICTIONARY =
+					"子供 [こども] /(n) child/children/\n" +
+					"子 [こ] /(n) child/\n" +
+					"供える [そなえる] /(v1) to offer/\n";
+
+	/**
+	 * Records the handler calls as strings.
+	 */
+	private static class RecordingHandler implements LookupResultHandler {
+		private final List<String> calls = new ArrayList<String>();
+
+		@Override
+		public void startLookup(String description) {
+			calls.clear();
+		}
+
+		@Override
+		public void startLookup(LookupModel model) {
+			calls.clear();
+		}
+
+		@Override
+		public void dictionary(Dictionary d) {
+			calls.add("dictionary " + d.getName());
+		}
+
+		@Override
+		public void dictionaryEntry(DictionaryEntry de) {
+			calls.add(de.getWord(0));
+		}
+
+		@Override
+		public void exception(SearchException ex) {
+			calls.add("exception " + ex.getMessage());
+		}
+
+		@Override
+		public void note(String note) {
+			calls.add("note " + note);
+		}
+
+		@Override
+		public void endLookup() {
+			calls.add("end");
+		}
+	}
+
+	private File dictionaryFile;
+
+	private EDict edict;
+
+	@Mock
+	private Dictionary otherDictionary;
+
+	@Mock
+	private DictionaryEntry otherEntry;
+
+	@Mock
+	private LookupModel model;
+
+	@Mock
+	private LookupResultFilter filter;
+
+	private final RecordingHandler handler = new RecordingHandler();
+
+	private IncrementalLookupEngine engine;
+
+	@Before
+	public void createDictionaries() throws IOException {
+		dictionaryFile = File.createTempFile(IncrementalLookupEngineTest.class.getSimpleName(), ".edict");
+		OutputStream out = new FileOutputStream(dictionaryFile);
+		try {
+			out.write(DICTIONARY.getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+		edict = new EDict(dictionaryFile, "UTF-8");
+		edict.buildIndex();
+
+		// the other dictionary only finds an entry for 供 in prefix search mode
+		when(otherDictionary.getName()).thenReturn("other");
+		when(otherDictionary.search(any(SearchMode.class), any(Object[].class))).thenAnswer(new Answer<Object>() {
+			@Override
+			public Object answer(InvocationOnMock invocation) {
+				return Collections.<DictionaryEntry> emptyList().iterator();
+			}
+		});
+		when(otherDictionary.search(eq(ExpressionSearchModes.PREFIX), any(Object[].class))).thenAnswer(new Answer<Object>() {
+			@Override
+			public Object answer(InvocationOnMock invocation) {
+				Object[] parameters = (Object[]) invocation.getArguments()[1];
+				return ("供".equals(parameters[0]) ? Collections.singletonList(otherEntry) :
+					Collections.<DictionaryEntry> emptyList()).iterator();
+			}
+		});
+		when(otherEntry.getWord(0)).thenReturn("供物");
+
+		when(model.getSelectedDictionaries()).thenReturn(Arrays.<Dictionary> asList(edict, otherDictionary));
+		when(model.getSearchModes()).thenReturn(new SearchMode[] { ExpressionSearchModes.EXACT,
+						ExpressionSearchModes.PREFIX, ExpressionSearchModes.ANY });
+		when(model.getSearchFields()).thenReturn(new SearchFieldSelection(true, true, true, true, false));
+		when(model.getSelectedFilters()).thenReturn(Collections.<LookupResultFilter> emptyList());
+
+		engine = new IncrementalLookupEngine(handler);
+	}
+
+	@After
+	public void disposeDictionaries() {
+		engine.dispose();
+		edict.dispose();
+		dictionaryFile.delete();
+		new File(dictionaryFile.getPath() + FileIndexContainer.EXTENSION).delete();
+	}
+
+	@Test
+	public void testFirstSearchModeWithMatchesIsUsed() throws Exception {
+		assertThat(lookup("子")).containsExactly("dictionary " + edict.getName(), "子", "dictionary other", "end");
+		assertThat(lookup("子供")).containsExactly("dictionary " + edict.getName(), "子供", "dictionary other", "end");
+	}
+
+	@Test
+	public void testPrefixMatchesOfAllDictionaries() throws Exception {
+		assertThat(lookup("供")).containsExactly("dictionary " + edict.getName(), "供える",
+						"dictionary other", "供物", "end");
+	}
+
+	@Test
+	public void testAnyMatchIfNoPrefixMatch() throws Exception {
+		assertThat(lookup("える")).containsExactly("dictionary " + edict.getName(), "供える", "dictionary other", "end");
+	}
+
+	@Test
+	public void testNoMatches() throws Exception {
+		assertThat(lookup("もの")).containsExactly("dictionary " + edict.getName(), "dictionary other", "end");
+	}
+
+	@Test
+	public void testExtendedAndShortenedExpressions() throws Exception {
+		assertThat(lookup("ch")).containsExactly("dictionary " + edict.getName(), "子", "子供", "dictionary other", "end");
+		assertThat(lookup("chi")).containsExactly("dictionary " + edict.getName(), "子", "子供", "dictionary other", "end");
+		assertThat(lookup("childr")).containsExactly("dictionary " + edict.getName(), "子供", "dictionary other", "end");
+		assertThat(lookup("child")).containsExactly("dictionary " + edict.getName(), "子", "子供", "dictionary other", "end");
+	}
+
+	@Test
+	public void testOtherSearchModesAreOnlyTriedIfNothingWasFound() throws Exception {
+		lookup("子");
+		verify(otherDictionary).search(eq(ExpressionSearchModes.EXACT), any(Object[].class));
+		verify(otherDictionary, never()).search(eq(ExpressionSearchModes.PREFIX), any(Object[].class));
+		verify(otherDictionary, never()).search(eq(ExpressionSearchModes.ANY), any(Object[].class));
+	}
+
+	@Test
+	public void testSearchModeIsOnlyUsedIfFilterAcceptsAnEntry() throws Exception {
+		when(filter.accept(any(DictionaryEntry.class))).thenAnswer(new Answer<Boolean>() {
+			@Override
+			public Boolean answer(InvocationOnMock invocation) {
+				return !"子".equals(((DictionaryEntry) invocation.getArguments()[0]).getWord(0));
+			}
+		});
+		when(model.getSelectedFilters()).thenReturn(Collections.singletonList(filter));
+
+		assertThat(lookup("子")).containsExactly("dictionary " + edict.getName(), "子供", "dictionary other", "end");
+	}
+
+	@Test
+	public void testEntryLimit() throws Exception {
+		engine.dispose();
+		engine = new IncrementalLookupEngine(handler, 1);
+
+		assertThat(lookup("ch")).containsExactly("dictionary " + edict.getName(), "子", "end");
+	}
+
+	private List<String> lookup(String expression) throws Exception {
+		when(model.getSearchExpression()).thenReturn(expression);
+		engine.lookup(model);
+		// wait until the results are delivered to the handler
+		EventQueue.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+			}
+		});
+		return new ArrayList<String>(handler.calls);
+	}
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.ui;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import jgloss.dictionary.Dictionary;
+import jgloss.dictionary.DictionaryEntry;
+import jgloss.dictionary.SearchException;
+import jgloss.dictionary.SearchMode;
+import jgloss.dictionary.SearchParameter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class LookupEngineTest {
+	/**
+	 * Returns the same entry a given number of times, or endlessly. Optionally waits before
+	 * returning the first entry.
+	 */
+	private static class EntryIterator implements Iterator<DictionaryEntry> {
+		private final DictionaryEntry entry;
+		private final CountDownLatch startSignal;
+		private int remaining;
+		private volatile boolean finished;
+
+		EntryIterator(DictionaryEntry entry, int count, CountDownLatch startSignal) {
+			this.entry = entry;
+			this.remaining = count;
+			this.startSignal = startSignal;
+		}
+
+		@Override
+		public boolean hasNext() {
+			boolean hasNext = remaining != 0;
+			if (!hasNext) {
+				finished = true;
+			}
+			return hasNext;
+		}
+
+		@Override
+		public DictionaryEntry next() {
+			if (remaining == 0) {
+				throw new NoSuchElementException();
+			}
+			if (startSignal != null) {
+				try {
+					startSignal.await();
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			remaining--;
+			return entry;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	private ExecutorService executor;
+
+	@Mock
+	private LookupResultHandler handler;
+
+	@Mock
+	private LookupModel model;
+
+	@Mock
+	private SearchMode mode;
+
+	@Mock
+	private Dictionary dictionary1;
+
+	@Mock
+	private Dictionary dictionary2;
+
+	@Mock
+	private Dictionary dictionary3;
+
+	@Mock
+	private DictionaryEntry entry1;
+
+	@Mock
+	private DictionaryEntry entry2;
+
+	@Mock
+	private DictionaryEntry entry3;
+
+	@Before
+	public void initModel() {
+		executor = Executors.newCachedThreadPool();
+		when(mode.getParameters()).thenReturn(Collections.<SearchParameter> emptyList());
+		when(model.getSelectedSearchMode()).thenReturn(mode);
+		when(model.getSelectedDictionaries()).thenReturn(Arrays.asList(dictionary1, dictionary2, dictionary3));
+		when(model.getSelectedFilters()).thenReturn(Collections.<LookupResultFilter> emptyList());
+	}
+
+	@After
+	public void shutdownExecutor() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testConcurrentResultsAreForwardedInDictionaryOrder() throws Exception {
+		// the first dictionary delivers its results only after the others have finished searching
+		CountDownLatch othersFinished = new CountDownLatch(2);
+		EntryIterator results2 = new EntryIterator(entry2, 3, null);
+		EntryIterator results3 = new EntryIterator(entry3, 1, null);
+		when(dictionary1.search(mode, new Object[0])).thenReturn(new EntryIterator(entry1, 2, othersFinished));
+		when(dictionary2.search(mode, new Object[0])).thenReturn(results2);
+		when(dictionary3.search(mode, new Object[0])).thenReturn(results3);
+
+		LookupEngine engine = new LookupEngine(handler, Integer.MAX_VALUE, executor);
+		Thread countdown = startCountdownWhenFinished(othersFinished, results2, results3);
+		engine.doLookup(model);
+		countdown.join();
+
+		InOrder order = inOrder(handler);
+		order.verify(handler).startLookup(model);
+		order.verify(handler).dictionary(dictionary1);
+		order.verify(handler, times(2)).dictionaryEntry(entry1);
+		order.verify(handler).dictionary(dictionary2);
+		order.verify(handler, times(3)).dictionaryEntry(entry2);
+		order.verify(handler).dictionary(dictionary3);
+		order.verify(handler).dictionaryEntry(entry3);
+		order.verify(handler).endLookup();
+		order.verifyNoMoreInteractions();
+	}
+
+	@Test
+	public void testEntryLimitCancelsOutstandingSearches() throws Exception {
+		when(dictionary1.search(mode, new Object[0])).thenReturn(new EntryIterator(entry1, 3, null));
+		when(dictionary2.search(mode, new Object[0])).thenReturn(new EntryIterator(entry2, -1, null));
+		when(dictionary3.search(mode, new Object[0])).thenReturn(new EntryIterator(entry3, -1, null));
+
+		LookupEngine engine = new LookupEngine(handler, 5, executor);
+		engine.doLookup(model);
+
+		InOrder order = inOrder(handler);
+		order.verify(handler).startLookup(model);
+		order.verify(handler).dictionary(dictionary1);
+		order.verify(handler, times(3)).dictionaryEntry(entry1);
+		order.verify(handler).dictionary(dictionary2);
+		order.verify(handler, times(2)).dictionaryEntry(entry2);
+		order.verify(handler).endLookup();
+		order.verifyNoMoreInteractions();
+		verify(handler, never()).dictionary(dictionary3);
+
+		// the endless searches must have been stopped
+		executor.shutdown();
+		assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+	}
+
+	@Test
+	public void testSearchExceptionIsForwarded() throws Exception {
+		SearchException exception = new SearchException("test");
+		when(dictionary1.search(mode, new Object[0])).thenThrow(exception);
+		when(dictionary2.search(mode, new Object[0])).thenReturn(new EntryIterator(entry2, 1, null));
+		when(dictionary3.search(mode, new Object[0])).thenReturn(new EntryIterator(entry3, 1, null));
+
+		new LookupEngine(handler, Integer.MAX_VALUE, executor).doLookup(model);
+
+		InOrder order = inOrder(handler);
+		order.verify(handler).dictionary(dictionary1);
+		order.verify(handler).exception(exception);
+		order.verify(handler).dictionary(dictionary2);
+		order.verify(handler).dictionaryEntry(entry2);
+		order.verify(handler).dictionary(dictionary3);
+		order.verify(handler).dictionaryEntry(entry3);
+		order.verify(handler).endLookup();
+	}
+
+	@Test(timeout = 10000)
+	public void testErrorInSearchIsRethrownInLookupThread() throws Exception {
+		Error error = new Error("test");
+		when(dictionary1.search(mode, new Object[0])).thenReturn(new EntryIterator(entry1, 1, null));
+		when(dictionary2.search(mode, new Object[0])).thenThrow(error);
+		when(dictionary3.search(mode, new Object[0])).thenReturn(new EntryIterator(entry3, 1, null));
+
+		try {
+			new LookupEngine(handler, Integer.MAX_VALUE, executor).doLookup(model);
+			throw new AssertionError("error was not rethrown");
+		} catch (Error ex) {
+			assertThat(ex).isSameAs(error);
+		}
+
+		InOrder order = inOrder(handler);
+		order.verify(handler).dictionary(dictionary1);
+		order.verify(handler).dictionaryEntry(entry1);
+		order.verify(handler).dictionary(dictionary2);
+		order.verify(handler).endLookup();
+		verify(handler, never()).dictionary(dictionary3);
+	}
+
+	@Test
+	public void testInterruptedLookupCancelsSearches() throws Exception {
+		when(dictionary1.search(mode, new Object[0])).thenReturn(new EntryIterator(entry1, 1, new CountDownLatch(1)));
+		when(dictionary2.search(mode, new Object[0])).thenReturn(new EntryIterator(entry2, -1, null));
+		when(dictionary3.search(mode, new Object[0])).thenReturn(new EntryIterator(entry3, -1, null));
+
+		Thread.currentThread().interrupt();
+		try {
+			new LookupEngine(handler, Integer.MAX_VALUE, executor).doLookup(model);
+			throw new AssertionError("lookup was not interrupted");
+		} catch (InterruptedException ex) {
+			// expected
+		}
+
+		verify(handler, never()).dictionaryEntry(any(DictionaryEntry.class));
+		verify(handler).endLookup();
+		executor.shutdown();
+		assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+	}
+
+	private static Thread startCountdownWhenFinished(final CountDownLatch latch, final EntryIterator... iterators) {
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				for (EntryIterator iterator : iterators) {
+					while (!iterator.finished) {
+						Thread.yield();
+					}
+					latch.countDown();
+				}
+			}
+		};
+		thread.start();
+		return thread;
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import jgloss.dictionary.BinarySearchIndex;
+import jgloss.dictionary.Dictionary;
+import jgloss.dictionary.Index;
+import jgloss.dictionary.KeyedBinarySearchIndex;
+import jgloss.dictionary.filebased.EDict;
+import jgloss.dictionary.filebased.FileIndexContainer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the lookup of the matches of search expressions in the binary search index of the
+ * EDICT fixture. The index is the {@link KeyedBinarySearchIndex keyed index} which
+ * file based dictionaries create.
+ *
+ * @author Michael Koch
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class BinarySearchIndexBenchmark {
+    private Dictionary[] dictionaries;
+
+    private EDict edict;
+
+    private FileIndexContainer container;
+
+    private BinarySearchIndex index;
+
+    private ByteBuffer[] expressions;
+
+    private int nextExpression;
+
+    @Setup
+    public void openIndex() throws IOException {
+        dictionaries = Fixtures.openDictionaries( "edict");
+        edict = (EDict) dictionaries[0];
+
+        container = new FileIndexContainer( new File( Fixtures.getFile( Fixtures.EDICT).getPath() +
+                                                      FileIndexContainer.EXTENSION), false);
+        index = new KeyedBinarySearchIndex( KeyedBinarySearchIndex.TYPE);
+        index.setContainer( container);
+
+        String[] lines = Fixtures.readLines( Fixtures.EXPRESSIONS);
+        expressions = new ByteBuffer[lines.length];
+        for ( int i=0; i<lines.length; i++) {
+            expressions[i] = ByteBuffer.wrap( lines[i].getBytes( "UTF-8"));
+        }
+    }
+
+    @TearDown
+    public void closeIndex() {
+        container.close();
+        Fixtures.dispose( dictionaries);
+    }
+
+    /**
+     * Looks up the index entries matching the next search expression.
+     *
+     * @return Sum of the matching dictionary locations.
+     */
+    @Benchmark
+    public long getEntryPositions() {
+        ByteBuffer expression = expressions[nextExpression];
+        nextExpression = (nextExpression + 1) % expressions.length;
+        // comparisons with dictionary entries move the position of the expression buffer
+        expression.rewind();
+
+        Index.Iterator matches = index.getEntryPositions( edict, expression, null);
+        long locations = 0;
+        while (matches.hasNext()) {
+            locations += matches.next();
+        }
+        return locations;
+    }
+} // class BinarySearchIndexBenchmark
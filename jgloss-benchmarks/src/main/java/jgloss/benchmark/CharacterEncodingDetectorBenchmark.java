@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import jgloss.util.CharacterEncodingDetector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the detection of the character encoding of the text fixture in each of the
+ * supported Japanese encodings.
+ *
+ * @author Michael Koch
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class CharacterEncodingDetectorBenchmark {
+    @Param({ CharacterEncodingDetector.ENC_UTF_8, CharacterEncodingDetector.ENC_EUC_JP,
+             CharacterEncodingDetector.ENC_SHIFT_JIS, CharacterEncodingDetector.ENC_ISO_2022_JP })
+    public String encoding;
+
+    private byte[] data;
+
+    @Setup
+    public void encodeText() throws IOException {
+        data = Fixtures.read( Fixtures.TEXT).getBytes( encoding);
+    }
+
+    @Benchmark
+    public String guessEncodingName() {
+        return CharacterEncodingDetector.guessEncodingName( data);
+    }
+} // class CharacterEncodingDetectorBenchmark
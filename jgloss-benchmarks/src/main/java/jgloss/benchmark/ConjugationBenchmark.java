@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import jgloss.parser.Conjugation;
+import jgloss.util.StringTools;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the search for the conjugations matching the hiragana which follow the kanji
+ * words of the text fixture, as done by the kanji parser.
+ *
+ * @author Michael Koch
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ConjugationBenchmark {
+    private char[] text;
+
+    /**
+     * Start and end offsets in the text of every run of hiragana following a kanji.
+     */
+    private int[] inflections;
+
+    private String[] inflectionStrings;
+
+    private int nextInflection;
+
+    @Setup
+    public void findInflections() throws IOException {
+        text = Fixtures.read( Fixtures.TEXT).toCharArray();
+
+        List<Integer> offsets = new ArrayList<Integer>();
+        for ( int i=1; i<text.length; i++) {
+            if (StringTools.isHiragana( text[i]) && StringTools.isKanji( text[i-1])) {
+                int end = i+1;
+                while (end < text.length && StringTools.isHiragana( text[end])) {
+                    end++;
+                }
+                offsets.add( i);
+                offsets.add( end);
+                i = end;
+            }
+        }
+
+        inflections = new int[offsets.size()];
+        inflectionStrings = new String[offsets.size() / 2];
+        for ( int i=0; i<inflections.length; i++) {
+            inflections[i] = offsets.get( i);
+        }
+        for ( int i=0; i<inflectionStrings.length; i++) {
+            inflectionStrings[i] = new String( text, inflections[i*2], inflections[i*2+1] - inflections[i*2]);
+        }
+    }
+
+    @Benchmark
+    public Conjugation[] findConjugationsString() {
+        String inflection = inflectionStrings[nextInflection];
+        nextInflection = (nextInflection + 1) % inflectionStrings.length;
+
+        return Conjugation.findConjugations( inflection);
+    }
+
+    @Benchmark
+    public Conjugation[] findConjugationsCharArray() {
+        int start = inflections[nextInflection*2];
+        int end = inflections[nextInflection*2 + 1];
+        nextInflection = (nextInflection + 1) % inflectionStrings.length;
+
+        return Conjugation.findConjugations( text, start, end);
+    }
+} // class ConjugationBenchmark
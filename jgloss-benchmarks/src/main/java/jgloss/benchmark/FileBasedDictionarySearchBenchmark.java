@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.benchmark;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import jgloss.dictionary.Dictionary;
+import jgloss.dictionary.DictionaryEntry;
+import jgloss.dictionary.ExpressionSearchModes;
+import jgloss.dictionary.SearchFieldSelection;
+import jgloss.dictionary.SearchMode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures expression searches in the file based EDICT and WadokuJT fixture dictionaries,
+ * in every {@link ExpressionSearchModes expression search mode}. Every invocation searches
+ * the next of the fixture expressions and iterates over all results. The results are not
+ * parsed.
+ *
+ * @author Michael Koch
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class FileBasedDictionarySearchBenchmark {
+    private static final SearchFieldSelection ALL_FIELDS = new SearchFieldSelection( true, true, true, true, false);
+
+    @Param({ "edict", "wadokujt" })
+    public String dictionary;
+
+    @Param({ "exact", "prefix", "suffix", "any" })
+    public String searchMode;
+
+    private Dictionary[] dictionaries;
+
+    private SearchMode mode;
+
+    private Object[][] parameters;
+
+    private int nextExpression;
+
+    @Setup
+    public void openDictionary() throws IOException {
+        dictionaries = Fixtures.openDictionaries( dictionary);
+
+        if ("exact".equals( searchMode)) {
+            mode = ExpressionSearchModes.EXACT;
+        } else if ("prefix".equals( searchMode)) {
+            mode = ExpressionSearchModes.PREFIX;
+        } else if ("suffix".equals( searchMode)) {
+            mode = ExpressionSearchModes.SUFFIX;
+        } else {
+            mode = ExpressionSearchModes.ANY;
+        }
+
+        String[] expressions = Fixtures.readLines( Fixtures.EXPRESSIONS);
+        parameters = new Object[expressions.length][];
+        for ( int i=0; i<expressions.length; i++) {
+            parameters[i] = new Object[] { expressions[i], ALL_FIELDS };
+        }
+    }
+
+    @TearDown
+    public void disposeDictionary() {
+        Fixtures.dispose( dictionaries);
+    }
+
+    @Benchmark
+    public void search( Blackhole blackhole) {
+        Object[] searchParameters = parameters[nextExpression];
+        nextExpression = (nextExpression + 1) % parameters.length;
+
+        Iterator<DictionaryEntry> entries = dictionaries[0].search( mode, searchParameters);
+        while (entries.hasNext()) {
+            blackhole.consume( entries.next());
+        }
+    }
+} // class FileBasedDictionarySearchBenchmark
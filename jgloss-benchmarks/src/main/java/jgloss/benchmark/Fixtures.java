@@ -0,0 +1,597 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.benchmark;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import jgloss.dictionary.Dictionary;
+import jgloss.dictionary.IndexedDictionary;
+import jgloss.dictionary.filebased.EDict;
+import jgloss.dictionary.filebased.IndexedKanjiDic;
+import jgloss.dictionary.filebased.WadokuJT;
+
+/**
+ * Synthetic dictionaries and texts used by the benchmarks.
+ * <P>
+ * The fixtures are generated from a pseudo random sequence with a fixed seed, so every build
+ * produces the same files and benchmark results of different builds can be compared. All
+ * dictionaries are generated from the same list of entries, which means that the words of
+ * the generated texts and the search {@link #EXPRESSIONS expressions} are found in every
+ * dictionary. The kanji are restricted to characters which can be encoded in Shift-JIS and
+ * EUC-JP.
+ * </P><P>
+ * The fixtures are written to <code>target/fixtures</code> when the module is built. The
+ * benchmarks look for them in the directory named by the system property
+ * {@link #DIRECTORY_PROPERTY jgloss.benchmark.fixtures}, or in <code>target/fixtures</code>
+ * relative to the working directory, and generate them there if they are missing.
+ * </P>
+ *
+ * @author Michael Koch
+ */
+public class Fixtures {
+    /**
+     * System property which names the directory of the fixtures.
+     */
+    public static final String DIRECTORY_PROPERTY = "jgloss.benchmark.fixtures";
+
+    /**
+     * UTF-8 encoded dictionary in EDICT format.
+     */
+    public static final String EDICT = "edict";
+
+    /**
+     * Dictionary in WadokuJT.txt format.
+     */
+    public static final String WADOKUJT = "wadokujt.txt";
+
+    /**
+     * UTF-8 encoded dictionary in KANJIDIC format, with an entry for every kanji used in the
+     * other dictionaries.
+     */
+    public static final String KANJIDIC = "kanjidic";
+
+    /**
+     * Plain Japanese text made of words from the dictionaries, particles and inflections.
+     */
+    public static final String TEXT = "text.txt";
+
+    /**
+     * HTML page with the paragraphs of the {@link #TEXT text} and links between them.
+     */
+    public static final String HTML = "text.html";
+
+    /**
+     * Search expressions, one per line: words, readings, word prefixes and translations.
+     */
+    public static final String EXPRESSIONS = "expressions.txt";
+
+    private static final String[] FILES = { EDICT, WADOKUJT, KANJIDIC, TEXT, HTML, EXPRESSIONS };
+
+    private static final String DEFAULT_DIRECTORY = "target/fixtures";
+
+    private static final long SEED = 0x4a476c6f7373L; // JGloss in ASCII
+
+    private static final int ENTRY_COUNT = 20000;
+
+    private static final int PARAGRAPH_COUNT = 40;
+
+    private static final int EXPRESSION_COUNT = 200;
+
+    private static final String[] GLOSSES = {
+        "child", "water", "mountain", "river", "tree", "house", "book", "school", "letter", "word",
+        "road", "rain", "fire", "stone", "field", "flower", "bird", "fish", "sky", "sea",
+        "light", "voice", "hand", "heart", "time", "year", "story", "market", "bridge", "garden",
+        "friend", "teacher", "doctor", "village", "city", "country", "island", "temple", "festival",
+        "journey", "morning", "evening", "winter", "summer", "color", "picture", "song", "game",
+        "paper", "money", "work", "power", "peace", "reason", "answer", "question", "order", "plan"
+    };
+
+    private static final String[] VERBS = {
+        "eat", "drink", "read", "write", "see", "hear", "walk", "run", "speak", "think",
+        "carry", "open", "close", "build", "learn", "teach", "wait", "meet", "send", "lose"
+    };
+
+    private static final String CONSONANTS = "bcdfghklmnprstvwz";
+
+    private static final String VOWELS = "aeiou";
+
+    private static final String[] PARTICLES = { "は", "が", "を", "に", "で", "と", "の", "へ", "も", "から" };
+
+    /**
+     * Okurigana of ichidan verbs; the dictionary form ends with る.
+     */
+    private static final String ICHIDAN_OKURIGANA = "えけせてねべめれ";
+
+    private static final String[] ICHIDAN_ENDINGS = { "る", "ます", "ました", "ない", "なかった", "た", "て", "られる" };
+
+    /**
+     * Dictionary form endings of godan verbs and their continuative forms.
+     */
+    private static final String[][] GODAN_ENDINGS = {
+        { "く", "き" }, { "む", "み" }, { "う", "い" }, { "す", "し" }, { "る", "り" }, { "つ", "ち" }
+    };
+
+    private static final String[] GODAN_INFLECTIONS = { "ます", "ました", "ません", "たい" };
+
+    private static final String[] ADJECTIVE_ENDINGS = { "い", "かった", "くない", "く" };
+
+    private static final int NOUN = 0;
+
+    private static final int ICHIDAN_VERB = 1;
+
+    private static final int GODAN_VERB = 2;
+
+    private static final int ADJECTIVE = 3;
+
+    /**
+     * EDICT part of speech markers of the entry types.
+     */
+    private static final String[] EDICT_POS = { "(n)", "(v1)", "(v5)", "(adj)" };
+
+    /**
+     * WadokuJT part of speech markers of the entry types.
+     */
+    private static final String[] WADOKU_POS = { "名", "下一 他", "五 他", "形" };
+
+    /**
+     * Entry in the generated dictionaries.
+     */
+    private static class Entry {
+        int type;
+        String word;
+        String reading;
+        String[] translations;
+        /**
+         * Word without the inflected ending, or the complete word for nouns.
+         */
+        String stem;
+    }
+
+    private static File directory;
+
+    /**
+     * Returns the fixture with the given name, generating the fixtures if necessary.
+     */
+    public static synchronized File getFile( String name) throws IOException {
+        if (directory == null) {
+            File dir = new File( System.getProperty( DIRECTORY_PROPERTY, DEFAULT_DIRECTORY));
+            for ( String file : FILES) {
+                if (!new File( dir, file).isFile()) {
+                    generate( dir);
+                    break;
+                }
+            }
+            directory = dir;
+        }
+
+        return new File( directory, name);
+    }
+
+    /**
+     * Returns the content of the UTF-8 encoded fixture with the given name.
+     */
+    public static String read( String name) throws IOException {
+        Reader in = new InputStreamReader( new FileInputStream( getFile( name)), "UTF-8");
+        try {
+            StringBuilder out = new StringBuilder();
+            char[] buf = new char[8192];
+            int r;
+            while ((r=in.read( buf)) != -1) {
+                out.append( buf, 0, r);
+            }
+            return out.toString();
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Returns the lines of the UTF-8 encoded fixture with the given name.
+     */
+    public static String[] readLines( String name) throws IOException {
+        return read( name).split( "\n");
+    }
+
+    /**
+     * Loads the index of a dictionary, or builds the index if the dictionary has none.
+     *
+     * @return The dictionary.
+     */
+    public static <T extends IndexedDictionary> T index( T dictionary) {
+        if (!dictionary.loadIndex()) {
+            dictionary.buildIndex();
+        }
+        return dictionary;
+    }
+
+    /**
+     * Opens the fixture dictionaries with the given names and loads or builds their indexes.
+     *
+     * @param names <code>+</code>-separated list of dictionary names: <code>edict</code>,
+     *        <code>wadokujt</code> or <code>kanjidic</code>.
+     */
+    public static Dictionary[] openDictionaries( String names) throws IOException {
+        String[] nameList = names.split( "\\+");
+        Dictionary[] dictionaries = new Dictionary[nameList.length];
+        for ( int i=0; i<nameList.length; i++) {
+            if ("edict".equals( nameList[i])) {
+                dictionaries[i] = index( new EDict( getFile( EDICT), "UTF-8"));
+            } else if ("wadokujt".equals( nameList[i])) {
+                dictionaries[i] = index( new WadokuJT( getFile( WADOKUJT)));
+            } else if ("kanjidic".equals( nameList[i])) {
+                dictionaries[i] = index( new IndexedKanjiDic( getFile( KANJIDIC)));
+            } else {
+                throw new IllegalArgumentException( nameList[i]);
+            }
+        }
+        return dictionaries;
+    }
+
+    /**
+     * Disposes all dictionaries in the array.
+     */
+    public static void dispose( Dictionary[] dictionaries) {
+        for ( Dictionary dictionary : dictionaries) {
+            dictionary.dispose();
+        }
+    }
+
+    /**
+     * Writes all fixtures to a directory.
+     */
+    public static void generate( File dir) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException( "unable to create directory " + dir);
+        }
+        // delete indexes of earlier fixtures
+        for ( String file : FILES) {
+            new File( dir, file + ".index").delete();
+        }
+
+        Random random = new Random( SEED);
+        char[] kanji = encodableKanji();
+        List<Entry> entries = new ArrayList<Entry>( ENTRY_COUNT);
+        for ( int i=0; i<ENTRY_COUNT; i++) {
+            entries.add( createEntry( random, kanji));
+        }
+
+        writeEDict( new File( dir, EDICT), entries);
+        writeWadokuJT( new File( dir, WADOKUJT), entries);
+        writeKanjiDic( new File( dir, KANJIDIC), entries, random);
+
+        List<String> paragraphs = new ArrayList<String>( PARAGRAPH_COUNT);
+        for ( int i=0; i<PARAGRAPH_COUNT; i++) {
+            paragraphs.add( createParagraph( random, entries));
+        }
+        writeText( new File( dir, TEXT), paragraphs);
+        writeHTML( new File( dir, HTML), paragraphs);
+
+        writeExpressions( new File( dir, EXPRESSIONS), entries, random);
+    }
+
+    /**
+     * Returns all kanji of the CJK unified ideographs block which can be encoded as two bytes
+     * in both Shift-JIS and EUC-JP, that is the kanji of JIS X 0208.
+     */
+    private static char[] encodableKanji() {
+        CharsetEncoder sjis = Charset.forName( "Shift_JIS").newEncoder();
+        CharsetEncoder euc = Charset.forName( "EUC-JP").newEncoder();
+        StringBuilder out = new StringBuilder();
+        for ( char c=0x4e00; c<=0x9fa5; c++) {
+            String s = String.valueOf( c);
+            if (sjis.canEncode( c) && euc.canEncode( c) && eucBytes( s).length == 2) {
+                out.append( c);
+            }
+        }
+        return out.toString().toCharArray();
+    }
+
+    private static byte[] eucBytes( String s) {
+        return s.getBytes( Charset.forName( "EUC-JP"));
+    }
+
+    private static Entry createEntry( Random random, char[] kanji) {
+        Entry entry = new Entry();
+        entry.type = random.nextInt( 10) < 6 ? NOUN : 1 + random.nextInt( 3);
+        StringBuilder stem = new StringBuilder();
+        int length = entry.type == NOUN ? 1 + random.nextInt( 3) : 1;
+        for ( int i=0; i<length; i++) {
+            stem.append( kanji[random.nextInt( kanji.length)]);
+        }
+        String reading = hiragana( random, length + 1 + random.nextInt( 2));
+        String gloss = translation( random, GLOSSES);
+
+        switch (entry.type) {
+        case ICHIDAN_VERB: {
+            String okurigana = String.valueOf( ICHIDAN_OKURIGANA.charAt
+                                               ( random.nextInt( ICHIDAN_OKURIGANA.length())));
+            stem.append( okurigana);
+            entry.word = stem + "る";
+            entry.reading = reading + okurigana + "る";
+            entry.translations = new String[] { "to " + translation( random, VERBS) + " the " + gloss };
+            break;
+        }
+        case GODAN_VERB: {
+            String[] ending = GODAN_ENDINGS[random.nextInt( GODAN_ENDINGS.length)];
+            entry.word = stem + ending[0];
+            entry.reading = reading + ending[0];
+            // the stem of godan verbs includes the continuative form ending
+            stem.append( ending[1]);
+            entry.translations = new String[] { "to " + translation( random, VERBS) };
+            break;
+        }
+        case ADJECTIVE:
+            entry.word = stem + "い";
+            entry.reading = reading + "い";
+            entry.translations = new String[] { gloss + "-like", "similar to a " + gloss };
+            break;
+        default:
+            entry.word = stem.toString();
+            entry.reading = reading;
+            entry.translations = random.nextBoolean() ?
+                new String[] { gloss } :
+                new String[] { gloss, "small " + translation( random, GLOSSES) };
+        }
+        entry.stem = stem.toString();
+
+        return entry;
+    }
+
+    /**
+     * Returns one of the common words, or with a probability of 3/4 a generated word, so that
+     * the translations contain both frequent and rare words.
+     */
+    private static String translation( Random random, String[] commonWords) {
+        if (random.nextInt( 4) == 0) {
+            return commonWords[random.nextInt( commonWords.length)];
+        }
+
+        StringBuilder out = new StringBuilder();
+        int syllables = 2 + random.nextInt( 2);
+        for ( int i=0; i<syllables; i++) {
+            out.append( CONSONANTS.charAt( random.nextInt( CONSONANTS.length())))
+                .append( VOWELS.charAt( random.nextInt( VOWELS.length())));
+        }
+        if (random.nextBoolean()) {
+            out.append( CONSONANTS.charAt( random.nextInt( CONSONANTS.length())));
+        }
+        return out.toString();
+    }
+
+    private static String hiragana( Random random, int length) {
+        StringBuilder out = new StringBuilder( length);
+        for ( int i=0; i<length; i++) {
+            // あ to ん, without the small kana
+            char c;
+            do {
+                c = (char) ('あ' + random.nextInt( 0x3093 - 0x3042 + 1));
+            } while ("ぃぅぇぉっゃゅょゎ".indexOf( c) != -1);
+            out.append( c);
+        }
+        return out.toString();
+    }
+
+    private static String katakana( String hiragana) {
+        StringBuilder out = new StringBuilder( hiragana.length());
+        for ( int i=0; i<hiragana.length(); i++) {
+            out.append( (char) (hiragana.charAt( i) + 0x60));
+        }
+        return out.toString();
+    }
+
+    private static String createParagraph( Random random, List<Entry> entries) {
+        StringBuilder out = new StringBuilder();
+        int sentences = 3 + random.nextInt( 4);
+        for ( int s=0; s<sentences; s++) {
+            int phrases = 2 + random.nextInt( 5);
+            for ( int p=0; p<phrases; p++) {
+                Entry entry = entries.get( random.nextInt( entries.size()));
+                switch (entry.type) {
+                case ICHIDAN_VERB:
+                    out.append( entry.stem)
+                        .append( ICHIDAN_ENDINGS[random.nextInt( ICHIDAN_ENDINGS.length)]);
+                    break;
+                case GODAN_VERB:
+                    out.append( entry.stem)
+                        .append( GODAN_INFLECTIONS[random.nextInt( GODAN_INFLECTIONS.length)]);
+                    break;
+                case ADJECTIVE:
+                    out.append( entry.stem)
+                        .append( ADJECTIVE_ENDINGS[random.nextInt( ADJECTIVE_ENDINGS.length)]);
+                    break;
+                default:
+                    out.append( entry.word);
+                }
+                if (p+1 < phrases) {
+                    out.append( PARTICLES[random.nextInt( PARTICLES.length)]);
+                    if (random.nextInt( 8) == 0) {
+                        out.append( '、');
+                    }
+                } else {
+                    out.append( '。');
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    private static void writeEDict( File file, List<Entry> entries) throws IOException {
+        Writer out = createWriter( file, "UTF-8");
+        try {
+            out.write( "　？？？ /EDICT, synthetic JGloss benchmark dictionary/\n");
+            for ( Entry entry : entries) {
+                out.write( entry.word);
+                out.write( " [");
+                out.write( entry.reading);
+                out.write( "] /");
+                out.write( EDICT_POS[entry.type]);
+                out.write( ' ');
+                for ( String translation : entry.translations) {
+                    out.write( translation);
+                    out.write( '/');
+                }
+                out.write( '\n');
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void writeWadokuJT( File file, List<Entry> entries) throws IOException {
+        Writer out = createWriter( file, "UTF-8");
+        try {
+            for ( Entry entry : entries) {
+                // japanese|reading|part of speech|translation|comment|reference
+                out.write( entry.word);
+                out.write( '|');
+                out.write( entry.reading);
+                out.write( '|');
+                out.write( WADOKU_POS[entry.type]);
+                out.write( '|');
+                for ( int i=0; i<entry.translations.length; i++) {
+                    if (i > 0) {
+                        out.write( "; ");
+                    }
+                    out.write( entry.translations[i]);
+                }
+                out.write( "||\n");
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void writeKanjiDic( File file, List<Entry> entries, Random random) throws IOException {
+        Writer out = createWriter( file, "UTF-8");
+        try {
+            out.write( "# KANJIDIC synthetic JGloss benchmark dictionary\n");
+            boolean[] written = new boolean[0x10000];
+            for ( Entry entry : entries) {
+                for ( int i=0; i<entry.word.length(); i++) {
+                    char c = entry.word.charAt( i);
+                    if (c < 0x4e00 || written[c]) {
+                        continue;
+                    }
+                    written[c] = true;
+
+                    byte[] euc = eucBytes( String.valueOf( c));
+                    int jis = ((euc[0] & 0x7f) << 8) | (euc[1] & 0x7f);
+                    String on = katakana( hiragana( random, 1 + random.nextInt( 2)));
+                    String kun = hiragana( random, 1 + random.nextInt( 2));
+                    out.write( c + " " + Integer.toHexString( jis) + " U" + Integer.toHexString( c) +
+                               " N" + (1 + random.nextInt( 5000)) + " B" + (1 + random.nextInt( 214)) +
+                               " G" + (1 + random.nextInt( 8)) + " S" + (1 + random.nextInt( 20)) +
+                               " " + on + " " + kun + "." + hiragana( random, 1) + " T1 " + kun +
+                               " {" + translation( random, GLOSSES) + "}" +
+                               " {" + entry.translations[0] + "}\n");
+                }
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void writeText( File file, List<String> paragraphs) throws IOException {
+        Writer out = createWriter( file, "UTF-8");
+        try {
+            for ( String paragraph : paragraphs) {
+                out.write( paragraph);
+                out.write( '\n');
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void writeHTML( File file, List<String> paragraphs) throws IOException {
+        Writer out = createWriter( file, "UTF-8");
+        try {
+            out.write( "<html>\n<head>\n<meta http-equiv=\"Content-Type\" content=\"text/html; charset=UTF-8\">\n" +
+                       "<title>JGloss benchmark</title>\n</head>\n<body>\n");
+            for ( int i=0; i<paragraphs.size(); i++) {
+                out.write( "<!-- paragraph " + i + " -->\n<p id=\"p" + i + "\">");
+                out.write( paragraphs.get( i));
+                out.write( " <a href=\"page" + (i+1) + ".html\">" + paragraphs.get( i).substring( 0, 4) + "</a>");
+                if (i % 10 == 0) {
+                    out.write( "<img src=\"images/figure" + i + ".png\" alt=\"figure\">");
+                }
+                out.write( "</p>\n");
+            }
+            out.write( "<form action=\"search\" method=\"get\"><input type=\"text\" name=\"q\"></form>\n" +
+                       "</body>\n</html>\n");
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void writeExpressions( File file, List<Entry> entries, Random random) throws IOException {
+        Writer out = createWriter( file, "UTF-8");
+        try {
+            for ( int i=0; i<EXPRESSION_COUNT; i++) {
+                Entry entry = entries.get( random.nextInt( entries.size()));
+                String expression;
+                switch (i % 4) {
+                case 0: expression = entry.word; break;
+                case 1: expression = entry.reading; break;
+                case 2: expression = entry.word.substring( 0, 1); break;
+                default: expression = entry.translations[0]; break;
+                }
+                out.write( expression);
+                out.write( '\n');
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private static Writer createWriter( File file, String encoding) throws IOException {
+        return new OutputStreamWriter( new FileOutputStream( file), encoding);
+    }
+
+    /**
+     * Writes the fixtures to the directory given as the only argument.
+     */
+    public static void main( String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println( "usage: java " + Fixtures.class.getName() + " directory");
+            System.exit( 1);
+        }
+
+        File dir = new File( args[0]);
+        generate( dir);
+        System.out.println( "fixtures " + Arrays.toString( FILES) + " written to " + dir);
+    }
+} // class Fixtures
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.benchmark;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import jgloss.dictionary.Dictionary;
+import jgloss.parser.KanjiParser;
+import jgloss.www.HTMLAnnotator;
+import jgloss.www.JGlossURLRewriter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the annotation of the HTML fixture page by the JGloss servlet annotator. Like the
+ * servlet, every invocation creates a new annotator and parser without shared caches, then
+ * annotates the page and rewrites its links.
+ *
+ * @author Michael Koch
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+public class HTMLAnnotatorBenchmark {
+    private static final String DOCUMENT_BASE = "http://www.example.org/benchmark/text.html";
+
+    private static final String SERVLET_BASE = "http://localhost:8080/jgloss-www/jgloss";
+
+    private static final Set<String> PROTOCOLS = new HashSet<String>( Arrays.asList( "http", "https"));
+
+    /**
+     * Writer which discards its output.
+     */
+    private static class NullWriter extends Writer {
+        private long written;
+
+        @Override
+        public void write( char[] cbuf, int off, int len) {
+            written += len;
+        }
+
+        @Override
+        public void flush() {}
+
+        @Override
+        public void close() {}
+    }
+
+    private Dictionary[] dictionaries;
+
+    private String html;
+
+    @Setup
+    public void openDictionary() throws IOException {
+        dictionaries = Fixtures.openDictionaries( "edict");
+        html = Fixtures.read( Fixtures.HTML);
+    }
+
+    @TearDown
+    public void disposeDictionary() {
+        Fixtures.dispose( dictionaries);
+    }
+
+    /**
+     * Annotates the HTML page.
+     *
+     * @return Number of characters written.
+     */
+    @Benchmark
+    public long annotate() throws IOException {
+        HTMLAnnotator annotator = new HTMLAnnotator( new KanjiParser( dictionaries, Collections.<String> emptySet()));
+        JGlossURLRewriter rewriter = new JGlossURLRewriter( SERVLET_BASE, new URL( DOCUMENT_BASE), PROTOCOLS,
+                                                            false, false);
+        NullWriter out = new NullWriter();
+        annotator.annotate( DOCUMENT_BASE, new StringReader( html), out, rewriter);
+        return out.written;
+    }
+} // class HTMLAnnotatorBenchmark
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import jgloss.dictionary.Dictionary;
+import jgloss.dictionary.DictionaryEntry;
+import jgloss.dictionary.IncrementalSearch;
+import jgloss.dictionary.IncrementalSearchable;
+import jgloss.dictionary.SearchFieldSelection;
+import jgloss.dictionary.SearchMode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the search-as-you-type lookups in the EDICT fixture dictionary. Every invocation
+ * searches the next prefix of the fixture expressions, as they are produced by typing the
+ * expressions one character at a time, in an {@link IncrementalSearch incremental search} session.
+ * The search modes are tried from the most to the least specific, and up to <code>entryLimit</code>
+ * entries of the first mode with matches are used, like in the incremental lookup of the dictionary
+ * lookup dialog. The sample time mode reports the percentiles of the lookup time, which the
+ * search delay of the lookup dialog is based on.
+ *
+ * @author Michael Koch
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class IncrementalSearchBenchmark {
+    private static final SearchFieldSelection ALL_FIELDS = new SearchFieldSelection( true, true, true, true, false);
+
+    @Param({ "100", "2147483647" })
+    public int entryLimit;
+
+    private Dictionary[] dictionaries;
+
+    private String[] prefixes;
+
+    private int nextPrefix;
+
+    private IncrementalSearch session;
+
+    @Setup
+    public void openDictionary() throws IOException {
+        dictionaries = Fixtures.openDictionaries( "edict");
+
+        List<String> typed = new ArrayList<String>();
+        for ( String expression : Fixtures.readLines( Fixtures.EXPRESSIONS)) {
+            for ( int length=1; length<=expression.length(); length++) {
+                typed.add( expression.substring( 0, length));
+            }
+        }
+        prefixes = typed.toArray( new String[typed.size()]);
+    }
+
+    @TearDown
+    public void disposeDictionary() {
+        Fixtures.dispose( dictionaries);
+    }
+
+    @Benchmark
+    public void search( Blackhole blackhole) {
+        String prefix = prefixes[nextPrefix];
+        nextPrefix = (nextPrefix + 1) % prefixes.length;
+        if (session == null || prefix.length() == 1) {
+            // the user starts typing a new expression
+            session = ((IncrementalSearchable) dictionaries[0]).createIncrementalSearch();
+        }
+
+        IncrementalSearch.Result result = session.search( prefix, ALL_FIELDS, entryLimit);
+        int entries = 0;
+        for ( SearchMode mode : IncrementalSearch.SEARCH_MODES) {
+            Iterator<DictionaryEntry> modeEntries = result.getEntries( mode);
+            while (modeEntries.hasNext() && entries < entryLimit) {
+                blackhole.consume( modeEntries.next().getWord( 0));
+                entries++;
+            }
+            if (entries > 0) {
+                break;
+            }
+        }
+    }
+} // class IncrementalSearchBenchmark
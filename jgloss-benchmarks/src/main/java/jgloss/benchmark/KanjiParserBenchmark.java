@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.benchmark;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import jgloss.dictionary.Dictionary;
+import jgloss.parser.KanjiParser;
+import jgloss.parser.TextAnnotation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures annotating the paragraphs of the text fixture with the kanji parser. Every invocation
+ * parses the complete text, as when a document is imported, and then resets the parser, which
+ * clears the lookup cache.
+ *
+ * @author Michael Koch
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+public class KanjiParserBenchmark {
+    @Param({ "edict", "wadokujt", "edict+kanjidic" })
+    public String dictionary;
+
+    @Param({ "true", "false" })
+    public boolean cacheLookups;
+
+    private Dictionary[] dictionaries;
+
+    private KanjiParser parser;
+
+    private char[][] paragraphs;
+
+    @Setup
+    public void createParser() throws IOException {
+        dictionaries = Fixtures.openDictionaries( dictionary);
+        parser = new KanjiParser( dictionaries, Collections.<String> emptySet(), cacheLookups, false, false);
+
+        String[] lines = Fixtures.readLines( Fixtures.TEXT);
+        paragraphs = new char[lines.length][];
+        for ( int i=0; i<lines.length; i++) {
+            paragraphs[i] = lines[i].toCharArray();
+        }
+    }
+
+    @TearDown
+    public void disposeDictionaries() {
+        Fixtures.dispose( dictionaries);
+    }
+
+    @Benchmark
+    public void parse( Blackhole blackhole) {
+        for ( char[] paragraph : paragraphs) {
+            List<TextAnnotation> annotations = parser.parse( paragraph, 0, paragraph.length);
+            blackhole.consume( annotations);
+        }
+        parser.reset();
+    }
+} // class KanjiParserBenchmark
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.dictionary.filebased;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import jgloss.dictionary.Dictionary;
+import jgloss.benchmark.Fixtures;
+import jgloss.dictionary.DictionaryEntry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures parsing the lines of the EDICT fixture into dictionary entries. The benchmark is in
+ * the package of the entry parser because the parser is not public.
+ *
+ * @author Michael Koch
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class EDictEntryParserBenchmark {
+    private Dictionary[] dictionaries;
+
+    private EDictEntryParser parser;
+
+    private String[] lines;
+
+    private int nextLine;
+
+    @Setup
+    public void createParser() throws IOException {
+        dictionaries = Fixtures.openDictionaries( "edict");
+        parser = new EDictEntryParser();
+        parser.setDictionary( dictionaries[0]);
+
+        // skip the header line
+        String[] edict = Fixtures.readLines( Fixtures.EDICT);
+        lines = Arrays.copyOfRange( edict, 1, edict.length);
+    }
+
+    @TearDown
+    public void disposeDictionary() {
+        Fixtures.dispose( dictionaries);
+    }
+
+    @Benchmark
+    public DictionaryEntry parseEntry() {
+        String line = lines[nextLine];
+        nextLine = (nextLine + 1) % lines.length;
+
+        return parser.parseEntry( line, 0);
+    }
+} // class EDictEntryParserBenchmark
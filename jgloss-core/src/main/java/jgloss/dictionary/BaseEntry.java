@@ -45,7 +45,7 @@ public abstract class BaseEntry implements DictionaryEntry {
      * dictionary entries the marker must always be different. The marker usually is the
      * position where the entry is found in the dictionary, since this is unique.
      */
-    protected int entryMarker;
+    protected long entryMarker;
     protected DictionaryEntryReference reference;
 
     protected DefaultAttributeSet emptySet = new DefaultAttributeSet( null);
@@ -60,19 +60,19 @@ public abstract class BaseEntry implements DictionaryEntry {
      * @see BaseEntry#getReference()
      */
     public interface MarkerDictionary {
-        DictionaryEntry createEntryFromMarker( int entryMarker) throws SearchException;
+        DictionaryEntry createEntryFromMarker( long entryMarker) throws SearchException;
     } // interface MarkerDictionary
 
     /**
      * Reference to a base dictionary entry. The dictionary entry object which is referenced
      * is stored using a <code>SoftReference</code>. If the object is garbage collected when
      * {@link #getEntry() getEntry} is called, it will be recreated by calling
-     * {@link BaseEntry.MarkerDictionary#createEntryFromMarker(int) createEntryFromMarker} on the entry's
+     * {@link BaseEntry.MarkerDictionary#createEntryFromMarker(long) createEntryFromMarker} on the entry's
      * dictionary.
      */
     protected static class BaseEntryRef implements DictionaryEntryReference {
         protected SoftReference<DictionaryEntry> entryRef;
-        protected int entryMarker;
+        protected long entryMarker;
         protected Dictionary dictionary;
 
         public BaseEntryRef( BaseEntry entry) {
@@ -92,7 +92,7 @@ public abstract class BaseEntry implements DictionaryEntry {
         }
     } // class BaseEntryRef
 
-    public BaseEntry( int _entryMarker, List<List<String>> _translations,
+    public BaseEntry( long _entryMarker, List<List<String>> _translations,
  AttributeSet _generalA, AttributeSet _wordA,
                     AttributeSet _readingA,
                       AttributeSet _translationA,
@@ -23,15 +23,25 @@
 package jgloss.dictionary;
 
 import java.nio.ByteBuffer;
-import java.nio.IntBuffer;
 
+import jgloss.util.SegmentedByteBuffer;
+
+/**
+ * Index which stores the locations of all indexed terms sorted by the term they point to.
+ * Matching entries are found by binary search. Locations are stored either as 32 bit
+ * values, which suffices for dictionaries smaller than 2 GB, or as 64 bit values.
+ *
+ * @author Michael Koch
+ * @see BinarySearchIndexBuilder
+ * @see ParallelBinarySearchIndexBuilder
+ */
 public class BinarySearchIndex implements Index {
-    private class BinarySearchIterator implements Index.Iterator {
-        private final int firstEntry;
-        private final int lastEntry;
-        private int currentEntry;
+    protected class BinarySearchIterator implements Index.Iterator {
+        private final long firstEntry;
+        private final long lastEntry;
+        private long currentEntry;
 
-        public BinarySearchIterator( int _firstEntry, int _lastEntry) {
+        public BinarySearchIterator( long _firstEntry, long _lastEntry) {
             this.firstEntry = _firstEntry;
             this.lastEntry = _lastEntry;
             currentEntry = firstEntry;
@@ -40,53 +50,165 @@ public class BinarySearchIndex implements Index {
         @Override
 		public boolean hasNext() { return currentEntry <= lastEntry; }
         @Override
-		public int next() {
+		public long next() {
             if (!hasNext()) {
 	            throw new java.util.NoSuchElementException();
             }
-            return index.get( currentEntry++);
+            return getEntry( currentEntry++);
         }
     } // class BinarySearchIterator
 
+    /**
+     * Range <code>[from,to)</code> of the index entries which match an expression. Since the
+     * entries are sorted, the range of an expression contains the ranges of all expressions
+     * which start with it. A search for an extended expression can therefore be restricted to
+     * the range of the previous expression, see {@link BinarySearchIndex#findRange(Indexable,ByteBuffer,Range)
+     * findRange}.
+     */
+    public static final class Range {
+        private final long from;
+        private final long to;
+
+        Range( long _from, long _to) {
+            this.from = _from;
+            this.to = _to;
+        }
+
+        /**
+         * Returns the first index entry in the range.
+         */
+        public long getFrom() { return from; }
+
+        /**
+         * Returns the index entry after the last entry in the range.
+         */
+        public long getTo() { return to; }
+
+        public long size() { return to - from; }
+
+        public boolean isEmpty() { return from >= to; }
+
+        /**
+         * Returns the range without its first <code>count</code> index entries.
+         */
+        public Range skip( long count) {
+            return new Range( Math.min( from + count, to), to);
+        }
+
+        @Override
+        public String toString() {
+            return "[" + from + "," + to + ")";
+        }
+    } // class Range
+
     protected final BinarySearchIterator EMPTY_MATCH = new BinarySearchIterator( 0, -1);
 
     /**
-     * Default type of this index.
+     * Default type of this index. Locations are stored as 32 bit values.
      */
     public static final int TYPE = 0x42695365; // BiSe in ASCII
 
-    private IntBuffer index = null;
+    /**
+     * Type of a binary search index which stores locations as 64 bit values.
+     */
+    public static final int LONG_TYPE = 0x4269536c; // BiSl in ASCII
+
+    protected SegmentedByteBuffer index = null;
+    protected long entryCount;
     private final int type;
+    protected final boolean longEntries;
 
     public BinarySearchIndex() {
         this( TYPE);
     }
 
+    /**
+     * Creates an index of the given type. The index stores 64 bit locations if the type is
+     * {@link #LONG_TYPE LONG_TYPE}, 32 bit locations otherwise.
+     */
     public BinarySearchIndex( int _type) {
+        this( _type, _type == LONG_TYPE);
+    }
+
+    /**
+     * Creates an index of the given type.
+     *
+     * @param _longEntries <code>true</code> if the index data stores locations as 64 bit values,
+     *        <code>false</code> for 32 bit values.
+     */
+    public BinarySearchIndex( int _type, boolean _longEntries) {
         type = _type;
+        longEntries = _longEntries;
     }
-    
+
     @Override
 	public int getType() {
         return type;
     }
 
+    /**
+     * Returns the number of bytes used to store an index entry in the index data.
+     */
+    public int getEntrySize() {
+        return longEntries ? 8 : 4;
+    }
+
     @Override
 	public void setContainer( IndexContainer container) throws IndexException {
-        index = container.getIndexData( type).asIntBuffer();
+        index = container.getSegmentedIndexData( type);
+        entryCount = index.size() / getEntrySize();
     }
 
     @Override
 	public Index.Iterator getEntryPositions( Indexable dictionary, ByteBuffer expression,
                                              Object[] parameters) throws IndexException {
-        int match = findMatch( dictionary, expression);
+        return getEntryPositions( findRange( dictionary, expression, null));
+    }
+
+    /**
+     * Returns an iterator over the index entries in a range returned by
+     * {@link #findRange(Indexable,ByteBuffer,Range) findRange}.
+     */
+    public Index.Iterator getEntryPositions( Range range) {
+        if (range.isEmpty()) {
+            return EMPTY_MATCH;
+        }
+        return new BinarySearchIterator( range.getFrom(), range.getTo() - 1);
+    }
+
+    /**
+     * Returns the range of index entries which match the expression.
+     *
+     * @param within Range of index entries which contains all matches of the expression, for example
+     *        the range found for a prefix of the expression. If <code>null</code>, the whole index
+     *        is searched.
+     */
+    public Range findRange( Indexable dictionary, ByteBuffer expression, Range within)
+        throws IndexException {
+        long from = within != null ? within.getFrom() : 0;
+        long to = within != null ? within.getTo() : entryCount;
+
+        long match = findMatch( dictionary, expression, from, to-1);
         if (match == -1) {
-	        return EMPTY_MATCH;
+            return new Range( from, from);
+        }
+
+        long firstMatch = findMatch( dictionary, expression, match, true);
+        long lastMatch = findMatch( dictionary, expression, match, false);
+        return new Range( firstMatch, lastMatch + 1);
+    }
+
+    /**
+     * Returns the location stored in an index entry.
+     *
+     * @param entry Number of the index entry.
+     */
+    protected long getEntry( long entry) {
+        if (longEntries) {
+            return index.getLong( entry*8);
+        } else {
+            return index.getInt( entry*4);
         }
-        
-        int firstMatch = findMatch( dictionary, expression, match, true);
-        int lastMatch = findMatch( dictionary, expression, match, false);
-        return new BinarySearchIterator( firstMatch, lastMatch);
     }
 
     /**
@@ -94,18 +216,25 @@ public class BinarySearchIndex implements Index {
      * it is not defined which match is returned. If no match is found, <code>-1</code>
      * is returned.
      */
-    protected int findMatch( Indexable dictionary, ByteBuffer expression) throws IndexException {
+    protected long findMatch( Indexable dictionary, ByteBuffer expression) throws IndexException {
+        return findMatch( dictionary, expression, 0, entryCount-1);
+    }
+
+    /**
+     * Returns the index of an index entry in the range <code>[from,to]</code> which matches the
+     * expression, or <code>-1</code> if there is no match in the range.
+     */
+    protected long findMatch( Indexable dictionary, ByteBuffer expression, long from, long to)
+        throws IndexException {
         // do a binary search
-        int from = 0;
-        int to = index.limit()-1;
-        int match = -1;
-        int curr;
+        long match = -1;
+        long curr;
 
         // search matching entry
-        do {
+        while (from<=to && match==-1) {
             curr = (to-from)/2 + from;
 
-            int c = dictionary.compare( expression, index.get( curr));
+            int c = dictionary.compare( expression, getEntry( curr));
             if (c > 0) {
 	            from = curr+1;
             } else if (c < 0) {
@@ -113,7 +242,7 @@ public class BinarySearchIndex implements Index {
             } else {
 	            match = curr;
             }
-        } while (from<=to && match==-1);
+        }
 
         return match;
     }
@@ -128,16 +257,13 @@ public class BinarySearchIndex implements Index {
      *              <CODE>false</CODE> if the last matching entry is returned.
      * @return Offset in the index to the first/last matching entry.
      */
-    protected int findMatch( Indexable dictionary, ByteBuffer expression, int match, boolean first) 
+    protected long findMatch( Indexable dictionary, ByteBuffer expression, long match, boolean first) 
         throws IndexException {
         int direction = first ? -1 : 1;
         
-        try {
-            while (dictionary.compare( expression, index.get( match+direction)) == 0) {
-	            match += direction;
-            }
-        } catch (IndexOutOfBoundsException ex) {
-            // match is now either 0 or index.size - 1
+        while (match+direction >= 0 && match+direction < entryCount &&
+               dictionary.compare( expression, getEntry( match+direction)) == 0) {
+            match += direction;
         }
 
         return match;
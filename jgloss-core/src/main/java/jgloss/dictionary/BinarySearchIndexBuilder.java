@@ -23,9 +23,9 @@
 package jgloss.dictionary;
 
 import java.io.IOException;
-import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
-import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 import java.util.logging.Logger;
 
@@ -37,21 +37,49 @@ import java.util.logging.Logger;
 public class BinarySearchIndexBuilder implements IndexBuilder {
 	private static final Logger LOGGER = Logger.getLogger(BinarySearchIndexBuilder.class.getPackage().getName());
 	
-    private static final int INITIAL_INDEX_SIZE = 500000;
+    /**
+     * Number of index entries stored in one chunk of the temporary index. The temporary index
+     * grows by adding chunks, which avoids copying the already collected entries.
+     */
+    private static final int CHUNK_ENTRIES = 1 << 20;
 
     protected IndexContainer indexContainer;
     protected Indexable dictionary;
-    protected ByteBuffer tempIndex;
-    protected IntBuffer tempIndexInt;
-    protected int type;
+    /**
+     * Chunks of the temporary index. All chunks except the last are completely filled.
+     */
+    protected List<ByteBuffer> tempIndex;
+    /**
+     * Number of entries in the temporary index.
+     */
+    protected long entryCount;
+    protected final int type;
+    protected final boolean longEntries;
+    protected final int entrySize;
 
     /**
      * Random number generator. Used for randomized quicksort in index creation.
      */
     protected static Random random = new Random();
 
+    /**
+     * Creates a builder for an index of the given type. The index stores 64 bit locations if the type is
+     * {@link BinarySearchIndex#LONG_TYPE LONG_TYPE}, 32 bit locations otherwise.
+     */
     public BinarySearchIndexBuilder( int _type) {
+        this( _type, _type == BinarySearchIndex.LONG_TYPE);
+    }
+
+    /**
+     * Creates a builder for an index of the given type.
+     *
+     * @param _longEntries <code>true</code> if locations are stored as 64 bit values,
+     *        <code>false</code> for 32 bit values.
+     */
+    public BinarySearchIndexBuilder( int _type, boolean _longEntries) {
         type = _type;
+        longEntries = _longEntries;
+        entrySize = longEntries ? 8 : 4;
     }
     
     @Override
@@ -59,40 +87,30 @@ public class BinarySearchIndexBuilder implements IndexBuilder {
         this.indexContainer = _container;
         this.dictionary = _dictionary;
 
-        try {
-            tempIndex = ByteBuffer.allocate( INITIAL_INDEX_SIZE*4);
-        } catch (OutOfMemoryError er) {
-            throw new IndexException( er);
-        }
-        tempIndex.order( indexContainer.getIndexByteOrder());
-        tempIndexInt = tempIndex.asIntBuffer();
+        tempIndex = new ArrayList<ByteBuffer>();
+        entryCount = 0;
     }
                                                                                   
     @Override
-	public boolean addEntry( int location, int length, DictionaryEntryField field) throws IndexException {
+	public boolean addEntry( long location, int length, DictionaryEntryField field) throws IndexException {
         if (field == DictionaryEntryField.WORD ||
             field == DictionaryEntryField.READING ||
             field == DictionaryEntryField.TRANSLATION) {
-            try {
-                tempIndexInt.put( location);
-            } catch (BufferOverflowException ex) {
-                // index buffer is not large enough, increase the size
-                ByteBuffer newIndex;
+            if (!longEntries && location > Integer.MAX_VALUE) {
+                throw new IndexException("location " + location + " does not fit in index type " +
+                                         Integer.toHexString( type));
+            }
+            if (entryCount == (long) tempIndex.size()*CHUNK_ENTRIES) {
+                // all chunks are filled, add a new one
                 try {
-                    newIndex = ByteBuffer.allocate( (int) (tempIndex.capacity()*1.5));
+                    tempIndex.add( ByteBuffer.allocate( CHUNK_ENTRIES*entrySize)
+                                   .order( indexContainer.getIndexByteOrder()));
                 } catch (OutOfMemoryError er) {
                     tempIndex = null;
                     throw new IndexException("out of memory", er); 
                 }
-                newIndex.order( tempIndex.order());
-                newIndex.put( tempIndex);
-                tempIndex = newIndex;
-                tempIndex.rewind();
-                int intpos = tempIndexInt.position();
-                tempIndexInt = tempIndex.asIntBuffer();
-                tempIndexInt.position( intpos);
-                tempIndexInt.put( location);
             }
+            setEntry( entryCount++, location);
             return true;
         } else {
 	        return false;
@@ -103,17 +121,18 @@ public class BinarySearchIndexBuilder implements IndexBuilder {
 	public void endBuildIndex( boolean commit) throws IndexException {
         try {
             if (commit) {
-                // position of tempIndexInt is now one after the last int written
-                tempIndex.limit( tempIndexInt.position()*4);
-                tempIndex.rewind();
-
-                LOGGER.info( tempIndexInt.position() + " entries");
+                LOGGER.info( entryCount + " entries");
                 LOGGER.info( "sorting index");
-                quicksortIndex( 0, tempIndexInt.position()-1, tempIndexInt);
+                quicksortIndex( 0, entryCount-1);
 
-                // copy index data from temp file to index container
+                // copy index data from the chunks to index container
+                ByteBuffer[] data = tempIndex.toArray( new ByteBuffer[tempIndex.size()]);
+                for ( int i=0; i<data.length; i++) {
+                    data[i].limit( (int) Math.min( CHUNK_ENTRIES, entryCount - (long) i*CHUNK_ENTRIES)*entrySize);
+                    data[i].rewind();
+                }
                 try {
-                    indexContainer.createIndex( type, tempIndex);
+                    indexContainer.createIndex( type, data);
                 } catch (IndexOutOfBoundsException ex) {
                     throw new IndexException( ex);
                 }
@@ -126,42 +145,63 @@ public class BinarySearchIndexBuilder implements IndexBuilder {
     }
 
     /**
-     * Sorts a part of the index array using randomized quicksort. Call this with
+     * Returns the location stored in an entry of the temporary index.
+     */
+    protected long getEntry( long entry) {
+        ByteBuffer chunk = tempIndex.get( (int) (entry / CHUNK_ENTRIES));
+        int offset = (int) (entry % CHUNK_ENTRIES)*entrySize;
+        return longEntries ? chunk.getLong( offset) : chunk.getInt( offset);
+    }
+
+    /**
+     * Stores a location in an entry of the temporary index.
+     */
+    protected void setEntry( long entry, long location) {
+        ByteBuffer chunk = tempIndex.get( (int) (entry / CHUNK_ENTRIES));
+        int offset = (int) (entry % CHUNK_ENTRIES)*entrySize;
+        if (longEntries) {
+            chunk.putLong( offset, location);
+        } else {
+            chunk.putInt( offset, (int) location);
+        }
+    }
+
+    /**
+     * Sorts a part of the temporary index using randomized quicksort. Call this with
      * (0, index lenght-1) to sort the whole index.
      */
-    protected void quicksortIndex( int left, int right, IntBuffer index) throws IOException,
-                                                                                IndexException {
+    protected void quicksortIndex( long left, long right) throws IOException, IndexException {
         if (left >= right) {
 	        return;
         }
 
-        int middle = left + random.nextInt( right-left+1);
-        int mv = index.get( middle);
-        index.put( middle, index.get( left));
+        long middle = Math.min( right, left + (long) (random.nextDouble()*(right-left+1)));
+        long mv = getEntry( middle);
+        setEntry( middle, getEntry( left));
 
-        int l = left + 1; // l is the first index which compares greater mv
-        for ( int i=l; i<=right; i++) {
-            if (dictionary.compare( mv, index.get( i)) > 0) {
+        long l = left + 1; // l is the first index which compares greater mv
+        for ( long i=l; i<=right; i++) {
+            if (dictionary.compare( mv, getEntry( i)) > 0) {
                 if (i > l) {
-                    int t = index.get( i);
-                    index.put( i, index.get( l));
-                    index.put( l, t);
+                    long t = getEntry( i);
+                    setEntry( i, getEntry( l));
+                    setEntry( l, t);
                 }
                 l++;
             }
         }
         l--;
-        index.put( left, index.get( l));
-        index.put( l, mv);
+        setEntry( left, getEntry( l));
+        setEntry( l, mv);
         
         // sorting the smaller subset first will keep the stack depth small
         if (l < (left+right)/2) {
-            quicksortIndex( left, l-1, index);
-            quicksortIndex( l+1, right, index);
+            quicksortIndex( left, l-1);
+            quicksortIndex( l+1, right);
         }
         else {
-            quicksortIndex( l+1, right, index);
-            quicksortIndex( left, l-1, index);
+            quicksortIndex( l+1, right);
+            quicksortIndex( left, l-1);
         }
     }
 } // class BinarySearchIndexBuilder
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.dictionary;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Bloom filter stored in an {@link IndexContainer IndexContainer}. The filter is a compact
+ * probabilistic set of keys. If {@link #mightContain(long) mightContain} returns <code>false</code>,
+ * the key was never added to the filter, and a search for it can be skipped without accessing
+ * the dictionary. A result of <code>true</code> may be a false positive.
+ * <p>
+ * Keys are 64 bit hashes of a sequence of characters, computed with
+ * {@link #hash(long,int) hash} and {@link #finish(long) finish}. Each key sets
+ * {@link #getHashCount() hashCount} bits in the filter, which are derived from the two halves
+ * of the key by double hashing.
+ * </p><p>
+ * The filter is built by a {@link BloomFilterBuilder BloomFilterBuilder}. Unlike other index types,
+ * it does not store locations, so it does not implement {@link Index Index}.
+ * </p>
+ *
+ * @author Michael Koch
+ */
+public class BloomFilter {
+    /**
+     * Type of the index data in the index container.
+     */
+    public static final int TYPE = 0x426c6f6d; // Blom in ASCII
+
+    /**
+     * Initial value of a key before the first character is added.
+     */
+    public static final long HASH_SEED = 0xcbf29ce484222325L;
+
+    /**
+     * Value which is never returned by {@link #finish(long) finish}. It can be used to
+     * signal that no key exists.
+     */
+    public static final long NO_KEY = 0;
+
+    /**
+     * Size of the header, which stores the number of hash functions (int), an unused int
+     * and the number of bits (long).
+     */
+    static final int HEADER_SIZE = 4 + 4 + 8;
+
+    private ByteBuffer bits;
+    private int hashCount;
+    private long bitCount;
+
+    /**
+     * Sets the index container from which the filter data is read.
+     */
+    public void setContainer( IndexContainer container) throws IndexException {
+        ByteBuffer data = container.getIndexData( TYPE);
+        hashCount = data.getInt( 0);
+        bitCount = data.getLong( 8);
+        if (hashCount <= 0 || bitCount <= 0 || HEADER_SIZE + bitCount/8 > data.limit()) {
+            throw new IndexException( "bloom filter data is damaged");
+        }
+        data.position( HEADER_SIZE);
+        bits = data.slice().order( data.order());
+    }
+
+    /**
+     * Adds a character to a key.
+     *
+     * @param key Key computed from the previous characters, or {@link #HASH_SEED HASH_SEED}
+     *        for the first character.
+     * @param c The character, usually converted by
+     *        {@link EncodedCharacterHandler#convertCharacter(int) convertCharacter}.
+     */
+    public static long hash( long key, int c) {
+        // FNV-1a over the 32 bit character value
+        return (key ^ (c & 0xffffffffL)) * 0x100000001b3L;
+    }
+
+    /**
+     * Returns the final value of a key after all characters were added. This mixes the bits
+     * of the key, since the bit positions in the filter are derived from all parts of it.
+     */
+    public static long finish( long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key == NO_KEY ? 1 : key;
+    }
+
+    /**
+     * Returns the number of bits set per key.
+     */
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    /**
+     * Returns the size of the filter in bits.
+     */
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    /**
+     * Tests if the key might have been added to the filter.
+     *
+     * @param key A key computed by {@link #finish(long) finish}.
+     * @return <code>false</code> if the key was definitely not added, <code>true</code> if it
+     *         probably was.
+     */
+    public boolean mightContain( long key) {
+        for ( int i=0; i<hashCount; i++) {
+            long bit = bitIndex( key, i, bitCount);
+            if ((bits.getLong( (int) (bit >>> 6) * 8) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the index of the i-th bit of a key.
+     */
+    static long bitIndex( long key, int i, long bitCount) {
+        // double hashing with the two halves of the key; the second half is made odd so that
+        // the probes differ even if it is zero
+        long h = (key & 0xffffffffL) + i * ((key >>> 32) | 1);
+        return (h & Long.MAX_VALUE) % bitCount;
+    }
+} // class BloomFilter
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.dictionary;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+/**
+ * Builder for a {@link BloomFilter BloomFilter}. For every index entry, the builder asks a
+ * {@link KeyFunction KeyFunction} for the key to add, which allows the dictionary to decide
+ * which terms are stored in the filter. The size of the filter is chosen when the build
+ * ends, based on the number of collected keys.
+ *
+ * @author Michael Koch
+ */
+public class BloomFilterBuilder implements IndexBuilder {
+    private static final Logger LOGGER = Logger.getLogger(BloomFilterBuilder.class.getPackage().getName());
+
+    /**
+     * Default number of bits per key, which gives a false positive rate of about 1%.
+     */
+    public static final int DEFAULT_BITS_PER_KEY = 10;
+
+    /**
+     * Computes the key added to the filter for an index entry.
+     */
+    public interface KeyFunction {
+        /**
+         * Returns the filter key for the index entry at the location.
+         *
+         * @return The key computed by {@link BloomFilter#finish(long) BloomFilter.finish}, or
+         *         {@link BloomFilter#NO_KEY NO_KEY} if the entry is not added to the filter.
+         */
+        long key( long location, int length, DictionaryEntryField field) throws IndexException;
+    } // interface KeyFunction
+
+    private final KeyFunction keyFunction;
+    private final int bitsPerKey;
+
+    private IndexContainer indexContainer;
+    private long[] keys;
+    private int keyCount;
+
+    public BloomFilterBuilder(KeyFunction keyFunction) {
+        this(keyFunction, DEFAULT_BITS_PER_KEY);
+    }
+
+    public BloomFilterBuilder(KeyFunction keyFunction, int bitsPerKey) {
+        if (bitsPerKey <= 0) {
+            throw new IllegalArgumentException("bits per key must be positive: " + bitsPerKey);
+        }
+        this.keyFunction = keyFunction;
+        this.bitsPerKey = bitsPerKey;
+    }
+
+    @Override
+    public void startBuildIndex(IndexContainer container, Indexable dictionary) throws IndexException {
+        indexContainer = container;
+        keys = new long[1024];
+        keyCount = 0;
+    }
+
+    @Override
+    public boolean addEntry(long location, int length, DictionaryEntryField field) throws IndexException {
+        long key = keyFunction.key(location, length, field);
+        if (key == BloomFilter.NO_KEY) {
+            return false;
+        }
+
+        if (keyCount == keys.length) {
+            keys = Arrays.copyOf(keys, keys.length*2);
+        }
+        keys[keyCount++] = key;
+        return true;
+    }
+
+    @Override
+    public void endBuildIndex(boolean commit) throws IndexException {
+        try {
+            if (commit) {
+                LOGGER.info(keyCount + " keys in bloom filter");
+                indexContainer.createIndex(BloomFilter.TYPE, createFilter());
+            }
+        } finally {
+            keys = null;
+        }
+    }
+
+    private ByteBuffer createFilter() throws IndexException {
+        // the bits are stored as longs, round up to a multiple of 64
+        long bitCount = Math.max(64, ((long) keyCount*bitsPerKey + 63) & ~63L);
+        if (BloomFilter.HEADER_SIZE + bitCount/8 > Integer.MAX_VALUE) {
+            throw new IndexException("too many keys for bloom filter: " + keyCount);
+        }
+        int hashCount = Math.max(1, (int) Math.round(bitsPerKey * Math.log(2)));
+
+        long[] bits = new long[(int) (bitCount/64)];
+        for (int k=0; k<keyCount; k++) {
+            for (int i=0; i<hashCount; i++) {
+                long bit = BloomFilter.bitIndex(keys[k], i, bitCount);
+                bits[(int) (bit >>> 6)] |= 1L << bit;
+            }
+        }
+
+        ByteBuffer data = ByteBuffer.allocate(BloomFilter.HEADER_SIZE + bits.length*8)
+            .order(indexContainer.getIndexByteOrder());
+        data.putInt(hashCount);
+        data.putInt(0);
+        data.putLong(bitCount);
+        data.asLongBuffer().put(bits);
+        data.clear();
+        return data;
+    }
+} // class BloomFilterBuilder
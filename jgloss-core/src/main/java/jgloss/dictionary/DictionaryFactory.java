@@ -98,6 +98,44 @@ public class DictionaryFactory {
         return new SynchronizedIndexedDictionary(dictionary);
     }
 
+    /**
+     * Returns a dictionary which records the statistics of searches, and for indexed dictionaries
+     * also of contains queries and index creation, in the given metrics object. The returned
+     * dictionary is thread safe if the wrapped dictionary is, so a dictionary which is shared between
+     * threads should be made {@link #threadSafeDictionary(Dictionary) thread safe} before it
+     * is instrumented.
+     *
+     * @param dictionary Dictionary to measure.
+     * @param metrics Metrics in which the statistics are recorded. The metrics may be shared by
+     *        several dictionaries.
+     * @return Instrumented wrapper for the given dictionary. If the given dictionary is a
+     *         {@link IndexedDictionary}, the returned instance will also be.
+     */
+    public static Dictionary instrumentedDictionary(Dictionary dictionary, DictionaryMetrics metrics) {
+        if (dictionary instanceof IndexedDictionary) {
+            return new InstrumentedIndexedDictionary((IndexedDictionary) dictionary, metrics);
+        } else {
+            return new InstrumentedDictionary(dictionary, metrics);
+        }
+    }
+
+    /**
+     * Returns a dictionary which can be used concurrently from multiple threads. Dictionaries
+     * implementing {@link ThreadSafeDictionary ThreadSafeDictionary} are returned unchanged, all other
+     * dictionaries are wrapped in a {@link #synchronizedDictionary(Dictionary) synchronized} instance.
+     *
+     * @param dictionary Dictionary which will be shared between threads.
+     * @return Thread-safe dictionary instance. If the given dictionary is a {@link IndexedDictionary},
+     *         the returned instance will also be.
+     */
+    public static Dictionary threadSafeDictionary(Dictionary dictionary) {
+        if (dictionary instanceof ThreadSafeDictionary) {
+            return dictionary;
+        } else {
+            return synchronizedDictionary(dictionary);
+        }
+    }
+
     /**
      * Returns the dictionary implementation which best matches the descriptor.
      * The format of the descriptor is dependent on the dictionary implementation.
@@ -0,0 +1,280 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.dictionary;
+
+import java.beans.ConstructorProperties;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jgloss.util.LatencyHistogram;
+
+/**
+ * Runtime statistics of a dictionary: latency of searches and contains queries, entries
+ * returned and exceptions per search mode, and the time spent loading and building the index.
+ * The statistics are recorded by the dictionary returned from
+ * {@link DictionaryFactory#instrumentedDictionary(Dictionary,DictionaryMetrics)
+ * DictionaryFactory.instrumentedDictionary}. The metrics object is thread safe and can be
+ * registered as MXBean to make the statistics available through JMX.
+ *
+ * @author Michael Koch
+ */
+public class DictionaryMetrics implements DictionaryMetricsMXBean {
+    /**
+     * Snapshot of the statistics of one search mode. Durations are in milliseconds.
+     */
+    public static class SearchModeStatistics {
+        private final String searchMode;
+        private final long searchCount;
+        private final long containsCount;
+        private final long entriesReturned;
+        private final long exceptionCount;
+        private final double meanSearchMillis;
+        private final double percentile99SearchMillis;
+        private final double maxSearchMillis;
+        private final double meanContainsMillis;
+
+        @ConstructorProperties({ "searchMode", "searchCount", "containsCount", "entriesReturned",
+                                 "exceptionCount", "meanSearchMillis", "percentile99SearchMillis",
+                                 "maxSearchMillis", "meanContainsMillis" })
+        public SearchModeStatistics( String searchMode, long searchCount, long containsCount,
+                                     long entriesReturned, long exceptionCount, double meanSearchMillis,
+                                     double percentile99SearchMillis, double maxSearchMillis,
+                                     double meanContainsMillis) {
+            this.searchMode = searchMode;
+            this.searchCount = searchCount;
+            this.containsCount = containsCount;
+            this.entriesReturned = entriesReturned;
+            this.exceptionCount = exceptionCount;
+            this.meanSearchMillis = meanSearchMillis;
+            this.percentile99SearchMillis = percentile99SearchMillis;
+            this.maxSearchMillis = maxSearchMillis;
+            this.meanContainsMillis = meanContainsMillis;
+        }
+
+        public String getSearchMode() { return searchMode; }
+
+        public long getSearchCount() { return searchCount; }
+
+        public long getContainsCount() { return containsCount; }
+
+        public long getEntriesReturned() { return entriesReturned; }
+
+        public long getExceptionCount() { return exceptionCount; }
+
+        public double getMeanSearchMillis() { return meanSearchMillis; }
+
+        public double getPercentile99SearchMillis() { return percentile99SearchMillis; }
+
+        public double getMaxSearchMillis() { return maxSearchMillis; }
+
+        public double getMeanContainsMillis() { return meanContainsMillis; }
+
+        @Override
+        public String toString() {
+            return String.format( Locale.ENGLISH,
+                                  "%s: searches=%d, mean=%.3fms, p99=%.3fms, max=%.3fms, entries=%d, " +
+                                  "contains=%d, mean=%.3fms, exceptions=%d",
+                                  searchMode, searchCount, meanSearchMillis, percentile99SearchMillis,
+                                  maxSearchMillis, entriesReturned, containsCount, meanContainsMillis,
+                                  exceptionCount);
+        }
+    } // class SearchModeStatistics
+
+    /**
+     * Statistics recorded for a search mode.
+     */
+    private static class ModeMetrics {
+        final LatencyHistogram searches = new LatencyHistogram();
+        final LatencyHistogram contains = new LatencyHistogram();
+        final AtomicLong entries = new AtomicLong();
+        final AtomicLong exceptions = new AtomicLong();
+    }
+
+    private final String dictionaryName;
+
+    private final ConcurrentMap<String, ModeMetrics> modes = new ConcurrentHashMap<String, ModeMetrics>();
+
+    private final LatencyHistogram indexLoads = new LatencyHistogram();
+
+    private final LatencyHistogram indexBuilds = new LatencyHistogram();
+
+    /**
+     * Creates metrics for the dictionary with the given name.
+     */
+    public DictionaryMetrics( String dictionaryName) {
+        this.dictionaryName = dictionaryName;
+    }
+
+    void recordSearch( SearchMode searchmode, long nanos) {
+        getModeMetrics( searchmode).searches.record( nanos);
+    }
+
+    void recordContains( SearchMode searchmode, long nanos) {
+        getModeMetrics( searchmode).contains.record( nanos);
+    }
+
+    void recordEntry( SearchMode searchmode) {
+        getModeMetrics( searchmode).entries.incrementAndGet();
+    }
+
+    void recordException( SearchMode searchmode) {
+        getModeMetrics( searchmode).exceptions.incrementAndGet();
+    }
+
+    void recordIndexLoad( long nanos) {
+        indexLoads.record( nanos);
+    }
+
+    void recordIndexBuild( long nanos) {
+        indexBuilds.record( nanos);
+    }
+
+    private ModeMetrics getModeMetrics( SearchMode searchmode) {
+        String name = searchmode.getName();
+        ModeMetrics metrics = modes.get( name);
+        if (metrics == null) {
+            metrics = new ModeMetrics();
+            ModeMetrics existing = modes.putIfAbsent( name, metrics);
+            if (existing != null) {
+                metrics = existing;
+            }
+        }
+        return metrics;
+    }
+
+    @Override
+    public String getDictionaryName() {
+        return dictionaryName;
+    }
+
+    @Override
+    public long getSearchCount() {
+        long count = 0;
+        for (ModeMetrics metrics : modes.values()) {
+            count += metrics.searches.getCount();
+        }
+        return count;
+    }
+
+    @Override
+    public long getContainsCount() {
+        long count = 0;
+        for (ModeMetrics metrics : modes.values()) {
+            count += metrics.contains.getCount();
+        }
+        return count;
+    }
+
+    @Override
+    public long getEntriesReturned() {
+        long count = 0;
+        for (ModeMetrics metrics : modes.values()) {
+            count += metrics.entries.get();
+        }
+        return count;
+    }
+
+    @Override
+    public long getExceptionCount() {
+        long count = 0;
+        for (ModeMetrics metrics : modes.values()) {
+            count += metrics.exceptions.get();
+        }
+        return count;
+    }
+
+    @Override
+    public double getMeanSearchMillis() {
+        long count = 0;
+        long nanos = 0;
+        for (ModeMetrics metrics : modes.values()) {
+            count += metrics.searches.getCount();
+            nanos += metrics.searches.getTotal( TimeUnit.NANOSECONDS);
+        }
+        return count > 0 ? nanos / 1e6 / count : 0;
+    }
+
+    @Override
+    public SearchModeStatistics[] getSearchModeStatistics() {
+        List<SearchModeStatistics> statistics = new ArrayList<SearchModeStatistics>( modes.size());
+        for (Map.Entry<String, ModeMetrics> mode : modes.entrySet()) {
+            ModeMetrics metrics = mode.getValue();
+            statistics.add( new SearchModeStatistics
+                            ( mode.getKey(), metrics.searches.getCount(), metrics.contains.getCount(),
+                              metrics.entries.get(), metrics.exceptions.get(),
+                              metrics.searches.getMean( TimeUnit.MILLISECONDS),
+                              metrics.searches.getPercentile( 0.99, TimeUnit.MILLISECONDS),
+                              metrics.searches.getMax( TimeUnit.MICROSECONDS) / 1000.0,
+                              metrics.contains.getMean( TimeUnit.MILLISECONDS)));
+        }
+        return statistics.toArray( new SearchModeStatistics[statistics.size()]);
+    }
+
+    @Override
+    public long getIndexLoadCount() {
+        return indexLoads.getCount();
+    }
+
+    @Override
+    public long getIndexLoadMillis() {
+        return indexLoads.getTotal( TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public long getIndexBuildCount() {
+        return indexBuilds.getCount();
+    }
+
+    @Override
+    public long getIndexBuildMillis() {
+        return indexBuilds.getTotal( TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void reset() {
+        modes.clear();
+        indexLoads.reset();
+        indexBuilds.reset();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder( 200);
+        out.append( dictionaryName).append( ": searches=").append( getSearchCount())
+            .append( String.format( Locale.ENGLISH, ", mean=%.3fms", getMeanSearchMillis()))
+            .append( ", contains=").append( getContainsCount())
+            .append( ", entries=").append( getEntriesReturned())
+            .append( ", exceptions=").append( getExceptionCount())
+            .append( ", index loads=").append( getIndexLoadCount())
+            .append( " (").append( getIndexLoadMillis()).append( "ms)")
+            .append( ", index builds=").append( getIndexBuildCount())
+            .append( " (").append( getIndexBuildMillis()).append( "ms)");
+        return out.toString();
+    }
+} // class DictionaryMetrics
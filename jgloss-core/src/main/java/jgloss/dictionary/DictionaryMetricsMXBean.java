@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.dictionary;
+
+/**
+ * Management interface of {@link DictionaryMetrics}. Durations are reported in milliseconds.
+ *
+ * @author Michael Koch
+ */
+public interface DictionaryMetricsMXBean {
+    /**
+     * Returns the name of the measured dictionary.
+     */
+    String getDictionaryName();
+
+    /**
+     * Returns the number of searches in all search modes.
+     */
+    long getSearchCount();
+
+    /**
+     * Returns the number of {@link IndexedDictionary#contains(SearchMode,Object[]) contains}
+     * queries in all search modes.
+     */
+    long getContainsCount();
+
+    /**
+     * Returns the number of dictionary entries returned by all searches.
+     */
+    long getEntriesReturned();
+
+    /**
+     * Returns the number of searches and contains queries which failed with an exception.
+     */
+    long getExceptionCount();
+
+    /**
+     * Returns the mean duration of a search in all search modes.
+     */
+    double getMeanSearchMillis();
+
+    /**
+     * Returns the statistics of each search mode which was used since the metrics were created
+     * or reset.
+     */
+    DictionaryMetrics.SearchModeStatistics[] getSearchModeStatistics();
+
+    /**
+     * Returns the number of successful and failed attempts to load the index.
+     */
+    long getIndexLoadCount();
+
+    /**
+     * Returns the total time spent loading the index.
+     */
+    long getIndexLoadMillis();
+
+    /**
+     * Returns the number of times the index was built.
+     */
+    long getIndexBuildCount();
+
+    /**
+     * Returns the total time spent building the index.
+     */
+    long getIndexBuildMillis();
+
+    /**
+     * Removes all recorded statistics.
+     */
+    void reset();
+} // interface DictionaryMetricsMXBean
@@ -22,6 +22,23 @@ public class DictionaryUtils {
 		}
 	}
 	
+	/**
+	 * Tests if a search in the dictionary would find at least one entry. Uses the
+	 * {@link IndexedDictionary#contains(SearchMode, Object[]) contains} fast path if the
+	 * dictionary is an {@link IndexedDictionary}, otherwise the search is executed and the
+	 * first result created.
+	 * 
+	 * @throws SearchException if the search mode is not supported or the search failed.
+	 */
+	public static boolean hasMatch(Dictionary dictionary, SearchMode searchmode, Object[] parameters)
+	                throws SearchException {
+		if (dictionary instanceof IndexedDictionary) {
+			return ((IndexedDictionary) dictionary).contains(searchmode, parameters);
+		} else {
+			return dictionary.search(searchmode, parameters).hasNext();
+		}
+	}
+
 	private DictionaryUtils() {
 	}
 }
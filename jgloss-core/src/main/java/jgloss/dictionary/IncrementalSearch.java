@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.dictionary;
+
+import static java.util.Collections.unmodifiableList;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Search session for search-as-you-type lookups. Each search finds the index range matching
+ * the expression once, and the entries of the {@link ExpressionSearchModes#EXACT EXACT},
+ * {@link ExpressionSearchModes#PREFIX PREFIX} and {@link ExpressionSearchModes#ANY ANY}
+ * search modes are taken from this range. The session remembers the index range matched by
+ * the previous expression. If the next expression extends the previous one, only this range
+ * is searched.
+ *
+ * @see IncrementalSearchable
+ * @author Michael Koch
+ */
+public interface IncrementalSearch {
+    /**
+     * The search modes evaluated by an incremental search, from the most to the least specific.
+     */
+    List<SearchMode> SEARCH_MODES = unmodifiableList( Arrays.asList
+                    ( ExpressionSearchModes.EXACT, ExpressionSearchModes.PREFIX, ExpressionSearchModes.ANY));
+
+    /**
+     * Result of an incremental search.
+     */
+    interface Result {
+        /**
+         * Returns the entries a search with the given mode would have returned, in the same order.
+         * The entries of all modes are found in a single pass over the index range while iterating,
+         * so only the entries which are used are tested. The iterator of each mode can be used once.
+         *
+         * @exception IllegalArgumentException if the search mode is not one of the
+         *            {@link IncrementalSearch#SEARCH_MODES incremental search modes}.
+         */
+        Iterator<DictionaryEntry> getEntries( SearchMode searchmode);
+    } // interface Result
+
+    /**
+     * Finds the index range of the expression for a search in all {@link #SEARCH_MODES search modes}.
+     * Searches of one session are serialized.
+     *
+     * @param fields Fields in which the expression is searched.
+     * @param entryLimit Maximum number of entries buffered for each search mode while another mode
+     *        is iterated. Iterating more entries than the limit is possible, but a mode which has
+     *        used up its buffer searches the rest of the range separately. Must be positive.
+     */
+    Result search( String expression, SearchFieldSelection fields, int entryLimit)
+        throws SearchException;
+} // interface IncrementalSearch
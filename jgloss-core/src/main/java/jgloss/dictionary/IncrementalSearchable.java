@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2002-2013 Michael Koch (tensberg@gmx.net)
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
  *
  * This file is part of JGloss.
  *
@@ -17,36 +17,21 @@
  * along with JGloss; if not, write to the Free Software
  * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
  *
+ *
  */
 
-package jgloss.ui.html;
-
-import javax.swing.text.Element;
-
+package jgloss.dictionary;
 
 /**
- * Remove all annotation elements intersecting a span of text in the document.
+ * Dictionary which supports {@link IncrementalSearch incremental searches} for
+ * search-as-you-type lookups.
+ *
+ * @author Michael Koch
  */
-class AnnotationRemover extends ElementProcessorAdapter {
-
-    @Override
-    public boolean writesToDocument() {
-        return true;
-    }
-
-    @Override
-    public boolean iterateBackwards() {
-        return true;
-    }
-
-    @Override
-    public boolean processElement(JGlossHTMLDoc doc, Element elem) {
-        if (elem.getName().equals(AnnotationTags.ANNOTATION.getId())) {
-            doc.removeAnnotationElement(elem);
-            return false;
-        }
-
-        return true;
-    }
-
-} // class AnnotationRemover
\ No newline at end of file
+public interface IncrementalSearchable extends Dictionary {
+    /**
+     * Creates a new incremental search session. The session is not shared, each lookup
+     * component should create its own.
+     */
+    IncrementalSearch createIncrementalSearch();
+} // interface IncrementalSearchable
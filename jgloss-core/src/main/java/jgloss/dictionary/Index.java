@@ -28,7 +28,8 @@ import java.util.NoSuchElementException;
 /**
  * An index is a store for locations in a dictionary which enables fast lookups of
  * entries matching certain parameters. Entry locations are encoded as positive integers,
- * which allows compact storage of indexes. The <code>Index</code> stores locations
+ * which allows compact storage of indexes. Locations are passed as <code>longs</code> to support
+ * dictionaries larger than 2 GB. The <code>Index</code> stores locations
  * and accesses the entries for comparison through the {@link Indexable Indexable}
  * interface.
  *
@@ -45,11 +46,11 @@ public interface Index {
 
     /**
      * Iterator over index entries. Since index entry locations are stored as integers,
-     * the {@link #next next} method returns <code>ints</code>.
+     * the {@link #next next} method returns <code>longs</code>.
      */
     interface Iterator {
         boolean hasNext();
-        int next() throws NoSuchElementException;
+        long next() throws NoSuchElementException;
     } // interface Iterator
 
     /**
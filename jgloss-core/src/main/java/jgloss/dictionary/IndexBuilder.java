@@ -43,6 +43,7 @@ public interface IndexBuilder {
      *
      * @param location Location of the index entry, encoded as integer value in a 
      *                 <code>Indexable</code>-dependent way.
+     * @exception IndexException if the location can not be stored by the index.
      * @param length Length of the index entry, encoded in a 
      *               <code>Indexable</code>-dependent way. <code>(location+length)</code> is the
      *               first location not belonging to the index entry.
@@ -51,7 +52,7 @@ public interface IndexBuilder {
      * @return <code>true</code> if the entry was added to the index, <code>false</code> if it
      *         was ignored.
      */
-    boolean addEntry( int location, int length, DictionaryEntryField field) throws IndexException;
+    boolean addEntry( long location, int length, DictionaryEntryField field) throws IndexException;
     /**
      * End the index build.
      *
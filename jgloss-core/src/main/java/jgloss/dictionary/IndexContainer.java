@@ -25,6 +25,8 @@ package jgloss.dictionary;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
+import jgloss.util.SegmentedByteBuffer;
+
 /**
  * Container which can store the data for several different index types. Each index type
  * has a unique integer ID, which is used to access it. An instance of <code>IndexContainer</code>
@@ -61,11 +63,25 @@ public interface IndexContainer {
      *
      * @return Byte buffer with the index data. The buffer is valid until {@link #close() close} 
      *         is called.
+     * @exception IndexException if the index data is larger than a single byte buffer can hold.
+     *            Use {@link #getSegmentedIndexData(int) getSegmentedIndexData} for such indexes.
      * @exception IllegalStateException if the index container is not in <code>access</code> mode.
      */
     ByteBuffer getIndexData( int indexType) throws IndexException,
                                                    IllegalStateException;
 
+    /**
+     * Fetch the index data for a particular index type for read access. Unlike
+     * {@link #getIndexData(int) getIndexData}, this method also supports index data larger
+     * than 2 GB.
+     *
+     * @return Segmented buffer with the index data. The buffer is valid until {@link #close() close} 
+     *         is called.
+     * @exception IllegalStateException if the index container is not in <code>access</code> mode.
+     */
+    SegmentedByteBuffer getSegmentedIndexData( int indexType) throws IndexException,
+                                                                     IllegalStateException;
+
     /**
      * Close this index container. After this method is called, all buffers returned by
      * {@link #getIndexData(int) getIndexData} are invalid.
@@ -77,13 +93,15 @@ public interface IndexContainer {
      * must not already exist. This method can only be called in <code>edit</code> mode.
      *
      * @param indexType Index type of the data added.
-     * @param data Buffer containing the index data. The format of the data stored in the buffer
+     * @param data Buffers containing the index data. The remaining data of all buffers is stored
+     *        in sequence, which allows adding index data larger than a single buffer can hold.
+     *        The format of the data stored in the buffers
      *        is dependent on the index used, not on the index container.
      * @exception IndexException if index data of the selected type already exists or an error
      *            occurrs while storing the data.
      * @exception IllegalStateException if the index container is not in <code>edit</code> mode.
      */
-    void createIndex( int indexType, ByteBuffer data) throws IndexException,
+    void createIndex( int indexType, ByteBuffer... data) throws IndexException,
                                                              IllegalStateException;
     /**
      * Delete the index data of a particular index type from the container. If no index data for
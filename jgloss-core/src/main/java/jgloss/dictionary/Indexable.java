@@ -43,7 +43,7 @@ public interface Indexable {
      */
     class CharData {
         public int character = 0;
-        public int position = 0;
+        public long position = 0;
     } // class CharData
 
     /**
@@ -59,13 +59,13 @@ public interface Indexable {
      *         <code>&gt;0</code> if it is greater and <code>0</code> if the entries at both
      *         positions is equal.
      */
-    int compare( int pos1, int pos2) throws IndexException;
+    int compare( long pos1, long pos2) throws IndexException;
     /**
      * Compare the data in a buffer to an index entry. The data in the byte buffer must be
      * encoded in a way that is compatible to the encoding of the index entries. For example,
      * if index entries are stored by the <code>Indexable</code> class as EUC-JP encoded
      * text, the buffer must also contain EUC-JP encoded text. The ordering by this
-     * <code>compare</code> method must be consistent with {@link #compare(int,int) compare(int,int)}.
+     * <code>compare</code> method must be consistent with {@link #compare(long,long) compare(long,long)}.
      * The only allowed difference is that comparisons may be truncated to the length of the buffer;
      * i. e., a comparison may return equality even if the index entry is longer than the data
      * in the buffer (the buffer data is a prefix of the index entry). This is allowed to make
@@ -75,7 +75,7 @@ public interface Indexable {
      *         <code>&gt;0</code> if it is greater and <code>0</code> buffer data and the entry
      *         are identical.
      */
-    int compare( ByteBuffer data, int position) throws IndexException;
+    int compare( ByteBuffer data, long position) throws IndexException;
     /**
      * Decode the character at a given position in the indexable data. Also returns the position of the
      * next character.
@@ -84,7 +84,7 @@ public interface Indexable {
      *                  This prevents the need to create an object every time the method is invoked.
      *                  If <code>null</code> is passed, a new instance will be created.
      */
-    CharData getChar( int position, CharData outResult) throws IndexException;
+    CharData getChar( long position, CharData outResult) throws IndexException;
 
     EncodedCharacterHandler getEncodedCharacterHandler();
 } // interface indexable
@@ -51,4 +51,17 @@ public interface IndexedDictionary extends Dictionary {
      * @exception IndexException if the index creation failed.
      */
     void buildIndex() throws IndexException;
+
+    /**
+     * Test if a search would find at least one entry. This is equivalent to
+     * <code>search( searchmode, parameters).hasNext()</code>, but the implementation can
+     * answer the query from the index data without creating the dictionary entries.
+     * It is meant for callers like parsers, which only need to know if a word is in the
+     * dictionary.
+     *
+     * @see DictionaryUtils#hasMatch(Dictionary,SearchMode,Object[])
+     * @exception SearchException if the search mode is not supported or there was an error
+     *            during the search.
+     */
+    boolean contains( SearchMode searchmode, Object[] parameters) throws SearchException;
 } // interface IndexedDictionary
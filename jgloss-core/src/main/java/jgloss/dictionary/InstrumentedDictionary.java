@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.dictionary;
+
+import java.util.Iterator;
+import java.util.Set;
+
+import jgloss.dictionary.attribute.Attribute;
+import jgloss.dictionary.attribute.AttributeValue;
+
+/**
+ * Dictionary wrapper which records the latency, results and exceptions of searches in
+ * a {@link DictionaryMetrics} object. The latency of a search is the time until the
+ * search method returns; entries and exceptions are counted as the result iterator is used.
+ * The wrapper adds no synchronization, it is thread safe if the wrapped dictionary is.
+ *
+ * @see DictionaryFactory#instrumentedDictionary(Dictionary,DictionaryMetrics)
+ * @author Michael Koch
+ */
+class InstrumentedDictionary implements Dictionary, DictionaryWrapper {
+    /**
+     * Iterator over search results which counts the returned entries.
+     */
+    private class CountingIterator implements Iterator<DictionaryEntry> {
+        private final SearchMode searchmode;
+        private final Iterator<DictionaryEntry> results;
+
+        CountingIterator(SearchMode searchmode, Iterator<DictionaryEntry> results) {
+            this.searchmode = searchmode;
+            this.results = results;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return results.hasNext();
+        }
+
+        @Override
+        public DictionaryEntry next() {
+            try {
+                DictionaryEntry entry = results.next();
+                metrics.recordEntry(searchmode);
+                return entry;
+            } catch (SearchException ex) {
+                metrics.recordException(searchmode);
+                throw ex;
+            }
+        }
+
+        @Override
+        public void remove() {
+            results.remove();
+        }
+    } // class CountingIterator
+
+    protected final Dictionary dictionary;
+
+    protected final DictionaryMetrics metrics;
+
+    InstrumentedDictionary(Dictionary dictionary, DictionaryMetrics metrics) {
+        this.dictionary = dictionary;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns the metrics in which the statistics of this dictionary are recorded.
+     */
+    DictionaryMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public Iterator<DictionaryEntry> search(SearchMode searchmode, Object[] parameters) throws SearchException {
+        long start = System.nanoTime();
+        Iterator<DictionaryEntry> results;
+        try {
+            results = dictionary.search(searchmode, parameters);
+        } catch (SearchException ex) {
+            metrics.recordException(searchmode);
+            throw ex;
+        } finally {
+            metrics.recordSearch(searchmode, System.nanoTime() - start);
+        }
+
+        return new CountingIterator(searchmode, results);
+    }
+
+    @Override
+    public String getName() {
+        return dictionary.getName();
+    }
+
+    @Override
+    public boolean supports(SearchMode searchmode, boolean fully) {
+        return dictionary.supports(searchmode, fully);
+    }
+
+    @Override
+    public Set<Attribute<?>> getSupportedAttributes() {
+        return dictionary.getSupportedAttributes();
+    }
+
+    @Override
+    public <T extends AttributeValue> Set<T> getAttributeValues(Attribute<T> att) {
+        return dictionary.getAttributeValues(att);
+    }
+
+    @Override
+    public SearchFieldSelection getSupportedFields(SearchMode searchmode) {
+        return dictionary.getSupportedFields(searchmode);
+    }
+
+    @Override
+    public void dispose() {
+        dictionary.dispose();
+    }
+
+    @Override
+    public String toString() {
+        return dictionary.toString();
+    }
+
+    @Override
+    public Dictionary getWrappedDictionary() {
+        return dictionary;
+    }
+} // class InstrumentedDictionary
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.dictionary;
+
+/**
+ * Indexed dictionary wrapper which records the statistics of searches, contains queries and
+ * the time spent loading and building the index.
+ *
+ * @see DictionaryFactory#instrumentedDictionary(Dictionary,DictionaryMetrics)
+ * @author Michael Koch
+ */
+class InstrumentedIndexedDictionary extends InstrumentedDictionary implements IndexedDictionary {
+
+    InstrumentedIndexedDictionary(IndexedDictionary dictionary, DictionaryMetrics metrics) {
+        super(dictionary, metrics);
+    }
+
+    @Override
+    public IndexedDictionary getWrappedDictionary() {
+        return (IndexedDictionary) dictionary;
+    }
+
+    @Override
+    public boolean loadIndex() throws IndexException {
+        long start = System.nanoTime();
+        try {
+            return getWrappedDictionary().loadIndex();
+        } finally {
+            metrics.recordIndexLoad(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void buildIndex() throws IndexException {
+        long start = System.nanoTime();
+        try {
+            getWrappedDictionary().buildIndex();
+        } finally {
+            metrics.recordIndexBuild(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean contains(SearchMode searchmode, Object[] parameters) throws SearchException {
+        long start = System.nanoTime();
+        try {
+            return getWrappedDictionary().contains(searchmode, parameters);
+        } catch (SearchException ex) {
+            metrics.recordException(searchmode);
+            throw ex;
+        } finally {
+            metrics.recordContains(searchmode, System.nanoTime() - start);
+        }
+    }
+} // class InstrumentedIndexedDictionary
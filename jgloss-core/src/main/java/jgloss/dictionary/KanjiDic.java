@@ -146,19 +146,6 @@ public class KanjiDic implements Dictionary {
 				public Class<KanjiDic> getDictionaryClass( String descriptor) { return KanjiDic.class; }
             };
 
-    /**
-     * Used during entry parsing in constructor.
-     */
-    private final static List<String> READINGSL = new ArrayList<String>( 10);
-    /**
-     * Used during entry parsing in constructor.
-     */
-    private final static List<String> NANORIL = new ArrayList<String>( 10);
-    /**
-     * Used during entry parsing in constructor.
-     */
-    private final static List<String> TRANSLATIONSL = new ArrayList<String>( 10);
-
     /**
      * Represents a single entry in the kanji dictionary file. Only a subset of the fields
      * defined in the KANJIDIC specification is supported.
@@ -237,109 +224,111 @@ public class KanjiDic implements Dictionary {
          *        frequency of use and stroke count should be parsed.
          */
         protected Entry( String dicline, boolean extendedInformation) {
-            synchronized (READINGSL) {
-                READINGSL.clear();
-                NANORIL.clear();
-                TRANSLATIONSL.clear();
-                List<String> currentl = READINGSL;
-
-                kanji = dicline.charAt( 0);
-                
-                strokecount = NOT_AVAILABLE;
-                bnum = NOT_AVAILABLE;
-                cnum = NOT_AVAILABLE;
-                frequency = NOT_AVAILABLE;
-                
-                // iterate over all fields (delimited by a ' ')
-                int from = 7; // skip kanji and ASCII kanji code
-                int to = dicline.indexOf( ' ', from + 1);
-                if (to == -1) {
-	                to = dicline.length();
-                }
-                while (to > from) {
-                    char c = dicline.charAt( from); // first char in field determines type
-                    if (c < 128) { // ASCII character: reading only if c=='-'
-                        switch (c) {
-                        case '-': // reading (for kanji used as suffix)
-                                // radicalname never starts with -
-                            READINGSL.add( dicline.substring( from, to));
-                            break;
-                            
-                        case '{': // translation, enclosed in {}
-                                // translations can contain spaces
-                            to = dicline.indexOf( '}', from+1) + 1;
-                            TRANSLATIONSL.add( dicline.substring( from+1, to-1));
-                            break;
-                            
-                        case 'T': // type change for following readings
-                            if (dicline.charAt( from+1) == '1') {
-	                            currentl = NANORIL;
-                            } else if (dicline.charAt( from+1) == '2') {
-	                            currentl = null;
+            // the lists are local to the parsing thread, so entries can be parsed concurrently
+            List<String> readingsl = new ArrayList<String>( 10);
+            List<String> nanoril = null;
+            List<String> translationsl = null;
+            List<String> currentl = readingsl;
+
+            kanji = dicline.charAt( 0);
+            
+            strokecount = NOT_AVAILABLE;
+            bnum = NOT_AVAILABLE;
+            cnum = NOT_AVAILABLE;
+            frequency = NOT_AVAILABLE;
+            
+            // iterate over all fields (delimited by a ' ')
+            int from = 7; // skip kanji and ASCII kanji code
+            int to = dicline.indexOf( ' ', from + 1);
+            if (to == -1) {
+	            to = dicline.length();
+            }
+            while (to > from) {
+                char c = dicline.charAt( from); // first char in field determines type
+                if (c < 128) { // ASCII character: reading only if c=='-'
+                    switch (c) {
+                    case '-': // reading (for kanji used as suffix)
+                            // radicalname never starts with -
+                        readingsl.add( dicline.substring( from, to));
+                        break;
+                        
+                    case '{': // translation, enclosed in {}
+                            // translations can contain spaces
+                        to = dicline.indexOf( '}', from+1) + 1;
+                        if (translationsl == null) {
+                            translationsl = new ArrayList<String>( 10);
+                        }
+                        translationsl.add( dicline.substring( from+1, to-1));
+                        break;
+                        
+                    case 'T': // type change for following readings
+                        if (dicline.charAt( from+1) == '1') {
+                            if (nanoril == null) {
+                                nanoril = new ArrayList<String>( 10);
                             }
-                            break;
+                            currentl = nanoril;
+                        } else if (dicline.charAt( from+1) == '2') {
+	                        currentl = null;
                         }
+                        break;
+                    }
 
-                        // only parse other fields if extended information is wanted by caller
-                        if (extendedInformation) {
-	                        try {
-	                            switch (c) {
-	                            case 'B': // bushu number
-	                                bnum = Short.parseShort( dicline.substring( from+1, to));
-	                                break;
-	                                
-	                            case 'C': // classical radical number
-	                                cnum = Short.parseShort( dicline.substring( from+1, to));
-	                                break;
-	                                
-	                            case 'F': // frequency of use
-	                                frequency = Short.parseShort( dicline.substring( from+1, to));
-	                                break;
-	                                
-	                            case 'S': // stroke count
-	                                // If there is more than one stroke count, all but the first
-	                                // are common miscounts. These entries are currently not used.
-	                                if (strokecount == NOT_AVAILABLE) {
-	                                    strokecount = Byte.parseByte( dicline.substring( from+1, to));
-	                                }
-	                                break;
-	                                
-	                                // all other entry types are currently not used
+                    // only parse other fields if extended information is wanted by caller
+                    if (extendedInformation) {
+	                    try {
+	                        switch (c) {
+	                        case 'B': // bushu number
+	                            bnum = Short.parseShort( dicline.substring( from+1, to));
+	                            break;
+	                            
+	                        case 'C': // classical radical number
+	                            cnum = Short.parseShort( dicline.substring( from+1, to));
+	                            break;
+	                            
+	                        case 'F': // frequency of use
+	                            frequency = Short.parseShort( dicline.substring( from+1, to));
+	                            break;
+	                            
+	                        case 'S': // stroke count
+	                            // If there is more than one stroke count, all but the first
+	                            // are common miscounts. These entries are currently not used.
+	                            if (strokecount == NOT_AVAILABLE) {
+	                                strokecount = Byte.parseByte( dicline.substring( from+1, to));
 	                            }
-	                        } catch (NumberFormatException ex) {
-	                            LOGGER.log(SEVERE, "WARNING: malformed dictionary entry " + dicline, ex);
+	                            break;
+	                            
+	                            // all other entry types are currently not used
 	                        }
-                        }
-                    }
-                    else {
-                        if (currentl != null) {
-                            currentl.add( dicline.substring( from, to));
-                        } else {
-	                        radicalname = dicline.substring( from, to);
-                        }
+	                    } catch (NumberFormatException ex) {
+	                        LOGGER.log(SEVERE, "WARNING: malformed dictionary entry " + dicline, ex);
+	                    }
                     }
-                    
-                    // move to the next entry
-                    from = to + 1;
-                    to = dicline.indexOf( ' ', from + 1);
-                    if (to == -1) {
-	                    to = dicline.length();
+                }
+                else {
+                    if (currentl != null) {
+                        currentl.add( dicline.substring( from, to));
+                    } else {
+	                    radicalname = dicline.substring( from, to);
                     }
                 }
                 
-                if (!READINGSL.isEmpty()) {
-                    readings = new String[READINGSL.size()];
-                    READINGSL.toArray( readings);
-                }
-                if (!NANORIL.isEmpty()) {
-                    nanoriReadings = new String[NANORIL.size()];
-                    NANORIL.toArray( nanoriReadings);
-                }
-                if (!TRANSLATIONSL.isEmpty()) {
-                    translations = new String[TRANSLATIONSL.size()];
-                    TRANSLATIONSL.toArray( translations);
+                // move to the next entry
+                from = to + 1;
+                to = dicline.indexOf( ' ', from + 1);
+                if (to == -1) {
+	                to = dicline.length();
                 }
             }
+            
+            if (!readingsl.isEmpty()) {
+                readings = readingsl.toArray( new String[readingsl.size()]);
+            }
+            if (nanoril != null && !nanoril.isEmpty()) {
+                nanoriReadings = nanoril.toArray( new String[nanoril.size()]);
+            }
+            if (translationsl != null) {
+                translations = translationsl.toArray( new String[translationsl.size()]);
+            }
         }
 
         /**
@@ -390,33 +379,27 @@ public class KanjiDic implements Dictionary {
      * @exception IOException when the dictionary file cannot be read.
      */
     public KanjiDic( String dicfile) throws IOException {
+        this( new File( dicfile));
         entries = new HashMap<Object, List<String>>( 25001);
-        this.dicfile = dicfile;
-        File dic = new File( dicfile);
-        name = dic.getName();
 
         BufferedReader in = new BufferedReader( CharacterEncodingDetector.getReader
-            ( new BufferedInputStream( new FileInputStream( dic))));
-        String line;
-        while ((line = in.readLine()) != null) {
-            // an ASCII character at the beginning of the line is treated as start of a comment
-            if (line.length()>0 && line.charAt( 0)>127) {
-                Entry e = new Entry( line, false);
-                // storing strings in the hashmap instead of entries decreases ram usage
-                addEntry( new String( new char[] { e.getKanji() }), line);
-                
-                addReadings( line, e, e.getReadings());
-                addReadings( line, e, e.getNanoriReadings());
-                if (e.getRadicalName() != null) {
-	                addEntry( e.getRadicalName(), line);
-                }
-                String[] translations = e.getTranslations();
-                if (translations != null) {
-                    for (String translation : translations) {
-                        addEntry( translation, line);
+            ( new BufferedInputStream( new FileInputStream( dicfile))));
+        try {
+            String line;
+            List<String> keys = new ArrayList<String>( 20);
+            while ((line = in.readLine()) != null) {
+                // an ASCII character at the beginning of the line is treated as start of a comment
+                if (isEntryLine( line)) {
+                    // storing strings in the hashmap instead of entries decreases ram usage
+                    keys.clear();
+                    addKeys( line, keys);
+                    for (String key : keys) {
+                        addEntry( key, line);
                     }
                 }
             }
+        } finally {
+            in.close();
         }
 
         // compact all stored array lists to minimize memory usage
@@ -427,6 +410,44 @@ public class KanjiDic implements Dictionary {
         }
     }
 
+    /**
+     * Initializes the name of the dictionary without reading the dictionary file. Subclasses
+     * which access the dictionary file in a different way must override {@link #getLines(String) getLines}.
+     */
+    protected KanjiDic( File dic) {
+        this.dicfile = dic.getPath();
+        this.name = dic.getName();
+    }
+
+    /**
+     * Test if a line of the dictionary file is a dictionary entry. Lines which start with
+     * an ASCII character are comments.
+     */
+    protected static boolean isEntryLine( String line) {
+        return line.length()>0 && line.charAt( 0)>127;
+    }
+
+    /**
+     * Adds the keys under which a dictionary entry can be found to the list. These are the kanji,
+     * the readings and nanori readings, the radical name and the translations of the entry.
+     *
+     * @param line Line of the dictionary file.
+     * @param keys List to which the keys are added. The list may contain duplicates.
+     */
+    protected void addKeys( String line, List<String> keys) {
+        Entry e = new Entry( line, false);
+        keys.add( String.valueOf( e.getKanji()));
+        addReadings( e, e.getReadings(), keys);
+        addReadings( e, e.getNanoriReadings(), keys);
+        if (e.getRadicalName() != null) {
+            keys.add( e.getRadicalName());
+        }
+        String[] translations = e.getTranslations();
+        if (translations != null) {
+            Collections.addAll( keys, translations);
+        }
+    }
+
     /**
      * Adds an entry to the map of entries. If the map does not contain the key,
      * the entry will be put directly, otherwise all entries for this key are stored in
@@ -451,33 +472,52 @@ public class KanjiDic implements Dictionary {
     }
 
     /**
-     * Adds the entry to the map of entries for all readings given as parameter. If
-     * the reading has an okurigana part (separated by a '.'), two entries will be generated.
+     * Adds the keys for all readings given as parameter. If
+     * the reading has an okurigana part (separated by a '.'), two keys will be generated.
      * One for the reading without the dot, one for the kanji+okurigana.
      *
-     * @param e The entry to add.
+     * @param e The entry of the readings.
      * @param readings List of readings. This can be normal or nanori readings.
+     * @param keys List to which the keys are added.
      */
-    protected void addReadings( String line, Entry e, String[] readings) {
+    protected void addReadings( Entry e, String[] readings, List<String> keys) {
         if (readings != null) {
             for (String reading : readings) {
                 int dot = reading.indexOf( '.');
                 if (dot == -1) {
-	                addEntry( reading, line);
+	                keys.add( reading);
                 } else {
                     String end = reading.substring( dot+1);
-                    addEntry( reading.substring( 0, dot) + end, line);
-                    addEntry( e.getKanji() + end, line);
+                    keys.add( reading.substring( 0, dot) + end);
+                    keys.add( e.getKanji() + end);
                 }
             }
         }
     }
 
+    /**
+     * Returns the lines of the dictionary file stored under the key, in the order of the file.
+     *
+     * @return The lines, or <code>null</code> if there is no entry for the key.
+     */
+    protected List<String> getLines( String key) {
+        return entries.get( key);
+    }
+
     /**
      * Returns the entry for the given kanji. If no match is found, <CODE>null</CODE> will be returned.
      */
     public KanjiDic.Entry lookup( char kanji) {
-        return (KanjiDic.Entry) entries.get( new String( new char[] { kanji }));
+        List<String> lines = getLines( String.valueOf( kanji));
+        if (lines != null) {
+            // the key of the kanji also matches readings or radical names written as the kanji
+            for (String line : lines) {
+                if (line.charAt( 0) == kanji) {
+                    return new Entry( line, true);
+                }
+            }
+        }
+        return null;
     }
 
     /**
@@ -487,7 +527,7 @@ public class KanjiDic implements Dictionary {
      */
     public List<Entry> lookup( String key) {
         List<Entry> r = null;
-        List<String> original = entries.get( key);
+        List<String> original = getLines( key);
         if (original == null) {
 	        return Collections.emptyList();
         } else {
@@ -518,7 +558,7 @@ public class KanjiDic implements Dictionary {
 
     public Iterator<DictionaryEntry> searchExpression( ExpressionSearchModes mode, String expression, 
                                             SearchFieldSelection fields) {
-        List<String> l = entries.get( expression);
+        List<String> l = getLines( expression);
         Iterator<String> i;
         if (l != null) {
         	i = l.iterator();
@@ -0,0 +1,234 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.dictionary;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+
+/**
+ * Binary search index which stores a prefix key together with each location. The prefix key
+ * contains the first two characters of the indexed term, converted by
+ * {@link EncodedCharacterHandler#convertCharacter(int) EncodedCharacterHandler.convertCharacter}.
+ * <p>
+ * Searches first narrow the range of matching entries with two binary searches on the keys,
+ * which does not access the dictionary. If the search expression is not longer than the key,
+ * the key range is the result. Otherwise, the first and last match are searched in the key range
+ * by two binary searches which compare the expression with the dictionary data. This requires that
+ * {@link Indexable#compare(ByteBuffer,long) Indexable.compare} orders entries lexicographically by
+ * their converted characters.
+ * </p><p>
+ * Each index entry stores the key as 64 bit value, followed by the location as 32 or 64 bit
+ * value. The index is built by {@link KeyedBinarySearchIndexBuilder KeyedBinarySearchIndexBuilder}.
+ * </p>
+ *
+ * @author Michael Koch
+ */
+public class KeyedBinarySearchIndex extends BinarySearchIndex {
+    /**
+     * Default type of this index. Locations are stored as 32 bit values.
+     */
+    public static final int TYPE = 0x4b427365; // KBse in ASCII
+
+    /**
+     * Type of a keyed binary search index which stores locations as 64 bit values.
+     */
+    public static final int LONG_TYPE = 0x4b42536c; // KBSl in ASCII
+
+    /**
+     * Number of bytes used to store the prefix key.
+     */
+    private static final int KEY_SIZE = 8;
+
+    public KeyedBinarySearchIndex() {
+        this( TYPE);
+    }
+
+    /**
+     * Creates an index of the given type. The index stores 64 bit locations if the type is
+     * {@link #LONG_TYPE LONG_TYPE}, 32 bit locations otherwise.
+     */
+    public KeyedBinarySearchIndex( int _type) {
+        super( _type, _type == LONG_TYPE);
+    }
+
+    /**
+     * Creates the prefix key from the first two converted characters of an index entry.
+     * If the entry ends before the second character, <code>c2</code> is 0.
+     */
+    public static long prefixKey( int c1, int c2) {
+        return ((long) c1 << 32) | (c2 & 0xffffffffL);
+    }
+
+    /**
+     * Compares two prefix keys.
+     *
+     * @return <code>&lt;0</code>, 0 or <code>&gt;0</code> if the first key is smaller, equal or greater
+     *         than the second key.
+     */
+    public static int compareKeys( long key1, long key2) {
+        if (key1 == key2) {
+            return 0;
+        }
+        // compare as unsigned values
+        return (key1 ^ Long.MIN_VALUE) < (key2 ^ Long.MIN_VALUE) ? -1 : 1;
+    }
+
+    @Override
+    public int getEntrySize() {
+        return KEY_SIZE + super.getEntrySize();
+    }
+
+    @Override
+    protected long getEntry( long entry) {
+        long offset = entry*getEntrySize() + KEY_SIZE;
+        return longEntries ? index.getLong( offset) : index.getInt( offset);
+    }
+
+    /**
+     * Returns the prefix key stored in an index entry.
+     */
+    protected long getKey( long entry) {
+        return index.getLong( entry*getEntrySize());
+    }
+
+    /**
+     * Returns all entries of this index in index order. The entries can be merged into a new
+     * index by {@link ParallelBinarySearchIndexBuilder#addSortedEntries(ParallelBinarySearchIndexBuilder.SortedEntrySource)
+     * ParallelBinarySearchIndexBuilder.addSortedEntries}.
+     */
+    public ParallelBinarySearchIndexBuilder.SortedEntrySource getSortedEntries() {
+        return new ParallelBinarySearchIndexBuilder.SortedEntrySource() {
+            private long entry = -1;
+
+            @Override
+            public boolean next() {
+                if (entry + 1 >= entryCount) {
+                    return false;
+                }
+                entry++;
+                return true;
+            }
+
+            @Override
+            public long getKey() {
+                return KeyedBinarySearchIndex.this.getKey( entry);
+            }
+
+            @Override
+            public long getLocation() {
+                return getEntry( entry);
+            }
+        };
+    }
+
+    @Override
+    public Range findRange( Indexable dictionary, ByteBuffer expression, Range within)
+        throws IndexException {
+        EncodedCharacterHandler handler = dictionary.getEncodedCharacterHandler();
+        ByteBuffer expressionChars = expression.duplicate();
+        int c1;
+        int c2;
+        try {
+            c1 = readKeyCharacter( handler, expressionChars);
+            c2 = readKeyCharacter( handler, expressionChars);
+        } catch (CharacterCodingException ex) {
+            throw new IndexException( ex);
+        }
+
+        long from = within != null ? within.getFrom() : 0;
+        long to = within != null ? within.getTo() : entryCount;
+        if (c1 == 0) {
+            // empty expression matches all entries
+        } else if (c2 == 0) {
+            from = findFirstKey( prefixKey( c1, 0), from, to);
+            to = findFirstKey( prefixKey( c1 + 1, 0), from, to);
+        } else {
+            long key = prefixKey( c1, c2);
+            from = findFirstKey( key, from, to);
+            to = findFirstKey( key + 1, from, to);
+
+            if (expressionChars.hasRemaining()) {
+                // expression is longer than the key, compare the remaining characters
+                from = findFirstMatch( dictionary, expression, from, to, false);
+                to = findFirstMatch( dictionary, expression, from, to, true);
+            }
+        }
+
+        return new Range( from, to);
+    }
+
+    /**
+     * Reads the next converted character from the expression.
+     *
+     * @return The character, or 0 if the end of the expression is reached.
+     */
+    private static int readKeyCharacter( EncodedCharacterHandler handler, ByteBuffer expression)
+        throws CharacterCodingException {
+        if (!expression.hasRemaining()) {
+            return 0;
+        }
+        try {
+            return handler.convertCharacter( handler.readCharacter( expression));
+        } catch (BufferUnderflowException ex) {
+            return 0;
+        }
+    }
+
+    /**
+     * Returns the first entry in the range <code>[from,to)</code> whose key is not smaller than
+     * the given key, or <code>to</code> if there is no such entry.
+     */
+    protected long findFirstKey( long key, long from, long to) {
+        while (from < to) {
+            long curr = (to-from)/2 + from;
+            if (compareKeys( getKey( curr), key) < 0) {
+                from = curr + 1;
+            } else {
+                to = curr;
+            }
+        }
+
+        return from;
+    }
+
+    /**
+     * Returns the first entry in the range <code>[from,to)</code> which is not smaller than the
+     * expression, or, if <code>after</code> is <code>true</code>, the first entry which is greater
+     * than the expression. Returns <code>to</code> if there is no such entry.
+     */
+    protected long findFirstMatch( Indexable dictionary, ByteBuffer expression, long from, long to,
+                                   boolean after) throws IndexException {
+        while (from < to) {
+            long curr = (to-from)/2 + from;
+            int c = dictionary.compare( expression, getEntry( curr));
+            if (c > 0 || after && c == 0) {
+                from = curr + 1;
+            } else {
+                to = curr;
+            }
+        }
+
+        return from;
+    }
+} // class KeyedBinarySearchIndex
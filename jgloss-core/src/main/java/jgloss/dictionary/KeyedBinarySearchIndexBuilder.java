@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.dictionary;
+
+import java.io.File;
+
+/**
+ * Builder for a {@link KeyedBinarySearchIndex KeyedBinarySearchIndex}. The index data is sorted
+ * like the data of a {@link ParallelBinarySearchIndexBuilder ParallelBinarySearchIndexBuilder},
+ * and the prefix key of each entry is stored in front of its location.
+ *
+ * @author Michael Koch
+ */
+public class KeyedBinarySearchIndexBuilder extends ParallelBinarySearchIndexBuilder {
+    /**
+     * Creates a builder for an index of the given type, using the default run size and one thread
+     * per available processor. The index stores 64 bit locations if the type is
+     * {@link KeyedBinarySearchIndex#LONG_TYPE LONG_TYPE}, 32 bit locations otherwise.
+     */
+    public KeyedBinarySearchIndexBuilder(int _type) {
+        this(_type, DEFAULT_RUN_ENTRIES, Runtime.getRuntime().availableProcessors(), null);
+    }
+
+    /**
+     * Creates a builder for an index of the given type.
+     *
+     * @see ParallelBinarySearchIndexBuilder#ParallelBinarySearchIndexBuilder(int,boolean,int,int,File)
+     */
+    public KeyedBinarySearchIndexBuilder(int _type, int _runEntries, int _parallelism, File _tempDir) {
+        super(_type, _type == KeyedBinarySearchIndex.LONG_TYPE, true, _runEntries, _parallelism, _tempDir);
+    }
+
+    /**
+     * {@inheritDoc} The prefix keys are created with the character handler of the dictionary.
+     *
+     * @exception IndexException if the dictionary does not have a character handler.
+     */
+    @Override
+    public void startBuildIndex(IndexContainer _container, Indexable _dictionary) throws IndexException {
+        if (_dictionary.getEncodedCharacterHandler() == null) {
+            throw new IndexException("keyed index needs a character handler");
+        }
+        super.startBuildIndex(_container, _dictionary);
+    }
+} // class KeyedBinarySearchIndexBuilder
@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.dictionary;
+
+import java.lang.ref.SoftReference;
+
+import jgloss.dictionary.attribute.AttributeSet;
+
+/**
+ * Dictionary entry which is parsed on first access. A lazy entry only stores the marker of the
+ * entry, which is usually its offset in the dictionary data. When one of the entry fields
+ * is accessed, the entry is created by
+ * {@link BaseEntry.MarkerDictionary#createEntryFromMarker(long) createEntryFromMarker} and all
+ * calls are delegated to it. Searches which return many entries, of which only a few are
+ * displayed, thus avoid decoding and parsing the rest.
+ * <p>
+ * The parsed entry is held through a soft reference and is recreated from the marker
+ * if it was garbage collected. Dictionaries should run a cheap structural check of an entry
+ * before they return a lazy entry for it, so that damaged entries are reported by the search
+ * iterator. Only an entry which passes the check but still can't be parsed throws its
+ * {@link MalformedEntryException MalformedEntryException} on the first access of an entry
+ * field. Lazy entries are equal if they were created by the same dictionary for the same marker.
+ * </p>
+ *
+ * @author Michael Koch
+ */
+public class LazyEntry implements DictionaryEntry, DictionaryEntryReference {
+    private final Dictionary dictionary;
+    private final long entryMarker;
+    private volatile SoftReference<DictionaryEntry> entryRef;
+
+    /**
+     * Creates a lazy entry for the entry with the given marker.
+     */
+    public <D extends Dictionary & BaseEntry.MarkerDictionary> LazyEntry( D dictionary, long entryMarker) {
+        this.dictionary = dictionary;
+        this.entryMarker = entryMarker;
+    }
+
+    /**
+     * Returns the marker of the entry in the dictionary.
+     */
+    public long getEntryMarker() {
+        return entryMarker;
+    }
+
+    /**
+     * Test if the entry was already parsed and the parsed entry is still in memory.
+     */
+    public boolean isParsed() {
+        SoftReference<DictionaryEntry> ref = entryRef;
+        return ref != null && ref.get() != null;
+    }
+
+    /**
+     * Returns the parsed entry, parsing it if this is the first access or the parsed entry
+     * was garbage collected.
+     *
+     * @exception SearchException if the entry can't be created, for example because it is
+     *            malformed.
+     */
+    public DictionaryEntry getParsedEntry() throws SearchException {
+        SoftReference<DictionaryEntry> ref = entryRef;
+        DictionaryEntry entry = ref != null ? ref.get() : null;
+        if (entry == null) {
+            // concurrent first accesses may both parse the entry, which is harmless
+            entry = ((BaseEntry.MarkerDictionary) dictionary).createEntryFromMarker( entryMarker);
+            entryRef = new SoftReference<DictionaryEntry>( entry);
+        }
+        return entry;
+    }
+
+    @Override
+    public AttributeSet getGeneralAttributes() {
+        return getParsedEntry().getGeneralAttributes();
+    }
+
+    @Override
+    public String getWord( int alternative) {
+        return getParsedEntry().getWord( alternative);
+    }
+
+    @Override
+    public int getWordAlternativeCount() {
+        return getParsedEntry().getWordAlternativeCount();
+    }
+
+    @Override
+    public AttributeSet getWordAttributes( int alternative) {
+        return getParsedEntry().getWordAttributes( alternative);
+    }
+
+    @Override
+    public AttributeSet getWordAttributes() {
+        return getParsedEntry().getWordAttributes();
+    }
+
+    @Override
+    public String getReading( int alternative) {
+        return getParsedEntry().getReading( alternative);
+    }
+
+    @Override
+    public int getReadingAlternativeCount() {
+        return getParsedEntry().getReadingAlternativeCount();
+    }
+
+    @Override
+    public AttributeSet getReadingAttributes( int alternative) {
+        return getParsedEntry().getReadingAttributes( alternative);
+    }
+
+    @Override
+    public AttributeSet getReadingAttributes() {
+        return getParsedEntry().getReadingAttributes();
+    }
+
+    @Override
+    public String getTranslation( int rom, int crm, int synonym) {
+        return getParsedEntry().getTranslation( rom, crm, synonym);
+    }
+
+    @Override
+    public int getTranslationRomCount() {
+        return getParsedEntry().getTranslationRomCount();
+    }
+
+    @Override
+    public int getTranslationCrmCount( int rom) {
+        return getParsedEntry().getTranslationCrmCount( rom);
+    }
+
+    @Override
+    public int getTranslationSynonymCount( int rom, int crm) {
+        return getParsedEntry().getTranslationSynonymCount( rom, crm);
+    }
+
+    @Override
+    public AttributeSet getTranslationAttributes( int rom, int crm, int synonym) {
+        return getParsedEntry().getTranslationAttributes( rom, crm, synonym);
+    }
+
+    @Override
+    public AttributeSet getTranslationAttributes( int rom, int crm) {
+        return getParsedEntry().getTranslationAttributes( rom, crm);
+    }
+
+    @Override
+    public AttributeSet getTranslationAttributes( int rom) {
+        return getParsedEntry().getTranslationAttributes( rom);
+    }
+
+    @Override
+    public AttributeSet getTranslationAttributes() {
+        return getParsedEntry().getTranslationAttributes();
+    }
+
+    /**
+     * Returns the dictionary which created this entry. The entry is not parsed.
+     */
+    @Override
+    public Dictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Returns this entry, which also acts as reference to itself, since it only stores
+     * the entry marker. The entry is not parsed.
+     */
+    @Override
+    public DictionaryEntryReference getReference() {
+        return this;
+    }
+
+    /**
+     * Returns this entry. Implements {@link DictionaryEntryReference#getEntry()
+     * DictionaryEntryReference.getEntry}.
+     */
+    @Override
+    public DictionaryEntry getEntry() {
+        return this;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * System.identityHashCode( dictionary) + (int) (entryMarker ^ (entryMarker >>> 32));
+    }
+
+    @Override
+    public boolean equals( Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof LazyEntry)) {
+            return false;
+        }
+        LazyEntry other = (LazyEntry) obj;
+        return dictionary == other.dictionary && entryMarker == other.entryMarker;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " [dictionary=" + dictionary.getName() +
+            ", marker=" + entryMarker + "]";
+    }
+} // class LazyEntry
@@ -34,7 +34,7 @@ public class MultiWordEntry extends BaseEntry {
     private final String[] readings;
     private final AttributeSet[] readingsA;
 
-    public MultiWordEntry( int _entryMarker, String[] _words, String[] _readings, List<List<String>> _translations,
+    public MultiWordEntry( long _entryMarker, String[] _words, String[] _readings, List<List<String>> _translations,
                            AttributeSet _generalA, AttributeSet _wordA, AttributeSet[] _wordsA,
                            AttributeSet _readingA, AttributeSet[] _readingsA, AttributeSet _translationA,
                            List<AttributeSet> _translationRomA, Dictionary _dictionary) {
@@ -0,0 +1,424 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.dictionary;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import jgloss.util.SegmentedByteBuffer;
+
+/**
+ * Index for distance searches, which finds terms which differ from a search expression by
+ * a limited number of characters. The index stores each indexed term and an inverted list of
+ * the terms containing each character bigram. The terms are padded with a boundary character
+ * at the start and the end, so a term of <i>n</i> characters contains <i>n+1</i> bigrams.
+ * <p>
+ * Since a single character edit changes at most two bigrams of a term, a term within edit
+ * distance <i>d</i> of the expression shares at least <i>g-2d</i> of the <i>g</i> distinct
+ * bigrams of the expression. Candidate terms are selected by this count. The distance of each
+ * candidate is then computed from the dictionary data.
+ * <p>
+ * For short expressions and large distances, the bigram count gives no restriction, and every
+ * term of matching length would have to be compared with the expression. Candidates must therefore
+ * always share at least one bigram with the expression. Terms which are within the distance only because
+ * they are short, but have no bigram in common with the expression, are not found. Expressions with
+ * frequent bigrams can still select many candidates, only the {@link #MAX_CANDIDATES MAX_CANDIDATES}
+ * terms sharing the most bigrams with the expression are compared.
+ * </p>
+ * <p>
+ * Characters are compared after conversion by
+ * {@link EncodedCharacterHandler#convertCharacter(int) EncodedCharacterHandler.convertCharacter}.
+ * The index is built by {@link NGramIndexBuilder NGramIndexBuilder}.
+ * </p>
+ *
+ * @author Michael Koch
+ */
+public class NGramIndex implements Index {
+    /**
+     * Type of this index.
+     */
+    public static final int TYPE = 0x4e47726d; // NGrm in ASCII
+
+    /**
+     * Character used to pad the start and the end of a term.
+     */
+    static final int BOUNDARY = 0;
+
+    /**
+     * Size of the header, which stores term count, bigram count and posting count as ints.
+     */
+    static final int HEADER_SIZE = 3*4;
+
+    /**
+     * Size of a term table entry: location (long), length in bytes (int), length in characters (int).
+     * Terms are sorted by character length.
+     */
+    static final int TERM_SIZE = 8 + 4 + 4;
+
+    /**
+     * Size of a bigram table entry: bigram (long), first posting (int), number of postings (int).
+     * Bigrams are sorted by value.
+     */
+    static final int GRAM_SIZE = 8 + 4 + 4;
+
+    /**
+     * Size of a posting, which is the number of a term in the term table (int).
+     */
+    static final int POSTING_SIZE = 4;
+
+    /**
+     * Maximum number of candidate terms whose distance to the expression is computed.
+     */
+    static final int MAX_CANDIDATES = 5000;
+
+    private static final Index.Iterator EMPTY_MATCH = new DistanceIterator( new long[0]);
+
+    private SegmentedByteBuffer index;
+    private int termCount;
+    private int gramCount;
+    private long gramsOffset;
+    private long postingsOffset;
+
+    @Override
+    public int getType() {
+        return TYPE;
+    }
+
+    @Override
+    public void setContainer( IndexContainer container) throws IndexException {
+        index = container.getSegmentedIndexData( TYPE);
+        termCount = index.getInt( 0);
+        gramCount = index.getInt( 4);
+        gramsOffset = HEADER_SIZE + (long) termCount*TERM_SIZE;
+        postingsOffset = gramsOffset + (long) gramCount*GRAM_SIZE;
+    }
+
+    /**
+     * Returns the bigram value for two adjacent converted characters.
+     */
+    static long gram( int c1, int c2) {
+        return ((long) c1 << 32) | (c2 & 0xffffffffL);
+    }
+
+    /**
+     * Returns the locations of all indexed terms which are within a distance of the expression.
+     * The locations are ordered by increasing distance.
+     *
+     * @param parameters The maximum distance as <code>Number</code>, and optionally the
+     *        search mode. For {@link DistanceSearchModes#NEAR NEAR}, only substitutions of characters
+     *        are allowed and the terms must have the length of the expression. Otherwise, the
+     *        distance is the edit distance with insertions, deletions and substitutions.
+     */
+    @Override
+    public Index.Iterator getEntryPositions( Indexable dictionary, ByteBuffer expression,
+                                             Object[] parameters) throws IndexException {
+        int distance = Math.max( 0, ((Number) parameters[0]).intValue());
+        boolean substitutionsOnly = parameters.length > 1 && parameters[1] == DistanceSearchModes.NEAR;
+
+        EncodedCharacterHandler handler = dictionary.getEncodedCharacterHandler();
+        int[] chars = readCharacters( handler, expression.duplicate());
+        if (chars.length == 0) {
+            return EMPTY_MATCH;
+        }
+
+        int minLength = substitutionsOnly ? chars.length : Math.max( 1, chars.length - distance);
+        int maxLength = substitutionsOnly ? chars.length : chars.length + distance;
+
+        int[] candidates = findCandidates( chars, distance, minLength, maxLength);
+
+        // sort matches by distance, then by term number, which orders them by length
+        List<long[]> matches = new ArrayList<long[]>();
+        Indexable.CharData charData = new Indexable.CharData();
+        for ( int term : candidates) {
+            int[] termChars = readTerm( dictionary, handler, term, charData);
+            int d = substitutionsOnly ? substitutions( chars, termChars) :
+                editDistance( chars, termChars, distance);
+            if (d <= distance) {
+                matches.add( new long[] { d, term, getTermLocation( term) });
+            }
+        }
+        long[][] sorted = matches.toArray( new long[matches.size()][]);
+        Arrays.sort( sorted, new Comparator<long[]>() {
+            @Override
+            public int compare( long[] m1, long[] m2) {
+                if (m1[0] != m2[0]) {
+                    return m1[0] < m2[0] ? -1 : 1;
+                }
+                return m1[1] < m2[1] ? -1 : m1[1] > m2[1] ? 1 : 0;
+            }
+        });
+
+        long[] locations = new long[sorted.length];
+        for ( int i=0; i<sorted.length; i++) {
+            locations[i] = sorted[i][2];
+        }
+        return new DistanceIterator( locations);
+    }
+
+    /**
+     * Returns the numbers of the terms which may be within the distance of the expression and
+     * share at least one bigram with it. At most {@link #MAX_CANDIDATES MAX_CANDIDATES} terms are returned.
+     */
+    private int[] findCandidates( int[] chars, int distance, int minLength, int maxLength) {
+        Set<Long> grams = grams( chars);
+        int threshold = Math.max( 1, grams.size() - 2*distance);
+
+        // collect the terms of matching length in the postings of all bigrams of the expression
+        int[] postingTerms = new int[64];
+        int postingCount = 0;
+        for ( long gram : grams) {
+            int gramEntry = findGram( gram);
+            if (gramEntry == -1) {
+                continue;
+            }
+            long entryOffset = gramsOffset + (long) gramEntry*GRAM_SIZE;
+            long first = postingsOffset + (long) index.getInt( entryOffset + 8)*POSTING_SIZE;
+            int postings = index.getInt( entryOffset + 12);
+            for ( int i=0; i<postings; i++) {
+                int term = index.getInt( first + (long) i*POSTING_SIZE);
+                int length = getTermCharLength( term);
+                if (length < minLength || length > maxLength) {
+                    continue;
+                }
+                if (postingCount == postingTerms.length) {
+                    postingTerms = Arrays.copyOf( postingTerms, postingCount*2);
+                }
+                postingTerms[postingCount++] = term;
+            }
+        }
+
+        // count the shared bigrams of each term, a term occurs once per shared bigram
+        Arrays.sort( postingTerms, 0, postingCount);
+        long[] candidates = new long[postingCount];
+        int candidateCount = 0;
+        for ( int i=0; i<postingCount; ) {
+            int term = postingTerms[i];
+            int count = 0;
+            while (i < postingCount && postingTerms[i] == term) {
+                count++;
+                i++;
+            }
+            if (count >= threshold) {
+                // sorts by descending count, then ascending term
+                candidates[candidateCount++] = ((long) -count << 32) | term;
+            }
+        }
+
+        if (candidateCount > MAX_CANDIDATES) {
+            Arrays.sort( candidates, 0, candidateCount);
+            candidateCount = MAX_CANDIDATES;
+        }
+        int[] out = new int[candidateCount];
+        for ( int i=0; i<candidateCount; i++) {
+            out[i] = (int) candidates[i];
+        }
+        return out;
+    }
+
+    /**
+     * Returns the set of distinct bigrams of a term, including the padding at start and end.
+     */
+    static Set<Long> grams( int[] chars) {
+        Set<Long> grams = new LinkedHashSet<Long>();
+        int previous = BOUNDARY;
+        for ( int c : chars) {
+            grams.add( gram( previous, c));
+            previous = c;
+        }
+        grams.add( gram( previous, BOUNDARY));
+        return grams;
+    }
+
+    /**
+     * Returns the entry of a bigram in the bigram table, or -1 if the bigram is not indexed.
+     */
+    private int findGram( long gram) {
+        int from = 0;
+        int to = gramCount - 1;
+        while (from <= to) {
+            int curr = (from + to) >>> 1;
+            long g = index.getLong( gramsOffset + (long) curr*GRAM_SIZE);
+            if (g < gram) {
+                from = curr + 1;
+            } else if (g > gram) {
+                to = curr - 1;
+            } else {
+                return curr;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the number of terms stored in the index.
+     */
+    public int getTermCount() {
+        return termCount;
+    }
+
+    /**
+     * Returns the location of a term. Terms are numbered by ascending length in characters.
+     */
+    public long getTermLocation( int term) {
+        return index.getLong( HEADER_SIZE + (long) term*TERM_SIZE);
+    }
+
+    /**
+     * Returns the length in bytes of a term.
+     */
+    public int getTermByteLength( int term) {
+        return index.getInt( HEADER_SIZE + (long) term*TERM_SIZE + 8);
+    }
+
+    private int getTermCharLength( int term) {
+        return index.getInt( HEADER_SIZE + (long) term*TERM_SIZE + 12);
+    }
+
+    private int[] readTerm( Indexable dictionary, EncodedCharacterHandler handler, int term,
+                            Indexable.CharData charData) {
+        long location = getTermLocation( term);
+        return readCharacters( dictionary, handler, location, location + getTermByteLength( term),
+                               getTermCharLength( term), charData);
+    }
+
+    /**
+     * Reads the converted characters in the range <code>[start,end)</code> of the dictionary.
+     */
+    static int[] readCharacters( Indexable dictionary, EncodedCharacterHandler handler, long start,
+                                 long end, int expectedLength, Indexable.CharData charData) {
+        int[] chars = new int[expectedLength];
+        int length = 0;
+        long position = start;
+        while (position < end) {
+            dictionary.getChar( position, charData);
+            if (length == chars.length) {
+                chars = Arrays.copyOf( chars, chars.length*2 + 1);
+            }
+            chars[length++] = handler.convertCharacter( charData.character);
+            position = charData.position;
+        }
+        return length == chars.length ? chars : Arrays.copyOf( chars, length);
+    }
+
+    /**
+     * Reads the converted characters of a search expression.
+     */
+    private static int[] readCharacters( EncodedCharacterHandler handler, ByteBuffer expression)
+        throws IndexException {
+        int[] chars = new int[expression.remaining()];
+        int length = 0;
+        try {
+            while (expression.hasRemaining()) {
+                chars[length++] = handler.convertCharacter( handler.readCharacter( expression));
+            }
+        } catch (BufferUnderflowException ex) {
+            // incomplete last character
+            length--;
+        } catch (CharacterCodingException ex) {
+            throw new IndexException( ex);
+        }
+        return Arrays.copyOf( chars, length);
+    }
+
+    /**
+     * Returns the number of differing characters of two strings of equal length, or
+     * <code>Integer.MAX_VALUE</code> if the lengths differ.
+     */
+    static int substitutions( int[] s1, int[] s2) {
+        if (s1.length != s2.length) {
+            return Integer.MAX_VALUE;
+        }
+        int d = 0;
+        for ( int i=0; i<s1.length; i++) {
+            if (s1[i] != s2[i]) {
+                d++;
+            }
+        }
+        return d;
+    }
+
+    /**
+     * Returns the edit distance (Levenshtein distance) of two strings. If the distance is greater
+     * than <code>limit</code>, some value greater than <code>limit</code> is returned.
+     */
+    static int editDistance( int[] s1, int[] s2, int limit) {
+        if (Math.abs( s1.length - s2.length) > limit) {
+            return limit + 1;
+        }
+
+        int[] previous = new int[s2.length + 1];
+        int[] current = new int[s2.length + 1];
+        for ( int j=0; j<=s2.length; j++) {
+            previous[j] = j;
+        }
+        for ( int i=1; i<=s1.length; i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for ( int j=1; j<=s2.length; j++) {
+                int cost = s1[i-1] == s2[j-1] ? 0 : 1;
+                current[j] = Math.min( Math.min( current[j-1] + 1, previous[j] + 1), previous[j-1] + cost);
+                rowMin = Math.min( rowMin, current[j]);
+            }
+            if (rowMin > limit) {
+                return limit + 1;
+            }
+            int[] t = previous;
+            previous = current;
+            current = t;
+        }
+        return previous[s2.length];
+    }
+
+    /**
+     * Iterator over the locations of a distance search.
+     */
+    private static class DistanceIterator implements Index.Iterator {
+        private final long[] locations;
+        private int next = 0;
+
+        DistanceIterator( long[] _locations) {
+            locations = _locations;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < locations.length;
+        }
+
+        @Override
+        public long next() throws NoSuchElementException {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return locations[next++];
+        }
+    } // class DistanceIterator
+} // class NGramIndex
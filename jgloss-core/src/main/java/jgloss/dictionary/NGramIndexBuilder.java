@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.dictionary;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+/**
+ * Builder for a {@link NGramIndex NGramIndex}. The builder collects all terms in word, reading
+ * and translation fields. For kanji terms, the indexer adds each suffix of the term as separate
+ * entry; these entries end at the same location as the whole term and are ignored.
+ *
+ * @author Michael Koch
+ */
+public class NGramIndexBuilder implements IndexBuilder {
+    private static final Logger LOGGER = Logger.getLogger(NGramIndexBuilder.class.getPackage().getName());
+
+    private IndexContainer indexContainer;
+    private Indexable dictionary;
+    private EncodedCharacterHandler characterHandler;
+
+    private long[] locations;
+    private int[] lengths;
+    private int termCount;
+    /**
+     * End location of the last added term.
+     */
+    private long lastEnd;
+
+    @Override
+    public void startBuildIndex(IndexContainer _container, Indexable _dictionary) throws IndexException {
+        if (_dictionary.getEncodedCharacterHandler() == null) {
+            throw new IndexException("n-gram index needs a character handler");
+        }
+        indexContainer = _container;
+        dictionary = _dictionary;
+        characterHandler = _dictionary.getEncodedCharacterHandler();
+
+        locations = new long[1024];
+        lengths = new int[1024];
+        termCount = 0;
+        lastEnd = -1;
+    }
+
+    @Override
+    public boolean addEntry(long location, int length, DictionaryEntryField field) throws IndexException {
+        if (field != DictionaryEntryField.WORD &&
+            field != DictionaryEntryField.READING &&
+            field != DictionaryEntryField.TRANSLATION) {
+            return false;
+        }
+
+        long end = location + length;
+        if (end == lastEnd) {
+            // suffix of the previous term
+            return false;
+        }
+        lastEnd = end;
+
+        if (termCount == locations.length) {
+            locations = Arrays.copyOf(locations, locations.length*2);
+            lengths = Arrays.copyOf(lengths, lengths.length*2);
+        }
+        locations[termCount] = location;
+        lengths[termCount] = length;
+        termCount++;
+        return true;
+    }
+
+    @Override
+    public void endBuildIndex(boolean commit) throws IndexException {
+        try {
+            if (commit) {
+                LOGGER.info(termCount + " terms in n-gram index");
+                writeIndex();
+            }
+        } catch (IOException ex) {
+            throw new IndexException(ex);
+        } finally {
+            locations = null;
+            lengths = null;
+        }
+    }
+
+    private void writeIndex() throws IOException, IndexException {
+        Indexable.CharData charData = new Indexable.CharData();
+
+        // sort terms by character length, keeping the order in the dictionary for terms of equal length
+        long[] order = new long[termCount];
+        for (int i=0; i<termCount; i++) {
+            int charLength = readTerm(i, charData).length;
+            order[i] = ((long) charLength << 32) | i;
+        }
+        Arrays.sort(order);
+
+        // collect the postings as parallel arrays of bigram and term number
+        ByteBuffer terms = allocate(NGramIndex.HEADER_SIZE + termCount*NGramIndex.TERM_SIZE);
+        terms.position(NGramIndex.HEADER_SIZE);
+        long[] postingGrams = new long[Math.max(16, termCount*4)];
+        int[] postingTerms = new int[postingGrams.length];
+        int postingCount = 0;
+        for (int term=0; term<termCount; term++) {
+            int i = (int) order[term];
+            int[] chars = readTerm(i, charData);
+            terms.putLong(locations[i]);
+            terms.putInt(lengths[i]);
+            terms.putInt(chars.length);
+
+            for (long gram : NGramIndex.grams(chars)) {
+                if (postingCount == postingGrams.length) {
+                    postingGrams = Arrays.copyOf(postingGrams, postingCount*2);
+                    postingTerms = Arrays.copyOf(postingTerms, postingCount*2);
+                }
+                postingGrams[postingCount] = gram;
+                postingTerms[postingCount] = term;
+                postingCount++;
+            }
+        }
+
+        // distinct bigrams in ascending order
+        long[] grams = Arrays.copyOf(postingGrams, postingCount);
+        Arrays.sort(grams);
+        int gramCount = 0;
+        for (int p=0; p<postingCount; p++) {
+            if (gramCount == 0 || grams[gramCount-1] != grams[p]) {
+                grams[gramCount++] = grams[p];
+            }
+        }
+
+        // group the postings by bigram with a counting sort, which keeps them ordered by term
+        int[] firstPosting = new int[gramCount + 1];
+        int[] postingGramEntries = new int[postingCount];
+        for (int p=0; p<postingCount; p++) {
+            int gramEntry = Arrays.binarySearch(grams, 0, gramCount, postingGrams[p]);
+            postingGramEntries[p] = gramEntry;
+            firstPosting[gramEntry + 1]++;
+        }
+        postingGrams = null;
+        for (int g=0; g<gramCount; g++) {
+            firstPosting[g + 1] += firstPosting[g];
+        }
+        int[] groupedPostings = new int[postingCount];
+        int[] next = Arrays.copyOf(firstPosting, gramCount);
+        for (int p=0; p<postingCount; p++) {
+            groupedPostings[next[postingGramEntries[p]]++] = postingTerms[p];
+        }
+
+        ByteBuffer gramTable = allocate(gramCount*NGramIndex.GRAM_SIZE);
+        for (int g=0; g<gramCount; g++) {
+            gramTable.putLong(grams[g]);
+            gramTable.putInt(firstPosting[g]);
+            gramTable.putInt(firstPosting[g + 1] - firstPosting[g]);
+        }
+        ByteBuffer postingData = allocate(postingCount*NGramIndex.POSTING_SIZE);
+        postingData.asIntBuffer().put(groupedPostings);
+        postingData.position(postingCount*NGramIndex.POSTING_SIZE);
+
+        terms.putInt(0, termCount);
+        terms.putInt(4, gramCount);
+        terms.putInt(8, postingCount);
+        terms.flip();
+        gramTable.flip();
+        postingData.flip();
+        indexContainer.createIndex(NGramIndex.TYPE, terms, gramTable, postingData);
+    }
+
+    private int[] readTerm(int term, Indexable.CharData charData) {
+        return NGramIndex.readCharacters(dictionary, characterHandler, locations[term],
+                                         locations[term] + lengths[term], lengths[term], charData);
+    }
+
+    /**
+     * Allocates a buffer in the byte order of the index container.
+     */
+    private ByteBuffer allocate(int size) {
+        return ByteBuffer.allocate(size).order(indexContainer.getIndexByteOrder());
+    }
+} // class NGramIndexBuilder
@@ -0,0 +1,719 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.dictionary;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Builder for a {@link BinarySearchIndex BinarySearchIndex} which sorts the index entries in
+ * parallel and in bounded memory. The created index data is identical to the data created by
+ * {@link BinarySearchIndexBuilder BinarySearchIndexBuilder}.
+ * <p>
+ * Index entries are collected in runs of a fixed number of entries. Each full run is sorted by a
+ * fork/join merge sort and written to a temporary file while the next run is filled. At the end
+ * of the build, the sorted runs are merged into a temporary index file, which is then copied to
+ * the index container. If all entries fit into a single run, no temporary files are used.
+ * </p><p>
+ * For each entry, the first two characters are cached as a prefix key. The key is made up of the
+ * characters returned by {@link Indexable#getChar(long,Indexable.CharData) getChar}, converted by
+ * {@link EncodedCharacterHandler#convertCharacter(int) convertCharacter} of the indexable's character
+ * handler. Entries with different keys are ordered by their keys, and only entries with equal keys
+ * are compared through {@link Indexable#compare(long,long) Indexable.compare}. This requires that
+ * <code>compare</code> orders entries lexicographically by their converted characters, as
+ * {@link jgloss.dictionary.filebased.FileBasedDictionary FileBasedDictionary} does. If the indexable
+ * does not have a character handler, no prefix keys are used.
+ * </p><p>
+ * Entries which are already sorted, like the entries of an existing index, can be added as a
+ * {@link SortedEntrySource SortedEntrySource}. They are merged with the added entries without
+ * being sorted again, which allows an index to be updated with few changed entries cheaply.
+ * </p><p>
+ * Since entries are compared from several threads, the <code>Indexable</code> must support
+ * concurrent calls to <code>compare</code> and <code>getChar</code>.
+ * </p>
+ *
+ * @author Michael Koch
+ */
+public class ParallelBinarySearchIndexBuilder implements IndexBuilder {
+    private static final Logger LOGGER = Logger.getLogger(ParallelBinarySearchIndexBuilder.class.getPackage().getName());
+
+    /**
+     * Default number of index entries in a run.
+     */
+    public static final int DEFAULT_RUN_ENTRIES = 1 << 21;
+
+    /**
+     * Ranges of at most this many entries are sorted in the current thread.
+     */
+    private static final int SEQUENTIAL_THRESHOLD = 1 << 13;
+
+    /**
+     * Ranges of at most this many entries are sorted by insertion sort.
+     */
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    /**
+     * Maximum size of a buffer passed to {@link IndexContainer#createIndex(int,ByteBuffer...) createIndex}.
+     */
+    private static final int MAX_OUTPUT_BUFFER_SIZE = 1 << 30;
+
+    /**
+     * Source of index entries which are already sorted in index order.
+     */
+    public interface SortedEntrySource {
+        /**
+         * Moves to the next entry. Must be called before the first entry is accessed.
+         *
+         * @return <code>false</code> if there are no more entries.
+         */
+        boolean next() throws IndexException;
+
+        /**
+         * Returns the prefix key of the current entry, as created by
+         * {@link KeyedBinarySearchIndex#prefixKey(int,int) KeyedBinarySearchIndex.prefixKey}.
+         */
+        long getKey();
+
+        /**
+         * Returns the location of the current entry.
+         */
+        long getLocation();
+    } // interface SortedEntrySource
+
+    private final int type;
+    private final boolean longEntries;
+    private final boolean storeKeys;
+    private final int entrySize;
+    private final int runEntries;
+    private final int parallelism;
+    private final File tempDir;
+
+    protected IndexContainer indexContainer;
+    protected Indexable dictionary;
+    protected EncodedCharacterHandler characterHandler;
+    private ForkJoinPool pool;
+
+    /**
+     * Locations of the entries in the run which is currently filled.
+     */
+    private long[] run;
+    /**
+     * Number of entries in the current run.
+     */
+    private int runLength;
+    /**
+     * Number of entries added to the index.
+     */
+    private long entryCount;
+    /**
+     * Files with the sorted runs already written.
+     */
+    private List<File> runFiles;
+    /**
+     * Sorting and writing of the previous run, or <code>null</code>.
+     */
+    private Future<File> pendingRun;
+    /**
+     * Entries which are merged with the added entries, or <code>null</code>.
+     */
+    private SortedEntrySource sortedEntries;
+
+    /**
+     * Creates a builder for an index of the given type, using the default run size and one thread
+     * per available processor. The index stores 64 bit locations if the type is
+     * {@link BinarySearchIndex#LONG_TYPE LONG_TYPE}, 32 bit locations otherwise.
+     */
+    public ParallelBinarySearchIndexBuilder(int _type) {
+        this(_type, _type == BinarySearchIndex.LONG_TYPE, DEFAULT_RUN_ENTRIES,
+             Runtime.getRuntime().availableProcessors(), null);
+    }
+
+    /**
+     * Creates a builder for an index of the given type.
+     *
+     * @param _longEntries <code>true</code> if locations are stored as 64 bit values,
+     *        <code>false</code> for 32 bit values.
+     * @param _runEntries Number of entries sorted in memory at once. At most two runs are held in
+     *        memory at the same time, each needing 32 bytes per entry while sorting.
+     * @param _parallelism Number of threads used for sorting.
+     * @param _tempDir Directory for the temporary files, or <code>null</code> to use the system default.
+     */
+    public ParallelBinarySearchIndexBuilder(int _type, boolean _longEntries, int _runEntries,
+                                            int _parallelism, File _tempDir) {
+        this(_type, _longEntries, false, _runEntries, _parallelism, _tempDir);
+    }
+
+    /**
+     * Creates a builder for an index of the given type.
+     *
+     * @param _storeKeys <code>true</code> if the prefix key of each entry is stored in front of
+     *        its location, as needed by {@link KeyedBinarySearchIndex KeyedBinarySearchIndex}.
+     */
+    protected ParallelBinarySearchIndexBuilder(int _type, boolean _longEntries, boolean _storeKeys,
+                                               int _runEntries, int _parallelism, File _tempDir) {
+        if (_runEntries < 1) {
+            throw new IllegalArgumentException("run entries must be positive: " + _runEntries);
+        }
+        type = _type;
+        longEntries = _longEntries;
+        storeKeys = _storeKeys;
+        entrySize = (longEntries ? 8 : 4) + (storeKeys ? 8 : 0);
+        runEntries = _runEntries;
+        parallelism = _parallelism;
+        tempDir = _tempDir;
+    }
+
+    @Override
+    public void startBuildIndex(IndexContainer _container, Indexable _dictionary) throws IndexException {
+        this.indexContainer = _container;
+        this.dictionary = _dictionary;
+        this.characterHandler = _dictionary.getEncodedCharacterHandler();
+
+        pool = new ForkJoinPool(parallelism);
+        run = new long[runEntries];
+        runLength = 0;
+        entryCount = 0;
+        runFiles = new ArrayList<File>();
+        pendingRun = null;
+        sortedEntries = null;
+    }
+
+    /**
+     * Merges the entries of the source with the entries added to the index. The entries of the
+     * source must be ordered like the entries of the built index, must have the prefix keys computed
+     * for the dictionary and must not be added by {@link #addEntry(long,int,DictionaryEntryField) addEntry}.
+     * The source is read when the build ends. Must be called after
+     * {@link #startBuildIndex(IndexContainer,Indexable) startBuildIndex}.
+     */
+    public void addSortedEntries(SortedEntrySource source) {
+        sortedEntries = source;
+    }
+
+    @Override
+    public boolean addEntry(long location, int length, DictionaryEntryField field) throws IndexException {
+        if (field == DictionaryEntryField.WORD ||
+            field == DictionaryEntryField.READING ||
+            field == DictionaryEntryField.TRANSLATION) {
+            if (!longEntries && location > Integer.MAX_VALUE) {
+                throw new IndexException("location " + location + " does not fit in index type " +
+                                         Integer.toHexString(type));
+            }
+            if (runLength == runEntries) {
+                spillRun();
+            }
+            run[runLength++] = location;
+            entryCount++;
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public void endBuildIndex(boolean commit) throws IndexException {
+        try {
+            if (commit) {
+                LOGGER.info(entryCount + " entries");
+                LOGGER.info("sorting index");
+                if (runFiles.isEmpty() && pendingRun == null && sortedEntries == null) {
+                    // all entries fit into one run, no merge needed
+                    SortedRun sorted = sortRun(run, runLength);
+                    indexContainer.createIndex(type, toIndexData(sorted));
+                } else {
+                    spillRun();
+                    awaitPendingRun();
+                    LOGGER.info("merging " + runFiles.size() + " runs");
+                    mergeRuns();
+                }
+            }
+        } catch (IOException ex) {
+            throw new IndexException(ex);
+        } finally {
+            discardPendingRun();
+            pool.shutdown();
+            for (File f : runFiles) {
+                deleteTempFile(f);
+            }
+            run = null;
+            runFiles = null;
+            sortedEntries = null;
+            pool = null;
+        }
+    }
+
+    /**
+     * Sorts and writes the current run in the background. Waits for the previous run to be written
+     * first, which limits the memory use to two runs.
+     */
+    private void spillRun() throws IndexException {
+        if (runLength == 0) {
+            return;
+        }
+
+        awaitPendingRun();
+        final long[] fullRun = run;
+        final int fullRunLength = runLength;
+        pendingRun = pool.submit(new Callable<File>() {
+            @Override
+            public File call() throws IOException {
+                return writeRun(sortRun(fullRun, fullRunLength));
+            }
+        });
+        run = new long[runEntries];
+        runLength = 0;
+    }
+
+    private void awaitPendingRun() throws IndexException {
+        if (pendingRun == null) {
+            return;
+        }
+
+        try {
+            runFiles.add(pendingRun.get());
+            pendingRun = null;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IndexException(ex);
+        } catch (ExecutionException ex) {
+            pendingRun = null;
+            if (ex.getCause() instanceof IndexException) {
+                throw (IndexException) ex.getCause();
+            }
+            throw new IndexException(ex.getCause());
+        }
+    }
+
+    /**
+     * Waits for a run which is still being written after the build failed and deletes its file.
+     */
+    private void discardPendingRun() {
+        if (pendingRun != null) {
+            try {
+                deleteTempFile(pendingRun.get());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException ex) {
+                // run was not written
+            }
+            pendingRun = null;
+        }
+    }
+
+    /**
+     * Computes the prefix keys of a run and sorts it.
+     */
+    private SortedRun sortRun(long[] locations, int length) {
+        SortedRun sorted = new SortedRun(locations, length);
+        pool.invoke(new KeyTask(sorted, 0, length));
+        pool.invoke(new SortTask(sorted, new long[length], new long[length], 0, length));
+        return sorted;
+    }
+
+    private File writeRun(SortedRun sorted) throws IOException {
+        File f = File.createTempFile("jgloss-index", ".run", tempDir);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(f), 1 << 16));
+        try {
+            for (int i=0; i<sorted.length; i++) {
+                out.writeLong(sorted.keys[i]);
+                out.writeLong(sorted.locations[i]);
+            }
+        } finally {
+            out.close();
+        }
+        return f;
+    }
+
+    /**
+     * Creates the index data for a single sorted run.
+     */
+    private ByteBuffer[] toIndexData(SortedRun sorted) {
+        ByteBuffer data = ByteBuffer.allocate(sorted.length*entrySize).order(indexContainer.getIndexByteOrder());
+        for (int i=0; i<sorted.length; i++) {
+            putEntry(data, sorted.keys[i], sorted.locations[i]);
+        }
+        data.flip();
+        return new ByteBuffer[] { data };
+    }
+
+    private void putEntry(ByteBuffer data, long key, long location) {
+        if (storeKeys) {
+            data.putLong(key);
+        }
+        if (longEntries) {
+            data.putLong(location);
+        } else {
+            data.putInt((int) location);
+        }
+    }
+
+    /**
+     * Merges the sorted run files into a temporary index file and copies it to the index container.
+     */
+    private void mergeRuns() throws IOException, IndexException {
+        File indexData = File.createTempFile("jgloss-index", ".dat", tempDir);
+        try {
+            writeMergedRuns(indexData);
+
+            RandomAccessFile in = new RandomAccessFile(indexData, "r");
+            try {
+                FileChannel channel = in.getChannel();
+                long size = channel.size();
+                int bufferSize = MAX_OUTPUT_BUFFER_SIZE - MAX_OUTPUT_BUFFER_SIZE % entrySize;
+                List<ByteBuffer> data = new ArrayList<ByteBuffer>();
+                for (long offset=0; offset<size; offset+=bufferSize) {
+                    data.add(channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(bufferSize, size - offset)));
+                }
+                indexContainer.createIndex(type, data.toArray(new ByteBuffer[data.size()]));
+            } finally {
+                in.close();
+            }
+        } finally {
+            deleteTempFile(indexData);
+        }
+    }
+
+    private void writeMergedRuns(File indexData) throws IOException, IndexException {
+        PriorityQueue<EntryReader> readers = new PriorityQueue<EntryReader>(runFiles.size() + 1, new Comparator<EntryReader>() {
+            @Override
+            public int compare(EntryReader r1, EntryReader r2) {
+                return compareEntries(r1.key, r1.location, r2.key, r2.location);
+            }
+        });
+
+        FileOutputStream out = new FileOutputStream(indexData);
+        try {
+            List<EntryReader> sources = new ArrayList<EntryReader>(runFiles.size() + 1);
+            for (File f : runFiles) {
+                sources.add(new RunReader(f));
+            }
+            if (sortedEntries != null) {
+                sources.add(new SourceReader(sortedEntries));
+            }
+            for (EntryReader reader : sources) {
+                if (reader.next()) {
+                    readers.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+
+            FileChannel channel = out.getChannel();
+            ByteOrder order = indexContainer.getIndexByteOrder();
+            ByteBuffer buffer = ByteBuffer.allocate(entrySize << 14).order(order);
+            while (!readers.isEmpty()) {
+                EntryReader reader = readers.poll();
+                putEntry(buffer, reader.key, reader.location);
+                if (!buffer.hasRemaining()) {
+                    writeFully(channel, buffer);
+                }
+                if (reader.next()) {
+                    readers.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+            writeFully(channel, buffer);
+        } finally {
+            for (EntryReader reader : readers) {
+                reader.close();
+            }
+            out.close();
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static void deleteTempFile(File f) {
+        if (f != null && !f.delete()) {
+            LOGGER.log(Level.WARNING, "failed to delete temporary index file {0}", f);
+            f.deleteOnExit();
+        }
+    }
+
+    /**
+     * Computes the prefix key of the entry at the given location.
+     *
+     * @see KeyedBinarySearchIndex#prefixKey(int,int)
+     */
+    private long prefixKey(long location, Indexable.CharData charData) {
+        if (characterHandler == null) {
+            return 0;
+        }
+
+        int c1 = readKeyCharacter(location, charData);
+        int c2 = c1 != 0 ? readKeyCharacter(charData.position, charData) : 0;
+        return KeyedBinarySearchIndex.prefixKey(c1, c2);
+    }
+
+    /**
+     * Reads the converted character at the given position. The position of the following character is
+     * stored in <code>charData</code>.
+     *
+     * @return The converted character, or 0 at the end of the data. An entry which ends is smaller than
+     *         any entry with a character at the same position.
+     */
+    private int readKeyCharacter(long position, Indexable.CharData charData) {
+        try {
+            dictionary.getChar(position, charData);
+            return characterHandler.convertCharacter(charData.character);
+        } catch (BufferUnderflowException ex) {
+            return 0;
+        } catch (IndexOutOfBoundsException ex) {
+            return 0;
+        }
+    }
+
+    /**
+     * Compares two index entries, using the prefix keys if they differ.
+     */
+    private int compareEntries(long key1, long location1, long key2, long location2) {
+        if (key1 != key2) {
+            return KeyedBinarySearchIndex.compareKeys(key1, key2);
+        }
+        return dictionary.compare(location1, location2);
+    }
+
+    /**
+     * Locations of a run together with their prefix keys.
+     */
+    private static class SortedRun {
+        final long[] locations;
+        final long[] keys;
+        final int length;
+
+        SortedRun(long[] _locations, int _length) {
+            locations = _locations;
+            keys = new long[_length];
+            length = _length;
+        }
+    }
+
+    /**
+     * Computes the prefix keys of a range of entries of a run.
+     */
+    private class KeyTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final SortedRun sorted;
+        private final int from;
+        private final int to;
+
+        KeyTask(SortedRun _sorted, int _from, int _to) {
+            sorted = _sorted;
+            from = _from;
+            to = _to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                Indexable.CharData charData = new Indexable.CharData();
+                for (int i=from; i<to; i++) {
+                    sorted.keys[i] = prefixKey(sorted.locations[i], charData);
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new KeyTask(sorted, from, middle), new KeyTask(sorted, middle, to));
+            }
+        }
+    }
+
+    /**
+     * Merge sort of a range of entries of a run. Ranges larger than the sequential threshold
+     * are split and sorted in parallel.
+     */
+    private class SortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final SortedRun sorted;
+        private final long[] tempKeys;
+        private final long[] tempLocations;
+        private final int from;
+        private final int to;
+
+        SortTask(SortedRun _sorted, long[] _tempKeys, long[] _tempLocations, int _from, int _to) {
+            sorted = _sorted;
+            tempKeys = _tempKeys;
+            tempLocations = _tempLocations;
+            from = _from;
+            to = _to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                sort(from, to);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new SortTask(sorted, tempKeys, tempLocations, from, middle),
+                          new SortTask(sorted, tempKeys, tempLocations, middle, to));
+                merge(from, middle, to);
+            }
+        }
+
+        private void sort(int start, int end) {
+            if (end - start <= INSERTION_SORT_THRESHOLD) {
+                insertionSort(start, end);
+            } else {
+                int middle = (start + end) >>> 1;
+                sort(start, middle);
+                sort(middle, end);
+                merge(start, middle, end);
+            }
+        }
+
+        private void insertionSort(int start, int end) {
+            long[] keys = sorted.keys;
+            long[] locations = sorted.locations;
+            for (int i=start+1; i<end; i++) {
+                long key = keys[i];
+                long location = locations[i];
+                int j = i - 1;
+                while (j >= start && compareEntries(keys[j], locations[j], key, location) > 0) {
+                    keys[j+1] = keys[j];
+                    locations[j+1] = locations[j];
+                    j--;
+                }
+                keys[j+1] = key;
+                locations[j+1] = location;
+            }
+        }
+
+        private void merge(int start, int middle, int end) {
+            long[] keys = sorted.keys;
+            long[] locations = sorted.locations;
+            if (compareEntries(keys[middle-1], locations[middle-1], keys[middle], locations[middle]) <= 0) {
+                return; // already in order
+            }
+
+            System.arraycopy(keys, start, tempKeys, start, end - start);
+            System.arraycopy(locations, start, tempLocations, start, end - start);
+            int i = start;
+            int j = middle;
+            for (int k=start; k<end; k++) {
+                if (j >= end || i < middle &&
+                    compareEntries(tempKeys[i], tempLocations[i], tempKeys[j], tempLocations[j]) <= 0) {
+                    keys[k] = tempKeys[i];
+                    locations[k] = tempLocations[i++];
+                } else {
+                    keys[k] = tempKeys[j];
+                    locations[k] = tempLocations[j++];
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads sorted entries for the final merge.
+     */
+    private abstract static class EntryReader {
+        long key;
+        long location;
+
+        /**
+         * Reads the next entry.
+         *
+         * @return <code>false</code> if the end of the entries is reached.
+         */
+        abstract boolean next() throws IOException, IndexException;
+
+        void close() throws IOException {}
+    }
+
+    /**
+     * Reads the entries of a sorted run file.
+     */
+    private static class RunReader extends EntryReader {
+        private final DataInputStream in;
+
+        RunReader(File f) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(f), 1 << 16));
+        }
+
+        @Override
+        boolean next() throws IOException {
+            try {
+                key = in.readLong();
+            } catch (EOFException ex) {
+                return false;
+            }
+            location = in.readLong();
+            return true;
+        }
+
+        @Override
+        void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Reads the entries of a sorted entry source.
+     */
+    private static class SourceReader extends EntryReader {
+        private final SortedEntrySource source;
+
+        SourceReader(SortedEntrySource source) {
+            this.source = source;
+        }
+
+        @Override
+        boolean next() throws IndexException {
+            if (!source.next()) {
+                return false;
+            }
+            key = source.getKey();
+            location = source.getLocation();
+            return true;
+        }
+    }
+} // class ParallelBinarySearchIndexBuilder
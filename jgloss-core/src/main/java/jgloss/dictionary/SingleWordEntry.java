@@ -31,7 +31,7 @@ public class SingleWordEntry extends BaseEntry {
 
     private final String reading;
 
-    public SingleWordEntry( int _entryMarker, String _word, String _reading, List<List<String>> _translations,
+    public SingleWordEntry( long _entryMarker, String _word, String _reading, List<List<String>> _translations,
                        AttributeSet _generalA, AttributeSet _wordA, AttributeSet _readingA, AttributeSet _translationA,
                        List<AttributeSet> _translationRomA, Dictionary _dictionary) {
         super(_entryMarker, _translations, _generalA, _wordA, _readingA, _translationA,
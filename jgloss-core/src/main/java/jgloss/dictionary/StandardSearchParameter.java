@@ -49,10 +49,10 @@ public class StandardSearchParameter implements SearchParameter {
     public static final SearchParameter WILDCARD =
         new StandardSearchParameter( Character.class, "wildcard");
     /**
-     * Distance used in near match and radius search. Parameter class is <code>java.lang.Short</code>.
+     * Distance used in near match and radius search. Parameter class is <code>java.lang.Integer</code>.
      */
     public static final SearchParameter DISTANCE =
-        new StandardSearchParameter( Short.class, "Distance");
+        new StandardSearchParameter( Integer.class, "Distance");
 
     public StandardSearchParameter( Class<?> _paramClass, String _description) {
         this.paramClass = _paramClass;
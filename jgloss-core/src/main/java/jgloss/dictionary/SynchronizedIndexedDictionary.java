@@ -53,4 +53,11 @@ class SynchronizedIndexedDictionary extends SynchronizedDictionary implements In
             getWrappedDictionary().buildIndex();
         }
     }
+
+    @Override
+    public boolean contains(SearchMode searchmode, Object[] parameters) throws SearchException {
+        synchronized (mutex) {
+            return getWrappedDictionary().contains(searchmode, parameters);
+        }
+    }
 }
@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.dictionary;
+
+/**
+ * Marker interface for dictionaries which can be searched concurrently from multiple threads
+ * without external synchronization. Loading or building the index of an
+ * {@link IndexedDictionary IndexedDictionary} must be completed before the dictionary is shared
+ * between threads.
+ *
+ * @see DictionaryFactory#threadSafeDictionary(Dictionary)
+ * @author Michael Koch
+ */
+public interface ThreadSafeDictionary extends Dictionary {
+} // interface ThreadSafeDictionary
@@ -29,51 +29,61 @@ import java.nio.charset.CharacterCodingException;
 import jgloss.util.StringTools;
 
 /**
- * Character encoding handler for UTF-8 encoded text.
+ * Character encoding handler for UTF-8 encoded text. The handler keeps no decoding state,
+ * a single instance can be used concurrently as long as every thread reads from its own buffer.
  *
  * @author Michael Koch
  */
 public class UTF8CharacterHandler implements EncodedCharacterHandler {
-    private final int[] charData = new int[6];
-
     @Override
 	public int readCharacter( ByteBuffer buffer) throws BufferUnderflowException,
                                                         IndexOutOfBoundsException,
                                                         CharacterCodingException {
         byte b = buffer.get();
-        int length = 1;
+        int length;
+        int c;
         if ((b&0x80) == 0) {
             return b; // single byte character
         }
         else if ((b&0xe0) == 0xc0) { // %110xxxxx
             length = 2;
-            charData[0] = b & 0x1f;
+            c = b & 0x1f;
         }
         else if ((b&0xf0) == 0xe0) { // %1110xxxx
             length = 3;
-            charData[0] = b & 0x0f;
+            c = b & 0x0f;
         }
         else if ((b&0xf8) == 0xf0) { // %11110xxx
             length = 4;
-            charData[0] = b & 0x07;
+            c = b & 0x07;
         }
         else if ((b&0xfc) == 0xf8) { // % 111110xx
             length = 5;
-            charData[0] = b & 0x03;
+            c = b & 0x03;
         }
         else if ((b&0xfe) == 0xfc) { // % 1111110x
             length = 6;
-            charData[0] = b & 0x01;
+            c = b & 0x01;
+        }
+        else {
+            // stray continuation byte or 0xfe/0xff: treat as a single byte character
+            return b & 0xff;
         }
+
+        int lead = c;
+        int second = 0;
         for ( int i=1; i<length; i++) {
             b = buffer.get();
             if ((b&0xc0) != 0x80) {
 	            throw new CharacterCodingException();
             }
-            charData[i] = b & 0x3f;
+            if (i == 1) {
+                second = b & 0x3f;
+            }
+            c = c<<6 | (b & 0x3f);
         }
 
-        return decode( charData, 0, length);
+        return checkDecoded( c, lead, second, length);
     }
 
     @Override
@@ -88,54 +98,65 @@ public class UTF8CharacterHandler implements EncodedCharacterHandler {
         if ((b&0xc0) != 0x80) {
 	        throw new CharacterCodingException();
         }
-        
-        charData[5] = b & 0x3f;
+
+        // continuation bytes are read back to front, each one adds the next 6 higher bits
+        int c = b & 0x3f;
+        int second = c;
         int length = 2;
-        
+        int shift = 6;
+
         do {
             b = buffer.get( --position);
             if ((b&0xc0) != 0x80) {
 	            break;
             }
-            charData[6-length] = b & 0x3f;
+            second = b & 0x3f;
+            c |= second << shift;
+            shift += 6;
             length++;
         } while (length <= 6);
-        
+
+        int lead;
         if (length==2 && (b&0xe0)==0xc0) {
-	        charData[4] = b&0x1f;
+	        lead = b&0x1f;
         } else if (length==3 && (b&0xf0)==0xe0) {
-	        charData[3] = b&0x0f;
+	        lead = b&0x0f;
         } else if (length==4 && (b&0xf8)==0xf0) {
-	        charData[2] = b&0x07;
+	        lead = b&0x07;
         } else if (length==5 && (b&0xfc)==0xf8) {
-	        charData[1] = b&0x03;
+	        lead = b&0x03;
         } else if (length==6 && (b&0xfe)==0xfc) {
-	        charData[0] = b&0x01;
+	        lead = b&0x01;
         } else {
 	        throw new CharacterCodingException();
         }
-        
+
         buffer.position( position);
-        return decode( charData, 6-length, length);
+        return checkDecoded( c | lead << shift, lead, second, length);
     }
 
-    protected int decode( int[] charData, int offset, int length) throws CharacterCodingException {
+    /**
+     * Rejects illegal decoded characters.
+     *
+     * @param c The decoded character.
+     * @param lead Data bits of the first byte of the encoded character.
+     * @param second Data bits of the second byte of the encoded character.
+     * @param length Number of bytes of the encoded character.
+     * @return The character <code>c</code>.
+     * @exception CharacterCodingException if the sequence is overlong or the character is not legal.
+     */
+    private static int checkDecoded( int c, int lead, int second, int length) throws CharacterCodingException {
         // catch overlong UTF-8 sequences 
         // (sequences that are longer than necessary to encode a character)
-        if (length==2 && (charData[offset]&0xfe)==0 ||
-            charData[offset]==0 &&
-            (length==3 && (charData[offset+1]&0x20)==0 ||
-             length==4 && (charData[offset+1]&0x30)==0 ||
-             length==5 && (charData[offset+1]&0x38)==0 ||
-             length==6 && (charData[offset+1]&0x3c)==0)) {
+        if (length==2 && (lead&0xfe)==0 ||
+            lead==0 &&
+            (length==3 && (second&0x20)==0 ||
+             length==4 && (second&0x30)==0 ||
+             length==5 && (second&0x38)==0 ||
+             length==6 && (second&0x3c)==0)) {
 	        throw new CharacterCodingException();
         }
 
-        int c = charData[offset];
-        for ( int i=1; i<length; i++) {
-	        c = c<<6 | charData[offset+i];
-        }
-
         // catch illegal data ranges
         if (c>=0xd800 && c<=0xdfff ||
             c==0xfffe || c==0xffff) {
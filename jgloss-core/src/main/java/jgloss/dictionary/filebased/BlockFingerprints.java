@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.dictionary.filebased;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import jgloss.dictionary.BloomFilter;
+import jgloss.dictionary.IndexContainer;
+import jgloss.dictionary.IndexException;
+import jgloss.util.SegmentedByteBuffer;
+
+/**
+ * Content fingerprints of the blocks of a dictionary file. The fingerprints are stored in the
+ * index container together with the indexes and allow the indexes to be updated incrementally
+ * when only some lines of the dictionary file changed.
+ * <p>
+ * A block is a sequence of whole lines. Block boundaries are defined by the content of the
+ * dictionary: a block ends after a line whose hash has the low bits cleared, or when the block
+ * would grow larger than {@link #MAX_BLOCK_SIZE MAX_BLOCK_SIZE}. Inserting, changing or deleting
+ * a line therefore only changes the blocks which contain the line, and all other blocks keep
+ * their fingerprints, even if they move to a different location in the file.
+ * </p><p>
+ * The index data stores the block count (int), an unused int and the size of the dictionary
+ * (long), followed by the start location (long) and fingerprint (long) of every block.
+ * </p>
+ *
+ * @author Michael Koch
+ */
+class BlockFingerprints {
+    /**
+     * Type of the block fingerprint data in the index container.
+     */
+    static final int TYPE = 0x426c6b46; // BlkF in ASCII
+
+    /**
+     * Blocks end after a line whose hash has none of these bits set, which gives blocks of
+     * 64 lines on average.
+     */
+    private static final long BOUNDARY_MASK = 0x3f;
+
+    /**
+     * Maximum size of a block in bytes. Only reached for unusually long lines.
+     */
+    static final int MAX_BLOCK_SIZE = 1 << 16;
+
+    private static final int HEADER_SIZE = 4 + 4 + 8;
+    private static final int BLOCK_SIZE = 8 + 8;
+
+    /**
+     * Start locations of the blocks. The last element is the size of the dictionary.
+     */
+    private final long[] starts;
+    private final long[] fingerprints;
+
+    private BlockFingerprints( long[] starts, long[] fingerprints) {
+        this.starts = starts;
+        this.fingerprints = fingerprints;
+    }
+
+    /**
+     * Splits the dictionary into blocks and computes their fingerprints.
+     */
+    static BlockFingerprints compute( SegmentedByteBuffer dictionary) {
+        long[] starts = new long[64];
+        long[] fingerprints = new long[64];
+        int blockCount = 0;
+
+        long blockStart = 0;
+        long blockHash = BloomFilter.HASH_SEED;
+        long lineHash = BloomFilter.HASH_SEED;
+        long position = 0;
+        long size = dictionary.size();
+        while (position < size) {
+            ByteBuffer window = dictionary.window( position);
+            int end = (int) (dictionary.segmentEnd( position) - dictionary.windowOffset( position));
+            while (window.position() < end) {
+                int b = window.get() & 0xff;
+                blockHash = BloomFilter.hash( blockHash, b);
+                lineHash = BloomFilter.hash( lineHash, b);
+                position++;
+
+                boolean lineEnd = b == '\n';
+                boolean blockEnd = lineEnd && ((BloomFilter.finish( lineHash) & BOUNDARY_MASK) == 0 ||
+                                               position - blockStart >= MAX_BLOCK_SIZE);
+                if (blockEnd || position == size) {
+                    if (blockCount == starts.length) {
+                        starts = Arrays.copyOf( starts, blockCount*2);
+                        fingerprints = Arrays.copyOf( fingerprints, blockCount*2);
+                    }
+                    starts[blockCount] = blockStart;
+                    fingerprints[blockCount] = BloomFilter.finish( blockHash);
+                    blockCount++;
+                    blockStart = position;
+                    blockHash = BloomFilter.HASH_SEED;
+                }
+                if (lineEnd) {
+                    lineHash = BloomFilter.HASH_SEED;
+                }
+            }
+        }
+
+        starts = Arrays.copyOf( starts, blockCount + 1);
+        starts[blockCount] = size;
+        return new BlockFingerprints( starts, Arrays.copyOf( fingerprints, blockCount));
+    }
+
+    /**
+     * Reads the block fingerprints stored in an index container.
+     */
+    static BlockFingerprints read( IndexContainer container) throws IndexException {
+        SegmentedByteBuffer data = container.getSegmentedIndexData( TYPE);
+        int blockCount = data.getInt( 0);
+        if (blockCount < 0 || data.size() != HEADER_SIZE + (long) blockCount*BLOCK_SIZE) {
+            throw new IndexException( "block fingerprint data is damaged");
+        }
+
+        long[] starts = new long[blockCount + 1];
+        long[] fingerprints = new long[blockCount];
+        for ( int i=0; i<blockCount; i++) {
+            starts[i] = data.getLong( HEADER_SIZE + (long) i*BLOCK_SIZE);
+            fingerprints[i] = data.getLong( HEADER_SIZE + (long) i*BLOCK_SIZE + 8);
+        }
+        starts[blockCount] = data.getLong( 8);
+        return new BlockFingerprints( starts, fingerprints);
+    }
+
+    /**
+     * Creates the index data which stores these block fingerprints.
+     */
+    ByteBuffer toIndexData( ByteOrder order) {
+        int blockCount = getBlockCount();
+        ByteBuffer data = ByteBuffer.allocate( HEADER_SIZE + blockCount*BLOCK_SIZE).order( order);
+        data.putInt( blockCount);
+        data.putInt( 0);
+        data.putLong( getDictionarySize());
+        for ( int i=0; i<blockCount; i++) {
+            data.putLong( starts[i]);
+            data.putLong( fingerprints[i]);
+        }
+        data.flip();
+        return data;
+    }
+
+    int getBlockCount() {
+        return fingerprints.length;
+    }
+
+    long getDictionarySize() {
+        return starts[starts.length - 1];
+    }
+
+    /**
+     * Returns the location of the first byte of a block.
+     */
+    long getStart( int block) {
+        return starts[block];
+    }
+
+    /**
+     * Returns the location of the first byte after a block.
+     */
+    long getEnd( int block) {
+        return starts[block + 1];
+    }
+
+    long getFingerprint( int block) {
+        return fingerprints[block];
+    }
+
+    /**
+     * Returns the block which contains the location.
+     */
+    int findBlock( long location) {
+        int block = Arrays.binarySearch( starts, 0, getBlockCount(), location);
+        // if the location is not a block start, binarySearch returns -(following block)-1
+        return block >= 0 ? block : -block - 2;
+    }
+} // class BlockFingerprints
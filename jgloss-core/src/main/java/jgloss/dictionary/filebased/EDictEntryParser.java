@@ -136,7 +136,7 @@ class EDictEntryParser implements EntryParser {
      * being optional.
      */
 	@Override
-    public DictionaryEntry parseEntry( String entry, int startOffset) throws SearchException {
+    public DictionaryEntry parseEntry( String entry, long startOffset) throws SearchException {
         Matcher entryMatcher = matchEntry(entry);
 
         String[] wordsWithMarkers = parseWords(entryMatcher);
@@ -136,5 +136,25 @@ class EDictStructure extends FileBasedDictionaryStructure {
         }
     }
 
+    /**
+     * Test for the <code>word [reading] /translation/.../</code> layout: the entry starts with
+     * the word, the translations follow after a space and at least one translation is not empty.
+     */
+    @Override
+    public boolean isWellFormed( ByteBuffer entry) {
+        int last = entry.limit() - 1;
+        if (last < 3 || entry.get( 0) == ' ' || entry.get( last) != '/') {
+            return false;
+        }
+
+        boolean space = false;
+        int firstSlash = 1;
+        byte b;
+        while (firstSlash < last && (b = entry.get( firstSlash)) != '/') {
+            space |= b == ' ';
+            firstSlash++;
+        }
+        return space && firstSlash < last - 1;
+    }
 
 }
@@ -25,6 +25,6 @@ interface EntryParser {
      * @param startOffset Start offset of the entry in the dictionary file.
      * @exception SearchException if the dictionary entry is malformed.
      */
-    DictionaryEntry parseEntry( String entry, int startOffset) throws SearchException;
+    DictionaryEntry parseEntry( String entry, long startOffset) throws SearchException;
 
 }
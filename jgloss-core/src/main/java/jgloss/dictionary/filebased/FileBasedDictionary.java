@@ -30,13 +30,16 @@ import java.io.UnsupportedEncodingException;
 import java.nio.BufferOverflowException;
 import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
-import java.nio.MappedByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
 import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.UnsupportedCharsetException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -49,26 +52,38 @@ import java.util.logging.Logger;
 
 import jgloss.dictionary.BaseEntry;
 import jgloss.dictionary.BinarySearchIndex;
+import jgloss.dictionary.BloomFilter;
+import jgloss.dictionary.BloomFilterBuilder;
 import jgloss.dictionary.CharacterClass;
 import jgloss.dictionary.DictionaryEntry;
 import jgloss.dictionary.DictionaryEntryField;
+import jgloss.dictionary.DistanceSearchModes;
 import jgloss.dictionary.EUCJPCharacterHandler;
 import jgloss.dictionary.EncodedCharacterHandler;
 import jgloss.dictionary.ExpressionSearchModes;
 import jgloss.dictionary.Index;
 import jgloss.dictionary.IndexContainer;
+import jgloss.dictionary.IncrementalSearch;
+import jgloss.dictionary.IncrementalSearchable;
 import jgloss.dictionary.IndexException;
 import jgloss.dictionary.Indexable;
 import jgloss.dictionary.IndexedDictionary;
+import jgloss.dictionary.KeyedBinarySearchIndex;
+import jgloss.dictionary.KeyedBinarySearchIndexBuilder;
+import jgloss.dictionary.LazyEntry;
 import jgloss.dictionary.MalformedEntryException;
 import jgloss.dictionary.MatchMode;
+import jgloss.dictionary.NGramIndex;
+import jgloss.dictionary.NGramIndexBuilder;
 import jgloss.dictionary.SearchException;
 import jgloss.dictionary.SearchFieldSelection;
 import jgloss.dictionary.SearchMode;
+import jgloss.dictionary.ThreadSafeDictionary;
 import jgloss.dictionary.UTF8CharacterHandler;
 import jgloss.dictionary.UnsupportedSearchModeException;
 import jgloss.dictionary.attribute.Attribute;
 import jgloss.dictionary.attribute.AttributeValue;
+import jgloss.util.SegmentedByteBuffer;
 import jgloss.util.StringTools;
 import jgloss.util.UTF8ResourceBundleControl;
 
@@ -83,12 +98,16 @@ import jgloss.util.UTF8ResourceBundleControl;
  * which implement specific dictionary formats must implement the abstract methods which deal
  * with the differences in file formats, especially the parsing of dictionary entries to
  * {@link DictionaryEntry DictionaryEntry} instances.
+ * </p><p>
+ * Once the index is loaded, searches can be run concurrently from multiple threads. Every search
+ * reads the mapped dictionary file through its own buffer view and decodes entries with its
+ * own charset decoder, so the dictionary does not have to be wrapped in a synchronized dictionary.
  * </p>
  *
  * @author Michael Koch
  */
-public abstract class FileBasedDictionary implements IndexedDictionary, Indexable,
-                                                     BaseEntry.MarkerDictionary {
+public abstract class FileBasedDictionary implements IndexedDictionary, ThreadSafeDictionary, Indexable,
+                                                     IncrementalSearchable, BaseEntry.MarkerDictionary {
 	private static final Logger LOGGER = Logger.getLogger(FileBasedDictionary.class.getPackage().getName());
 
     /**
@@ -119,21 +138,18 @@ public abstract class FileBasedDictionary implements IndexedDictionary, Indexabl
     /**
      * Size of the dictionary in bytes. This equals dicchannel.size(), which is slow.
      */
-    private final int dictionarySize;
+    private final long dictionarySize;
     /**
-     * Dictionary file mapped into a byte buffer.
+     * Dictionary file mapped into memory. Methods which read the data relative to a buffer position
+     * work on a {@link SegmentedByteBuffer#window(long) window} of the dictionary, which is
+     * created per call to keep concurrent searches independent.
      */
-    private final MappedByteBuffer dictionary;
+    private final SegmentedByteBuffer dictionary;
     /**
-     * Duplicate of the  {@link #dictionary dictionary} byte buffer. Created using
-     * <code>dictionary.duplicate()</code> and needed for comparison.
+     * Charset of the dictionary, used to create a decoder per search since decoders are not
+     * thread-safe. <code>null</code> if NIO does not support the encoding.
      */
-    private final ByteBuffer dictionaryDuplicate;
-    /**
-     * Decoder initialized to convert a byte array to a char array using the charset of the
-     * dictionary.
-     */
-    private final CharsetDecoder decoder;
+    private final Charset charset;
     /**
      * Stores the character handler created by a call to
      * {@link #createCharacterHandler(String) createCharacterHandler} and used thorough this class.
@@ -150,9 +166,19 @@ public abstract class FileBasedDictionary implements IndexedDictionary, Indexabl
      */
     private IndexContainer indexContainer;
     /**
-     * Binary search index which is used for expression searches.
+     * Binary search index which is used for expression searches. The index caches a key prefix
+     * of each entry, which avoids most dictionary accesses during the search.
+     */
+    private final BinarySearchIndex binarySearchIndex;
+    /**
+     * N-gram index which is used for distance searches.
      */
-    private final Index binarySearchIndex;
+    private final Index nGramIndex = new NGramIndex();
+    /**
+     * Bloom filter of all words and readings, which lets exact match lookups of words not in
+     * the dictionary return without accessing the dictionary data.
+     */
+    private final BloomFilter headwordFilter = new BloomFilter();
     /**
      * Stores the supported search modes of this dictionary. Initialized in
      * {@link #initSearchModes() initSearchModes}.
@@ -182,23 +208,24 @@ public abstract class FileBasedDictionary implements IndexedDictionary, Indexabl
 
         characterHandler = createCharacterHandler(_encoding);
 
-        CharsetDecoder decoder;
+        Charset charset;
         try {
-            decoder = Charset.forName(_encoding).newDecoder();
+            charset = Charset.forName(_encoding);
         } catch (UnsupportedCharsetException ex) {
             LOGGER.log(Level.WARNING, "unsupported charset " + _encoding, ex);
-            // leave decoder==null and use String constructor for byte->char conversion
-            decoder = null;
+            // leave charset==null and use String constructor for byte->char conversion
+            charset = null;
         }
-        this.decoder = decoder;
+        this.charset = charset;
 
         // load the dictionary
         dicchannel = new FileInputStream( dicfile).getChannel();
-        dictionarySize = (int) dicchannel.size();
-        dictionary = dicchannel.map( FileChannel.MapMode.READ_ONLY, 0, dictionarySize);
-        dictionaryDuplicate = dictionary.duplicate();
+        dictionarySize = dicchannel.size();
+        dictionary = SegmentedByteBuffer.map( dicchannel, 0, dictionarySize, ByteOrder.BIG_ENDIAN);
 
-        binarySearchIndex = new BinarySearchIndex( BinarySearchIndex.TYPE);
+        // index entries of dictionaries larger than 2GB need 64 bit locations
+        binarySearchIndex = new KeyedBinarySearchIndex( dictionarySize > Integer.MAX_VALUE ?
+                        KeyedBinarySearchIndex.LONG_TYPE : KeyedBinarySearchIndex.TYPE);
 
         entryParser.setDictionary(this);
 
@@ -221,6 +248,8 @@ public abstract class FileBasedDictionary implements IndexedDictionary, Indexabl
         supportedSearchModes.put( ExpressionSearchModes.PREFIX, fields);
         supportedSearchModes.put( ExpressionSearchModes.SUFFIX, fields);
         supportedSearchModes.put( ExpressionSearchModes.ANY, fields);
+        supportedSearchModes.put( DistanceSearchModes.NEAR, fields);
+        supportedSearchModes.put( DistanceSearchModes.RADIUS, fields);
     }
 
     /**
@@ -268,8 +297,11 @@ public abstract class FileBasedDictionary implements IndexedDictionary, Indexabl
 
     @Override
 	public boolean loadIndex() throws IndexException {
-        // rebuild the index if the dictionary was changed after the index was created
+        // update or rebuild the index if the dictionary was changed after the index was created
         if (indexFile.lastModified() < dicfile.lastModified()) {
+            if (updateIndex()) {
+                return true;
+            }
             indexFile.delete();
             return false;
         }
@@ -277,7 +309,9 @@ public abstract class FileBasedDictionary implements IndexedDictionary, Indexabl
         try {
             indexContainer = new FileIndexContainer( indexFile, false);
             // insert tests for existence of additional index types here
-            if (!indexContainer.hasIndex( binarySearchIndex.getType())) {
+            if (!indexContainer.hasIndex( binarySearchIndex.getType()) ||
+                !indexContainer.hasIndex( nGramIndex.getType()) ||
+                !indexContainer.hasIndex( BloomFilter.TYPE)) {
 	            return false;
             }
 
@@ -303,10 +337,21 @@ public abstract class FileBasedDictionary implements IndexedDictionary, Indexabl
             indexContainer = new FileIndexContainer( indexFile, true);
 
             indexContainer.deleteIndex(binarySearchIndex.getType()); // rebuild if exists
+            // plain binary search indexes created by earlier versions are replaced by the keyed index
+            indexContainer.deleteIndex(BinarySearchIndex.TYPE);
+            indexContainer.deleteIndex(BinarySearchIndex.LONG_TYPE);
 
-            new FileBasedDictionaryIndexer(this, structure, dictionary, characterHandler).buildIndex(indexContainer, binarySearchIndex);
+            FileBasedDictionaryIndexer indexer = new FileBasedDictionaryIndexer(this, structure, dictionary, characterHandler);
+            indexer.buildIndex(indexContainer, binarySearchIndex);
 
             // put creation of additional index types here
+            indexContainer.deleteIndex(nGramIndex.getType());
+            indexer.buildIndex(indexContainer, new NGramIndexBuilder());
+            indexContainer.deleteIndex(BloomFilter.TYPE);
+            indexer.buildIndex(indexContainer, createHeadwordFilterBuilder());
+            indexContainer.deleteIndex(BlockFingerprints.TYPE);
+            indexContainer.createIndex(BlockFingerprints.TYPE, BlockFingerprints.compute(dictionary)
+                                       .toIndexData(indexContainer.getIndexByteOrder()));
         } catch (IOException ex) {
             throw new IndexException( ex);
         } finally {
@@ -318,8 +363,109 @@ public abstract class FileBasedDictionary implements IndexedDictionary, Indexabl
         initIndexes();
     }
 
+    /**
+     * Updates an index which was created for an earlier version of the dictionary file. Only the
+     * blocks of the dictionary file whose {@link BlockFingerprints fingerprints} changed are scanned
+     * for index terms; the index entries of the other blocks are taken from the old index. The
+     * updated index is written to a new file, which then replaces the old index file.
+     *
+     * @return <code>true</code> if the index was updated and loaded, <code>false</code> if the index
+     *         has to be rebuilt.
+     */
+    private boolean updateIndex() throws IndexException {
+        File updatedIndexFile = new File( indexFile.getPath() + ".update");
+        FileIndexContainer oldContainer = null;
+        FileIndexContainer updatedContainer = null;
+        boolean updated = false;
+        try {
+            oldContainer = new FileIndexContainer( indexFile, false);
+            if (!oldContainer.hasIndex( binarySearchIndex.getType()) ||
+                !oldContainer.hasIndex( nGramIndex.getType()) ||
+                !oldContainer.hasIndex( BloomFilter.TYPE) ||
+                !oldContainer.hasIndex( BlockFingerprints.TYPE)) {
+                return false;
+            }
+
+            BlockFingerprints newBlocks = BlockFingerprints.compute( dictionary);
+            FileBasedDictionaryIndexer indexer = new FileBasedDictionaryIndexer(this, structure, dictionary, characterHandler);
+            FileBasedDictionaryIndexUpdater updater = new FileBasedDictionaryIndexUpdater
+                ( indexer, BlockFingerprints.read( oldContainer), newBlocks);
+            LOGGER.info( name + ": " + updater.getChangedBytes() + " of " + dictionarySize +
+                         " bytes changed since the index was created");
+            if (!updater.isWorthwhile()) {
+                return false;
+            }
+
+            KeyedBinarySearchIndex oldBinarySearchIndex = new KeyedBinarySearchIndex( binarySearchIndex.getType());
+            oldBinarySearchIndex.setContainer( oldContainer);
+            NGramIndex oldNGramIndex = new NGramIndex();
+            oldNGramIndex.setContainer( oldContainer);
+            FileBasedDictionaryIndexUpdater.TermList oldTerms = new FileBasedDictionaryIndexUpdater.TermList( oldNGramIndex);
+
+            updatedIndexFile.delete();
+            updatedContainer = new FileIndexContainer( updatedIndexFile, true);
+            updater.updateIndex( updatedContainer, this, oldBinarySearchIndex,
+                                 new KeyedBinarySearchIndexBuilder( binarySearchIndex.getType()));
+            updater.updateIndex( updatedContainer, this, oldTerms, new NGramIndexBuilder());
+            updater.updateIndex( updatedContainer, this, oldTerms, createHeadwordFilterBuilder());
+            updatedContainer.createIndex( BlockFingerprints.TYPE,
+                                          newBlocks.toIndexData( updatedContainer.getIndexByteOrder()));
+            updatedContainer.endEditing();
+            updated = true;
+        } catch (FileNotFoundException ex) {
+            // no index file, create it
+        } catch (IndexException ex) {
+            LOGGER.log( Level.WARNING, "updating the index of " + name + " failed, rebuilding it", ex);
+        } catch (IOException ex) {
+            throw new IndexException( ex);
+        } finally {
+            if (oldContainer != null) {
+                oldContainer.close();
+            }
+            if (updatedContainer != null) {
+                updatedContainer.close();
+            }
+            if (!updated) {
+                updatedIndexFile.delete();
+            }
+        }
+
+        if (!updated) {
+            return false;
+        }
+        if (!indexFile.delete() || !updatedIndexFile.renameTo( indexFile)) {
+            LOGGER.warning( "failed to replace index file " + indexFile + " with the updated index");
+            updatedIndexFile.delete();
+            return false;
+        }
+
+        try {
+            indexContainer = new FileIndexContainer( indexFile, false);
+        } catch (IOException ex) {
+            throw new IndexException( ex);
+        }
+        initIndexes();
+        return true;
+    }
+
+    /**
+     * Creates the builder of the bloom filter of all words and readings.
+     */
+    private BloomFilterBuilder createHeadwordFilterBuilder() {
+        return new BloomFilterBuilder(new BloomFilterBuilder.KeyFunction() {
+            private final long[] entryOffsets = new long[2];
+
+            @Override
+            public long key(long location, int length, DictionaryEntryField field) {
+                return headwordKey(location, entryOffsets);
+            }
+        });
+    }
+
     private void initIndexes() throws IndexException {
         binarySearchIndex.setContainer( indexContainer);
+        nGramIndex.setContainer( indexContainer);
+        headwordFilter.setContainer( indexContainer);
     }
 
     /**
@@ -357,10 +503,129 @@ public abstract class FileBasedDictionary implements IndexedDictionary, Indexabl
             return searchExpression( searchmode, (String) parameters[0],
                                      (SearchFieldSelection) parameters[1]);
         }
+        if (searchmode == DistanceSearchModes.NEAR ||
+            searchmode == DistanceSearchModes.RADIUS) {
+            return searchDistance( searchmode, (String) parameters[0],
+                                   (SearchFieldSelection) parameters[1], (Number) parameters[2]);
+        }
 
         throw new UnsupportedSearchModeException( searchmode);
     }
 
+    /**
+     * Test if a search would find at least one entry. For expression search modes, the
+     * index entries are tested against the search mode directly in the dictionary data, and
+     * no entries are created. Exact match searches in word and reading fields are
+     * first looked up in the headword bloom filter. Entries which match the search but
+     * can't be parsed are counted as matches.
+     */
+    @Override
+    public boolean contains( SearchMode searchmode, Object[] parameters) throws SearchException {
+        if (searchmode != ExpressionSearchModes.EXACT &&
+            searchmode != ExpressionSearchModes.PREFIX &&
+            searchmode != ExpressionSearchModes.SUFFIX &&
+            searchmode != ExpressionSearchModes.ANY) {
+            return search( searchmode, parameters).hasNext();
+        }
+
+        String expression = escape( (String) parameters[0]);
+        SearchFieldSelection searchFields = (SearchFieldSelection) parameters[1];
+        try {
+            ByteBuffer exprbuf = ByteBuffer.wrap( expression.getBytes
+                                                  ( characterHandler.getEncodingName()));
+            if (searchmode == ExpressionSearchModes.EXACT &&
+                !mayContainHeadword( exprbuf, searchFields)) {
+                return false;
+            }
+
+            Index.Iterator matchingIndexEntries = binarySearchIndex.getEntryPositions( this, exprbuf, null);
+            long[] entryOffsets = new long[2];
+            while (matchingIndexEntries.hasNext()) {
+                ByteBuffer entry = entryView( matchingIndexEntries.next(), entryOffsets);
+                if (matches( entry, searchmode, searchFields, exprbuf.limit())) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (UnsupportedEncodingException ex) {
+            throw new SearchException( ex);
+        }
+    }
+
+    /**
+     * Test if an exact match search for the expression can find an entry, using the headword
+     * bloom filter. The filter only stores whole word and reading fields, so it can only
+     * rule out matches if the translation field is not searched and the whole field must match.
+     * <p>
+     * The filter key of a field is computed over the characters up to the first field end.
+     * The expression is only looked up if it contains no ASCII characters other than letters
+     * and digits, since all field separators of the supported dictionary formats are ASCII
+     * punctuation or whitespace. This guarantees that a field matching the expression ends
+     * right after it.
+     * </p>
+     *
+     * @return <code>false</code> if the expression is definitely not a word or reading in the
+     *         dictionary.
+     */
+    private boolean mayContainHeadword( ByteBuffer expression, SearchFieldSelection searchFields) {
+        if (searchFields.isSelected( DictionaryEntryField.TRANSLATION) ||
+            searchFields.isSelected( MatchMode.WORD) ||
+            !expression.hasRemaining()) {
+            return true;
+        }
+
+        for ( int i=expression.position(); i<expression.limit(); i++) {
+            byte b = expression.get( i);
+            if (b >= 0 && !Character.isLetterOrDigit( (char) b)) {
+                return true;
+            }
+        }
+
+        ByteBuffer expr = expression.duplicate();
+        long key = BloomFilter.HASH_SEED;
+        try {
+            while (expr.hasRemaining()) {
+                key = BloomFilter.hash( key, characterHandler.convertCharacter
+                                        ( characterHandler.readCharacter( expr)));
+            }
+        } catch (CharacterCodingException ex) {
+            return true;
+        }
+
+        return headwordFilter.mightContain( BloomFilter.finish( key));
+    }
+
+    /**
+     * Computes the headword bloom filter key for the index entry at the given location.
+     *
+     * @param entryOffsets Array of size 2 used as scratch space.
+     * @return The key of the word or reading field starting at the location, or
+     *         {@link BloomFilter#NO_KEY NO_KEY} if the location is not at the start of a word
+     *         or reading field.
+     */
+    private long headwordKey( long location, long[] entryOffsets) throws IndexException {
+        ByteBuffer entry = entryView( location, entryOffsets);
+        int match = entry.position();
+        DictionaryEntryField field = structure.getFieldType( entry, 0, entry.limit(), match);
+        if (field != DictionaryEntryField.WORD && field != DictionaryEntryField.READING ||
+            match > 0 && !structure.isFieldStart( entry, match, field)) {
+            return BloomFilter.NO_KEY;
+        }
+
+        entry.position( match);
+        long key = BloomFilter.HASH_SEED;
+        try {
+            while (entry.hasRemaining() && !structure.isFieldEnd( entry, entry.position(), field)) {
+                key = BloomFilter.hash( key, characterHandler.convertCharacter
+                                        ( characterHandler.readCharacter( entry)));
+            }
+        } catch (CharacterCodingException ex) {
+            throw new IndexException( ex);
+        }
+
+        return BloomFilter.finish( key);
+    }
+
     /**
      * Implements search for expression search modes.
      */
@@ -380,6 +645,35 @@ public abstract class FileBasedDictionary implements IndexedDictionary, Indexabl
         }
     }
 
+    /**
+     * Creates an incremental search session which searches the exact, prefix and any search modes
+     * in the index range of the search expression.
+     */
+    @Override
+    public IncrementalSearch createIncrementalSearch() {
+        return new IncrementalExpressionSearch();
+    }
+
+    /**
+     * Implements search for distance search modes. The entries are returned ordered by the
+     * distance of the matching term to the expression.
+     */
+    private Iterator<DictionaryEntry> searchDistance( SearchMode searchmode, String expression,
+                                                      SearchFieldSelection searchFields, Number distance)
+        throws SearchException {
+        expression = escape( expression);
+
+        try {
+            ByteBuffer exprbuf = ByteBuffer.wrap( expression.getBytes
+                                                  ( characterHandler.getEncodingName()));
+            return new ExpressionSearchIterator( searchmode, searchFields, exprbuf.limit(),
+                                                 nGramIndex.getEntryPositions
+                                                 ( this, exprbuf, new Object[] { distance, searchmode }));
+        } catch (UnsupportedEncodingException ex) {
+            throw new SearchException( ex);
+        }
+    }
+
     /**
      * Copy the data of a single dictionary entry from the dictionary buffer to a newly created
      * buffer.
@@ -388,26 +682,26 @@ public abstract class FileBasedDictionary implements IndexedDictionary, Indexabl
      *        entry, the method will search the start and end of the entry.
      * @param entrybuf Buffer into which the entry data is copied. The returned byte buffer will
      *        wrap this array. If <code>null</code>, a new byte array will be allocated.
-     * @param seenEntries Set of integers with start positions of entries which have already been copied.
+     * @param seenEntries Set of longs with start positions of entries which have already been copied.
      *        If this is not <code>null</code>, and the set contains the start offset of the entry
      *        pointed to by <code>matchstart</code>, <code>null</code> is returned instead of the
      *        entry data. This can be used
      *        by the caller of <code>copyEntry</code> to filter out duplicate entries.
      * @param outOffsets Start and end offset of the entry in the dictionary buffer. If this is
-     *        an int array of size 2, the start offset (inclusive) will be written to index 0,
+     *        a long array of size 2, the start offset (inclusive) will be written to index 0,
      *        the end offset (exclusive) to index 1. May be <code>null</code>.
      * @return A byte buffer containing the dictionary entry data. The buffer will wrap the
      *         <code>entrybuf</code> buffer, its limit will be the length of the entry data and its
      *         position will be the byte pointed to by <code>matchstart</code>.
      */
-    private ByteBuffer copyEntry( int matchstart, byte[] entrybuf, Set<Integer> seenEntries,
-                                    int[] outOffsets) {
+    private ByteBuffer copyEntry( long matchstart, byte[] entrybuf, Set<Long> seenEntries,
+                                    long[] outOffsets) {
         if (entrybuf == null) {
 	        entrybuf = new byte[8192];
         }
 
-        int start = matchstart; // start of entry (inclusive)
-        int end = matchstart+1; // end of entry (exclusive)
+        long start = matchstart; // start of entry (inclusive)
+        long end = matchstart+1; // end of entry (exclusive)
 
         // Find beginning of entry line by searching backwards for the entry separator.
         // Read bytes are stored back to front in entry array.
@@ -443,16 +737,16 @@ public abstract class FileBasedDictionary implements IndexedDictionary, Indexabl
 
         // move read bytes to beginning of entry array
         try {
-            System.arraycopy( entrybuf, entrybuf.length-(matchstart-start), entrybuf, 0,
-                              matchstart-start);
+            System.arraycopy( entrybuf, entrybuf.length-(int) (matchstart-start), entrybuf, 0,
+                              (int) (matchstart-start));
         } catch (IndexOutOfBoundsException ex) {
             // matchstart==start, no copying neccessary
         }
         // read match start char
-        entrybuf[matchstart - start] = dictionary.get( matchstart);
+        entrybuf[(int) (matchstart - start)] = dictionary.get( matchstart);
 
         // find end of entry line
-        int entrylength = matchstart - start + 1;
+        int entrylength = (int) (matchstart - start) + 1;
         try {
             while (!structure.isEntrySeparator( b=dictionary.get( end))) {
 	            try {
@@ -465,12 +759,12 @@ public abstract class FileBasedDictionary implements IndexedDictionary, Indexabl
 	                entrybuf = entrybuf2;
 	            }
             }
-        } catch (BufferUnderflowException ex) {
+        } catch (IndexOutOfBoundsException ex) {
             // end of dictionary->end of entry
         }
 
         ByteBuffer out = ByteBuffer.wrap( entrybuf, 0, entrylength);
-        out.position( matchstart-start);
+        out.position( (int) (matchstart-start));
 
         if (outOffsets != null) {
             outOffsets[0] = start;
@@ -480,29 +774,82 @@ public abstract class FileBasedDictionary implements IndexedDictionary, Indexabl
         return out;
     }
 
+    /**
+     * Return a buffer with the data of the dictionary entry containing a location. Unlike
+     * {@link #copyEntry(long,byte[],Set,long[]) copyEntry}, the entry data is not copied if
+     * the entry lies within one window of the dictionary, which is the case for all entries
+     * not spanning a segment boundary. The returned buffer must only be read.
+     *
+     * @param outOffsets Array of size 2, to which the start and end offset of the entry
+     *        in the dictionary are written.
+     * @return Buffer which starts at the first byte of the entry, has the entry length as
+     *         limit and is positioned at the location.
+     */
+    private ByteBuffer entryView( long location, long[] outOffsets) {
+        long start = location;
+        while (start > 0 && !structure.isEntrySeparator( dictionary.get( start-1))) {
+            start--;
+        }
+        long end = location;
+        while (end < dictionarySize && !structure.isEntrySeparator( dictionary.get( end))) {
+            end++;
+        }
+
+        ByteBuffer window = dictionary.window( start);
+        if (end-start > window.remaining()) {
+            return copyEntry( location, null, null, outOffsets);
+        }
+
+        ByteBuffer entry = window.slice();
+        entry.limit( (int) (end-start));
+        entry.position( (int) (location-start));
+        outOffsets[0] = start;
+        outOffsets[1] = end;
+        return entry;
+    }
+
     /**
      * Create a dictionary entry from a marker, which is the start offset of the entry.
-     * Used from {@link BaseEntry.BaseEntryRef BaseEntryRef} to recreate a dictionary entry.
+     * Used from {@link BaseEntry.BaseEntryRef BaseEntryRef} to recreate a dictionary entry and
+     * from {@link LazyEntry LazyEntry} to parse the entry on first access. The entry is decoded
+     * directly from the mapped dictionary file.
      */
     @Override
-	public DictionaryEntry createEntryFromMarker( int marker) throws SearchException {
-        dictionary.position( marker);
-        ByteBuffer entry = dictionary.slice();
-        while (!structure.isEntrySeparator( entry.get())) {
-	        ; // entry.get() advances the loop
-        }
-        entry.limit( entry.position()-1);
-        return createEntryFrom( entry, marker);
+	public DictionaryEntry createEntryFromMarker( long marker) throws SearchException {
+        ByteBuffer entry = entryView( marker, new long[2]);
+        return createEntryFrom( entry, marker, newDecoder());
+    }
+
+    /**
+     * Creates a new decoder for the dictionary charset. Since <code>CharsetDecoders</code> are
+     * not thread-safe, each search uses its own instance.
+     *
+     * @return The new decoder, or <code>null</code> if NIO does not support the dictionary charset.
+     */
+    private CharsetDecoder newDecoder() {
+        return charset != null ? charset.newDecoder() : null;
     }
 
     /**
      * Create a {@link DictionaryEntry DictionaryEntry} object from the data stored in the byte
      * buffer. The method converts the byte buffer data to a string and invokes
-     * {@link #parseEntry(String,int) parseEntry}.
+     * {@link EntryParser#parseEntry(String,long) parseEntry}.
+     *
+     * @param decoder Decoder owned by the calling search, or <code>null</code> to use the
+     *        <code>String</code> constructor.
      */
-    private DictionaryEntry createEntryFrom( ByteBuffer entry, int startOffset)
+    private DictionaryEntry createEntryFrom( ByteBuffer entry, long startOffset, CharsetDecoder decoder)
         throws SearchException {
+        return entryParser.parseEntry( decodeEntry( entry, decoder), startOffset);
+    }
 
+    /**
+     * Convert the byte buffer data of an entry to a string.
+     *
+     * @param decoder Decoder owned by the calling search, or <code>null</code> to use the
+     *        <code>String</code> constructor.
+     */
+    private String decodeEntry( ByteBuffer entry, CharsetDecoder decoder) throws SearchException {
         String entrystring;
         // NIO decoder is faster than new String(), but NIO character encoding support is limited
         if (decoder != null) {
@@ -529,7 +876,108 @@ public abstract class FileBasedDictionary implements IndexedDictionary, Indexabl
             }
         }
 
-        return entryParser.parseEntry( entrystring, startOffset);
+        return entrystring;
+    }
+
+    /**
+     * Test if a match of an expression search in an entry satisfies the search mode and the
+     * selected search fields.
+     *
+     * @param entry Buffer which holds the dictionary entry. The position of the buffer is the
+     *        location of the match. The method changes the position.
+     * @param expressionLength Length of the encoded search expression in bytes.
+     */
+    private boolean matches( ByteBuffer entry, SearchMode searchmode, SearchFieldSelection fields,
+                             int expressionLength) {
+        int match = entry.position(); // location of match in entry buffer
+        DictionaryEntryField field = getSelectedField( entry, match, fields);
+        if (field == null) {
+            return false;
+        }
+
+        // test if entry matches search mode
+        if (searchmode == ExpressionSearchModes.EXACT ||
+            searchmode == ExpressionSearchModes.PREFIX) {
+            if (!isMatchStart( entry, match, field, fields)) {
+                return false;
+            }
+        }
+        if (searchmode == ExpressionSearchModes.EXACT ||
+            searchmode == ExpressionSearchModes.SUFFIX) {
+            if (!isMatchEnd( entry, match+expressionLength, field, fields)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the most specific of the {@link IncrementalSearch#SEARCH_MODES incremental search modes}
+     * which a match of an expression search satisfies. Since every exact match is also a prefix match,
+     * and every prefix match is also an any match, the match satisfies the returned mode and all
+     * less specific modes.
+     *
+     * @param entry Buffer which holds the dictionary entry. The position of the buffer is the
+     *        location of the match. The method changes the position.
+     * @param expressionLength Length of the encoded search expression in bytes.
+     * @return The search mode, or <code>null</code> if the match is not in a selected field.
+     */
+    private SearchMode classifyMatch( ByteBuffer entry, SearchFieldSelection fields, int expressionLength) {
+        int match = entry.position(); // location of match in entry buffer
+        DictionaryEntryField field = getSelectedField( entry, match, fields);
+        if (field == null) {
+            return null;
+        }
+
+        if (!isMatchStart( entry, match, field, fields)) {
+            return ExpressionSearchModes.ANY;
+        }
+        if (!isMatchEnd( entry, match+expressionLength, field, fields)) {
+            return ExpressionSearchModes.PREFIX;
+        }
+        return ExpressionSearchModes.EXACT;
+    }
+
+    /**
+     * Returns the field of the entry which contains the match, or <code>null</code> if the field
+     * is not selected by the user.
+     */
+    private DictionaryEntryField getSelectedField( ByteBuffer entry, int match, SearchFieldSelection fields) {
+        DictionaryEntryField field = structure.getFieldType( entry, 0, entry.limit(), match);
+        try {
+            if (!fields.isSelected( field)) {
+                return null; // field is not selected by the user
+            }
+        } catch (IllegalArgumentException ex) {
+            // field not WORD, READING or TRANSLATION
+            return null;
+        }
+        return field;
+    }
+
+    /**
+     * Test if the match location is at the beginning of a word or field, depending on the
+     * search parameters.
+     */
+    private boolean isMatchStart( ByteBuffer entry, int match, DictionaryEntryField field,
+                                  SearchFieldSelection fields) {
+        return match==0 ||
+            (fields.isSelected( MatchMode.WORD) ?
+             isWordStart( entry, match, field) :
+             structure.isFieldStart( entry, match, field));
+    }
+
+    /**
+     * Test if the match end location is at the end of a word or field, depending on the
+     * search parameters.
+     */
+    private boolean isMatchEnd( ByteBuffer entry, int matchend, DictionaryEntryField field,
+                                SearchFieldSelection fields) {
+        return matchend>=entry.limit() ||
+            (fields.isSelected( MatchMode.WORD) ?
+             isWordEnd( entry, matchend, field) :
+             structure.isFieldEnd( entry, matchend, field));
     }
 
     /**
@@ -663,25 +1111,34 @@ public abstract class FileBasedDictionary implements IndexedDictionary, Indexabl
     }
 
     @Override
-	public int compare( int pos1, int pos2) throws IndexException {
+	public int compare( long pos1, long pos2) throws IndexException {
+        if (pos1 == pos2) {
+            return 0;
+        }
+
         try {
-            return compare( dictionary, pos1, Integer.MAX_VALUE, dictionaryDuplicate, pos2);
+            ByteBuffer buf1 = dictionary.window( pos1);
+            ByteBuffer buf2 = dictionary.window( pos2);
+            return compare( buf1, buf1.position(), Integer.MAX_VALUE, buf2, buf2.position());
         } catch (java.nio.charset.CharacterCodingException ex) {
             throw new IndexException( ex);
         }
     }
 
     @Override
-	public int compare( ByteBuffer data, int position) throws IndexException {
+	public int compare( ByteBuffer data, long position) throws IndexException {
         try {
-            return compare( data, 0, data.limit(), dictionary, position);
+            ByteBuffer buf2 = dictionary.window( position);
+            return compare( data, 0, data.limit(), buf2, buf2.position());
         } catch (CharacterCodingException ex) {
             throw new IndexException( ex);
         }
     }
 
     /**
-     * Lexicographic comparison of two byte buffers.
+     * Lexicographic comparison of two byte buffers. If one of the buffers is a dictionary window,
+     * the comparison ends at the limit of the window, which is at least the segment overlap
+     * past the compared position.
      *
      * @param buf1 First buffer to compare.
      * @param i1 Offset in the first buffer to the first string.
@@ -694,10 +1151,6 @@ public abstract class FileBasedDictionary implements IndexedDictionary, Indexabl
      */
     private int compare( ByteBuffer buf1, int i1, int length, ByteBuffer buf2, int i2)
         throws CharacterCodingException {
-        if (i1 == i2) {
-            return 0;
-        }
-
         buf1.position( i1);
         buf2.position( i2);
         int end = (int) Math.min( Integer.MAX_VALUE, (long) i1 + (long) length);
@@ -726,42 +1179,57 @@ public abstract class FileBasedDictionary implements IndexedDictionary, Indexabl
     }
 
     @Override
-	public Indexable.CharData getChar( int position, CharData result) throws IndexException {
+	public Indexable.CharData getChar( long position, CharData result) throws IndexException {
         if (result == null) {
 	        result = new Indexable.CharData();
         }
-        dictionary.position( position);
+        ByteBuffer buf = dictionary.window( position);
         try {
-            result.character = characterHandler.readCharacter( dictionary);
+            result.character = characterHandler.readCharacter( buf);
         } catch (java.nio.charset.CharacterCodingException ex) {
             throw new IndexException( ex);
         }
-        result.position = dictionary.position();
+        result.position = dictionary.windowOffset( position) + buf.position();
 
         return result;
     }
 
     /**
-     * Iterator returning results from an expression search.
+     * Iterator returning results from an expression search. Matches are tested in place in the
+     * dictionary data, and the iterator returns {@link LazyEntry LazyEntries}, which are
+     * only decoded and parsed when one of their fields is accessed.
      */
     private class ExpressionSearchIterator implements Iterator<DictionaryEntry> {
         private final SearchMode searchmode;
         private final SearchFieldSelection fields;
         private final int expressionLength;
         private final Index.Iterator matchingIndexEntries;
-        private final byte[] entrybuf = new byte[8192];
-        private final Set<Integer> seenEntries = new HashSet<Integer>();
-        private final int[] entryOffsets = new int[2];
+        private final Set<Long> seenEntries;
+        private final long[] entryOffsets = new long[2];
         private DictionaryEntry nextEntry = null;
         private SearchException deferredException = null;
 
         public ExpressionSearchIterator( SearchMode _searchmode, SearchFieldSelection _fields,
                                          int _expressionLength,
                                          Index.Iterator _matchingIndexEntries) throws SearchException {
+            this( _searchmode, _fields, _expressionLength, _matchingIndexEntries, new HashSet<Long>());
+        }
+
+        /**
+         * Creates an iterator which continues a search. Entries whose start offsets are in the set
+         * of seen entries are skipped.
+         *
+         * @param _seenEntries Start offsets of the entries already returned. The iterator adds the
+         *        entries it returns to the set.
+         */
+        public ExpressionSearchIterator( SearchMode _searchmode, SearchFieldSelection _fields,
+                                         int _expressionLength, Index.Iterator _matchingIndexEntries,
+                                         Set<Long> _seenEntries) throws SearchException {
             this.searchmode = _searchmode;
             this.fields = _fields;
             this.expressionLength = _expressionLength;
             this.matchingIndexEntries = _matchingIndexEntries;
+            this.seenEntries = _seenEntries;
             generateNextEntry();
         }
 
@@ -780,9 +1248,10 @@ public abstract class FileBasedDictionary implements IndexedDictionary, Indexabl
                 return current;
             } else {
                 SearchException out = new SearchException( deferredException);
+                boolean malformedEntry = deferredException instanceof MalformedEntryException;
                 deferredException = null;
 
-                if (out instanceof MalformedEntryException) {
+                if (malformedEntry) {
                     // perhaps the next entry will work
                     generateNextEntry();
                 }
@@ -804,50 +1273,23 @@ public abstract class FileBasedDictionary implements IndexedDictionary, Indexabl
             nextEntry = null;
             try {
                 while (nextEntry==null && matchingIndexEntries.hasNext()) {
-                    int match = matchingIndexEntries.next();
-
-                    ByteBuffer entry = copyEntry( match, entrybuf, seenEntries, entryOffsets);
-                    if (entry == null) {
+                    ByteBuffer entry = entryView( matchingIndexEntries.next(), entryOffsets);
+                    // Several index entries can point to the same entry line, see copyEntry.
+                    if (seenEntries.contains( entryOffsets[0])) {
 	                    continue;
                     }
 
-                    match = entry.position(); // location of match in entry buffer
-                    DictionaryEntryField field = structure.getFieldType( entry, 0, entry.limit(), match);
-                    try {
-                        if (!fields.isSelected( field))
-						 {
-	                        continue; // field is not selected by the user
-                        }
-                    } catch (IllegalArgumentException ex) {
-                        // field not WORD, READING or TRANSLATION
+                    if (!matches( entry, searchmode, fields, expressionLength)) {
                         continue;
                     }
 
-                    // test if entry matches search mode
-                    if (searchmode == ExpressionSearchModes.EXACT ||
-                        searchmode == ExpressionSearchModes.PREFIX) {
-                        // test if the index entry location is at the beginning of a word or field
-                        // depending on search parameter.
-                        if (match>0 &&
-                            !(fields.isSelected( MatchMode.WORD) ?
-                              isWordStart( entry, match, field) :
-                            	  structure.isFieldStart( entry, match, field))) {
-	                        continue;
-                        }
-                    }
-                    if (searchmode == ExpressionSearchModes.EXACT ||
-                        searchmode == ExpressionSearchModes.SUFFIX) {
-                        int matchend = match+expressionLength;
-                        if (matchend<entry.limit() &&
-                            !(fields.isSelected( MatchMode.WORD) ?
-                              isWordEnd( entry, matchend, field) :
-                            	  structure.isFieldEnd( entry, matchend, field))) {
-	                        continue;
-                        }
-                    }
-
-                    nextEntry = createEntryFrom( entry, entryOffsets[0]);
                     seenEntries.add( entryOffsets[0]); // start offset of entry
+                    if (!structure.isWellFormed( entry)) {
+                        // report the damaged entry now, not when it is parsed on first access
+                        throw new MalformedEntryException( FileBasedDictionary.this,
+                                                           decodeEntry( entry, newDecoder()));
+                    }
+                    nextEntry = new LazyEntry( FileBasedDictionary.this, entryOffsets[0]);
                 }
             } catch (SearchException ex) {
                 // the exception will be thrown at the next call to next()
@@ -855,4 +1297,223 @@ public abstract class FileBasedDictionary implements IndexedDictionary, Indexabl
             }
         }
     }
+
+    /**
+     * Incremental search session, see {@link #createIncrementalSearch() createIncrementalSearch}.
+     */
+    private class IncrementalExpressionSearch implements IncrementalSearch {
+        /**
+         * Index container for which the previous range was found. The range is invalid after the
+         * index is updated.
+         */
+        private IndexContainer previousContainer;
+        private byte[] previousExpression;
+        private BinarySearchIndex.Range previousRange;
+
+        @Override
+        public synchronized Result search( String expression, SearchFieldSelection fields,
+                                           int entryLimit) throws SearchException {
+            byte[] exprbytes;
+            try {
+                exprbytes = escape( expression).getBytes( characterHandler.getEncodingName());
+            } catch (UnsupportedEncodingException ex) {
+                throw new SearchException( ex);
+            }
+
+            BinarySearchIndex.Range within = null;
+            if (previousContainer == indexContainer && previousExpression != null &&
+                exprbytes.length >= previousExpression.length &&
+                Arrays.equals( previousExpression, Arrays.copyOf( exprbytes, previousExpression.length))) {
+                // extended expression, its matches are in the range of the previous expression
+                within = previousRange;
+            }
+            ByteBuffer exprbuf = ByteBuffer.wrap( exprbytes);
+            BinarySearchIndex.Range range = binarySearchIndex.findRange( FileBasedDictionary.this,
+                                                                        exprbuf, within);
+            previousContainer = indexContainer;
+            previousExpression = exprbytes;
+            previousRange = range;
+
+            return new IncrementalExpressionResult( range, fields, exprbytes.length, entryLimit);
+        }
+    } // class IncrementalExpressionSearch
+
+    /**
+     * Result of an incremental search. The entries of all search modes are found in a single pass
+     * over the index range of the search expression: each match is classified as it is read, and
+     * added to the entries of its search mode and of all less specific modes. Entries of modes which
+     * are not iterated at the moment are buffered, up to the entry limit per mode. If a mode needs
+     * more entries than were buffered, the rest of the range is searched for this mode by an
+     * {@link ExpressionSearchIterator}.
+     */
+    private class IncrementalExpressionResult implements IncrementalSearch.Result {
+        private final BinarySearchIndex.Range range;
+        private final SearchFieldSelection fields;
+        private final int expressionLength;
+        private final int entryLimit;
+        private final Index.Iterator positions;
+        /**
+         * Number of index entries of the range read by the shared pass.
+         */
+        private long readPositions = 0;
+        private final long[] entryOffsets = new long[2];
+        private final ModeEntries[] modeEntries = new ModeEntries[IncrementalSearch.SEARCH_MODES.size()];
+
+        IncrementalExpressionResult( BinarySearchIndex.Range _range, SearchFieldSelection _fields,
+                                     int _expressionLength, int _entryLimit) {
+            this.range = _range;
+            this.fields = _fields;
+            this.expressionLength = _expressionLength;
+            this.entryLimit = _entryLimit;
+            this.positions = binarySearchIndex.getEntryPositions( range);
+            for (int i=0; i<modeEntries.length; i++) {
+                modeEntries[i] = new ModeEntries( IncrementalSearch.SEARCH_MODES.get( i));
+            }
+        }
+
+        @Override
+        public Iterator<DictionaryEntry> getEntries( SearchMode searchmode) {
+            int mode = IncrementalSearch.SEARCH_MODES.indexOf( searchmode);
+            if (mode == -1) {
+                throw new IllegalArgumentException( "unsupported search mode " + searchmode);
+            }
+
+            return modeEntries[mode];
+        }
+
+        /**
+         * Reads the next index entry of the range and adds the entry it points to to the
+         * buffers of the matching search modes.
+         *
+         * @return <code>false</code> if the pass over the range is finished.
+         */
+        private boolean readNext() {
+            if (!positions.hasNext()) {
+                return false;
+            }
+
+            try {
+                ByteBuffer entry = entryView( positions.next(), entryOffsets);
+                readPositions++;
+                SearchMode match = classifyMatch( entry, fields, expressionLength);
+                if (match == null) {
+                    return true;
+                }
+
+                Object found = null;
+                for (int i=IncrementalSearch.SEARCH_MODES.indexOf( match); i<modeEntries.length; i++) {
+                    ModeEntries m = modeEntries[i];
+                    if (!m.isBuffering() || m.seenEntries.contains( entryOffsets[0])) {
+                        continue;
+                    }
+                    if (m.found.size() >= entryLimit) {
+                        // continue this mode from the current index entry when the buffer is used up
+                        m.bufferedUntil = readPositions - 1;
+                        continue;
+                    }
+
+                    if (found == null) {
+                        if (structure.isWellFormed( entry)) {
+                            found = new LazyEntry( FileBasedDictionary.this, entryOffsets[0]);
+                        } else {
+                            // report the damaged entry now, not when it is parsed on first access
+                            found = new MalformedEntryException( FileBasedDictionary.this,
+                                                                 decodeEntry( entry, newDecoder()));
+                        }
+                    }
+                    m.seenEntries.add( entryOffsets[0]);
+                    m.found.add( found);
+                }
+            } catch (SearchException ex) {
+                // the exception will be thrown by all modes which are still buffering
+                for (ModeEntries m : modeEntries) {
+                    if (m.isBuffering()) {
+                        m.found.add( ex);
+                    }
+                }
+                // skip the rest of the range
+                while (positions.hasNext()) {
+                    positions.next();
+                }
+                return false;
+            }
+
+            return true;
+        }
+
+        /**
+         * Entries of one search mode. Each mode can be iterated once.
+         */
+        private class ModeEntries implements Iterator<DictionaryEntry> {
+            private final SearchMode searchmode;
+            /**
+             * Buffered entries and exceptions found by the shared pass.
+             */
+            private final Deque<Object> found = new ArrayDeque<Object>();
+            /**
+             * Start offsets of the entries added to the buffer.
+             */
+            private final Set<Long> seenEntries = new HashSet<Long>();
+            /**
+             * Number of index entries of the range read before the buffer of this mode was full,
+             * or <code>-1</code> if the mode is still buffering.
+             */
+            private long bufferedUntil = -1;
+            /**
+             * Search over the rest of the range after the buffered entries are used up.
+             */
+            private Iterator<DictionaryEntry> rest = null;
+
+            ModeEntries( SearchMode _searchmode) {
+                this.searchmode = _searchmode;
+            }
+
+            boolean isBuffering() { return bufferedUntil == -1; }
+
+            @Override
+            public boolean hasNext() {
+                if (!found.isEmpty()) {
+                    return true;
+                }
+
+                if (isBuffering()) {
+                    while (found.isEmpty() && isBuffering() && readNext()) {
+                        // read index entries until one is added to this mode
+                    }
+                    if (!found.isEmpty() || isBuffering()) {
+                        return !found.isEmpty();
+                    }
+                }
+
+                if (rest == null) {
+                    rest = new ExpressionSearchIterator( searchmode, fields, expressionLength,
+                                                         binarySearchIndex.getEntryPositions
+                                                         ( range.skip( bufferedUntil)), seenEntries);
+                }
+                return rest.hasNext();
+            }
+
+            @Override
+            public DictionaryEntry next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                if (found.isEmpty()) {
+                    return rest.next();
+                }
+
+                Object current = found.removeFirst();
+                if (current instanceof SearchException) {
+                    throw new SearchException( (SearchException) current);
+                }
+                return (DictionaryEntry) current;
+            }
+
+            @Override
+            public void remove() throws UnsupportedOperationException {
+                throw new UnsupportedOperationException();
+            }
+        } // class ModeEntries
+    } // class IncrementalExpressionResult
 } // class FileBasedDictionary
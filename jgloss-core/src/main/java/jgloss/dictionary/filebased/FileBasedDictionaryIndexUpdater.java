@@ -0,0 +1,310 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.dictionary.filebased;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import jgloss.dictionary.DictionaryEntryField;
+import jgloss.dictionary.IndexBuilder;
+import jgloss.dictionary.IndexContainer;
+import jgloss.dictionary.IndexException;
+import jgloss.dictionary.Indexable;
+import jgloss.dictionary.KeyedBinarySearchIndex;
+import jgloss.dictionary.NGramIndex;
+import jgloss.dictionary.ParallelBinarySearchIndexBuilder;
+
+/**
+ * Updates the indexes of a dictionary file after some of its lines changed. The blocks of the old
+ * and new dictionary file are matched by their {@link BlockFingerprints fingerprints}. Only blocks
+ * without a match in the old file are scanned for index terms. The index entries of matched blocks
+ * are taken from the old indexes and moved to the new location of the block.
+ * <p>
+ * Since the sort order of index entries depends only on the text of their lines, the entries taken
+ * from the old binary search index are still sorted and are merged with the sorted entries of the
+ * changed blocks instead of sorting all entries again.
+ * </p>
+ *
+ * @author Michael Koch
+ */
+class FileBasedDictionaryIndexUpdater {
+    /**
+     * If a larger fraction of the dictionary changed, rebuilding the index is not slower than
+     * updating it.
+     */
+    private static final double MAX_CHANGED_FRACTION = 0.5;
+
+    /**
+     * Shift of an old block which has no match in the new dictionary.
+     */
+    private static final long REMOVED = Long.MIN_VALUE;
+
+    private final FileBasedDictionaryIndexer indexer;
+    private final BlockFingerprints oldBlocks;
+    private final BlockFingerprints newBlocks;
+    /**
+     * For each new block, the matching old block, or -1 if the block has to be scanned.
+     */
+    private final int[] matchedBlocks;
+    /**
+     * For each old block, the offset from its old to its new location, or <code>REMOVED</code>.
+     */
+    private final long[] blockShifts;
+    /**
+     * Number of bytes in the new dictionary which have to be scanned.
+     */
+    private long changedBytes;
+
+    FileBasedDictionaryIndexUpdater(FileBasedDictionaryIndexer indexer, BlockFingerprints oldBlocks,
+                    BlockFingerprints newBlocks) {
+        this.indexer = indexer;
+        this.oldBlocks = oldBlocks;
+        this.newBlocks = newBlocks;
+        matchedBlocks = new int[newBlocks.getBlockCount()];
+        blockShifts = new long[oldBlocks.getBlockCount()];
+        matchBlocks();
+    }
+
+    /**
+     * Matches each new block with an unused old block of equal fingerprint and size. The first
+     * block is only matched with the first block, because the dictionary structure may treat the
+     * start of the dictionary differently.
+     */
+    private void matchBlocks() {
+        Arrays.fill(blockShifts, REMOVED);
+
+        Map<Long, ArrayDeque<Integer>> blocksByFingerprint = new HashMap<Long, ArrayDeque<Integer>>(oldBlocks.getBlockCount()*2);
+        for (int i=1; i<oldBlocks.getBlockCount(); i++) {
+            ArrayDeque<Integer> blocks = blocksByFingerprint.get(oldBlocks.getFingerprint(i));
+            if (blocks == null) {
+                blocks = new ArrayDeque<Integer>(1);
+                blocksByFingerprint.put(oldBlocks.getFingerprint(i), blocks);
+            }
+            blocks.add(i);
+        }
+
+        changedBytes = 0;
+        for (int i=0; i<newBlocks.getBlockCount(); i++) {
+            int match = -1;
+            if (i == 0) {
+                if (oldBlocks.getBlockCount() > 0 && sameBlock(0, 0)) {
+                    match = 0;
+                }
+            } else {
+                ArrayDeque<Integer> blocks = blocksByFingerprint.get(newBlocks.getFingerprint(i));
+                if (blocks != null && !blocks.isEmpty() && sameBlock(blocks.peek(), i)) {
+                    match = blocks.poll();
+                }
+            }
+
+            matchedBlocks[i] = match;
+            if (match >= 0) {
+                blockShifts[match] = newBlocks.getStart(i) - oldBlocks.getStart(match);
+            } else {
+                changedBytes += newBlocks.getEnd(i) - newBlocks.getStart(i);
+            }
+        }
+    }
+
+    private boolean sameBlock(int oldBlock, int newBlock) {
+        return oldBlocks.getFingerprint(oldBlock) == newBlocks.getFingerprint(newBlock) &&
+            oldBlocks.getEnd(oldBlock) - oldBlocks.getStart(oldBlock) ==
+            newBlocks.getEnd(newBlock) - newBlocks.getStart(newBlock);
+    }
+
+    /**
+     * Returns the number of bytes of the new dictionary which have to be scanned for index terms.
+     */
+    long getChangedBytes() {
+        return changedBytes;
+    }
+
+    /**
+     * Test if updating the index is faster than rebuilding it.
+     */
+    boolean isWorthwhile() {
+        return changedBytes <= MAX_CHANGED_FRACTION * newBlocks.getDictionarySize();
+    }
+
+    /**
+     * Creates an updated binary search index in the target container. The terms of the changed blocks
+     * are sorted, and merged with the moved entries of the old index.
+     */
+    void updateIndex(IndexContainer target, Indexable dictionary, KeyedBinarySearchIndex oldIndex,
+                     ParallelBinarySearchIndexBuilder builder) throws IndexException {
+        builder.startBuildIndex(target, dictionary);
+        boolean commit = false;
+        try {
+            for (int i=0; i<newBlocks.getBlockCount(); i++) {
+                if (matchedBlocks[i] < 0) {
+                    indexer.addIndexTerms(builder, newBlocks.getStart(i), newBlocks.getEnd(i));
+                }
+            }
+            builder.addSortedEntries(new MovedEntries(oldIndex.getSortedEntries()));
+            commit = true;
+        } catch (IOException ex) {
+            throw new IndexException(ex);
+        } finally {
+            builder.endBuildIndex(commit);
+        }
+    }
+
+    /**
+     * Creates an updated index in the target container for a builder which needs the index terms
+     * in dictionary order. The terms of the changed blocks are found by scanning the blocks, and the
+     * terms of the other blocks are taken from the old terms. Since the field of the old terms is not
+     * known, they are added as {@link DictionaryEntryField#WORD WORD} terms, and the builder must not
+     * depend on the field.
+     */
+    void updateIndex(IndexContainer target, Indexable dictionary, TermList oldTerms, IndexBuilder builder)
+        throws IndexException {
+        builder.startBuildIndex(target, dictionary);
+        boolean commit = false;
+        try {
+            for (int i=0; i<newBlocks.getBlockCount(); i++) {
+                int oldBlock = matchedBlocks[i];
+                if (oldBlock < 0) {
+                    indexer.addIndexTerms(builder, newBlocks.getStart(i), newBlocks.getEnd(i));
+                } else {
+                    long shift = blockShifts[oldBlock];
+                    int end = oldTerms.findFirstTerm(oldBlocks.getEnd(oldBlock));
+                    for (int term=oldTerms.findFirstTerm(oldBlocks.getStart(oldBlock)); term<end; term++) {
+                        builder.addEntry(oldTerms.locations[term] + shift, oldTerms.lengths[term],
+                                         DictionaryEntryField.WORD);
+                    }
+                }
+            }
+            commit = true;
+        } catch (IOException ex) {
+            throw new IndexException(ex);
+        } finally {
+            builder.endBuildIndex(commit);
+        }
+    }
+
+    /**
+     * Terms of an old dictionary, sorted by location.
+     */
+    static class TermList {
+        final long[] locations;
+        final int[] lengths;
+
+        /**
+         * Creates the list of terms stored in a n-gram index.
+         */
+        TermList(NGramIndex index) {
+            int termCount = index.getTermCount();
+            locations = new long[termCount];
+            lengths = new int[termCount];
+            for (int i=0; i<termCount; i++) {
+                locations[i] = index.getTermLocation(i);
+                lengths[i] = index.getTermByteLength(i);
+            }
+            sort(0, termCount, new long[termCount], new int[termCount]);
+        }
+
+        /**
+         * Merge sort of the terms by location.
+         */
+        private void sort(int from, int to, long[] tempLocations, int[] tempLengths) {
+            if (to - from < 2) {
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            sort(from, middle, tempLocations, tempLengths);
+            sort(middle, to, tempLocations, tempLengths);
+            if (locations[middle-1] <= locations[middle]) {
+                return; // already in order
+            }
+
+            System.arraycopy(locations, from, tempLocations, from, to - from);
+            System.arraycopy(lengths, from, tempLengths, from, to - from);
+            int i = from;
+            int j = middle;
+            for (int k=from; k<to; k++) {
+                if (j >= to || i < middle && tempLocations[i] <= tempLocations[j]) {
+                    locations[k] = tempLocations[i];
+                    lengths[k] = tempLengths[i++];
+                } else {
+                    locations[k] = tempLocations[j];
+                    lengths[k] = tempLengths[j++];
+                }
+            }
+        }
+
+        /**
+         * Returns the first term whose location is not smaller than the given location.
+         */
+        int findFirstTerm(long location) {
+            int from = 0;
+            int to = locations.length;
+            while (from < to) {
+                int curr = (from + to) >>> 1;
+                if (locations[curr] < location) {
+                    from = curr + 1;
+                } else {
+                    to = curr;
+                }
+            }
+            return from;
+        }
+    }
+
+    /**
+     * Entries of the old binary search index in unchanged blocks, moved to the new block locations.
+     */
+    private class MovedEntries implements ParallelBinarySearchIndexBuilder.SortedEntrySource {
+        private final ParallelBinarySearchIndexBuilder.SortedEntrySource oldEntries;
+        private long location;
+
+        MovedEntries(ParallelBinarySearchIndexBuilder.SortedEntrySource oldEntries) {
+            this.oldEntries = oldEntries;
+        }
+
+        @Override
+        public boolean next() throws IndexException {
+            while (oldEntries.next()) {
+                long oldLocation = oldEntries.getLocation();
+                long shift = blockShifts[oldBlocks.findBlock(oldLocation)];
+                if (shift != REMOVED) {
+                    location = oldLocation + shift;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public long getKey() {
+            return oldEntries.getKey();
+        }
+
+        @Override
+        public long getLocation() {
+            return location;
+        }
+    }
+} // class FileBasedDictionaryIndexUpdater
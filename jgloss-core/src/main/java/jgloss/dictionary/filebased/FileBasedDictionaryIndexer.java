@@ -34,7 +34,6 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Logger;
 
-import jgloss.dictionary.BinarySearchIndexBuilder;
 import jgloss.dictionary.CharacterClass;
 import jgloss.dictionary.DictionaryEntryField;
 import jgloss.dictionary.EncodedCharacterHandler;
@@ -43,6 +42,10 @@ import jgloss.dictionary.IndexBuilder;
 import jgloss.dictionary.IndexContainer;
 import jgloss.dictionary.IndexException;
 import jgloss.dictionary.Indexable;
+import jgloss.dictionary.KeyedBinarySearchIndex;
+import jgloss.dictionary.KeyedBinarySearchIndexBuilder;
+import jgloss.dictionary.ParallelBinarySearchIndexBuilder;
+import jgloss.util.SegmentedByteBuffer;
 
 class FileBasedDictionaryIndexer {
 
@@ -52,11 +55,11 @@ class FileBasedDictionaryIndexer {
 
 	private final FileBasedDictionaryStructure structure;
 
-    private final ByteBuffer dictionary;
+    private final SegmentedByteBuffer dictionary;
 
 	private final EncodedCharacterHandler characterHandler;
 
-    FileBasedDictionaryIndexer(Indexable indexable, FileBasedDictionaryStructure structure, ByteBuffer dictionary,
+    FileBasedDictionaryIndexer(Indexable indexable, FileBasedDictionaryStructure structure, SegmentedByteBuffer dictionary,
                     EncodedCharacterHandler characterHandler) {
 		this.indexable = indexable;
 		this.structure = structure;
@@ -65,14 +68,20 @@ class FileBasedDictionaryIndexer {
 	}
 
     void buildIndex(IndexContainer indexContainer, Index index) {
-        buildIndex(indexContainer, new BinarySearchIndexBuilder(index.getType()));
+        IndexBuilder builder;
+        if (index instanceof KeyedBinarySearchIndex) {
+            builder = new KeyedBinarySearchIndexBuilder(index.getType());
+        } else {
+            builder = new ParallelBinarySearchIndexBuilder(index.getType());
+        }
+        buildIndex(indexContainer, builder);
     }
 
     void buildIndex(IndexContainer indexContainer, IndexBuilder builder) {
         builder.startBuildIndex(indexContainer, indexable);
         boolean commit = false;
         try {
-        	addIndexTerms(builder, dictionary);
+            addIndexTerms(builder);
             commit = true;
         } catch (IOException ex) {
         	throw new IndexException(ex);
@@ -83,7 +92,53 @@ class FileBasedDictionaryIndexer {
 	}
 
     /**
-     * Adds all indexable terms in the dictionary to the index builder. Indexes
+     * Adds all indexable terms in the dictionary to the index builder. The segments of the
+     * dictionary are scanned one after the other.
+     *
+     * @return The number of index entries created.
+     */
+    private long addIndexTerms(IndexBuilder builder) throws IOException, IndexException {
+        return addIndexTerms(builder, 0, dictionary.size());
+    }
+
+    /**
+     * Adds the indexable terms in a range of lines of the dictionary to the index builder.
+     * Terms are found in the same way as when the whole dictionary is scanned. This requires
+     * that dictionary entries don't span lines and that every line starts with the word field.
+     *
+     * @param from Location of the first byte of a line, or 0.
+     * @param to Location of the first byte after a line, or the size of the dictionary.
+     * @return The number of index entries created.
+     */
+    long addIndexTerms(IndexBuilder builder, long from, long to) throws IOException, IndexException {
+        long indexsize = 0;
+        long position = from;
+        // at the start of the dictionary, the structure may skip a header line
+        DictionaryEntryField field = from == 0 ? null : DictionaryEntryField.WORD;
+        State state = new State();
+
+        while (position < to) {
+            ByteBuffer window = dictionary.window(position);
+            long windowOffset = dictionary.windowOffset(position);
+            int scanEnd = (int) (Math.min(dictionary.segmentEnd(position), to) - windowOffset);
+            field = addIndexTerms(builder, window, windowOffset, scanEnd, field, state);
+            indexsize += state.indexsize;
+            position = windowOffset + window.position();
+        }
+
+        return indexsize;
+    }
+
+    /**
+     * Scan state which is carried over from one dictionary segment to the next.
+     */
+    private static class State {
+        long previousTerm = -1;
+        long indexsize;
+    }
+
+    /**
+     * Adds all indexable terms which start in a segment of the dictionary to the index builder. Indexes
      * all terms in word, reading and translation fields. Index term boundaries
      * are determined using characterHandler.getCharacterClass(): if the
      * character classes of two adjacent characters differ they are assumed to
@@ -91,18 +146,30 @@ class FileBasedDictionaryIndexer {
      * hiragana. For kanji characters, each kanji in a term is indexed. For kana
      * characters, whole terms are indexed. For romaji, terms of length >= 3 are
      * indexed.
-     * 
-     * @return The number of index entries created.
+     * <p>
+     * Scanning starts at the current position of the window buffer. When the method returns,
+     * the position of the buffer is set to the first byte which has not been scanned.
+     * Terms which start before <code>scanEnd</code> are read completely, even if they extend
+     * beyond it into the overlap of the window.
+     * </p>
+     *
+     * @param dictionary Window buffer containing the segment.
+     * @param windowOffset Position of the first byte of the window buffer in the dictionary.
+     * @param scanEnd Position in the window buffer of the end of the segment.
+     * @param field The current field, or <code>null</code> at the start of the dictionary.
+     * @return The current field after scanning the segment.
      */
-    private int addIndexTerms(IndexBuilder builder, ByteBuffer dictionary) throws IOException, IndexException {
-        int indexsize = 0;
-        dictionary.position( 0);
+    private DictionaryEntryField addIndexTerms(IndexBuilder builder, ByteBuffer dictionary, long windowOffset,
+                    int scanEnd, DictionaryEntryField field, State state) throws IOException, IndexException {
+        long indexsize = 0;
         List<Integer> termStarts = new ArrayList<Integer>(25);
 
-        int previousTerm = -1;
+        long previousTerm = state.previousTerm;
 
-        DictionaryEntryField field = structure.moveToNextField( dictionary, 0, null);
-        while (dictionary.remaining() > 0) {
+        if (field == null) {
+            field = structure.moveToNextField( dictionary, 0, null);
+        }
+        while (dictionary.position() < scanEnd) {
         	try {
         		boolean inWord = false;
         		int c;
@@ -115,8 +182,10 @@ class FileBasedDictionaryIndexer {
         			c = characterHandler.readCharacter( dictionary);
         			clazz = characterHandler.getCharacterClass( c, inWord);
         			field = structure.moveToNextField( dictionary, c, field);
-        		} while (clazz == CharacterClass.OTHER && dictionary.remaining() > 0);
-        		if (dictionary.remaining() == 0) {
+        		} while (clazz == CharacterClass.OTHER && dictionary.position() < scanEnd);
+        		if (clazz == CharacterClass.OTHER || !dictionary.hasRemaining()) {
+        		    // end of segment or end of dictionary file; a term which starts in this segment
+        		    // is read completely using the overlap of the window
         			break;
         		}
 
@@ -149,15 +218,16 @@ class FileBasedDictionaryIndexer {
                 if (clazz == KANJI || clazz == HIRAGANA || clazz == KATAKANA || clazz == ROMAN_WORD && termLength >= 3) {
         			for ( int i=0; i<termStarts.size(); i++) {
         				termStart = termStarts.get( i).intValue();
+        				long location = windowOffset + termStart;
 
         				// debug index creation
-        				if (termStart <= previousTerm) {
+        				if (location <= previousTerm) {
 	                        LOGGER.warning( "Warning: possible duplicate index entry");
                         }
-        				previousTerm = termStart;
+        				previousTerm = location;
         				// debug index creation
 
-        				if (builder.addEntry( termStart, termEnd-termStart, termField)) {
+        				if (builder.addEntry( location, termEnd-termStart, termField)) {
 	                        indexsize++;
                         }
         			}
@@ -179,7 +249,9 @@ class FileBasedDictionaryIndexer {
         	// end of dictionary file
         }
 
-        return indexsize;
+        state.previousTerm = previousTerm;
+        state.indexsize = indexsize;
+        return field;
     }
 
 
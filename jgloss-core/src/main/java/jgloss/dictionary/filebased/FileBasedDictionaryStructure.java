@@ -67,4 +67,17 @@ public abstract class FileBasedDictionaryStructure {
      */
     public abstract boolean isFieldEnd( ByteBuffer entry, int location, DictionaryEntryField field);
 
+    /**
+     * Cheap test if an entry has the field layout of the dictionary format. Search results are
+     * parsed lazily, and entries which fail this test are reported as malformed by the search
+     * instead of failing on first access. Passing the test does not guarantee that the entry
+     * can be parsed. This implementation accepts all entries.
+     *
+     * @param entry Buffer which holds the dictionary entry from index 0 to its limit, without
+     *        the entry separators. The position of the buffer is not changed.
+     */
+    public boolean isWellFormed( ByteBuffer entry) {
+        return true;
+    }
+
 }
@@ -38,6 +38,7 @@ import java.util.logging.Logger;
 
 import jgloss.dictionary.IndexContainer;
 import jgloss.dictionary.IndexException;
+import jgloss.util.SegmentedByteBuffer;
 
 /**
  * Index container which stores index data in a file.
@@ -51,13 +52,21 @@ public class FileIndexContainer implements IndexContainer {
      * Meta data for indexes stored in the container.
      */
     static class IndexMetaData {
-        static final int INDEX_OFFSET = 3 * 4;
+        /**
+         * Length of the index meta data header in the current index version.
+         */
+        static final int INDEX_OFFSET = 4 + 8 + 4;
+
+        /**
+         * Length of the index meta data header in index version {@link FileIndexContainer#VERSION_1000 1000}.
+         */
+        static final int INDEX_OFFSET_1000 = 3 * 4;
 
         private final long start;
 
         private final int type;
 
-        private final int length;
+        private final long length;
 
         private final int offset;
 
@@ -65,24 +74,36 @@ public class FileIndexContainer implements IndexContainer {
 
         private MappedByteBuffer data;
 
-        public IndexMetaData(RandomAccessFile indexFile, ByteOrder indexByteOrder) throws IOException {
+        private SegmentedByteBuffer segmentedData;
+
+        public IndexMetaData(RandomAccessFile indexFile, int version, ByteOrder indexByteOrder) throws IOException {
             this.indexByteOrder = indexByteOrder;
             start = indexFile.getFilePointer();
             type = indexFile.readInt(); // index type
-            length = indexFile.readInt(); // length of the index data in bytes (without this header)
+            // length of the index data in bytes (without this header)
+            length = version == VERSION_1000 ? indexFile.readInt() : indexFile.readLong();
             offset = indexFile.readInt(); // offset in bytes from the start of the header to the
                                           // index data
         }
 
-        public IndexMetaData(int _type, RandomAccessFile indexFile, int dataLength, ByteOrder indexByteOrder) throws IOException {
+        public IndexMetaData(int _type, RandomAccessFile indexFile, int version, long dataLength, ByteOrder indexByteOrder)
+                        throws IOException, IndexException {
             this.indexByteOrder = indexByteOrder;
             start = indexFile.getFilePointer();
             type = _type;
             length = dataLength;
-            offset = INDEX_OFFSET;
 
             indexFile.writeInt(type);
-            indexFile.writeInt(length);
+            if (version == VERSION_1000) {
+                if (length > Integer.MAX_VALUE) {
+                    throw new IndexException("Index data of " + length + " bytes not supported by index version " + version);
+                }
+                offset = INDEX_OFFSET_1000;
+                indexFile.writeInt((int) length);
+            } else {
+                offset = INDEX_OFFSET;
+                indexFile.writeLong(length);
+            }
             indexFile.writeInt(offset);
         }
 
@@ -98,7 +119,7 @@ public class FileIndexContainer implements IndexContainer {
             return type;
         }
 
-        public int getDataLength() {
+        public long getDataLength() {
             return length;
         }
 
@@ -106,16 +127,26 @@ public class FileIndexContainer implements IndexContainer {
             return start + offset;
         }
 
-        public ByteBuffer getIndexData(FileChannel indexFile) throws IOException {
+        public ByteBuffer getIndexData(FileChannel indexFile) throws IOException, IndexException {
+            if (length > Integer.MAX_VALUE) {
+                throw new IndexException("Index data of type " + type + " is too large for a single buffer");
+            }
             if (data == null) {
                 data = indexFile.map(FileChannel.MapMode.READ_ONLY, getDataOffset(), getDataLength());
                 data.order(indexByteOrder);
                 return data;
             } else {
-                return data.duplicate();
+                return data.duplicate().order(indexByteOrder);
             }
         }
 
+        public SegmentedByteBuffer getSegmentedIndexData(FileChannel indexFile) throws IOException {
+            if (segmentedData == null) {
+                segmentedData = SegmentedByteBuffer.map(indexFile, getDataOffset(), getDataLength(), indexByteOrder);
+            }
+            return segmentedData;
+        }
+
         @Override
         public String toString() {
             return "Index data: " + Integer.toHexString(type) + "/" + start + "/" + length;
@@ -131,7 +162,7 @@ public class FileIndexContainer implements IndexContainer {
      * Length of the index header of the current index version in bytes.
      */
     // VisibleForTesting
-    static final byte INDEXCONTAINER_HEADER_LENGTH = 4 * 4;
+    static final byte INDEXCONTAINER_HEADER_LENGTH = 4 + 4 + 8 + 4;
 
     /**
      * Offset in bytes in the index file to the header entry which points to the fist index metadata
@@ -152,14 +183,26 @@ public class FileIndexContainer implements IndexContainer {
     public static final int MAGIC = 0x4a474958; // JGIX (JGloss IndeX) in ASCII
 
     /**
-     * Version number of the index format.
+     * Version number of the index format. Index version 1001 stores index data lengths and
+     * offsets as 64 bit values, which allows index data larger than 2 GB.
+     */
+    public static final int VERSION = 1001;
+
+    /**
+     * Version number of the previous index format, which stores index data lengths and offsets
+     * as 32 bit values. Index files in this version can still be read and edited.
      */
-    public static final int VERSION = 1000;
+    public static final int VERSION_1000 = 1000;
 
     private final RandomAccessFile indexFile;
 
     private boolean editMode;
 
+    /**
+     * Version of the index file format, either {@link #VERSION VERSION} or {@link #VERSION_1000 VERSION_1000}.
+     */
+    private int version;
+
     private final List<IndexMetaData> indexes = new ArrayList<IndexMetaData>(5);
 
     private ByteOrder indexByteOrder;
@@ -212,13 +255,38 @@ public class FileIndexContainer implements IndexContainer {
         }
     }
 
+    @Override
+    public SegmentedByteBuffer getSegmentedIndexData(int indexType) throws IndexException, IllegalStateException {
+        if (editMode) {
+            throw new IllegalStateException();
+        }
+
+        IndexMetaData index = getIndexMetaData(indexType);
+        if (index == null) {
+            throw new IndexException("No index data of type " + indexType + " available");
+        }
+
+        try {
+            return index.getSegmentedIndexData(indexFile.getChannel());
+        } catch (IOException ex) {
+            throw new IndexException(ex);
+        }
+    }
+
+    /**
+     * Returns the version of the index file format.
+     */
+    public int getVersion() {
+        return version;
+    }
+
     @Override
     public ByteOrder getIndexByteOrder() {
         return indexByteOrder;
     }
 
     @Override
-    public void createIndex(int indexType, ByteBuffer data) throws IndexException, IllegalStateException {
+    public void createIndex(int indexType, ByteBuffer... data) throws IndexException, IllegalStateException {
         if (!editMode) {
             throw new IllegalStateException();
         }
@@ -229,9 +297,18 @@ public class FileIndexContainer implements IndexContainer {
 
         // append the index data to the end of the index file
         try {
+            long dataLength = 0;
+            for (ByteBuffer buffer : data) {
+                dataLength += buffer.remaining();
+            }
             indexFile.seek(indexFile.length());
-            IndexMetaData index = new IndexMetaData(indexType, indexFile, data.remaining(), indexByteOrder);
-            indexFile.getChannel().write(data);
+            IndexMetaData index = new IndexMetaData(indexType, indexFile, version, dataLength, indexByteOrder);
+            FileChannel channel = indexFile.getChannel();
+            for (ByteBuffer buffer : data) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
             indexes.add(index);
         } catch (IOException ex) {
             throw new IndexException(ex);
@@ -304,9 +381,10 @@ public class FileIndexContainer implements IndexContainer {
         // Magic Number marking this as
         indexFile.writeInt(MAGIC);
         // version of the index file
-        indexFile.writeInt(VERSION);
+        version = VERSION;
+        indexFile.writeInt(version);
         // offset in bytes from the start of the index container file to the first index
-        indexFile.writeInt(INDEXCONTAINER_HEADER_LENGTH);
+        indexFile.writeLong(INDEXCONTAINER_HEADER_LENGTH);
         indexByteOrder = ByteOrder.nativeOrder();
         indexFile.writeInt(indexByteOrder == ByteOrder.BIG_ENDIAN ? BIG_ENDIAN : LITTLE_ENDIAN);
     }
@@ -318,11 +396,12 @@ public class FileIndexContainer implements IndexContainer {
                 throw new IndexException("Index file does not start with magic number");
             }
             data = indexFile.readInt();
-            if (data != VERSION) {
-                // later releases might replace this with a more sophisticated compatibility test
+            if (data != VERSION && data != VERSION_1000) {
                 throw new IndexException("Index version " + data + " not supported");
             }
-            indexFile.readInt(); // offset to first index metadata, must not generate an EOF exception
+            version = data;
+            // offset to first index metadata, must not generate an EOF exception
+            readOffset();
 
             // read byte order
             data = indexFile.readInt();
@@ -336,13 +415,13 @@ public class FileIndexContainer implements IndexContainer {
         indexes.clear();
         try {
             indexFile.seek(FIRST_INDEX_POINTER_OFFSET);
-            long indexOffset = indexFile.readInt();
+            long indexOffset = readOffset();
             long length = indexFile.length(); // length() is a slow operation, cache the value
 
             // the last indexOffset points after the end of the index container file
             while (indexOffset < length) {
                 indexFile.seek(indexOffset);
-                IndexMetaData index = new IndexMetaData(indexFile, indexByteOrder);
+                IndexMetaData index = new IndexMetaData(indexFile, version, indexByteOrder);
                 indexes.add(index);
                 indexOffset = index.nextIndexMetaDataOffset();
             }
@@ -351,6 +430,13 @@ public class FileIndexContainer implements IndexContainer {
         }
     }
 
+    /**
+     * Reads a file offset in the format of the index file version.
+     */
+    private long readOffset() throws IOException {
+        return version == VERSION_1000 ? indexFile.readInt() : indexFile.readLong();
+    }
+
     private IndexMetaData getIndexMetaData(int indexType) {
         for (IndexMetaData data : indexes) {
             if (data.getType() == indexType) {
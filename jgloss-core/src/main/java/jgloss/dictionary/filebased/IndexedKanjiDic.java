@@ -0,0 +1,374 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.dictionary.filebased;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jgloss.dictionary.DictionaryImplementation;
+import jgloss.dictionary.DictionaryInstantiationException;
+import jgloss.dictionary.IndexContainer;
+import jgloss.dictionary.IndexException;
+import jgloss.dictionary.IndexedDictionary;
+import jgloss.dictionary.KanjiDic;
+import jgloss.dictionary.SearchException;
+import jgloss.dictionary.SearchMode;
+import jgloss.dictionary.TestResult;
+import jgloss.dictionary.ThreadSafeDictionary;
+import jgloss.util.CharacterEncodingDetector;
+
+/**
+ * KANJIDIC dictionary which does not load the dictionary file into memory. The dictionary file
+ * is mapped into memory and the lines are found through a hash table of the lookup keys, which
+ * is stored in the index file of the dictionary. Only the lines which match a lookup are
+ * decoded and parsed, so the dictionary needs little heap space and can be searched
+ * concurrently.
+ * <p>
+ * The key index is an open addressing hash table with linear probing. Every slot stores the hash
+ * of a key (int, <code>0</code> for empty slots) and the location of the dictionary line (int).
+ * A key which is contained in several lines has one slot per line. Since different keys can
+ * have the same hash, the keys of every line found through the table are checked again.
+ * </p>
+ *
+ * @author Michael Koch
+ */
+public class IndexedKanjiDic extends KanjiDic implements IndexedDictionary, ThreadSafeDictionary {
+    private static final Logger LOGGER = Logger.getLogger(IndexedKanjiDic.class.getPackage().getName());
+
+    /**
+     * Type of the key index data in the index container.
+     */
+    public static final int KEY_INDEX_TYPE = 0x4b446978; // KDix in ASCII
+
+    /**
+     * Maximum fraction of used slots in the key hash table.
+     */
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private static final int SLOT_SIZE = 4 + 4;
+
+    /**
+     * Object describing this implementation of the <CODE>Dictionary</CODE> interface. Files
+     * are recognized with the same test as used for {@link KanjiDic#IMPLEMENTATION KanjiDic}.
+     */
+    public static final DictionaryImplementation<IndexedKanjiDic> IMPLEMENTATION =
+        new DictionaryImplementation<IndexedKanjiDic>() {
+            @Override
+            public TestResult isInstance( String descriptor) {
+                return KanjiDic.IMPLEMENTATION.isInstance( descriptor);
+            }
+
+            @Override
+            public float getMaxConfidence() { return KanjiDic.IMPLEMENTATION.getMaxConfidence(); }
+
+            @Override
+            public IndexedKanjiDic createInstance( String descriptor)
+                throws DictionaryInstantiationException {
+                try {
+                    return new IndexedKanjiDic( new File( descriptor));
+                } catch (IOException ex) {
+                    throw new DictionaryInstantiationException( ex.getLocalizedMessage(), ex);
+                }
+            }
+
+            @Override
+            public String getName() { return KanjiDic.IMPLEMENTATION.getName(); }
+
+            @Override
+            public Class<IndexedKanjiDic> getDictionaryClass( String descriptor) { return IndexedKanjiDic.class; }
+        };
+
+    private final File dictionaryFile;
+    private final File indexFile;
+    private final FileChannel dicchannel;
+    /**
+     * Content of the dictionary file. Only accessed with absolute get methods, which don't
+     * change the state of the buffer and can be used from several threads.
+     */
+    private final ByteBuffer dictionary;
+    private final Charset charset;
+
+    private IndexContainer indexContainer;
+    /**
+     * Key hash table, loaded from the index container.
+     */
+    private ByteBuffer keyIndex;
+    private int slotMask;
+
+    /**
+     * Initializes the dictionary. The dictionary file is mapped into memory. Before the
+     * dictionary can be used, {@link #loadIndex() loadIndex} must be successfully called.
+     *
+     * @exception IOException if the dictionary file cannot be read.
+     */
+    public IndexedKanjiDic( File _dicfile) throws IOException {
+        super( _dicfile);
+        this.dictionaryFile = _dicfile;
+        this.indexFile = new File( _dicfile.getCanonicalPath() + FileIndexContainer.EXTENSION);
+
+        InputStream in = new FileInputStream( _dicfile);
+        try {
+            charset = Charset.forName( CharacterEncodingDetector.getReader( in).getEncoding());
+        } finally {
+            in.close();
+        }
+
+        dicchannel = new FileInputStream( _dicfile).getChannel();
+        if (dicchannel.size() > Integer.MAX_VALUE) {
+            dicchannel.close();
+            throw new IOException( "dictionary file " + _dicfile + " is too large");
+        }
+        dictionary = dicchannel.map( FileChannel.MapMode.READ_ONLY, 0, dicchannel.size());
+    }
+
+    @Override
+    public boolean loadIndex() throws IndexException {
+        // rebuild the index if the dictionary was changed after the index was created
+        if (indexFile.lastModified() < dictionaryFile.lastModified()) {
+            indexFile.delete();
+            return false;
+        }
+
+        try {
+            indexContainer = new FileIndexContainer( indexFile, false);
+            if (!indexContainer.hasIndex( KEY_INDEX_TYPE)) {
+                return false;
+            }
+
+            initKeyIndex();
+
+            return true;
+        } catch (FileNotFoundException ex) {
+            // no index file, create it
+        } catch (IndexException ex) {
+            // index file damaged, rebuild it
+            indexFile.delete();
+        } catch (IOException ex) {
+            throw new IndexException( ex);
+        }
+
+        return false;
+    }
+
+    @Override
+    public void buildIndex() throws IndexException {
+        try {
+            indexContainer = new FileIndexContainer( indexFile, true);
+            indexContainer.deleteIndex( KEY_INDEX_TYPE);
+            indexContainer.createIndex( KEY_INDEX_TYPE, createKeyIndex( indexContainer.getIndexByteOrder()));
+        } catch (IOException ex) {
+            throw new IndexException( ex);
+        } finally {
+            if (indexContainer != null) {
+                indexContainer.endEditing();
+            }
+        }
+
+        initKeyIndex();
+    }
+
+    private void initKeyIndex() throws IndexException {
+        ByteBuffer data = indexContainer.getIndexData( KEY_INDEX_TYPE);
+        int slots = data.remaining() / SLOT_SIZE;
+        if (slots == 0 || Integer.bitCount( slots) != 1 || data.remaining() % SLOT_SIZE != 0) {
+            throw new IndexException( "malformed key index in " + indexFile);
+        }
+        keyIndex = data;
+        slotMask = slots - 1;
+    }
+
+    /**
+     * Creates the key hash table for all lines of the dictionary.
+     */
+    private ByteBuffer createKeyIndex( ByteOrder order) {
+        // hash and line location of every distinct key of every line
+        int[] hashes = new int[16384];
+        int[] locations = new int[16384];
+        int count = 0;
+
+        List<String> keys = new ArrayList<String>( 32);
+        Set<String> distinctKeys = new HashSet<String>( 64);
+        int size = dictionary.limit();
+        int start = 0;
+        while (start < size) {
+            int end = findLineEnd( start);
+            String line = decodeLine( start, end);
+            if (isEntryLine( line)) {
+                keys.clear();
+                distinctKeys.clear();
+                addKeys( line, keys);
+                for (String key : keys) {
+                    if (distinctKeys.add( key)) {
+                        if (count == hashes.length) {
+                            hashes = Arrays.copyOf( hashes, count*2);
+                            locations = Arrays.copyOf( locations, count*2);
+                        }
+                        hashes[count] = hash( key);
+                        locations[count] = start;
+                        count++;
+                    }
+                }
+            }
+            start = end + 1;
+        }
+
+        int slots = Integer.highestOneBit( Math.max( (int) (count / LOAD_FACTOR), 1) * 2 - 1);
+        ByteBuffer table = ByteBuffer.allocate( slots * SLOT_SIZE);
+        table.order( order);
+        int mask = slots - 1;
+        // insert in file order, which keeps the slots of a key in file order too
+        for (int i=0; i<count; i++) {
+            int slot = hashes[i] & mask;
+            while (table.getInt( slot*SLOT_SIZE) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table.putInt( slot*SLOT_SIZE, hashes[i]);
+            table.putInt( slot*SLOT_SIZE + 4, locations[i]);
+        }
+
+        LOGGER.fine( "created key index with " + count + " keys in " + slots + " slots for " + getName());
+
+        return table;
+    }
+
+    /**
+     * Returns the lines which contain the key, decoded from the mapped dictionary file.
+     */
+    @Override
+    protected List<String> getLines( String key) {
+        if (keyIndex == null) {
+            throw new IllegalStateException( "index of " + getName() + " not loaded");
+        }
+
+        int h = hash( key);
+        int[] locations = null;
+        int count = 0;
+        int slot = h & slotMask;
+        int slotHash;
+        while ((slotHash = keyIndex.getInt( slot*SLOT_SIZE)) != 0) {
+            if (slotHash == h) {
+                if (locations == null) {
+                    locations = new int[4];
+                } else if (count == locations.length) {
+                    locations = Arrays.copyOf( locations, count*2);
+                }
+                locations[count++] = keyIndex.getInt( slot*SLOT_SIZE + 4);
+            }
+            slot = (slot + 1) & slotMask;
+        }
+
+        if (count == 0) {
+            return null;
+        }
+
+        // slots of colliding keys may wrap around the end of the table
+        Arrays.sort( locations, 0, count);
+        List<String> lines = new ArrayList<String>( count);
+        List<String> keys = new ArrayList<String>( 32);
+        for (int i=0; i<count; i++) {
+            String line = decodeLine( locations[i], findLineEnd( locations[i]));
+            keys.clear();
+            addKeys( line, keys);
+            // filter lines of different keys with the same hash
+            if (keys.contains( key)) {
+                lines.add( line);
+            }
+        }
+
+        return lines.isEmpty() ? null : lines;
+    }
+
+    /**
+     * Returns the location of the line separator which ends the line starting at the location,
+     * or the size of the dictionary if the line is not terminated.
+     */
+    private int findLineEnd( int start) {
+        int size = dictionary.limit();
+        int end = start;
+        while (end < size && dictionary.get( end) != '\n') {
+            end++;
+        }
+        return end;
+    }
+
+    private String decodeLine( int start, int end) {
+        if (end > start && dictionary.get( end-1) == '\r') {
+            end--;
+        }
+        byte[] data = new byte[end-start];
+        for (int i=0; i<data.length; i++) {
+            data[i] = dictionary.get( start+i);
+        }
+        return new String( data, charset);
+    }
+
+    /**
+     * Hash of a key in the key index. Never returns <code>0</code>, which marks empty slots.
+     */
+    private static int hash( String key) {
+        // spread the bits of the string hash code, since the low bits select the slot
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h != 0 ? h : 1;
+    }
+
+    @Override
+    public boolean contains( SearchMode searchmode, Object[] parameters) throws SearchException {
+        return search( searchmode, parameters).hasNext();
+    }
+
+    @Override
+    public String toString() {
+        return "KANJIDIC (indexed) " + getName();
+    }
+
+    @Override
+    public void dispose() {
+        try {
+            dicchannel.close();
+            if (indexContainer != null) {
+                indexContainer.close();
+            }
+        } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, ex.getMessage(), ex);
+        }
+    }
+} // class IndexedKanjiDic
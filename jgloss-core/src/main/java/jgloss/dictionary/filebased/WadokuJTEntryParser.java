@@ -147,7 +147,7 @@ class WadokuJTEntryParser implements EntryParser {
 	}
 
     @Override
-	public DictionaryEntry parseEntry( String entry, int startOffset) throws SearchException {
+	public DictionaryEntry parseEntry( String entry, long startOffset) throws SearchException {
         try {
             DictionaryEntry out = null;
             List<String> wordlist = new ArrayList<String>( 10);
@@ -152,4 +152,19 @@ public class WadokuJTStructure extends FileBasedDictionaryStructure {
         }
     }
 
+    /**
+     * Test that the entry has the word, reading, part of speech and translation fields,
+     * which are separated by <code>|</code>.
+     */
+    @Override
+    public boolean isWellFormed( ByteBuffer entry) {
+        int separators = 0;
+        for ( int i=0; i<entry.limit() && separators<4; i++) {
+            if (entry.get( i) == '|') {
+                separators++;
+            }
+        }
+        return separators == 4;
+    }
+
 }
@@ -54,6 +54,10 @@ public abstract class AbstractParser implements Parser {
      * Flag if only the first occurrence of a word should be annotated.
      */
     protected boolean firstOccurrenceOnly;
+    /**
+     * Statistics updated by the parser, or <CODE>null</CODE> if no statistics are recorded.
+     */
+    protected ParserMetrics metrics;
 
     public AbstractParser( Set<String> exclusions, boolean ignoreNewlines,
                            boolean firstOccurrenceOnly) {
@@ -129,6 +133,24 @@ public abstract class AbstractParser implements Parser {
         return firstOccurrenceOnly;
     }
 
+    /**
+     * Sets the object in which the parser records statistics about the parsed text. The metrics
+     * may be shared by several parsers.
+     *
+     * @param metrics The metrics, or <CODE>null</CODE> to disable recording.
+     */
+    public void setMetrics( ParserMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns the object in which the parser records statistics, or <CODE>null</CODE> if
+     * no statistics are recorded.
+     */
+    public ParserMetrics getMetrics() {
+        return metrics;
+    }
+
     /**
      * Test if the word should not be annotated, either because it appears in the set of ignored
      * words or the set of already annotated words.
@@ -32,10 +32,15 @@ import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -44,6 +49,7 @@ import jgloss.util.CharacterEncodingDetector;
 /**
  * Wrapper around the ChaSen morphological analysis program. Each instance starts the
  * ChaSen program with customizable parameters. The output format can thus be customized.
+ * Long-lived instances can be shared between parsers with a {@link ChasenPool ChasenPool}.
  * Information about ChaSen can be found at
  * <a href="http://chasen.aist-nara.ac.jp/">http://chasen.aist-nara.ac.jp/</a>.
  *
@@ -173,11 +179,16 @@ public class Chasen {
             else {
                 try {
                     nextLine = chasenOut.readLine();
-                    if (EOS.equals( nextLine)) {
+                    if (nextLine == null) {
+                        // process terminated before all output was read
+                        broken = true;
+                        expectedEOS = 0;
+                    } else if (EOS.equals( nextLine)) {
 	                    expectedEOS--;
                     }
                 } catch (IOException ex) {
                     LOGGER.log(SEVERE, ex.getMessage(), ex);
+                    broken = true;
                     nextLine = null;
                     expectedEOS = 0;
                 }
@@ -212,14 +223,14 @@ public class Chasen {
 
     /**
      * Cache used by {@link #isChasenExecutable(String) isChasenExecutable} to store the
-     * name of the last succesfully tested chasen executable.
+     * names of the succesfully tested chasen executables.
      */
-    private static String lastChasenExecutable = null;
+    private static final Set<String> CHASEN_EXECUTABLES = Collections.synchronizedSet( new HashSet<String>());
 
     /**
-     * Name of the character encoding ChaSen uses on this computer.
+     * Names of the character encodings used by the ChaSen executables on this computer.
      */
-    private static String platformEncoding;
+    private static final Map<String, String> PLATFORM_ENCODINGS = new ConcurrentHashMap<String, String>();
     /**
      * Separator for fields in the chasen output.
      */
@@ -240,6 +251,10 @@ public class Chasen {
      * Result iterator for parsing of some text.
      */
     private Result result;
+    /**
+     * Set if communication with the chasen process failed or the process was killed.
+     */
+    private volatile boolean broken;
 
     /**
      * Sets the path to the default ChaSen executable. This executable will be used when the
@@ -257,17 +272,13 @@ public class Chasen {
     }
 
     /**
-     * Test if the chasen program is available at the specified path. If the path to the executable
-     * is the same as in the previous test, and this test was successfull, the test will not be
-     * repeated.
+     * Test if the chasen program is available at the specified path. If an earlier test of the
+     * executable was successfull, the test will not be repeated.
      *
      * @param chasenExecutable Full path to the chasen executable.
      */
     public static boolean isChasenExecutable( String chasenExecutable) {
-        // If the last call to isChasenExecutable was successful, the name of the
-        // executable is stored in "lastChasenExecutable".
-        if (lastChasenExecutable != null &&
-            lastChasenExecutable.equals( chasenExecutable)) {
+        if (CHASEN_EXECUTABLES.contains( chasenExecutable)) {
 	        return true;
         }
 
@@ -302,7 +313,7 @@ public class Chasen {
 	            return false;
             }
 
-            lastChasenExecutable = chasenExecutable;
+            CHASEN_EXECUTABLES.add( chasenExecutable);
             return true;
         } catch (InterruptedException ex) {
             // process didn't terminate normally in time, abort
@@ -415,11 +426,31 @@ public class Chasen {
         return result;
     }
 
+    /**
+     * Returns <code>true</code> if communication with the chasen process failed or the process
+     * was {@link #kill() killed}. The instance can't be used for parsing afterwards.
+     */
+    public boolean isBroken() {
+        return broken;
+    }
+
+    /**
+     * Forcibly terminates the chasen process. A thread blocked while reading the chasen output
+     * will see the end of the result. This method may be called from any thread.
+     */
+    public void kill() {
+        broken = true;
+        chasen.destroy();
+    }
+
     /**
      * Terminates the chasen process.
      */
     public void dispose() {
-        if (chasen != null) {
+        if (broken) {
+            // the streams of a failed process can't be used for a clean shutdown
+            chasen.destroy();
+        } else if (chasen != null) {
             // terminate chasen process by writing EOT on its input stream
             try {
                 chasenIn.flush(); // should be empty
@@ -451,12 +482,13 @@ public class Chasen {
     /**
      * Test which character encoding ChaSen uses for its input and output streams. On
      * Linux this will probably be EUC-JP and Shift-JIS on Windows.
-     * The test is only done the first time the method is called, the result is
+     * The test is only done the first time the method is called for an executable, the result is
      * cached and reused on further calls.
      *
      * @return Canonical name of the encoding, or <CODE>null</CODE> if the test failed.
      */
     protected String getChasenPlatformEncoding( String chasenExecutable) {
+        String platformEncoding = PLATFORM_ENCODINGS.get( chasenExecutable);
         if (platformEncoding != null) {
 	        // return cached result
             return platformEncoding;
@@ -470,6 +502,7 @@ public class Chasen {
             Process chasen = new ProcessBuilder(new String[] { chasenExecutable, "-lf" }).start();
             InputStreamReader reader = CharacterEncodingDetector.getReader( chasen.getInputStream());
             platformEncoding = reader.getEncoding();
+            PLATFORM_ENCODINGS.put( chasenExecutable, platformEncoding);
 
             // skip all input lines
             char[] buf = new char[512];
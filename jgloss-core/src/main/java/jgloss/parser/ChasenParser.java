@@ -32,6 +32,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.Set;
+import java.util.TimerTask;
 
 import jgloss.dictionary.SearchException;
 import jgloss.util.UTF8ResourceBundleControl;
@@ -52,10 +53,6 @@ public class ChasenParser extends AbstractParser {
      */
     private final static String[] CHASEN_ARGS = new String[] { "-F", "%m\\t%H\\t%Tn\\t%Fn\\t%M\\t%Y1\\t%y1\\n" };
 
-    /**
-     * Chasen instance used to parse text.
-     */
-    private Chasen chasen;
     /**
      * Path to the chasen executable, or <code>null</code> if the default executable is to be used.
      */
@@ -87,7 +84,46 @@ public class ChasenParser extends AbstractParser {
 
     @Override
 	public List<TextAnnotation> parse( char[] text, int start, int length) throws SearchException {
+        ChasenPool pool = getChasenPool();
+        Chasen chasen;
+        try {
+            chasen = pool.borrow();
+        } catch (IOException ex) {
+            throw new SearchException( ex);
+        } catch (InterruptedException ex) {
+            throw new ParsingInterruptedException();
+        }
+
+        long startTime = System.nanoTime();
+        TimerTask timeout = pool.startTimeout( chasen);
+        try {
+            List<TextAnnotation> annotations = parse( chasen, text, start, length);
+            if (chasen.isBroken()) {
+                throw new SearchException( "ChaSen process failed or did not answer in time");
+            }
+            if (metrics != null) {
+                metrics.recordParse( length, annotations.size(), System.nanoTime() - startTime);
+            }
+            return annotations;
+        } catch (SearchException ex) {
+            if (metrics != null && !(ex instanceof ParsingInterruptedException)) {
+                metrics.recordFailure();
+            }
+            throw ex;
+        } finally {
+            timeout.cancel();
+            pool.release( chasen);
+        }
+    }
 
+    /**
+     * Returns the pool of the ChaSen processes used by this parser.
+     */
+    public ChasenPool getChasenPool() {
+        return ChasenPool.getPool( chasenExecutable, CHASEN_ARGS, '\t');
+    }
+
+    private List<TextAnnotation> parse( Chasen chasen, char[] text, int start, int length) throws SearchException {
         // the parsePosition cannot be correct since the text was converted to HTML!
         parsePosition = start;
 
@@ -95,20 +131,12 @@ public class ChasenParser extends AbstractParser {
         List<TextAnnotation> annotations = new ArrayList<TextAnnotation>( length/3);
 
         try {
-            if (chasen == null) {
-                // start chasen process
-                if (chasenExecutable != null) {
-	                chasen = new Chasen( chasenExecutable, CHASEN_ARGS, '\t');
-                } else {
-	                chasen = new Chasen( CHASEN_ARGS, '\t');
-                }
-            }
-
             Chasen.Result result = chasen.parse( text, start, length);
             while (parsePosition<=end && result.hasNext()) {
                 // test for outside interruption
                 if (Thread.interrupted()) {
-                    result.discard();
+                    // the remaining output can't be discarded reliably, start a new process
+                    chasen.kill();
                     throw new ParsingInterruptedException();
                 }
 
@@ -199,27 +227,15 @@ public class ChasenParser extends AbstractParser {
     }
 
     /**
-     * Ends the chasen application and clears the lookup cache.
+     * Clears the lookup cache. The ChaSen processes are kept in the {@link ChasenPool ChasenPool}
+     * for use by other parsers.
      */
     @Override
 	public void reset() {
-        if (chasen != null) {
-	        chasen.dispose();
-        }
-
         if (lookupCache != null) {
 	        lookupCache.clear();
         }
 
         super.reset();
     }
-
-    /**
-     * Overridden to terminate a chasen process if it is still running.
-     */
-    @Override
-    protected void finalize() throws Throwable {
-        reset();
-        super.finalize();
-    }
 } // class ChasenParser
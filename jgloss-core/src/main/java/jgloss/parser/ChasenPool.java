@@ -0,0 +1,239 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.parser;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pool of long-lived ChaSen processes started with the same parameters. Starting a ChaSen
+ * process and loading its dictionaries is expensive, so parsers borrow a process for
+ * the duration of a parse call and return it to the pool afterwards. The number of processes
+ * is limited to the number of available processors. Processes which failed or did not
+ * answer within the {@link #setTimeout(long) timeout} are terminated and replaced by a new
+ * process on the next borrow.
+ *
+ * @author Michael Koch
+ */
+public class ChasenPool {
+    private static final Logger LOGGER = Logger.getLogger(ChasenPool.class.getPackage().getName());
+
+    /**
+     * Default time in milliseconds a ChaSen process may take to parse a text.
+     */
+    public static final long DEFAULT_TIMEOUT = 30000;
+
+    /**
+     * Pools by executable, arguments and separator.
+     */
+    private static final Map<String, ChasenPool> POOLS = new HashMap<String, ChasenPool>();
+
+    /**
+     * Timer which terminates ChaSen processes which don't answer in time. Shared by all pools.
+     */
+    private static Timer watchdog;
+
+    private final String executable;
+    private final String[] args;
+    private final char separator;
+    private final int maxSize;
+
+    private final Deque<Chasen> idle = new ArrayDeque<Chasen>();
+    /**
+     * Number of idle and borrowed processes.
+     */
+    private int size;
+    private long timeout = DEFAULT_TIMEOUT;
+    private boolean disposed;
+
+    /**
+     * Returns the pool for ChaSen processes started with the given parameters.
+     *
+     * @param executable Path to the ChaSen executable, or <code>null</code> to use the
+     *        {@link Chasen#getDefaultExecutable() default executable}.
+     * @see Chasen#Chasen(String,String[],char)
+     */
+    public static ChasenPool getPool( String executable, String[] args, char separator) {
+        if (executable == null) {
+            executable = Chasen.getDefaultExecutable();
+        }
+
+        String key = executable + '\0' + Arrays.toString( args) + '\0' + separator;
+        synchronized (POOLS) {
+            ChasenPool pool = POOLS.get( key);
+            if (pool == null) {
+                pool = new ChasenPool( executable, args, separator,
+                                       Runtime.getRuntime().availableProcessors());
+                POOLS.put( key, pool);
+            }
+            return pool;
+        }
+    }
+
+    /**
+     * Terminates the idle processes of all pools. Processes which are currently borrowed are
+     * terminated when they are returned.
+     */
+    public static void disposeAll() {
+        synchronized (POOLS) {
+            for (ChasenPool pool : POOLS.values()) {
+                pool.dispose();
+            }
+            POOLS.clear();
+        }
+    }
+
+    ChasenPool( String executable, String[] args, char separator, int maxSize) {
+        this.executable = executable;
+        this.args = args.clone();
+        this.separator = separator;
+        this.maxSize = Math.max( 1, maxSize);
+    }
+
+    /**
+     * Sets the time in milliseconds a ChaSen process may take to parse a text before it is
+     * terminated.
+     */
+    public synchronized void setTimeout( long timeout) {
+        this.timeout = timeout;
+    }
+
+    public synchronized long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Borrows a ChaSen process from the pool. If all processes are in use, the method waits
+     * until a process is returned. The process must be given back with
+     * {@link #release(Chasen) release}.
+     *
+     * @exception IOException if no process is returned in time or a new process cannot be started.
+     * @exception InterruptedException if the thread is interrupted while waiting for a process.
+     */
+    public Chasen borrow() throws IOException, InterruptedException {
+        synchronized (this) {
+            long waitUntil = System.currentTimeMillis() + timeout;
+            while (!disposed && idle.isEmpty() && size >= maxSize) {
+                long wait = waitUntil - System.currentTimeMillis();
+                if (wait <= 0) {
+                    throw new IOException( "no ChaSen process available");
+                }
+                wait( wait);
+            }
+            if (disposed) {
+                throw new IOException( "ChaSen pool is disposed");
+            }
+
+            if (!idle.isEmpty()) {
+                return idle.removeFirst();
+            }
+            // reserve the slot, the process is started outside of the lock
+            size++;
+        }
+
+        boolean started = false;
+        try {
+            Chasen chasen = new Chasen( executable, args, separator);
+            started = true;
+            return chasen;
+        } finally {
+            if (!started) {
+                synchronized (this) {
+                    size--;
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a borrowed process to the pool. Processes which failed are terminated.
+     */
+    public void release( Chasen chasen) {
+        boolean dispose;
+        synchronized (this) {
+            dispose = chasen.isBroken() || disposed;
+            if (dispose) {
+                size--;
+            } else {
+                idle.addFirst( chasen);
+            }
+            notifyAll();
+        }
+
+        if (dispose) {
+            LOGGER.info( "terminating ChaSen process");
+            chasen.dispose();
+        }
+    }
+
+    /**
+     * Starts the timeout for a parse call. If the returned task is not cancelled before the
+     * {@link #getTimeout() timeout} expires, the ChaSen process is terminated.
+     */
+    public TimerTask startTimeout( final Chasen chasen) {
+        TimerTask task = new TimerTask() {
+            @Override
+            public void run() {
+                LOGGER.warning( "ChaSen did not answer in time");
+                chasen.kill();
+            }
+        };
+        synchronized (ChasenPool.class) {
+            if (watchdog == null) {
+                watchdog = new Timer( "ChaSen watchdog", true);
+            }
+            watchdog.schedule( task, getTimeout());
+        }
+        return task;
+    }
+
+    /**
+     * Terminates all idle processes. The pool cannot be used afterwards.
+     */
+    public void dispose() {
+        Chasen[] processes;
+        synchronized (this) {
+            processes = idle.toArray( new Chasen[idle.size()]);
+            idle.clear();
+            size -= processes.length;
+            // borrowed processes are terminated when they are released
+            disposed = true;
+        }
+        for (Chasen chasen : processes) {
+            try {
+                chasen.dispose();
+            } catch (RuntimeException ex) {
+                LOGGER.log( Level.WARNING, ex.getMessage(), ex);
+            }
+        }
+    }
+} // class ChasenPool
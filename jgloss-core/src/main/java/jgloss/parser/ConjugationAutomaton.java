@@ -0,0 +1,542 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.parser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.LineNumberReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Deterministic automaton which finds the conjugations whose inflected form is a prefix of a
+ * string. The automaton is compiled from the vconj conjugation definition file. Every state
+ * corresponds to a prefix of an inflected form. The transitions are stored in a table
+ * indexed by state and character, and every state stores the conjugations found when the
+ * automaton ends in the state, ordered from longest to shortest inflected form.
+ * <p>
+ * The compiled automaton is stored in the resource {@link #AUTOMATON_RESOURCE AUTOMATON_RESOURCE}
+ * and loaded at startup, which is much faster than compiling the definition file. The
+ * resource is generated during the build by the {@link #main(String[]) main} method, which
+ * the <code>process-classes</code> phase of the jgloss-core module runs.
+ * </p>
+ *
+ * @author Michael Koch
+ */
+class ConjugationAutomaton {
+    private static final Logger LOGGER = Logger.getLogger(ConjugationAutomaton.class.getPackage().getName());
+
+    /**
+     * Location of the file with the conjugation definition.
+     */
+    static final String VCONJ_RESOURCE = "/vconj.utf-8";
+
+    /**
+     * Location of the compiled automaton.
+     */
+    static final String AUTOMATON_RESOURCE = "/vconj.automaton";
+
+    private static final int MAGIC = 0x56436e6a; // VCnj in ASCII
+    private static final int VERSION = 1;
+
+    /**
+     * Labels of the conjugation types, used as resource keys for the type descriptions.
+     */
+    private final String[] labels;
+    /**
+     * Type descriptions from the definition file, used if there is no localized description.
+     */
+    private final String[] descriptions;
+    /**
+     * Inflected form, dictionary form and label index of the conjugations, in the order of
+     * the definition file.
+     */
+    private final String[] conjugatedForms;
+    private final String[] dictionaryForms;
+    private final int[] conjugationLabels;
+
+    /**
+     * Smallest character used in an inflected form.
+     */
+    private final char alphabetStart;
+    private final int alphabetSize;
+    /**
+     * Transition table. The successor of state <code>s</code> for character <code>c</code> is
+     * stored at <code>s*alphabetSize + c - alphabetStart</code>. Since no transition leads to
+     * the start state <code>0</code>, this value marks a missing transition.
+     */
+    private final char[] transitions;
+    /**
+     * Indexes of the conjugations found in every state. <code>null</code> for states which
+     * don't end an inflected form.
+     */
+    private final int[][] stateConjugations;
+
+    private ConjugationAutomaton( String[] labels, String[] descriptions, String[] conjugatedForms,
+                                  String[] dictionaryForms, int[] conjugationLabels, char alphabetStart,
+                                  int alphabetSize, char[] transitions, int[][] stateConjugations) {
+        this.labels = labels;
+        this.descriptions = descriptions;
+        this.conjugatedForms = conjugatedForms;
+        this.dictionaryForms = dictionaryForms;
+        this.conjugationLabels = conjugationLabels;
+        this.alphabetStart = alphabetStart;
+        this.alphabetSize = alphabetSize;
+        this.transitions = transitions;
+        this.stateConjugations = stateConjugations;
+    }
+
+    /**
+     * Loads the compiled automaton. If the resource does not exist, the automaton is compiled
+     * from the conjugation definition file.
+     */
+    static ConjugationAutomaton load() throws IOException {
+        InputStream compiled = ConjugationAutomaton.class.getResourceAsStream( AUTOMATON_RESOURCE);
+        if (compiled != null) {
+            try {
+                return read( compiled);
+            } finally {
+                compiled.close();
+            }
+        }
+
+        LOGGER.warning( "compiled conjugations not found, compiling " + VCONJ_RESOURCE);
+        return compile();
+    }
+
+    /**
+     * Compiles the automaton from the conjugation definition resource.
+     */
+    static ConjugationAutomaton compile() throws IOException {
+        Reader in = new InputStreamReader( ConjugationAutomaton.class.getResourceAsStream( VCONJ_RESOURCE),
+                                           "UTF-8");
+        try {
+            return compile( in);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Compiles the automaton from a conjugation definition in vconj format.
+     */
+    static ConjugationAutomaton compile( Reader vconj) throws IOException {
+        LineNumberReader in = new LineNumberReader( vconj);
+        String line = in.readLine();
+
+        // the vconj files begin with a mapping of abbreviations to longer type
+        // descriptions
+        List<String> labels = new ArrayList<String>();
+        List<String> descriptions = new ArrayList<String>();
+        List<String> conjugatedForms = new ArrayList<String>();
+        List<String> dictionaryForms = new ArrayList<String>();
+        List<Integer> conjugationLabels = new ArrayList<Integer>();
+
+        int mode = 0; // read labels
+        while ((line=in.readLine()) != null) {
+            if (line.charAt( 0) == '#') {
+                continue;
+            }
+            if (line.charAt( 0) == '$') { // start of conjugation part
+                mode = 1;
+                continue;
+            }
+            line = line.trim();
+            if (mode == 0) { // read labels
+                int i = line.indexOf( '\t');
+                if (i != -1) {
+                    labels.add( line.substring( 0, i).trim());
+                    descriptions.add( line.substring( i+1).trim());
+                }
+            }
+            else { // read conjugations
+                int i = line.indexOf( '\t');
+                if (i == -1) {
+                    continue;
+                }
+                String c = line.substring( 0, i); // conjugated form
+                line = line.substring( i+1);
+                i = line.indexOf( '\t');
+                if (i == -1) {
+                    continue;
+                }
+                conjugatedForms.add( c);
+                dictionaryForms.add( line.substring( 0, i));
+                // -1 if the label is not defined
+                conjugationLabels.add( labels.lastIndexOf( line.substring( i+1).trim()));
+            }
+        }
+
+        int[] labelIndexes = new int[conjugationLabels.size()];
+        for (int i=0; i<labelIndexes.length; i++) {
+            labelIndexes[i] = conjugationLabels.get( i);
+        }
+
+        return build( labels.toArray( new String[labels.size()]),
+                      descriptions.toArray( new String[descriptions.size()]),
+                      conjugatedForms.toArray( new String[conjugatedForms.size()]),
+                      dictionaryForms.toArray( new String[dictionaryForms.size()]), labelIndexes);
+    }
+
+    /**
+     * Builds the automaton for the conjugations.
+     */
+    private static ConjugationAutomaton build( String[] labels, String[] descriptions,
+                                               String[] conjugatedForms, String[] dictionaryForms,
+                                               int[] conjugationLabels) {
+        char alphabetStart = Character.MAX_VALUE;
+        char alphabetEnd = 0;
+        for (String form : conjugatedForms) {
+            for (int i=0; i<form.length(); i++) {
+                alphabetStart = (char) Math.min( alphabetStart, form.charAt( i));
+                alphabetEnd = (char) Math.max( alphabetEnd, form.charAt( i));
+            }
+        }
+        int alphabetSize = Math.max( 0, alphabetEnd - alphabetStart + 1);
+
+        // states are created in the order of their prefixes, so the parent of a state always has
+        // a smaller number
+        Map<String, Integer> states = new HashMap<String, Integer>();
+        List<Integer> parents = new ArrayList<Integer>();
+        List<List<Integer>> ownConjugations = new ArrayList<List<Integer>>();
+        states.put( "", 0);
+        parents.add( -1);
+        ownConjugations.add( null);
+        for (int c=0; c<conjugatedForms.length; c++) {
+            String form = conjugatedForms[c];
+            int state = 0;
+            for (int i=1; i<=form.length(); i++) {
+                String prefix = form.substring( 0, i);
+                Integer next = states.get( prefix);
+                if (next == null) {
+                    next = parents.size();
+                    states.put( prefix, next);
+                    parents.add( state);
+                    ownConjugations.add( null);
+                }
+                state = next;
+            }
+            if (ownConjugations.get( state) == null) {
+                ownConjugations.set( state, new ArrayList<Integer>( 2));
+            }
+            ownConjugations.get( state).add( c);
+        }
+
+        int stateCount = parents.size();
+        if (stateCount > Character.MAX_VALUE) {
+            throw new IllegalArgumentException( "too many conjugation states");
+        }
+        char[] transitions = new char[stateCount * alphabetSize];
+        for (Map.Entry<String, Integer> state : states.entrySet()) {
+            String prefix = state.getKey();
+            if (prefix.length() > 0) {
+                transitions[parents.get( state.getValue()) * alphabetSize +
+                            prefix.charAt( prefix.length()-1) - alphabetStart] = (char) state.getValue().intValue();
+            }
+        }
+
+        // Each state which ends an inflected form stores its own conjugations plus the conjugations
+        // of the nearest ancestor state with conjugations, unless a conjugation of the state has the
+        // same dictionary form.
+        int[][] stateConjugations = new int[stateCount][];
+        int[][] inherited = new int[stateCount][];
+        for (int s=1; s<stateCount; s++) {
+            int parent = parents.get( s);
+            int[] parentConjugations = stateConjugations[parent] != null ?
+                stateConjugations[parent] : inherited[parent];
+            List<Integer> own = ownConjugations.get( s);
+            if (own == null) {
+                inherited[s] = parentConjugations;
+                continue;
+            }
+
+            List<Integer> conjugations = new ArrayList<Integer>( own);
+            if (parentConjugations != null) {
+                for (int ancestor : parentConjugations) {
+                    boolean add = true;
+                    for (int c : own) {
+                        if (dictionaryForms[c].equals( dictionaryForms[ancestor])) {
+                            add = false;
+                            break;
+                        }
+                    }
+                    if (add) {
+                        conjugations.add( ancestor);
+                    }
+                }
+            }
+            stateConjugations[s] = toArray( conjugations);
+        }
+
+        return new ConjugationAutomaton( labels, descriptions, conjugatedForms, dictionaryForms,
+                                         conjugationLabels, alphabetStart, alphabetSize, transitions,
+                                         stateConjugations);
+    }
+
+    private static int[] toArray( List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i=0; i<array.length; i++) {
+            array[i] = list.get( i);
+        }
+        return array;
+    }
+
+    /**
+     * Reads a compiled automaton.
+     */
+    static ConjugationAutomaton read( InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream( new BufferedInputStream( in));
+        if (data.readInt() != MAGIC || data.readInt() != VERSION) {
+            throw new IOException( "not a compiled conjugation automaton");
+        }
+
+        String[] labels = new String[data.readInt()];
+        String[] descriptions = new String[labels.length];
+        for (int i=0; i<labels.length; i++) {
+            labels[i] = data.readUTF();
+            descriptions[i] = data.readUTF();
+        }
+
+        String[] conjugatedForms = new String[data.readInt()];
+        String[] dictionaryForms = new String[conjugatedForms.length];
+        int[] conjugationLabels = new int[conjugatedForms.length];
+        for (int i=0; i<conjugatedForms.length; i++) {
+            conjugatedForms[i] = data.readUTF();
+            dictionaryForms[i] = data.readUTF();
+            conjugationLabels[i] = data.readShort();
+        }
+
+        char alphabetStart = data.readChar();
+        int alphabetSize = data.readChar();
+        int stateCount = data.readChar();
+        char[] transitions = new char[stateCount * alphabetSize];
+        int transitionCount = data.readChar();
+        for (int i=0; i<transitionCount; i++) {
+            int index = data.readInt();
+            transitions[index] = data.readChar();
+        }
+
+        int[][] stateConjugations = new int[stateCount][];
+        for (int s=0; s<stateCount; s++) {
+            int count = data.readShort();
+            if (count > 0) {
+                stateConjugations[s] = new int[count];
+                for (int i=0; i<count; i++) {
+                    stateConjugations[s][i] = data.readShort();
+                }
+            }
+        }
+
+        return new ConjugationAutomaton( labels, descriptions, conjugatedForms, dictionaryForms,
+                                         conjugationLabels, alphabetStart, alphabetSize, transitions,
+                                         stateConjugations);
+    }
+
+    /**
+     * Writes the compiled automaton. Only the used transitions are stored.
+     */
+    void write( DataOutputStream out) throws IOException {
+        out.writeInt( MAGIC);
+        out.writeInt( VERSION);
+
+        out.writeInt( labels.length);
+        for (int i=0; i<labels.length; i++) {
+            out.writeUTF( labels[i]);
+            out.writeUTF( descriptions[i]);
+        }
+
+        out.writeInt( conjugatedForms.length);
+        for (int i=0; i<conjugatedForms.length; i++) {
+            out.writeUTF( conjugatedForms[i]);
+            out.writeUTF( dictionaryForms[i]);
+            out.writeShort( conjugationLabels[i]);
+        }
+
+        out.writeChar( alphabetStart);
+        out.writeChar( alphabetSize);
+        out.writeChar( stateConjugations.length);
+        int transitionCount = 0;
+        for (char transition : transitions) {
+            if (transition != 0) {
+                transitionCount++;
+            }
+        }
+        out.writeChar( transitionCount);
+        for (int i=0; i<transitions.length; i++) {
+            if (transitions[i] != 0) {
+                out.writeInt( i);
+                out.writeChar( transitions[i]);
+            }
+        }
+
+        for (int[] conjugations : stateConjugations) {
+            if (conjugations == null) {
+                out.writeShort( 0);
+            } else {
+                out.writeShort( conjugations.length);
+                for (int c : conjugations) {
+                    out.writeShort( c);
+                }
+            }
+        }
+    }
+
+    int getConjugationCount() {
+        return conjugatedForms.length;
+    }
+
+    String getConjugatedForm( int conjugation) {
+        return conjugatedForms[conjugation];
+    }
+
+    String getDictionaryForm( int conjugation) {
+        return dictionaryForms[conjugation];
+    }
+
+    /**
+     * Returns the label of the conjugation type, or <code>null</code> if the type was not defined.
+     */
+    String getLabel( int conjugation) {
+        int label = conjugationLabels[conjugation];
+        return label >= 0 ? labels[label] : null;
+    }
+
+    /**
+     * Returns the type description from the definition file.
+     */
+    String getDescription( int conjugation) {
+        int label = conjugationLabels[conjugation];
+        return label >= 0 ? descriptions[label] : null;
+    }
+
+    int getStateCount() {
+        return stateConjugations.length;
+    }
+
+    /**
+     * Returns the indexes of the conjugations found in the state, or <code>null</code>.
+     */
+    int[] getConjugations( int state) {
+        return stateConjugations[state];
+    }
+
+    /**
+     * Returns the successor of the state for the character, or <code>0</code> if there is no
+     * transition.
+     */
+    int next( int state, char c) {
+        int index = c - alphabetStart;
+        if (index < 0 || index >= alphabetSize) {
+            return 0;
+        }
+        return transitions[state * alphabetSize + index];
+    }
+
+    /**
+     * Returns the last state with conjugations reached while reading the text, or <code>0</code>
+     * if no such state is reached.
+     */
+    int match( CharSequence text, int start, int end) {
+        int state = 0;
+        int match = 0;
+        for (int i=start; i<end; i++) {
+            state = next( state, text.charAt( i));
+            if (state == 0) {
+                break;
+            }
+            if (stateConjugations[state] != null) {
+                match = state;
+            }
+        }
+        return match;
+    }
+
+    /**
+     * Returns the last state with conjugations reached while reading the text, or <code>0</code>
+     * if no such state is reached.
+     */
+    int match( char[] text, int start, int end) {
+        int state = 0;
+        int match = 0;
+        for (int i=start; i<end; i++) {
+            state = next( state, text[i]);
+            if (state == 0) {
+                break;
+            }
+            if (stateConjugations[state] != null) {
+                match = state;
+            }
+        }
+        return match;
+    }
+
+    @Override
+    public boolean equals( Object o) {
+        if (!(o instanceof ConjugationAutomaton)) {
+            return false;
+        }
+        ConjugationAutomaton other = (ConjugationAutomaton) o;
+        return Arrays.equals( labels, other.labels) && Arrays.equals( descriptions, other.descriptions) &&
+            Arrays.equals( conjugatedForms, other.conjugatedForms) &&
+            Arrays.equals( dictionaryForms, other.dictionaryForms) &&
+            Arrays.equals( conjugationLabels, other.conjugationLabels) &&
+            alphabetStart == other.alphabetStart && alphabetSize == other.alphabetSize &&
+            Arrays.equals( transitions, other.transitions) &&
+            Arrays.deepEquals( stateConjugations, other.stateConjugations);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode( transitions);
+    }
+
+    /**
+     * Compiles the conjugation definition resource and writes the automaton to a file.
+     *
+     * @param args Path to the file to which the automaton is written.
+     */
+    public static void main( String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println( "usage: ConjugationAutomaton <output file>");
+            System.exit( 1);
+        }
+
+        DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( args[0])));
+        try {
+            compile().write( out);
+        } finally {
+            out.close();
+        }
+    }
+} // class ConjugationAutomaton
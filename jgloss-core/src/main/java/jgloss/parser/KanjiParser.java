@@ -23,14 +23,13 @@
 package jgloss.parser;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.Set;
 
 import jgloss.dictionary.Dictionary;
+import jgloss.dictionary.DictionaryUtils;
 import jgloss.dictionary.ExpressionSearchModes;
 import jgloss.dictionary.SearchException;
 import jgloss.dictionary.SearchFieldSelection;
@@ -57,9 +56,15 @@ import jgloss.util.UTF8ResourceBundleControl;
 public class KanjiParser extends AbstractParser {
     private final Dictionary[] dictionaries;
     /**
-     * Cache which stores previously looked-up words.
+     * Cache which stores previously looked-up words. May be <code>null</code> if lookups are
+     * not cached.
      */
-    private Map<String, Boolean> lookupCache;
+    private final LookupCache lookupCache;
+    /**
+     * <code>true</code> if the lookup cache was created by this parser. A shared cache is
+     * not cleared by {@link #reset() reset}.
+     */
+    private final boolean ownsLookupCache;
     /**
      * Number of dictionary lookups so far.
      */
@@ -69,7 +74,6 @@ public class KanjiParser extends AbstractParser {
      */
     private int cacheHits = 0;
     private Object[] searchParameters;
-    private StringBuilder searchKey;
 
     private final static String PARSER_NAME =
         ResourceBundle.getBundle( "messages-parser", new UTF8ResourceBundleControl())
@@ -109,11 +113,34 @@ public class KanjiParser extends AbstractParser {
      */
     public KanjiParser( Dictionary[] dictionaries, Set<String> exclusions,
                         boolean cacheLookups, boolean ignoreNewlines, boolean firstOccurrenceOnly) {
+        this( dictionaries, exclusions, cacheLookups ? new LRULookupCache() : null, true,
+              ignoreNewlines, firstOccurrenceOnly);
+    }
+
+    /**
+     * Creates a new parser which will use the given dictionaries and store lookup results
+     * in a cache which may be shared with other parsers. The shared cache is not
+     * cleared when the parser is {@link #reset() reset}. If the cache is used by parsers in several
+     * threads, it must be thread safe.
+     *
+     * @param dictionaries The dictionaries used for word lookups.
+     * @param exclusions Set of words which should not be annotated. May be <CODE>null</CODE>.
+     * @param lookupCache Cache for dictionary lookups, or <CODE>null</CODE> to disable caching.
+     * @param ignoreNewlines If this is <CODE>true</CODE>, 0x0a and 0x0d characters in the parsed text
+     *                       will be ignored and the character immediately before and after the newline
+     *                       will be treated as if forming a single word.
+     */
+    public KanjiParser( Dictionary[] dictionaries, Set<String> exclusions, LookupCache lookupCache,
+                        boolean ignoreNewlines, boolean firstOccurrenceOnly) {
+        this( dictionaries, exclusions, lookupCache, false, ignoreNewlines, firstOccurrenceOnly);
+    }
+
+    private KanjiParser( Dictionary[] dictionaries, Set<String> exclusions, LookupCache lookupCache,
+                         boolean ownsLookupCache, boolean ignoreNewlines, boolean firstOccurrenceOnly) {
         super( exclusions, ignoreNewlines, firstOccurrenceOnly);
         this.dictionaries = dictionaries;
-        if (cacheLookups) {
-	        lookupCache = new HashMap<String, Boolean>( 5000);
-        }
+        this.lookupCache = lookupCache;
+        this.ownsLookupCache = ownsLookupCache;
     }
 
     /**
@@ -126,6 +153,28 @@ public class KanjiParser extends AbstractParser {
      */
     @Override
 	public List<TextAnnotation> parse( char[] text, int start, int length) throws SearchException {
+        if (metrics == null) {
+            return parseText( text, start, length);
+        }
+
+        long startTime = System.nanoTime();
+        int startLookups = lookups;
+        int startCacheHits = cacheHits;
+        try {
+            List<TextAnnotation> out = parseText( text, start, length);
+            metrics.recordParse( length, out.size(), System.nanoTime() - startTime);
+            return out;
+        } catch (SearchException ex) {
+            if (!(ex instanceof ParsingInterruptedException)) {
+                metrics.recordFailure();
+            }
+            throw ex;
+        } finally {
+            metrics.recordLookups( lookups - startLookups, cacheHits - startCacheHits);
+        }
+    }
+
+    private List<TextAnnotation> parseText( char[] text, int start, int length) throws SearchException {
         int end = start + length;
         List<TextAnnotation> out = new ArrayList<TextAnnotation>( length/3);
 
@@ -212,7 +261,7 @@ public class KanjiParser extends AbstractParser {
             case IN_INFLECTION: // currently in possible inflection
                 if (ub != Character.UnicodeBlock.HIRAGANA) {
                     boolean result = createAnnotations( wordStart, word.toString(),
-                                                        inflection.toString(), !compverb, !compverb, out);
+                                                        inflection, !compverb, !compverb, out);
                     // the tests for the setting of the compverb flag guarantee that the
                     // lookup of a compverb will always happen IN_INFLECTION, and that reading is empty
                     if (compverb) {
@@ -255,7 +304,7 @@ public class KanjiParser extends AbstractParser {
 	        createAnnotations( wordStart, word.toString(), true, true, out);
         } else if (mode == IN_INFLECTION) {
             boolean result = createAnnotations( wordStart, word.toString(),
-                                                inflection.toString(), !compverb, !compverb, out);
+                                                inflection, !compverb, !compverb, out);
             if (compverb) {
                 if (!result) {
                     // try first part of compverb
@@ -263,7 +312,7 @@ public class KanjiParser extends AbstractParser {
                                        word.substring( 1, 2), false, false, out);
                     // try last part
                     createAnnotations( wordStart+2, word.substring( 2, 3),
-                                       inflection.toString(), false, false, out);
+                                       inflection, false, false, out);
                 }
             }
         }
@@ -307,7 +356,7 @@ public class KanjiParser extends AbstractParser {
      * @exception SearchException If a dictionary lookup failed.
      */
     private boolean createAnnotations( int wordStart, String word,
-                                       String inflection, boolean tryPrefixes,
+                                       CharSequence inflection, boolean tryPrefixes,
                                        boolean trySuffixes, List<TextAnnotation> annotations) throws SearchException {
         boolean result = false;
 
@@ -412,20 +461,12 @@ public class KanjiParser extends AbstractParser {
      */
     private boolean hasMatch( Dictionary d, String word) throws SearchException {
         lookups++;
-        if (searchKey == null) {
-	        searchKey = new StringBuilder( 128);
-        }
-        searchKey.setLength( 0);
-        searchKey.append( word);
-        searchKey.append( ':');
-        searchKey.append( d.getName());
-        String key = searchKey.toString();
-
-        if (lookupCache!=null &&
-            lookupCache.containsKey( key)) {
-            boolean result = lookupCache.get( key).booleanValue();
-            cacheHits++;
-            return result;
+        if (lookupCache != null) {
+            Boolean cached = lookupCache.get( d, word);
+            if (cached != null) {
+                cacheHits++;
+                return cached.booleanValue();
+            }
         }
 
         // if we get here, it was not in the cache
@@ -437,22 +478,22 @@ public class KanjiParser extends AbstractParser {
         searchParameters[0] = word;
         boolean result = false;
         try {
-            result = d.search( ExpressionSearchModes.EXACT, searchParameters).hasNext();
+            result = DictionaryUtils.hasMatch( d, ExpressionSearchModes.EXACT, searchParameters);
         } catch (UnsupportedSearchModeException ex) {}
 
         if (lookupCache != null) {
-            lookupCache.put( key, Boolean.valueOf( result));
+            lookupCache.put( d, word, result);
         }
 
         return result;
     }
 
     /**
-     * Clears the lookup cache.
+     * Clears the lookup cache if it is not shared with other parsers.
      */
     @Override
 	public void reset() {
-        if (lookupCache != null) {
+        if (lookupCache != null && ownsLookupCache) {
 	        lookupCache.clear();
         }
 
@@ -474,6 +515,12 @@ public class KanjiParser extends AbstractParser {
      * @return The number of lookup cache hits.
      */
     public int getCacheHits() { return cacheHits; }
+    /**
+     * Returns the cache used for dictionary lookups.
+     *
+     * @return The lookup cache, or <code>null</code> if lookups are not cached.
+     */
+    public LookupCache getLookupCache() { return lookupCache; }
 
     @Override
 	public String getName() { return PARSER_NAME; }
@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.parser;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jgloss.dictionary.Dictionary;
+
+/**
+ * Thread safe lookup cache with a bounded size, which evicts the least recently used entries.
+ * <p>
+ * The cache is split into a fixed number of segments, each of which is an access-ordered
+ * {@link LinkedHashMap} guarded by its own lock. Concurrent lookups of different words will
+ * therefore usually not contend for the same lock. Eviction is done per segment, so the
+ * entry evicted is the least recently used entry of its segment, which approximates
+ * global LRU order closely enough for a cache of dictionary lookups.
+ * </p><p>
+ * Dictionaries are compared by identity. Since the dictionary is part of the key, entries for
+ * a dictionary which was disposed will remain in the cache until they are evicted or the
+ * cache is cleared.
+ * </p>
+ *
+ * @author Michael Koch
+ */
+public class LRULookupCache implements LookupCache {
+    /**
+     * Default maximum number of entries of a lookup cache.
+     */
+    public static final int DEFAULT_MAX_SIZE = 5000;
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments;
+    private final int maxSize;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Creates a lookup cache which stores at most {@link #DEFAULT_MAX_SIZE} entries.
+     */
+    public LRULookupCache() {
+        this( DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Creates a lookup cache which stores at most <code>maxSize</code> entries.
+     *
+     * @throws IllegalArgumentException if <code>maxSize</code> is not positive.
+     */
+    public LRULookupCache( int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException( "maximum size must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+
+        // use fewer segments for very small caches so that each segment can hold one entry
+        int segmentCount = Math.min( SEGMENTS, maxSize);
+        segments = new Segment[segmentCount];
+        for ( int i=0; i<segmentCount; i++) {
+            // distribute the remainder so that the segment capacities add up to maxSize
+            segments[i] = new Segment( maxSize/segmentCount + (i < maxSize%segmentCount ? 1 : 0));
+        }
+    }
+
+    @Override
+    public Boolean get( Dictionary dictionary, String word) {
+        Key key = new Key( dictionary, word);
+        Boolean result = segmentFor( key).get( key);
+        if (result != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return result;
+    }
+
+    @Override
+    public void put( Dictionary dictionary, String word, boolean found) {
+        Key key = new Key( dictionary, word);
+        segmentFor( key).put( key, Boolean.valueOf( found));
+    }
+
+    @Override
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Returns the maximum number of entries stored in this cache.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    @Override
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    @Override
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    private Segment segmentFor( Key key) {
+        // spread the hash bits, the low bits of String hash codes are not well distributed
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[(h & 0x7fffffff) % segments.length];
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " [size=" + size() + ", maxSize=" + maxSize +
+            ", hits=" + getHitCount() + ", misses=" + getMissCount() +
+            ", evictions=" + getEvictionCount() + "]";
+    }
+
+    /**
+     * Part of the cache, guarded by its own lock.
+     */
+    private class Segment {
+        private final Map<Key, Boolean> entries;
+
+        Segment( final int capacity) {
+            entries = new LinkedHashMap<Key, Boolean>( 16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry( Map.Entry<Key, Boolean> eldest) {
+                    if (size() > capacity) {
+                        evictions.incrementAndGet();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        synchronized Boolean get( Key key) {
+            return entries.get( key);
+        }
+
+        synchronized void put( Key key, Boolean value) {
+            entries.put( key, value);
+        }
+
+        synchronized void clear() {
+            entries.clear();
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Cache key consisting of a dictionary, compared by identity, and a word.
+     */
+    private static class Key {
+        private final Dictionary dictionary;
+        private final String word;
+        private final int hash;
+
+        Key( Dictionary dictionary, String word) {
+            this.dictionary = dictionary;
+            this.word = word;
+            this.hash = 31 * System.identityHashCode( dictionary) + word.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals( Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash && dictionary == other.dictionary && word.equals( other.word);
+        }
+    }
+} // class LRULookupCache
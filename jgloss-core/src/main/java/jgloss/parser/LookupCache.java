@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.parser;
+
+import jgloss.dictionary.Dictionary;
+
+/**
+ * Cache for the results of dictionary lookups made by a {@link KanjiParser}. A lookup cache
+ * may be shared between several parsers, which is useful if many short texts are annotated
+ * with the same set of dictionaries, as done by the JGloss servlet. Implementations which
+ * are shared must be thread safe.
+ *
+ * @author Michael Koch
+ */
+public interface LookupCache {
+    /**
+     * Returns the cached result of a lookup of the word in the dictionary.
+     *
+     * @return <code>Boolean.TRUE</code> if the word was found in the dictionary,
+     *         <code>Boolean.FALSE</code> if it was not found, or <code>null</code> if
+     *         the lookup result is not cached.
+     */
+    Boolean get( Dictionary dictionary, String word);
+
+    /**
+     * Stores the result of a lookup of the word in the dictionary. The cache may evict
+     * other entries to make room for the new result.
+     */
+    void put( Dictionary dictionary, String word, boolean found);
+
+    /**
+     * Removes all cached lookup results.
+     */
+    void clear();
+
+    /**
+     * Returns the number of lookup results currently stored in the cache.
+     */
+    int size();
+
+    /**
+     * Returns the number of calls to {@link #get(Dictionary,String) get} which returned a
+     * cached result.
+     */
+    long getHitCount();
+
+    /**
+     * Returns the number of calls to {@link #get(Dictionary,String) get} which returned
+     * <code>null</code>.
+     */
+    long getMissCount();
+
+    /**
+     * Returns the number of lookup results which were removed from the cache to make room
+     * for new entries.
+     */
+    long getEvictionCount();
+} // interface LookupCache
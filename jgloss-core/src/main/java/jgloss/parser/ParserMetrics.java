@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.parser;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jgloss.util.LatencyHistogram;
+
+/**
+ * Runtime statistics of text parsers: parse latency and throughput, and the hit ratio of the
+ * lookup cache. The statistics are recorded by the parsers to which the metrics object was
+ * passed with {@link AbstractParser#setMetrics(ParserMetrics) setMetrics}. Since parsers are
+ * not thread safe, several parsers working in different threads may share one metrics object.
+ *
+ * @author Michael Koch
+ */
+public class ParserMetrics implements ParserMetricsMXBean {
+    private final LatencyHistogram parses = new LatencyHistogram();
+
+    private final AtomicLong failures = new AtomicLong();
+
+    private final AtomicLong characters = new AtomicLong();
+
+    private final AtomicLong annotations = new AtomicLong();
+
+    private final AtomicLong lookups = new AtomicLong();
+
+    private final AtomicLong cacheHits = new AtomicLong();
+
+    void recordParse( int characters, int annotations, long nanos) {
+        parses.record( nanos);
+        this.characters.addAndGet( characters);
+        this.annotations.addAndGet( annotations);
+    }
+
+    void recordFailure() {
+        failures.incrementAndGet();
+    }
+
+    void recordLookups( long lookups, long cacheHits) {
+        this.lookups.addAndGet( lookups);
+        this.cacheHits.addAndGet( cacheHits);
+    }
+
+    @Override
+    public long getParseCount() {
+        return parses.getCount();
+    }
+
+    @Override
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+    @Override
+    public long getCharactersParsed() {
+        return characters.get();
+    }
+
+    @Override
+    public long getAnnotationsCreated() {
+        return annotations.get();
+    }
+
+    @Override
+    public double getCharactersPerSecond() {
+        long nanos = parses.getTotal( TimeUnit.NANOSECONDS);
+        return nanos > 0 ? characters.get() * 1e9 / nanos : 0;
+    }
+
+    @Override
+    public double getMeanParseMillis() {
+        return parses.getMean( TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public double getPercentile99ParseMillis() {
+        return parses.getPercentile( 0.99, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public double getMaxParseMillis() {
+        return parses.getMax( TimeUnit.NANOSECONDS) / 1e6;
+    }
+
+    @Override
+    public long getLookupCount() {
+        return lookups.get();
+    }
+
+    @Override
+    public long getCacheHitCount() {
+        return cacheHits.get();
+    }
+
+    @Override
+    public double getCacheHitRatio() {
+        long lookupCount = lookups.get();
+        return lookupCount > 0 ? (double) cacheHits.get() / lookupCount : 0;
+    }
+
+    @Override
+    public void reset() {
+        parses.reset();
+        failures.set( 0);
+        characters.set( 0);
+        annotations.set( 0);
+        lookups.set( 0);
+        cacheHits.set( 0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format( Locale.ENGLISH,
+                              "parses=%d, failures=%d, characters=%d, annotations=%d, %.0f chars/s, " +
+                              "mean=%.3fms, p99=%.3fms, max=%.3fms, lookups=%d, cache hit ratio=%.2f",
+                              getParseCount(), getFailureCount(), getCharactersParsed(),
+                              getAnnotationsCreated(), getCharactersPerSecond(), getMeanParseMillis(),
+                              getPercentile99ParseMillis(), getMaxParseMillis(), getLookupCount(),
+                              getCacheHitRatio());
+    }
+} // class ParserMetrics
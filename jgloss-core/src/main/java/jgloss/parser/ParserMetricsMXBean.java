@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.parser;
+
+/**
+ * Management interface of {@link ParserMetrics}. Durations are reported in milliseconds.
+ *
+ * @author Michael Koch
+ */
+public interface ParserMetricsMXBean {
+    /**
+     * Returns the number of texts parsed.
+     */
+    long getParseCount();
+
+    /**
+     * Returns the number of parse calls which failed with an exception other than an interruption.
+     */
+    long getFailureCount();
+
+    /**
+     * Returns the number of characters in all parsed texts.
+     */
+    long getCharactersParsed();
+
+    /**
+     * Returns the number of annotations created for all parsed texts.
+     */
+    long getAnnotationsCreated();
+
+    /**
+     * Returns the number of characters parsed per second of parse time.
+     */
+    double getCharactersPerSecond();
+
+    /**
+     * Returns the mean duration of a parse call.
+     */
+    double getMeanParseMillis();
+
+    /**
+     * Returns the duration which 99% of the parse calls did not exceed.
+     */
+    double getPercentile99ParseMillis();
+
+    /**
+     * Returns the duration of the longest parse call.
+     */
+    double getMaxParseMillis();
+
+    /**
+     * Returns the number of dictionary lookups made by the parser.
+     */
+    long getLookupCount();
+
+    /**
+     * Returns the number of dictionary lookups answered from the lookup cache.
+     */
+    long getCacheHitCount();
+
+    /**
+     * Returns the fraction of dictionary lookups answered from the lookup cache, or 0 if no
+     * lookups were made.
+     */
+    double getCacheHitRatio();
+
+    /**
+     * Removes all recorded statistics.
+     */
+    void reset();
+} // interface ParserMetricsMXBean
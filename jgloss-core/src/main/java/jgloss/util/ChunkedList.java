@@ -0,0 +1,256 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.util;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * List which stores its elements in a sequence of small array lists. Inserting or removing an
+ * element only moves the elements of one chunk, so the cost of a modification depends on the
+ * chunk size instead of the list size. Access by index is logarithmic in the number of chunks.
+ * <p>
+ * The list is not thread safe.
+ * </p>
+ *
+ * @author Michael Koch
+ */
+public class ChunkedList<E> extends AbstractList<E> implements RandomAccess {
+    /**
+     * Default number of elements in a chunk.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 256;
+
+    private final int chunkSize;
+
+    private final List<ArrayList<E>> chunks = new ArrayList<ArrayList<E>>();
+
+    /**
+     * Index of the first element of each chunk. Only the entries below {@link #validStarts}
+     * are up to date.
+     */
+    private int[] chunkStarts = new int[16];
+
+    private int validStarts;
+
+    private int size;
+
+    public ChunkedList() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates an empty list.
+     *
+     * @param chunkSize Number of elements in a chunk. Chunks are split when they grow to twice this size.
+     */
+    public ChunkedList(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunk size must be positive: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Creates a list containing the elements of the collection, in iteration order.
+     */
+    public ChunkedList(Collection<? extends E> elements) {
+        this(DEFAULT_CHUNK_SIZE);
+        addAll(elements);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public E get(int index) {
+        checkIndex(index, size);
+        int chunk = chunkOf(index);
+        return chunks.get(chunk).get(index - chunkStarts[chunk]);
+    }
+
+    @Override
+    public E set(int index, E element) {
+        checkIndex(index, size);
+        int chunk = chunkOf(index);
+        return chunks.get(chunk).set(index - chunkStarts[chunk], element);
+    }
+
+    @Override
+    public void add(int index, E element) {
+        checkIndex(index, size + 1);
+
+        if (chunks.isEmpty()) {
+            chunks.add(new ArrayList<E>(chunkSize));
+        }
+
+        int chunk;
+        if (index == size) {
+            // appending is the common case when the list is filled
+            chunk = chunks.size() - 1;
+            updateChunkStarts(chunk);
+        } else {
+            chunk = chunkOf(index);
+        }
+
+        ArrayList<E> elements = chunks.get(chunk);
+        elements.add(index - chunkStarts[chunk], element);
+        size++;
+        modCount++;
+
+        if (elements.size() >= 2 * chunkSize) {
+            // split the chunk in half
+            List<E> tail = elements.subList(chunkSize, elements.size());
+            ArrayList<E> next = new ArrayList<E>(Math.max(chunkSize, tail.size() + 1));
+            next.addAll(tail);
+            tail.clear();
+            chunks.add(chunk + 1, next);
+        }
+        invalidateChunkStarts(chunk + 1);
+    }
+
+    @Override
+    public E remove(int index) {
+        checkIndex(index, size);
+        int chunk = chunkOf(index);
+        ArrayList<E> elements = chunks.get(chunk);
+        E removed = elements.remove(index - chunkStarts[chunk]);
+        size--;
+        modCount++;
+
+        if (elements.isEmpty()) {
+            chunks.remove(chunk);
+        } else if (elements.size() < chunkSize / 4 && chunk + 1 < chunks.size() &&
+                   elements.size() + chunks.get(chunk + 1).size() < 2 * chunkSize) {
+            // merge small chunks to keep the number of chunks proportional to the size
+            elements.addAll(chunks.remove(chunk + 1));
+        }
+        invalidateChunkStarts(chunk + 1);
+
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        chunks.clear();
+        validStarts = 0;
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Searches the element in the list, which must be sorted according to the comparator.
+     * This is faster than {@link Collections#binarySearch(List,Object,Comparator) Collections.binarySearch},
+     * since the chunk is determined first and the elements in the chunk are accessed directly.
+     *
+     * @return Index of an element which compares equal to the key, or <code>(-(insertion point) - 1)</code>
+     *         as defined by {@link Collections#binarySearch(List,Object,Comparator) Collections.binarySearch}.
+     */
+    public int binarySearch(E key, Comparator<? super E> comparator) {
+        if (size == 0) {
+            return -1;
+        }
+
+        // find the first chunk whose last element is not smaller than the key
+        int low = 0;
+        int high = chunks.size() - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            ArrayList<E> elements = chunks.get(mid);
+            if (comparator.compare(elements.get(elements.size() - 1), key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        updateChunkStarts(low);
+        int result = Collections.binarySearch(chunks.get(low), key, comparator);
+        if (result >= 0) {
+            return chunkStarts[low] + result;
+        } else {
+            return -(chunkStarts[low] + (-result - 1)) - 1;
+        }
+    }
+
+    /**
+     * Returns the index of the chunk which contains the element with the given index.
+     * The start of the returned chunk is up to date.
+     */
+    private int chunkOf(int index) {
+        // The chunk starts are only recomputed as far as needed. Modifications usually happen
+        // in the region of the list which was accessed last, so most of the starts stay valid.
+        updateChunkStarts(0);
+        while (validStarts < chunks.size() &&
+               chunkStarts[validStarts - 1] + chunks.get(validStarts - 1).size() <= index) {
+            updateChunkStarts(validStarts);
+        }
+
+        int low = 0;
+        int high = validStarts - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (chunkStarts[mid] <= index) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Makes sure that the start offsets of the chunks up to and including the given chunk are valid.
+     */
+    private void updateChunkStarts(int chunk) {
+        if (chunk < validStarts) {
+            return;
+        }
+        if (chunkStarts.length < chunks.size()) {
+            int[] newStarts = new int[Math.max(chunks.size(), chunkStarts.length * 2)];
+            System.arraycopy(chunkStarts, 0, newStarts, 0, validStarts);
+            chunkStarts = newStarts;
+        }
+        for (int i=validStarts; i<=chunk; i++) {
+            chunkStarts[i] = i == 0 ? 0 : chunkStarts[i - 1] + chunks.get(i - 1).size();
+        }
+        validStarts = chunk + 1;
+    }
+
+    private void invalidateChunkStarts(int firstInvalidChunk) {
+        validStarts = Math.min(validStarts, firstInvalidChunk);
+    }
+
+    private void checkIndex(int index, int limit) {
+        if (index < 0 || index >= limit) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        }
+    }
+} // class ChunkedList
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.Hashtable;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Static utility methods for registering management beans with the platform MBean server.
+ * Registration failures are logged and do not affect the application.
+ */
+public class JMXTools {
+    private static final Logger LOGGER = Logger.getLogger(JMXTools.class.getPackage().getName());
+
+    /**
+     * Domain of the object names of all JGloss management beans.
+     */
+    public static final String DOMAIN = "jgloss";
+
+    /**
+     * Registers a management bean with the platform MBean server under the object name
+     * <code>jgloss:type=<i>type</i>,name=<i>name</i></code>. If the name is already in use, for example
+     * because the application is deployed twice in the same servlet container, a counter is appended
+     * to the name.
+     *
+     * @return The object name of the registered bean, or <code>null</code> if registration failed.
+     */
+    public static ObjectName register(Object mbean, String type, String name) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (int i=1; ; i++) {
+                ObjectName objectName = new ObjectName(DOMAIN, createKeys(type, i==1 ? name : name + " " + i));
+                try {
+                    server.registerMBean(mbean, objectName);
+                    return objectName;
+                } catch (InstanceAlreadyExistsException ex) {
+                    // try next name
+                }
+            }
+        } catch (JMException ex) {
+            LOGGER.log(Level.WARNING, "failed to register management bean " + type + " " + name, ex);
+        } catch (SecurityException ex) {
+            LOGGER.log(Level.WARNING, "not allowed to register management bean " + type + " " + name, ex);
+        }
+
+        return null;
+    }
+
+    private static Hashtable<String, String> createKeys(String type, String name) {
+        Hashtable<String, String> keys = new Hashtable<String, String>();
+        keys.put("type", type);
+        keys.put("name", ObjectName.quote(name));
+        return keys;
+    }
+
+    /**
+     * Removes a management bean registered with {@link #register(Object,String,String) register}
+     * from the platform MBean server.
+     *
+     * @param objectName Name of the bean. If <code>null</code>, the method does nothing.
+     */
+    public static void unregister(ObjectName objectName) {
+        if (objectName == null) {
+            return;
+        }
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException ex) {
+            LOGGER.log(Level.WARNING, "failed to unregister management bean " + objectName, ex);
+        } catch (SecurityException ex) {
+            LOGGER.log(Level.WARNING, "not allowed to unregister management bean " + objectName, ex);
+        }
+    }
+
+    private JMXTools() {
+    }
+}
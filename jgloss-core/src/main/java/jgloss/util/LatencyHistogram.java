@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.util;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread safe histogram of durations, used to record the latency of dictionary searches and
+ * parser runs. Recording a value does not lock and does not allocate.
+ * <p>
+ * Durations are counted in buckets with a relative width of 1/8, so percentiles are exact to
+ * within 12.5%. The total, minimum and maximum are exact.
+ * </p>
+ *
+ * @author Michael Koch
+ */
+public class LatencyHistogram {
+    /**
+     * Number of buckets per power of two, as power of two.
+     */
+    private static final int SUB_BUCKET_BITS = 3;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray( bucketIndex( Long.MAX_VALUE) + 1);
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final AtomicLong total = new AtomicLong();
+
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos Duration in nanoseconds. Negative durations, which can be measured if the
+     *        system timer is adjusted, are recorded as 0.
+     */
+    public void record( long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+
+        buckets.incrementAndGet( bucketIndex( nanos));
+        count.incrementAndGet();
+        total.addAndGet( nanos);
+
+        long currentMax;
+        while (nanos > (currentMax = max.get())) {
+            if (max.compareAndSet( currentMax, nanos)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of recorded durations.
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Returns the sum of all recorded durations in the given unit.
+     */
+    public long getTotal( TimeUnit unit) {
+        return unit.convert( total.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the mean of the recorded durations in the given unit, or 0 if nothing was recorded.
+     */
+    public double getMean( TimeUnit unit) {
+        long c = count.get();
+        return c > 0 ? toUnit( (double) total.get() / c, unit) : 0;
+    }
+
+    /**
+     * Returns the longest recorded duration in the given unit.
+     */
+    public long getMax( TimeUnit unit) {
+        return unit.convert( max.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns an upper bound of the duration below which the given fraction of the recorded
+     * durations lie.
+     *
+     * @param fraction Fraction of the durations, from 0 to 1. For example, 0.99 returns
+     *        the 99th percentile.
+     * @return The percentile in the given unit, or 0 if nothing was recorded.
+     */
+    public double getPercentile( double fraction, TimeUnit unit) {
+        if (fraction < 0 || fraction > 1) {
+            throw new IllegalArgumentException( "fraction must be between 0 and 1: " + fraction);
+        }
+
+        long c = count.get();
+        if (c == 0) {
+            return 0;
+        }
+
+        // durations recorded concurrently may already be counted but not yet be in a bucket,
+        // in which case the maximum is returned
+        long threshold = Math.max( 1, (long) Math.ceil( c * fraction));
+        long seen = 0;
+        for ( int i=0; i<buckets.length(); i++) {
+            seen += buckets.get( i);
+            if (seen >= threshold) {
+                return toUnit( Math.min( bucketUpperBound( i), max.get()), unit);
+            }
+        }
+        return toUnit( max.get(), unit);
+    }
+
+    /**
+     * Removes all recorded durations.
+     */
+    public void reset() {
+        for ( int i=0; i<buckets.length(); i++) {
+            buckets.set( i, 0);
+        }
+        count.set( 0);
+        total.set( 0);
+        max.set( 0);
+    }
+
+    private static double toUnit( double nanos, TimeUnit unit) {
+        return nanos / TimeUnit.NANOSECONDS.convert( 1, unit);
+    }
+
+    /**
+     * Returns the bucket of a duration. Durations smaller than {@link #SUB_BUCKETS} have their
+     * own bucket. For larger durations, the bucket is determined by the position of the highest
+     * set bit and the {@link #SUB_BUCKET_BITS} bits following it.
+     */
+    static int bucketIndex( long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros( nanos);
+        int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Returns the largest duration counted in a bucket.
+     */
+    static long bucketUpperBound( int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = index % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return ((SUB_BUCKETS + subBucket) * width) + width - 1;
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + getCount() +
+            String.format( Locale.ENGLISH, ", mean=%.3fms, p99=%.3fms, max=%.3fms",
+                           getMean( TimeUnit.MILLISECONDS),
+                           getPercentile( 0.99, TimeUnit.MILLISECONDS),
+                           toUnit( max.get(), TimeUnit.MILLISECONDS));
+    }
+} // class LatencyHistogram
@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read-only view of data which may be larger than the 2 GB a single <code>ByteBuffer</code>
+ * can address. The data is split into segments of equal size. Each segment is backed by its own
+ * buffer, which additionally covers up to <code>overlap</code> bytes before and after the segment.
+ * Data which starts in a segment can therefore be read relative to a single buffer as long as
+ * it does not extend further than the overlap into a neighbouring segment.
+ * <p>
+ * The segmented buffer itself has no position. Buffers returned by {@link #window(long) window}
+ * are independent duplicates, so an instance can be shared between threads.
+ * </p>
+ *
+ * @author Michael Koch
+ */
+public class SegmentedByteBuffer {
+    /**
+     * Default size of a segment in bytes.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 1 << 30;
+
+    /**
+     * Default number of bytes each segment buffer extends into its neighbours.
+     */
+    public static final int DEFAULT_OVERLAP = 1 << 20;
+
+    private final ByteBuffer[] windows;
+
+    private final long size;
+
+    private final int segmentSize;
+
+    private final int overlap;
+
+    private SegmentedByteBuffer(ByteBuffer[] windows, long size, int segmentSize, int overlap) {
+        this.windows = windows;
+        this.size = size;
+        this.segmentSize = segmentSize;
+        this.overlap = overlap;
+    }
+
+    /**
+     * Maps a region of a file read-only using the default segment size and overlap.
+     */
+    public static SegmentedByteBuffer map(FileChannel channel, long offset, long size, ByteOrder order)
+                    throws IOException {
+        return map(channel, offset, size, order, DEFAULT_SEGMENT_SIZE, DEFAULT_OVERLAP);
+    }
+
+    /**
+     * Maps a region of a file read-only.
+     *
+     * @param channel Channel of the file to map.
+     * @param offset Offset in bytes of the mapped region in the file.
+     * @param size Size in bytes of the mapped region.
+     * @param order Byte order used for reading multi-byte values.
+     * @param segmentSize Size in bytes of a segment.
+     * @param overlap Number of bytes each segment buffer extends into its neighbours.
+     */
+    public static SegmentedByteBuffer map(FileChannel channel, long offset, long size, ByteOrder order,
+                    int segmentSize, int overlap) throws IOException {
+        checkSegmentation(segmentSize, overlap);
+
+        ByteBuffer[] windows = new ByteBuffer[segmentCount(size, segmentSize)];
+        for (int i=0; i<windows.length; i++) {
+            long start = windowStart(i, segmentSize, overlap);
+            long end = windowEnd(i, size, segmentSize, overlap);
+            windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset + start, end - start).order(order);
+        }
+
+        return new SegmentedByteBuffer(windows, size, segmentSize, overlap);
+    }
+
+    /**
+     * Wraps the remaining data of a buffer in a segmented buffer with a single segment.
+     */
+    public static SegmentedByteBuffer wrap(ByteBuffer buffer) {
+        return wrap(buffer, Integer.MAX_VALUE, 0);
+    }
+
+    /**
+     * Wraps the remaining data of a buffer in a segmented buffer. The segments share the data of
+     * the wrapped buffer.
+     *
+     * @param segmentSize Size in bytes of a segment.
+     * @param overlap Number of bytes each segment buffer extends into its neighbours.
+     */
+    public static SegmentedByteBuffer wrap(ByteBuffer buffer, int segmentSize, int overlap) {
+        checkSegmentation(segmentSize, overlap);
+
+        ByteBuffer data = buffer.slice();
+        long size = data.remaining();
+        ByteBuffer[] windows = new ByteBuffer[segmentCount(size, segmentSize)];
+        for (int i=0; i<windows.length; i++) {
+            data.limit((int) windowEnd(i, size, segmentSize, overlap));
+            data.position((int) windowStart(i, segmentSize, overlap));
+            windows[i] = data.slice().order(buffer.order());
+            data.clear();
+        }
+
+        return new SegmentedByteBuffer(windows, size, segmentSize, overlap);
+    }
+
+    private static void checkSegmentation(int segmentSize, int overlap) {
+        if (segmentSize <= 0 || overlap < 0
+            || segmentSize < Integer.MAX_VALUE && (long) segmentSize + 2L*overlap > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("illegal segmentation " + segmentSize + "/" + overlap);
+        }
+    }
+
+    private static int segmentCount(long size, int segmentSize) {
+        return (int) Math.max(1, (size + segmentSize - 1) / segmentSize);
+    }
+
+    private static long windowStart(int segment, int segmentSize, int overlap) {
+        return Math.max(0, (long) segment*segmentSize - overlap);
+    }
+
+    private static long windowEnd(int segment, long size, int segmentSize, int overlap) {
+        return Math.min(size, (long) (segment + 1)*segmentSize + overlap);
+    }
+
+    /**
+     * Returns the size of the data in bytes.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Returns the byte at an absolute position.
+     *
+     * @exception IndexOutOfBoundsException if the position is not in the range <code>[0,size())</code>.
+     */
+    public byte get(long position) {
+        int segment = segment(position);
+        return windows[segment].get(localPosition(segment, position));
+    }
+
+    /**
+     * Returns the int at an absolute position, read in the byte order of the buffer.
+     *
+     * @exception IndexOutOfBoundsException if the position is not in the range <code>[0,size()-4]</code>.
+     */
+    public int getInt(long position) {
+        int segment = segment(position);
+        return windows[segment].getInt(localPosition(segment, position));
+    }
+
+    /**
+     * Returns the long at an absolute position, read in the byte order of the buffer.
+     *
+     * @exception IndexOutOfBoundsException if the position is not in the range <code>[0,size()-8]</code>.
+     */
+    public long getLong(long position) {
+        int segment = segment(position);
+        return windows[segment].getLong(localPosition(segment, position));
+    }
+
+    /**
+     * Returns a buffer which contains the given position. The buffer is an independent duplicate of
+     * the segment buffer, its position is set to the requested position.
+     * The absolute position of the first byte in the buffer is returned by
+     * {@link #windowOffset(long) windowOffset}.
+     *
+     * @exception IndexOutOfBoundsException if the position is not in the range <code>[0,size()]</code>.
+     */
+    public ByteBuffer window(long position) {
+        int segment = segment(position);
+        ByteBuffer window = windows[segment];
+        ByteBuffer out = window.duplicate().order(window.order());
+        out.position(localPosition(segment, position));
+        return out;
+    }
+
+    /**
+     * Returns the absolute position of the first byte of the buffer returned by
+     * {@link #window(long) window} for the given position.
+     */
+    public long windowOffset(long position) {
+        return windowStart(segment(position), segmentSize, overlap);
+    }
+
+    /**
+     * Returns the absolute position of the first byte after the segment which contains the given
+     * position. Data read from the buffer returned by {@link #window(long) window} can extend beyond the
+     * segment end by up to the overlap of the segmented buffer.
+     */
+    public long segmentEnd(long position) {
+        return Math.min(size, ((long) segment(position) + 1)*segmentSize);
+    }
+
+    private int segment(long position) {
+        if (position < 0 || position > size) {
+            throw new IndexOutOfBoundsException(position + "/" + size);
+        }
+        return (int) Math.min(position/segmentSize, windows.length - 1);
+    }
+
+    private int localPosition(int segment, long position) {
+        return (int) (position - windowStart(segment, segmentSize, overlap));
+    }
+} // class SegmentedByteBuffer
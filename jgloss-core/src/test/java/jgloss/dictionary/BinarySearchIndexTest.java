@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.dictionary;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import jgloss.dictionary.filebased.FileIndexContainer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BinarySearchIndexTest {
+    private static final String WORDS = "banana apple cherry apricot apple date ";
+
+    private final Indexable indexable = new WordIndexable(WORDS);
+
+    private File indexFile;
+
+    @Before
+    public void createIndexFile() throws IOException {
+        indexFile = File.createTempFile(BinarySearchIndexTest.class.getSimpleName(), FileIndexContainer.EXTENSION);
+        assertThat(indexFile.delete()).isTrue();
+    }
+
+    @After
+    public void deleteIndexFile() {
+        indexFile.delete();
+    }
+
+    @Test
+    public void testIntEntries() throws IOException {
+        BinarySearchIndex index = buildIndex(BinarySearchIndex.TYPE);
+        assertThat(index.getEntrySize()).isEqualTo(4);
+        verifySearches(index);
+    }
+
+    @Test
+    public void testLongEntries() throws IOException {
+        BinarySearchIndex index = buildIndex(BinarySearchIndex.LONG_TYPE);
+        assertThat(index.getEntrySize()).isEqualTo(8);
+        verifySearches(index);
+    }
+
+    @Test
+    public void testNoMatch() throws IOException {
+        BinarySearchIndex index = buildIndex(BinarySearchIndex.TYPE);
+        assertThat(search(index, "aa")).isEmpty();
+        assertThat(search(index, "zebra")).isEmpty();
+        assertThat(search(index, "bananas")).isEmpty();
+    }
+
+    @Test(expected=IndexException.class)
+    public void testIntEntriesRejectLargeLocations() {
+        BinarySearchIndexBuilder builder = new BinarySearchIndexBuilder(BinarySearchIndex.TYPE);
+        builder.startBuildIndex(null, indexable);
+        builder.addEntry(1L << 32, 1, DictionaryEntryField.WORD);
+    }
+
+    private void verifySearches(BinarySearchIndex index) {
+        assertThat(search(index, "apple")).containsOnly(7L, 28L);
+        assertThat(search(index, "ap")).containsOnly(7L, 20L, 28L);
+        assertThat(search(index, "banana")).containsOnly(0L);
+        assertThat(search(index, "date")).containsOnly(34L);
+    }
+
+    private BinarySearchIndex buildIndex(int type) throws IOException {
+        FileIndexContainer container = new FileIndexContainer(indexFile, true);
+        try {
+            BinarySearchIndexBuilder builder = new BinarySearchIndexBuilder(type);
+            builder.startBuildIndex(container, indexable);
+            int start = 0;
+            for (int i=0; i<WORDS.length(); i++) {
+                if (WORDS.charAt(i) == ' ') {
+                    builder.addEntry(start, i - start, DictionaryEntryField.WORD);
+                    start = i + 1;
+                }
+            }
+            builder.endBuildIndex(true);
+        } finally {
+            container.close();
+        }
+
+        container = new FileIndexContainer(indexFile, false);
+        BinarySearchIndex index = new BinarySearchIndex(type);
+        index.setContainer(container);
+        return index;
+    }
+
+    private List<Long> search(BinarySearchIndex index, String expression) {
+        List<Long> out = new ArrayList<Long>();
+        Index.Iterator matches = index.getEntryPositions(indexable, ByteBuffer.wrap(expression.getBytes()), null);
+        while (matches.hasNext()) {
+            out.add(matches.next());
+        }
+        return out;
+    }
+
+    /**
+     * Indexable over space-separated ASCII words.
+     */
+    private static class WordIndexable implements Indexable {
+        private final byte[] data;
+
+        WordIndexable(String words) {
+            this.data = words.getBytes();
+        }
+
+        @Override
+        public int compare(long pos1, long pos2) {
+            int i1 = (int) pos1;
+            int i2 = (int) pos2;
+            while (data[i1] == data[i2] && data[i1] != ' ') {
+                i1++;
+                i2++;
+            }
+            return byteAt(i1) - byteAt(i2);
+        }
+
+        @Override
+        public int compare(ByteBuffer buffer, long position) {
+            int i = (int) position;
+            for (int j=buffer.position(); j<buffer.limit(); j++, i++) {
+                int diff = buffer.get(j) - byteAt(i);
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            return 0;
+        }
+
+        private int byteAt(int i) {
+            return data[i] == ' ' ? 0 : data[i];
+        }
+
+        @Override
+        public CharData getChar(long position, CharData result) {
+            if (result == null) {
+                result = new CharData();
+            }
+            result.character = data[(int) position];
+            result.position = position + 1;
+            return result;
+        }
+
+        @Override
+        public EncodedCharacterHandler getEncodedCharacterHandler() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.dictionary;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+
+import jgloss.dictionary.filebased.FileIndexContainer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BloomFilterTest {
+    private static final int KEYS = 1000;
+
+    private File indexFile;
+
+    private FileIndexContainer container;
+
+    private final BloomFilter filter = new BloomFilter();
+
+    @Before
+    public void createFilter() throws IOException {
+        indexFile = File.createTempFile(BloomFilterTest.class.getSimpleName(), FileIndexContainer.EXTENSION);
+        assertThat(indexFile.delete()).isTrue();
+        container = new FileIndexContainer(indexFile, true);
+
+        // the location is used as key, odd locations are not added to the filter
+        BloomFilterBuilder builder = new BloomFilterBuilder(new BloomFilterBuilder.KeyFunction() {
+            @Override
+            public long key(long location, int length, DictionaryEntryField field) {
+                return location % 2 == 0 ? wordKey(location) : BloomFilter.NO_KEY;
+            }
+        });
+        builder.startBuildIndex(container, null);
+        for (int i=0; i<KEYS; i++) {
+            assertThat(builder.addEntry(2*i, 1, DictionaryEntryField.WORD)).isTrue();
+            assertThat(builder.addEntry(2*i + 1, 1, DictionaryEntryField.WORD)).isFalse();
+        }
+        builder.endBuildIndex(true);
+        container.endEditing();
+        filter.setContainer(container);
+    }
+
+    @After
+    public void deleteFilter() throws IOException {
+        container.close();
+        indexFile.delete();
+    }
+
+    @Test
+    public void testFilterSize() {
+        // rounded up to a multiple of 64 bits
+        assertThat(filter.getBitCount()).isEqualTo(10048);
+        assertThat(filter.getHashCount()).isEqualTo(7);
+    }
+
+    @Test
+    public void testContainsAllKeys() {
+        for (int i=0; i<KEYS; i++) {
+            assertThat(filter.mightContain(wordKey(2*i))).isTrue();
+        }
+    }
+
+    @Test
+    public void testFalsePositiveRate() {
+        int falsePositives = 0;
+        for (int i=0; i<KEYS; i++) {
+            if (filter.mightContain(wordKey(2*i + 1))) {
+                falsePositives++;
+            }
+        }
+        // expected rate is about 1%
+        assertThat(falsePositives).isLessThan(KEYS/20);
+    }
+
+    @Test
+    public void testFinishNeverReturnsNoKey() {
+        assertThat(BloomFilter.finish(0)).isNotEqualTo(BloomFilter.NO_KEY);
+    }
+
+    private static long wordKey(long location) {
+        String word = String.valueOf(location);
+        long key = BloomFilter.HASH_SEED;
+        for (int i=0; i<word.length(); i++) {
+            key = BloomFilter.hash(key, word.charAt(i));
+        }
+        return BloomFilter.finish(key);
+    }
+} // class BloomFilterTest
@@ -38,6 +38,9 @@ public class DictionaryFactoryTest {
     @Mock
     private Dictionary dictionary;
 
+    @Mock
+    private ThreadSafeDictionary threadSafeDictionary;
+
     @Test
     public void testSynchronizedDictionary() {
         Dictionary synchronizedDictionary = DictionaryFactory.synchronizedDictionary(dictionary);
@@ -61,4 +64,15 @@ public class DictionaryFactoryTest {
         assertThat(synchronizedDictionary).isNotSameAs(indexedDictionary);
         assertThat(synchronizedDictionary).isInstanceOf(SynchronizedIndexedDictionary.class);
     }
+
+    @Test
+    public void testThreadSafeDictionaryIsNotWrapped() {
+        assertThat(DictionaryFactory.threadSafeDictionary(threadSafeDictionary)).isSameAs(threadSafeDictionary);
+    }
+
+    @Test
+    public void testThreadSafeDictionaryWrapsDictionary() {
+        Dictionary threadSafe = DictionaryFactory.threadSafeDictionary(indexedDictionary);
+        assertThat(threadSafe).isInstanceOf(SynchronizedIndexedDictionary.class);
+    }
 }
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.dictionary;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class InstrumentedDictionaryTest {
+
+    @Mock
+    private IndexedDictionary dictionary;
+
+    private DictionaryMetrics metrics;
+
+    private IndexedDictionary instrumentedDictionary;
+
+    @Before
+    public void createInstrumentedDictionary() {
+        metrics = new DictionaryMetrics("foo");
+        instrumentedDictionary = (IndexedDictionary) DictionaryFactory.instrumentedDictionary(dictionary, metrics);
+    }
+
+    @Test
+    public void testPlainDictionaryIsNotIndexed() {
+        Dictionary plainDictionary = mock(Dictionary.class);
+        assertThat(DictionaryFactory.instrumentedDictionary(plainDictionary, metrics) instanceof IndexedDictionary)
+            .isFalse();
+    }
+
+    @Test
+    public void testSearch() {
+        Object[] parameters = new Object[0];
+        DictionaryEntry entry = mock(DictionaryEntry.class);
+        when(dictionary.search(ExpressionSearchModes.EXACT, parameters))
+            .thenReturn(Arrays.asList(entry, entry).iterator());
+
+        Iterator<DictionaryEntry> results = instrumentedDictionary.search(ExpressionSearchModes.EXACT, parameters);
+        assertThat(metrics.getSearchCount()).isEqualTo(1);
+        assertThat(metrics.getEntriesReturned()).isEqualTo(0);
+
+        assertThat(results.next()).isSameAs(entry);
+        assertThat(results.next()).isSameAs(entry);
+        assertThat(results.hasNext()).isFalse();
+        assertThat(metrics.getEntriesReturned()).isEqualTo(2);
+
+        DictionaryMetrics.SearchModeStatistics[] statistics = metrics.getSearchModeStatistics();
+        assertThat(statistics).hasSize(1);
+        assertThat(statistics[0].getSearchMode()).isEqualTo(ExpressionSearchModes.EXACT.getName());
+        assertThat(statistics[0].getSearchCount()).isEqualTo(1);
+        assertThat(statistics[0].getEntriesReturned()).isEqualTo(2);
+    }
+
+    @Test
+    public void testSearchException() {
+        Object[] parameters = new Object[0];
+        SearchException exception = new SearchException("test");
+        when(dictionary.search(ExpressionSearchModes.PREFIX, parameters)).thenThrow(exception);
+
+        try {
+            instrumentedDictionary.search(ExpressionSearchModes.PREFIX, parameters);
+            fail("SearchException expected");
+        } catch (SearchException ex) {
+            assertThat(ex).isSameAs(exception);
+        }
+        assertThat(metrics.getSearchCount()).isEqualTo(1);
+        assertThat(metrics.getExceptionCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testContains() {
+        Object[] parameters = new Object[0];
+        when(dictionary.contains(ExpressionSearchModes.EXACT, parameters)).thenReturn(true);
+
+        assertThat(instrumentedDictionary.contains(ExpressionSearchModes.EXACT, parameters)).isTrue();
+        assertThat(metrics.getContainsCount()).isEqualTo(1);
+        assertThat(metrics.getSearchCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testIndex() {
+        when(dictionary.loadIndex()).thenReturn(false);
+
+        assertThat(instrumentedDictionary.loadIndex()).isFalse();
+        instrumentedDictionary.buildIndex();
+
+        verify(dictionary).buildIndex();
+        assertThat(metrics.getIndexLoadCount()).isEqualTo(1);
+        assertThat(metrics.getIndexBuildCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testReset() {
+        when(dictionary.contains(ExpressionSearchModes.EXACT, null)).thenReturn(true);
+        instrumentedDictionary.contains(ExpressionSearchModes.EXACT, null);
+        metrics.reset();
+
+        assertThat(metrics.getContainsCount()).isEqualTo(0);
+        assertThat(metrics.getSearchModeStatistics()).isEmpty();
+    }
+
+    @Test
+    public void testDispose() {
+        instrumentedDictionary.dispose();
+        verify(dictionary).dispose();
+    }
+
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.dictionary;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import jgloss.dictionary.filebased.FileIndexContainer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class KeyedBinarySearchIndexTest {
+    private static final String ALPHABET = "abcABあいかア子";
+
+    private File indexFile;
+
+    private Utf8Indexable indexable;
+
+    private final List<String> words = new ArrayList<String>();
+
+    private FileIndexContainer container;
+
+    @Before
+    public void createIndex() throws IOException {
+        Random random = new Random(7);
+        StringBuilder text = new StringBuilder();
+        List<Long> locations = new ArrayList<Long>();
+        for (int i=0; i<300; i++) {
+            StringBuilder word = new StringBuilder();
+            int length = 1 + random.nextInt(4);
+            for (int j=0; j<length; j++) {
+                word.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            words.add(word.toString());
+            locations.add((long) text.toString().getBytes("UTF-8").length);
+            text.append(word).append(' ');
+        }
+        indexable = new Utf8Indexable(text.toString());
+
+        indexFile = File.createTempFile(KeyedBinarySearchIndexTest.class.getSimpleName(), FileIndexContainer.EXTENSION);
+        assertThat(indexFile.delete()).isTrue();
+        container = new FileIndexContainer(indexFile, true);
+        build(new KeyedBinarySearchIndexBuilder(KeyedBinarySearchIndex.TYPE, 64, 2, null), locations);
+        build(new BinarySearchIndexBuilder(BinarySearchIndex.TYPE), locations);
+        container.endEditing();
+    }
+
+    private void build(IndexBuilder builder, List<Long> locations) {
+        builder.startBuildIndex(container, indexable);
+        for (long location : locations) {
+            builder.addEntry(location, 1, DictionaryEntryField.WORD);
+        }
+        builder.endBuildIndex(true);
+    }
+
+    @After
+    public void deleteIndex() throws IOException {
+        container.close();
+        indexFile.delete();
+    }
+
+    @Test
+    public void testEntrySize() {
+        assertThat(new KeyedBinarySearchIndex().getEntrySize()).isEqualTo(12);
+        assertThat(new KeyedBinarySearchIndex(KeyedBinarySearchIndex.LONG_TYPE).getEntrySize()).isEqualTo(16);
+    }
+
+    @Test
+    public void testSameMatchesAsBinarySearchIndex() {
+        KeyedBinarySearchIndex keyedIndex = new KeyedBinarySearchIndex(KeyedBinarySearchIndex.TYPE);
+        keyedIndex.setContainer(container);
+        BinarySearchIndex plainIndex = new BinarySearchIndex(BinarySearchIndex.TYPE);
+        plainIndex.setContainer(container);
+
+        List<String> expressions = new ArrayList<String>();
+        for (String word : words) {
+            for (int i=1; i<=word.length(); i++) {
+                expressions.add(word.substring(0, i));
+            }
+        }
+        expressions.add("");
+        expressions.add("x");
+        expressions.add("aaaaaa");
+        expressions.add("子子子子子");
+
+        for (String expression : expressions) {
+            // equal entries may be ordered differently by the builders
+            List<Long> expected = search(plainIndex, expression);
+            Collections.sort(expected);
+            List<Long> actual = search(keyedIndex, expression);
+            Collections.sort(actual);
+            assertThat(actual).as(expression).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    public void testFindRangeWithinPrefixRange() throws IOException {
+        KeyedBinarySearchIndex keyedIndex = new KeyedBinarySearchIndex(KeyedBinarySearchIndex.TYPE);
+        keyedIndex.setContainer(container);
+        BinarySearchIndex plainIndex = new BinarySearchIndex(BinarySearchIndex.TYPE);
+        plainIndex.setContainer(container);
+
+        for (BinarySearchIndex index : Arrays.asList(keyedIndex, plainIndex)) {
+            for (String word : words) {
+                BinarySearchIndex.Range previous = null;
+                for (String expression : Arrays.asList("", word.substring(0, 1), word, word + "a", word + "ab")) {
+                    ByteBuffer exprbuf = ByteBuffer.wrap(expression.getBytes("UTF-8"));
+                    BinarySearchIndex.Range range = index.findRange(indexable, exprbuf, previous);
+                    BinarySearchIndex.Range fullRange = index.findRange(indexable, exprbuf, null);
+                    assertThat(range.size()).as(expression).isEqualTo(fullRange.size());
+                    if (!range.isEmpty()) {
+                        assertThat(range.getFrom()).as(expression).isEqualTo(fullRange.getFrom());
+                    }
+                    previous = range;
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testShortExpressionDoesNotAccessDictionary() throws IOException {
+        KeyedBinarySearchIndex keyedIndex = new KeyedBinarySearchIndex(KeyedBinarySearchIndex.TYPE);
+        keyedIndex.setContainer(container);
+        Indexable keysOnly = new Utf8Indexable("") {
+            @Override
+            public int compare(ByteBuffer buffer, long position) {
+                throw new AssertionError("dictionary accessed");
+            }
+        };
+
+        assertThat(search(keyedIndex, keysOnly, "a")).isNotEmpty();
+        assertThat(search(keyedIndex, keysOnly, "Ab")).hasSize(search(keyedIndex, "ab").size());
+    }
+
+    private List<Long> search(BinarySearchIndex index, String expression) {
+        return search(index, indexable, expression);
+    }
+
+    private List<Long> search(BinarySearchIndex index, Indexable dictionary, String expression) {
+        try {
+            List<Long> out = new ArrayList<Long>();
+            Index.Iterator matches = index.getEntryPositions(dictionary, ByteBuffer.wrap(expression.getBytes("UTF-8")), null);
+            while (matches.hasNext()) {
+                out.add(matches.next());
+            }
+            return out;
+        } catch (IOException ex) {
+            throw new AssertionError(ex);
+        }
+    }
+}
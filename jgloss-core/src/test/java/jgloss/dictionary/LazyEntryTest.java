@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.dictionary;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class LazyEntryTest {
+    private interface TestDictionary extends Dictionary, BaseEntry.MarkerDictionary {}
+
+    private TestDictionary dictionary;
+
+    private DictionaryEntry parsedEntry;
+
+    @Before
+    public void initDictionary() {
+        dictionary = mock(TestDictionary.class);
+        parsedEntry = mock(DictionaryEntry.class);
+        when(dictionary.createEntryFromMarker(42)).thenReturn(parsedEntry);
+        when(parsedEntry.getWord(0)).thenReturn("子供");
+        when(parsedEntry.getReading(0)).thenReturn("こども");
+    }
+
+    @Test
+    public void testEntryIsParsedOnFirstAccess() {
+        LazyEntry entry = new LazyEntry(dictionary, 42);
+        assertThat(entry.isParsed()).isFalse();
+        assertThat(entry.getDictionary()).isSameAs(dictionary);
+        assertThat(entry.getReference().getEntry()).isSameAs(entry);
+        assertThat(entry.getEntryMarker()).isEqualTo(42);
+        verifyZeroInteractions(dictionary);
+
+        assertThat(entry.getWord(0)).isEqualTo("子供");
+        assertThat(entry.getReading(0)).isEqualTo("こども");
+        assertThat(entry.isParsed()).isTrue();
+        assertThat(entry.getParsedEntry()).isSameAs(parsedEntry);
+        verify(dictionary, times(1)).createEntryFromMarker(42);
+    }
+
+    @Test(expected=MalformedEntryException.class)
+    public void testMalformedEntryThrowsOnAccess() {
+        MalformedEntryException malformed = new MalformedEntryException(dictionary, "broken");
+        when(dictionary.createEntryFromMarker(7)).thenThrow(malformed);
+        LazyEntry entry = new LazyEntry(dictionary, 7);
+        entry.getWord(0);
+    }
+
+    @Test
+    public void testEquals() {
+        TestDictionary otherDictionary = mock(TestDictionary.class);
+        assertThat(new LazyEntry(dictionary, 42)).isEqualTo(new LazyEntry(dictionary, 42));
+        assertThat(new LazyEntry(dictionary, 42).hashCode()).isEqualTo(new LazyEntry(dictionary, 42).hashCode());
+        assertThat(new LazyEntry(dictionary, 42)).isNotEqualTo(new LazyEntry(dictionary, 43));
+        assertThat(new LazyEntry(dictionary, 42)).isNotEqualTo(new LazyEntry(otherDictionary, 42));
+    }
+} // class LazyEntryTest
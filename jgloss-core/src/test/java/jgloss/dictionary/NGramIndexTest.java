@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.dictionary;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import jgloss.dictionary.filebased.FileIndexContainer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NGramIndexTest {
+    private static final String[] TERMS = { "kitten", "sitting", "mitten", "kitchen", "kit", "子供", "子ども" };
+
+    private File indexFile;
+
+    private FileIndexContainer container;
+
+    private Utf8Indexable indexable;
+
+    private final List<Long> locations = new ArrayList<Long>();
+
+    private final NGramIndex index = new NGramIndex();
+
+    @Before
+    public void createIndex() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (String term : TERMS) {
+            locations.add((long) text.toString().getBytes("UTF-8").length);
+            text.append(term).append(' ');
+        }
+        indexable = new Utf8Indexable(text.toString());
+
+        indexFile = File.createTempFile(NGramIndexTest.class.getSimpleName(), FileIndexContainer.EXTENSION);
+        assertThat(indexFile.delete()).isTrue();
+        container = new FileIndexContainer(indexFile, true);
+
+        NGramIndexBuilder builder = new NGramIndexBuilder();
+        builder.startBuildIndex(container, indexable);
+        for (int i=0; i<TERMS.length; i++) {
+            int length = TERMS[i].getBytes("UTF-8").length;
+            assertThat(builder.addEntry(locations.get(i), length, DictionaryEntryField.WORD)).isTrue();
+        }
+        // suffix of the last term is ignored
+        assertThat(builder.addEntry(locations.get(TERMS.length - 1) + 3, "ども".getBytes("UTF-8").length,
+                        DictionaryEntryField.WORD)).isFalse();
+        assertThat(builder.addEntry(0, 1, DictionaryEntryField.OTHER)).isFalse();
+        builder.endBuildIndex(true);
+        container.endEditing();
+        index.setContainer(container);
+    }
+
+    @After
+    public void deleteIndex() throws IOException {
+        container.close();
+        indexFile.delete();
+    }
+
+    @Test
+    public void testEditDistance() {
+        assertThat(NGramIndex.editDistance(chars("kitten"), chars("sitting"), 5)).isEqualTo(3);
+        assertThat(NGramIndex.editDistance(chars("kitten"), chars("kitten"), 0)).isEqualTo(0);
+        assertThat(NGramIndex.editDistance(chars(""), chars("abc"), 5)).isEqualTo(3);
+        assertThat(NGramIndex.editDistance(chars("kitten"), chars("sitting"), 1)).isGreaterThan(1);
+    }
+
+    @Test
+    public void testSubstitutions() {
+        assertThat(NGramIndex.substitutions(chars("kitten"), chars("mitten"))).isEqualTo(1);
+        assertThat(NGramIndex.substitutions(chars("kitten"), chars("kit"))).isEqualTo(Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void testRadiusOrderedByDistance() {
+        assertThat(search("kitten", 3, DistanceSearchModes.RADIUS)).isEqualTo(terms(0, 2, 3, 4, 1));
+    }
+
+    @Test
+    public void testRadiusExactMatch() {
+        assertThat(search("kitten", 0, DistanceSearchModes.RADIUS)).isEqualTo(terms(0));
+        assertThat(search("KITTEN", 0, DistanceSearchModes.RADIUS)).isEqualTo(terms(0));
+    }
+
+    @Test
+    public void testRadiusKanji() {
+        assertThat(search("子供", 1, DistanceSearchModes.RADIUS)).isEqualTo(terms(5));
+        assertThat(search("子供", 2, DistanceSearchModes.RADIUS)).isEqualTo(terms(5, 6));
+    }
+
+    @Test
+    public void testNear() {
+        assertThat(search("kitten", 1, DistanceSearchModes.NEAR)).isEqualTo(terms(0, 2));
+    }
+
+    @Test
+    public void testCandidatesShareBigram() {
+        // 子供 is within distance 3 of kit, but has no bigram in common with it
+        List<Long> matches = search("kit", 3, DistanceSearchModes.RADIUS);
+        assertThat(matches).contains(locations.get(4), locations.get(0));
+        assertThat(matches).excludes(locations.get(5));
+    }
+
+    @Test
+    public void testNoMatch() {
+        assertThat(search("xyz", 1, DistanceSearchModes.RADIUS)).isEmpty();
+        assertThat(search("", 1, DistanceSearchModes.RADIUS)).isEmpty();
+    }
+
+    private List<Long> terms(int... terms) {
+        List<Long> out = new ArrayList<Long>();
+        for (int term : terms) {
+            out.add(locations.get(term));
+        }
+        return out;
+    }
+
+    private List<Long> search(String expression, int distance, SearchMode mode) {
+        try {
+            List<Long> out = new ArrayList<Long>();
+            Index.Iterator matches = index.getEntryPositions(indexable, ByteBuffer.wrap(expression.getBytes("UTF-8")),
+                            new Object[] { Integer.valueOf(distance), mode });
+            while (matches.hasNext()) {
+                out.add(matches.next());
+            }
+            return out;
+        } catch (IOException ex) {
+            throw new AssertionError(ex);
+        }
+    }
+
+    private static int[] chars(String s) {
+        int[] out = new int[s.length()];
+        for (int i=0; i<out.length; i++) {
+            out[i] = s.charAt(i);
+        }
+        return out;
+    }
+}
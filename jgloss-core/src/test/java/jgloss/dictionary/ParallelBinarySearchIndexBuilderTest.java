@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.dictionary;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import jgloss.dictionary.filebased.FileIndexContainer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelBinarySearchIndexBuilderTest {
+    private static final String ALPHABET = "abcABCあいかアイカ子供";
+
+    private File indexFile;
+
+    private File tempDir;
+
+    private Utf8Indexable indexable;
+
+    private List<Long> locations;
+
+    @Before
+    public void createData() throws IOException {
+        indexFile = File.createTempFile(ParallelBinarySearchIndexBuilderTest.class.getSimpleName(), FileIndexContainer.EXTENSION);
+        assertThat(indexFile.delete()).isTrue();
+        tempDir = File.createTempFile(ParallelBinarySearchIndexBuilderTest.class.getSimpleName(), "");
+        assertThat(tempDir.delete() && tempDir.mkdir()).isTrue();
+
+        Random random = new Random(42);
+        StringBuilder words = new StringBuilder();
+        List<Integer> wordStarts = new ArrayList<Integer>();
+        for (int i=0; i<500; i++) {
+            wordStarts.add(words.length());
+            int length = 1 + random.nextInt(4);
+            for (int j=0; j<length; j++) {
+                words.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            words.append(' ');
+        }
+
+        indexable = new Utf8Indexable(words.toString());
+        locations = new ArrayList<Long>();
+        for (int start : wordStarts) {
+            locations.add((long) words.substring(0, start).getBytes("UTF-8").length);
+        }
+    }
+
+    @After
+    public void deleteFiles() {
+        indexFile.delete();
+        tempDir.delete();
+    }
+
+    @Test
+    public void testSingleRun() throws IOException {
+        List<Long> index = buildIndex(new ParallelBinarySearchIndexBuilder(BinarySearchIndex.TYPE, false,
+                        locations.size(), 2, tempDir), 4);
+        verifyIndex(index);
+    }
+
+    @Test
+    public void testMergedRuns() throws IOException {
+        List<Long> index = buildIndex(new ParallelBinarySearchIndexBuilder(BinarySearchIndex.TYPE, false,
+                        37, 2, tempDir), 4);
+        verifyIndex(index);
+        assertThat(tempDir.list()).isEmpty();
+    }
+
+    @Test
+    public void testMergedRunsLongEntries() throws IOException {
+        List<Long> index = buildIndex(new ParallelBinarySearchIndexBuilder(BinarySearchIndex.LONG_TYPE, true,
+                        64, 3, tempDir), 8);
+        verifyIndex(index);
+    }
+
+    @Test
+    public void testSameOrderAsBinarySearchIndexBuilder() throws IOException {
+        List<Long> expected = buildIndex(new BinarySearchIndexBuilder(BinarySearchIndex.TYPE), 4);
+        assertThat(indexFile.delete()).isTrue();
+        List<Long> actual = buildIndex(new ParallelBinarySearchIndexBuilder(BinarySearchIndex.TYPE, false,
+                        50, 2, tempDir), 4);
+
+        assertThat(actual).hasSize(expected.size());
+        for (int i=0; i<actual.size(); i++) {
+            assertThat(indexable.compare(expected.get(i), actual.get(i))).isEqualTo(0);
+        }
+    }
+
+    @Test
+    public void testEmptyIndex() throws IOException {
+        locations.clear();
+        List<Long> index = buildIndex(new ParallelBinarySearchIndexBuilder(BinarySearchIndex.TYPE, false,
+                        10, 2, tempDir), 4);
+        assertThat(index).isEmpty();
+    }
+
+    @Test
+    public void testDiscardedBuildDeletesRuns() throws IOException {
+        FileIndexContainer container = new FileIndexContainer(indexFile, true);
+        try {
+            ParallelBinarySearchIndexBuilder builder = new ParallelBinarySearchIndexBuilder(BinarySearchIndex.TYPE,
+                            false, 10, 2, tempDir);
+            builder.startBuildIndex(container, indexable);
+            for (long location : locations) {
+                builder.addEntry(location, 1, DictionaryEntryField.WORD);
+            }
+            builder.endBuildIndex(false);
+            assertThat(container.hasIndex(BinarySearchIndex.TYPE)).isFalse();
+        } finally {
+            container.close();
+        }
+        assertThat(tempDir.list()).isEmpty();
+    }
+
+    private void verifyIndex(List<Long> index) {
+        List<Long> sortedIndex = new ArrayList<Long>(index);
+        Collections.sort(sortedIndex);
+        List<Long> sortedLocations = new ArrayList<Long>(locations);
+        Collections.sort(sortedLocations);
+        assertThat(sortedIndex).isEqualTo(sortedLocations);
+
+        for (int i=1; i<index.size(); i++) {
+            assertThat(indexable.compare(index.get(i-1), index.get(i))).isLessThanOrEqualTo(0);
+        }
+    }
+
+    private List<Long> buildIndex(IndexBuilder builder, int entrySize) throws IOException {
+        FileIndexContainer container = new FileIndexContainer(indexFile, true);
+        try {
+            builder.startBuildIndex(container, indexable);
+            for (long location : locations) {
+                builder.addEntry(location, 1, DictionaryEntryField.WORD);
+            }
+            // not indexed
+            builder.addEntry(0, 1, DictionaryEntryField.OTHER);
+            builder.endBuildIndex(true);
+            container.endEditing();
+
+            ByteBuffer data = container.getIndexData(entrySize == 8 ? BinarySearchIndex.LONG_TYPE : BinarySearchIndex.TYPE);
+            List<Long> index = new ArrayList<Long>();
+            while (data.hasRemaining()) {
+                index.add(entrySize == 8 ? data.getLong() : data.getInt());
+            }
+            return index;
+        } finally {
+            container.close();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.dictionary;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+
+import org.junit.Test;
+
+public class UTF8CharacterHandlerTest {
+    private final UTF8CharacterHandler handler = new UTF8CharacterHandler();
+
+    @Test
+    public void testReadCharacter() throws Exception {
+        ByteBuffer buffer = ByteBuffer.wrap("aä子".getBytes("UTF-8"));
+        assertThat(handler.readCharacter(buffer)).isEqualTo('a');
+        assertThat(handler.readCharacter(buffer)).isEqualTo('ä');
+        assertThat(handler.readCharacter(buffer)).isEqualTo('子');
+        assertThat(buffer.hasRemaining()).isFalse();
+    }
+
+    @Test
+    public void testReadPreviousCharacter() throws Exception {
+        ByteBuffer buffer = ByteBuffer.wrap("aä子".getBytes("UTF-8"));
+        buffer.position(buffer.limit());
+        assertThat(handler.readPreviousCharacter(buffer)).isEqualTo('子');
+        assertThat(handler.readPreviousCharacter(buffer)).isEqualTo('ä');
+        assertThat(handler.readPreviousCharacter(buffer)).isEqualTo('a');
+        assertThat(buffer.position()).isEqualTo(0);
+    }
+
+    @Test(expected = CharacterCodingException.class)
+    public void testReadOverlongCharacter() throws Exception {
+        handler.readCharacter(ByteBuffer.wrap(new byte[] { (byte) 0xc0, (byte) 0xaf }));
+    }
+
+    @Test(expected = CharacterCodingException.class)
+    public void testReadPreviousOverlongCharacter() throws Exception {
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[] { (byte) 0xe0, (byte) 0x80, (byte) 0xaf });
+        buffer.position(buffer.limit());
+        handler.readPreviousCharacter(buffer);
+    }
+}
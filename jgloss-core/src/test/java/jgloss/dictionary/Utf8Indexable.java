@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.dictionary;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+
+/**
+ * Indexable over UTF-8 encoded text, which compares entries like a file based dictionary.
+ */
+class Utf8Indexable implements Indexable {
+    private final ByteBuffer data;
+    private final EncodedCharacterHandler handler = new UTF8CharacterHandler();
+
+    Utf8Indexable(String text) throws UnsupportedEncodingException {
+        data = ByteBuffer.wrap(text.getBytes("UTF-8"));
+    }
+
+    @Override
+    public int compare(long pos1, long pos2) {
+        ByteBuffer buf1 = data.duplicate();
+        buf1.position((int) pos1);
+        ByteBuffer buf2 = data.duplicate();
+        buf2.position((int) pos2);
+        try {
+            while (true) {
+                int c = compareCharacter(buf1, buf2);
+                if (c != 0) {
+                    return c;
+                }
+            }
+        } catch (BufferUnderflowException ex) {
+            return buf1.hasRemaining() ? 1 : buf2.hasRemaining() ? -1 : 0;
+        }
+    }
+
+    /**
+     * Compares the buffer data with the entry. Equality is returned if the buffer data is a prefix
+     * of the entry.
+     */
+    @Override
+    public int compare(ByteBuffer buffer, long position) {
+        ByteBuffer buf1 = buffer.duplicate();
+        ByteBuffer buf2 = data.duplicate();
+        buf2.position((int) position);
+        try {
+            while (buf1.hasRemaining()) {
+                int c = compareCharacter(buf1, buf2);
+                if (c != 0) {
+                    return c;
+                }
+            }
+            return 0;
+        } catch (BufferUnderflowException ex) {
+            return 1;
+        }
+    }
+
+    private int compareCharacter(ByteBuffer buf1, ByteBuffer buf2) {
+        try {
+            int c1 = handler.convertCharacter(handler.readCharacter(buf1));
+            int c2 = handler.convertCharacter(handler.readCharacter(buf2));
+            return c1 < c2 ? -1 : c1 > c2 ? 1 : 0;
+        } catch (CharacterCodingException ex) {
+            throw new IndexException(ex);
+        }
+    }
+
+    @Override
+    public CharData getChar(long position, CharData result) {
+        if (result == null) {
+            result = new CharData();
+        }
+        ByteBuffer buf = data.duplicate();
+        buf.position((int) position);
+        try {
+            result.character = handler.readCharacter(buf);
+        } catch (CharacterCodingException ex) {
+            throw new IndexException(ex);
+        }
+        result.position = buf.position();
+        return result;
+    }
+
+    @Override
+    public EncodedCharacterHandler getEncodedCharacterHandler() {
+        return handler;
+    }
+}
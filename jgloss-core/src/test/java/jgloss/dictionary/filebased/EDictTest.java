@@ -0,0 +1,317 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.dictionary.filebased;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import jgloss.dictionary.DictionaryEntry;
+import jgloss.dictionary.DictionaryFactory;
+import jgloss.dictionary.DistanceSearchModes;
+import jgloss.dictionary.ExpressionSearchModes;
+import jgloss.dictionary.IncrementalSearch;
+import jgloss.dictionary.LazyEntry;
+import jgloss.dictionary.MalformedEntryException;
+import jgloss.dictionary.SearchException;
+import jgloss.dictionary.SearchFieldSelection;
+import jgloss.dictionary.SearchMode;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EDictTest {
+    private static final String DICTIONARY =
+                    "子供 [こども] /(n) child/children/\n" +
+                    "子 [こ] /(n) child/\n" +
+                    "供える [そなえる] /(v1) to offer/\n" +
+                    "食べる [たべる] /(v1) to eat/\n" +
+                    "飲む [のむ] /(v5m) to drink/\n";
+
+    private static final SearchFieldSelection ALL_FIELDS = new SearchFieldSelection(true, true, true, true, false);
+
+    private static final SearchFieldSelection WORD_READING = new SearchFieldSelection(true, true, false, true, false);
+
+    private File dictionaryFile;
+
+    private EDict edict;
+
+    @Before
+    public void createDictionary() throws IOException {
+        dictionaryFile = File.createTempFile(EDictTest.class.getSimpleName(), ".edict");
+        OutputStream out = new FileOutputStream(dictionaryFile);
+        try {
+            out.write(DICTIONARY.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+
+        edict = new EDict(dictionaryFile, "UTF-8");
+        edict.buildIndex();
+    }
+
+    @After
+    public void disposeDictionary() {
+        edict.dispose();
+        dictionaryFile.delete();
+        new File(dictionaryFile.getPath() + FileIndexContainer.EXTENSION).delete();
+    }
+
+    @Test
+    public void testSearchExact() {
+        List<String> words = search(ExpressionSearchModes.EXACT, "子供");
+        assertThat(words).containsOnly("子供");
+    }
+
+    @Test
+    public void testSearchPrefix() {
+        List<String> words = search(ExpressionSearchModes.PREFIX, "子");
+        assertThat(words).containsOnly("子供", "子");
+    }
+
+    @Test
+    public void testSearchAny() {
+        List<String> words = search(ExpressionSearchModes.ANY, "供");
+        assertThat(words).containsOnly("子供", "供える");
+    }
+
+    @Test
+    public void testSearchTranslation() {
+        List<String> words = search(ExpressionSearchModes.EXACT, "child");
+        assertThat(words).containsOnly("子供", "子");
+    }
+
+    @Test
+    public void testSearchRadiusOrderedByDistance() {
+        List<String> words = search(DistanceSearchModes.RADIUS, "子供え", 2);
+        assertThat(words).isEqualTo(Arrays.asList("子供", "子", "供える"));
+    }
+
+    @Test
+    public void testSearchRadiusConvertsCharacters() {
+        List<String> words = search(DistanceSearchModes.RADIUS, "コドモ", 0);
+        assertThat(words).containsOnly("子供");
+    }
+
+    @Test
+    public void testSearchRadiusTranslation() {
+        List<String> words = search(DistanceSearchModes.RADIUS, "chlid", 2);
+        assertThat(words).containsOnly("子供", "子");
+    }
+
+    @Test
+    public void testSearchNear() {
+        List<String> words = search(DistanceSearchModes.NEAR, "のみ", 1);
+        assertThat(words).containsOnly("飲む");
+    }
+
+    @Test
+    public void testContainsWordAndReading() {
+        assertThat(contains(ExpressionSearchModes.EXACT, "子供", WORD_READING)).isTrue();
+        assertThat(contains(ExpressionSearchModes.EXACT, "こども", WORD_READING)).isTrue();
+        assertThat(contains(ExpressionSearchModes.EXACT, "コドモ", WORD_READING)).isTrue();
+        assertThat(contains(ExpressionSearchModes.EXACT, "供える", WORD_READING)).isTrue();
+        assertThat(contains(ExpressionSearchModes.EXACT, "子ども", WORD_READING)).isFalse();
+        assertThat(contains(ExpressionSearchModes.EXACT, "供", WORD_READING)).isFalse();
+        assertThat(contains(ExpressionSearchModes.EXACT, "子供え", WORD_READING)).isFalse();
+        assertThat(contains(ExpressionSearchModes.EXACT, "child", WORD_READING)).isFalse();
+    }
+
+    @Test
+    public void testContainsAgreesWithSearch() {
+        String[] expressions = { "子供", "子", "供", "供える", "こ", "こども", "コドモ", "たべ", "のむ", "飲",
+                                 "child", "children", "to eat", "eat", "chil", "(n)", "水" };
+        SearchMode[] modes = { ExpressionSearchModes.EXACT, ExpressionSearchModes.PREFIX,
+                               ExpressionSearchModes.SUFFIX, ExpressionSearchModes.ANY };
+        for (SearchFieldSelection fields : Arrays.asList(ALL_FIELDS, WORD_READING)) {
+            for (SearchMode mode : modes) {
+                for (String expression : expressions) {
+                    boolean found = !search(mode, new Object[] { expression, fields }).isEmpty();
+                    assertThat(contains(mode, expression, fields))
+                        .as(mode + " " + expression + " " + fields).isEqualTo(found);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testIncrementalSearchAgreesWithSearch() {
+        String[] typedExpressions = { "子", "子供", "子供え", "供", "供え", "供える", "こ", "こど", "こども",
+                                      "コ", "コド", "c", "ch", "chi", "child", "childr", "to", "to e", "飲", "水" };
+        List<SearchMode> reversedModes = new ArrayList<SearchMode>(IncrementalSearch.SEARCH_MODES);
+        Collections.reverse(reversedModes);
+        for (int entryLimit : new int[] { 1, 2, Integer.MAX_VALUE }) {
+            for (List<SearchMode> modes : Arrays.asList(IncrementalSearch.SEARCH_MODES, reversedModes)) {
+                for (SearchFieldSelection fields : Arrays.asList(ALL_FIELDS, WORD_READING)) {
+                    IncrementalSearch session = edict.createIncrementalSearch();
+                    for (String expression : typedExpressions) {
+                        IncrementalSearch.Result result = session.search(expression, fields, entryLimit);
+                        for (SearchMode mode : modes) {
+                            List<String> words = new ArrayList<String>();
+                            for (Iterator<DictionaryEntry> entries = result.getEntries(mode); entries.hasNext();) {
+                                words.add(entries.next().getWord(0));
+                            }
+                            assertThat(words).as(mode + " " + expression + " " + fields + " " + entryLimit)
+                                .isEqualTo(search(mode, new Object[] { expression, fields }));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testIncrementalSearchModesCanBeInterleaved() {
+        IncrementalSearch.Result result = edict.createIncrementalSearch().search("子", ALL_FIELDS, 1);
+        Iterator<DictionaryEntry> exact = result.getEntries(ExpressionSearchModes.EXACT);
+        Iterator<DictionaryEntry> prefix = result.getEntries(ExpressionSearchModes.PREFIX);
+        Iterator<DictionaryEntry> any = result.getEntries(ExpressionSearchModes.ANY);
+        List<List<String>> words = Arrays.<List<String>> asList(new ArrayList<String>(), new ArrayList<String>(),
+                                                                new ArrayList<String>());
+        List<Iterator<DictionaryEntry>> iterators = Arrays.asList(any, exact, prefix);
+        boolean more = true;
+        while (more) {
+            more = false;
+            for (int i=0; i<iterators.size(); i++) {
+                if (iterators.get(i).hasNext()) {
+                    words.get(i).add(iterators.get(i).next().getWord(0));
+                    more = true;
+                }
+            }
+        }
+        assertThat(words.get(0)).isEqualTo(search(ExpressionSearchModes.ANY, new Object[] { "子", ALL_FIELDS }));
+        assertThat(words.get(1)).isEqualTo(search(ExpressionSearchModes.EXACT, new Object[] { "子", ALL_FIELDS }));
+        assertThat(words.get(2)).isEqualTo(search(ExpressionSearchModes.PREFIX, new Object[] { "子", ALL_FIELDS }));
+    }
+
+    @Test
+    public void testCreateEntryFromMarker() {
+        DictionaryEntry entry = edict.search(ExpressionSearchModes.EXACT, new Object[] { "飲む", ALL_FIELDS }).next();
+        assertThat(entry.getReference().getEntry().getWord(0)).isEqualTo("飲む");
+    }
+
+    @Test
+    public void testSearchReturnsLazyEntries() {
+        DictionaryEntry entry = edict.search(ExpressionSearchModes.EXACT, new Object[] { "child", ALL_FIELDS }).next();
+        assertThat(entry).isInstanceOf(LazyEntry.class);
+        assertThat(((LazyEntry) entry).isParsed()).isFalse();
+        assertThat(entry.getTranslation(0, 0, 0)).isEqualTo("child");
+        assertThat(((LazyEntry) entry).isParsed()).isTrue();
+    }
+
+    @Test
+    public void testMalformedEntryIsReportedBySearch() throws IOException {
+        File malformedFile = File.createTempFile(EDictTest.class.getSimpleName(), ".edict");
+        OutputStream out = new FileOutputStream(malformedFile);
+        try {
+            out.write(("子供 [こども] /(n) child/\n" +
+                       "子猫 こねこ kitten\n" +
+                       "子 [こ] /(n) child/\n").getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+
+        EDict malformed = new EDict(malformedFile, "UTF-8");
+        try {
+            malformed.buildIndex();
+            List<String> words = new ArrayList<String>();
+            int malformedEntries = 0;
+            for (Iterator<DictionaryEntry> entries = malformed.search(ExpressionSearchModes.PREFIX,
+                            new Object[] { "子", ALL_FIELDS }); entries.hasNext();) {
+                try {
+                    words.add(entries.next().getWord(0));
+                } catch (SearchException ex) {
+                    assertThat(ex.getCause()).isInstanceOf(MalformedEntryException.class);
+                    malformedEntries++;
+                }
+            }
+            assertThat(words).containsOnly("子供", "子");
+            assertThat(malformedEntries).isEqualTo(1);
+        } finally {
+            malformed.dispose();
+            malformedFile.delete();
+            new File(malformedFile.getPath() + FileIndexContainer.EXTENSION).delete();
+        }
+    }
+
+    @Test
+    public void testThreadSafeDictionaryIsNotWrapped() {
+        assertThat(DictionaryFactory.threadSafeDictionary(edict)).isSameAs(edict);
+    }
+
+    @Test
+    public void testConcurrentSearch() throws Exception {
+        final String[] expressions = { "子供", "食べる", "飲む", "供える", "child", "to eat" };
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+            for (int i = 0; i < 200; i++) {
+                final String expression = expressions[i % expressions.length];
+                results.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        return !search(ExpressionSearchModes.EXACT, expression).isEmpty();
+                    }
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertThat(result.get()).isTrue();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private boolean contains(SearchMode mode, String expression, SearchFieldSelection fields) {
+        return edict.contains(mode, new Object[] { expression, fields });
+    }
+
+    private List<String> search(SearchMode mode, String expression) {
+        return search(mode, new Object[] { expression, ALL_FIELDS });
+    }
+
+    private List<String> search(SearchMode mode, String expression, int distance) {
+        return search(mode, new Object[] { expression, ALL_FIELDS, Integer.valueOf(distance) });
+    }
+
+    private List<String> search(SearchMode mode, Object[] parameters) {
+        List<String> words = new ArrayList<String>();
+        for (Iterator<DictionaryEntry> entries = edict.search(mode, parameters); entries.hasNext();) {
+            words.add(entries.next().getWord(0));
+        }
+        return words;
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.dictionary.filebased;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import jgloss.dictionary.DictionaryEntry;
+import jgloss.dictionary.DistanceSearchModes;
+import jgloss.dictionary.ExpressionSearchModes;
+import jgloss.dictionary.SearchFieldSelection;
+import jgloss.dictionary.SearchMode;
+import jgloss.util.SegmentedByteBuffer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileBasedDictionaryIndexUpdaterTest {
+    private static final int LINES = 3000;
+
+    private static final SearchFieldSelection ALL_FIELDS = new SearchFieldSelection(true, true, true, true, false);
+
+    private static final SearchFieldSelection WORD_READING = new SearchFieldSelection(true, true, false, true, false);
+
+    private final List<File> files = new ArrayList<File>();
+
+    private final List<EDict> dictionaries = new ArrayList<EDict>();
+
+    private List<String> lines;
+
+    private List<String> changedLines;
+
+    @Before
+    public void createLines() {
+        lines = new ArrayList<String>(LINES);
+        for (int i=0; i<LINES; i++) {
+            lines.add(line(i));
+        }
+
+        changedLines = new ArrayList<String>(lines);
+        changedLines.set(500, "変更 [へんこう] /(n) change/\n");
+        changedLines.remove(1000);
+        changedLines.add(2000, "追加 [ついか] /(n) addition/\n");
+        changedLines.add(line(LINES));
+    }
+
+    @After
+    public void deleteFiles() {
+        for (EDict dictionary : dictionaries) {
+            dictionary.dispose();
+        }
+        for (File file : files) {
+            file.delete();
+            new File(file.getPath() + FileIndexContainer.EXTENSION).delete();
+        }
+    }
+
+    @Test
+    public void testChangedLinesOnlyChangeTheirBlocks() throws IOException {
+        BlockFingerprints oldBlocks = BlockFingerprints.compute(toBuffer(lines));
+        BlockFingerprints newBlocks = BlockFingerprints.compute(toBuffer(changedLines));
+        assertThat(oldBlocks.getBlockCount()).isGreaterThan(10);
+
+        FileBasedDictionaryIndexUpdater updater = new FileBasedDictionaryIndexUpdater(null, oldBlocks, newBlocks);
+        assertThat(updater.isWorthwhile()).isTrue();
+        // at most the blocks of the three changed lines and the last block are scanned
+        assertThat(updater.getChangedBytes()).isLessThanOrEqualTo(4*BlockFingerprints.MAX_BLOCK_SIZE);
+        assertThat(updater.getChangedBytes()).isLessThan(newBlocks.getDictionarySize() / 4);
+    }
+
+    @Test
+    public void testCompletelyChangedDictionaryIsRebuilt() throws IOException {
+        List<String> otherLines = new ArrayList<String>();
+        for (int i=0; i<LINES; i++) {
+            otherLines.add(line(i + LINES));
+        }
+
+        FileBasedDictionaryIndexUpdater updater = new FileBasedDictionaryIndexUpdater
+            (null, BlockFingerprints.compute(toBuffer(lines)), BlockFingerprints.compute(toBuffer(otherLines)));
+        assertThat(updater.isWorthwhile()).isFalse();
+    }
+
+    @Test
+    public void testUpdatedIndexFindsSameEntriesAsRebuiltIndex() throws IOException {
+        File dictionaryFile = writeDictionary(lines);
+        EDict original = new EDict(dictionaryFile, "UTF-8");
+        original.buildIndex();
+        original.dispose();
+
+        File indexFile = new File(dictionaryFile.getPath() + FileIndexContainer.EXTENSION);
+        writeLines(dictionaryFile, changedLines);
+        dictionaryFile.setLastModified(indexFile.lastModified() + 2000);
+
+        EDict updated = open(dictionaryFile);
+        assertThat(updated.loadIndex()).isTrue();
+
+        EDict rebuilt = open(writeDictionary(changedLines));
+        rebuilt.buildIndex();
+
+        String[] expressions = { "変更", "追加", "change", "addition", line(1000).substring(0, 2),
+                                 line(0).substring(0, 1), line(2999).substring(0, 2), line(LINES).substring(0, 2),
+                                 "meaning", "ああ" };
+        for (String expression : expressions) {
+            for (SearchMode mode : new SearchMode[] { ExpressionSearchModes.EXACT, ExpressionSearchModes.PREFIX,
+                                                      ExpressionSearchModes.ANY }) {
+                assertThat(search(updated, mode, expression, null))
+                    .as(mode + " " + expression).isEqualTo(search(rebuilt, mode, expression, null));
+            }
+            assertThat(search(updated, DistanceSearchModes.RADIUS, expression, 1))
+                .as("radius " + expression).isEqualTo(search(rebuilt, DistanceSearchModes.RADIUS, expression, 1));
+            assertThat(updated.contains(ExpressionSearchModes.EXACT, new Object[] { expression, WORD_READING }))
+                .as("contains " + expression)
+                .isEqualTo(rebuilt.contains(ExpressionSearchModes.EXACT, new Object[] { expression, WORD_READING }));
+        }
+        assertThat(search(updated, ExpressionSearchModes.EXACT, "変更", null)).containsOnly("変更");
+        assertThat(search(updated, ExpressionSearchModes.EXACT, line(1000).substring(0, 2), null)).isEmpty();
+    }
+
+    /**
+     * Creates a dictionary line with unique word, reading and translation.
+     */
+    private static String line(int i) {
+        String word = new String(new char[] { (char) (0x4e00 + i % 97), (char) (0x5000 + i / 97) });
+        String reading = new String(new char[] { (char) (0x3042 + i % 80), (char) (0x3042 + i / 80 % 80) });
+        return word + " [" + reading + "] /(n) meaning " + Integer.toString(i, 36) + "x/\n";
+    }
+
+    private static SegmentedByteBuffer toBuffer(List<String> lines) throws IOException {
+        return SegmentedByteBuffer.wrap(ByteBuffer.wrap(join(lines).getBytes("UTF-8")));
+    }
+
+    private static String join(List<String> lines) {
+        StringBuilder text = new StringBuilder();
+        for (String line : lines) {
+            text.append(line);
+        }
+        return text.toString();
+    }
+
+    private File writeDictionary(List<String> lines) throws IOException {
+        File file = File.createTempFile(FileBasedDictionaryIndexUpdaterTest.class.getSimpleName(), ".edict");
+        files.add(file);
+        writeLines(file, lines);
+        return file;
+    }
+
+    private static void writeLines(File file, List<String> lines) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(join(lines).getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    private EDict open(File file) throws IOException {
+        EDict dictionary = new EDict(file, "UTF-8");
+        dictionaries.add(dictionary);
+        return dictionary;
+    }
+
+    private static List<String> search(EDict dictionary, SearchMode mode, String expression, Integer distance) {
+        Object[] parameters = distance != null ? new Object[] { expression, ALL_FIELDS, distance }
+            : new Object[] { expression, ALL_FIELDS };
+        List<String> words = new ArrayList<String>();
+        for (Iterator<DictionaryEntry> entries = dictionary.search(mode, parameters); entries.hasNext();) {
+            words.add(entries.next().getWord(0));
+        }
+        if (mode instanceof ExpressionSearchModes) {
+            Collections.sort(words);
+        }
+        return words;
+    }
+}
@@ -25,6 +25,7 @@ import static jgloss.dictionary.DictionaryEntryField.TRANSLATION;
 import static jgloss.dictionary.DictionaryEntryField.WORD;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Mockito.when;
 
 import java.io.UnsupportedEncodingException;
@@ -35,6 +36,7 @@ import jgloss.dictionary.IndexBuilder;
 import jgloss.dictionary.IndexContainer;
 import jgloss.dictionary.Indexable;
 import jgloss.dictionary.UTF8CharacterHandler;
+import jgloss.util.SegmentedByteBuffer;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -113,10 +115,30 @@ public class FileBasedDictionaryIndexerTest {
         inOrder.verifyNoMoreInteractions();
     }
 
+    @Test
+    public void testBuildIndexSmallSegments() throws UnsupportedEncodingException {
+        // terms which cross a segment boundary are read using the segment overlap
+        buildIndex(WORD_WITH_KANJI_AND_KANA + "\n" + TRANSLATIONS, 4, 16);
+
+        InOrder inOrder = Mockito.inOrder(builder);
+        inOrder.verify(builder).startBuildIndex(indexContainer, indexable);
+        inOrder.verify(builder).addEntry(0, 9, WORD);
+        inOrder.verify(builder).addEntry(3, 6, WORD);
+        inOrder.verify(builder).addEntry(18 + 11, 5, TRANSLATION);
+        inOrder.verify(builder).addEntry(18 + 17, 8, TRANSLATION);
+        inOrder.verify(builder).endBuildIndex(true);
+        inOrder.verifyNoMoreInteractions();
+    }
+
     private void buildIndex(String dictionaryText) throws UnsupportedEncodingException {
-        when(builder.addEntry(anyInt(), anyInt(), any(DictionaryEntryField.class))).thenReturn(true);
+        buildIndex(dictionaryText, Integer.MAX_VALUE, 0);
+    }
+
+    private void buildIndex(String dictionaryText, int segmentSize, int overlap) throws UnsupportedEncodingException {
+        when(builder.addEntry(anyLong(), anyInt(), any(DictionaryEntryField.class))).thenReturn(true);
 
-        ByteBuffer dictionary = ByteBuffer.wrap(dictionaryText.getBytes("UTF-8"));
+        SegmentedByteBuffer dictionary = SegmentedByteBuffer.wrap(ByteBuffer.wrap(dictionaryText.getBytes("UTF-8")),
+                        segmentSize, overlap);
         FileBasedDictionaryIndexer indexer = new FileBasedDictionaryIndexer(indexable, new EDictStructure(),
                         dictionary, new UTF8CharacterHandler());
         indexer.buildIndex(indexContainer, builder);
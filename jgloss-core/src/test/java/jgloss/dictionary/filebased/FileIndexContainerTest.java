@@ -3,6 +3,7 @@ package jgloss.dictionary.filebased;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
@@ -15,6 +16,7 @@ import java.nio.ByteOrder;
 
 import jgloss.dictionary.IndexException;
 import jgloss.dictionary.filebased.FileIndexContainer.IndexMetaData;
+import jgloss.util.SegmentedByteBuffer;
 
 import org.junit.After;
 import org.junit.Before;
@@ -151,6 +153,73 @@ public class FileIndexContainerTest {
 		}
 	}
 
+	@Test
+	public void testCreateIndexFromMultipleBuffers() throws FileNotFoundException, IOException {
+		FileIndexContainer indexContainer = createEmptyIndexFile(false);
+		try {
+		    ByteBuffer first = ByteBuffer.wrap(TEST_INDEX_DATA_ARRAY, 0, 1);
+		    ByteBuffer rest = ByteBuffer.wrap(TEST_INDEX_DATA_ARRAY, 1, TEST_INDEX_DATA_ARRAY.length - 1);
+            indexContainer.createIndex(TEST_INDEX_TYPE, first, rest);
+		} finally {
+			indexContainer.close();
+		}
+
+		RandomAccessFile file = new RandomAccessFile(indexFile, "r");
+		try {
+			verifyHeader(file);
+			verifyIndex(file);
+		} finally {
+			file.close();
+		}
+	}
+
+	@Test
+	public void testGetSegmentedIndexData() throws FileNotFoundException, IOException {
+		FileIndexContainer indexContainer = createAndReopenIndexFile();
+		try {
+			SegmentedByteBuffer actualData = indexContainer.getSegmentedIndexData(TEST_INDEX_TYPE);
+            assertEquals(TEST_INDEX_DATA_ARRAY.length, actualData.size());
+            for (int i = 0; i < TEST_INDEX_DATA_ARRAY.length; i++) {
+                assertEquals(TEST_INDEX_DATA_ARRAY[i], actualData.get(i));
+            }
+            assertSame(actualData, indexContainer.getSegmentedIndexData(TEST_INDEX_TYPE));
+        } finally {
+			indexContainer.close();
+		}
+	}
+
+	@Test
+	public void testReadVersion1000File() throws FileNotFoundException, IOException {
+	    RandomAccessFile file = new RandomAccessFile(indexFile, "rw");
+	    try {
+	        int headerLength = 4 * 4;
+	        file.writeInt(FileIndexContainer.MAGIC);
+	        file.writeInt(FileIndexContainer.VERSION_1000);
+	        file.writeInt(headerLength);
+	        file.writeInt(FileIndexContainer.BIG_ENDIAN);
+	        file.writeInt(TEST_INDEX_TYPE);
+	        file.writeInt(TEST_INDEX_DATA_ARRAY.length);
+	        file.writeInt(IndexMetaData.INDEX_OFFSET_1000);
+	        file.write(TEST_INDEX_DATA_ARRAY);
+	    } finally {
+	        file.close();
+	    }
+
+		FileIndexContainer indexContainer = new FileIndexContainer(indexFile, false);
+		try {
+		    assertEquals(FileIndexContainer.VERSION_1000, indexContainer.getVersion());
+		    assertEquals(ByteOrder.BIG_ENDIAN, indexContainer.getIndexByteOrder());
+			assertTrue(indexContainer.hasIndex(TEST_INDEX_TYPE));
+			ByteBuffer actualData = indexContainer.getIndexData(TEST_INDEX_TYPE);
+            assertEquals(TEST_INDEX_DATA_ARRAY.length, actualData.remaining());
+            for (byte element : TEST_INDEX_DATA_ARRAY) {
+                assertEquals(element, actualData.get());
+            }
+		} finally {
+			indexContainer.close();
+		}
+	}
+
 	@Test
 	public void testDeleteNonexistingIndexDoesNothing() throws FileNotFoundException, IOException {
 		FileIndexContainer indexContainer = createEmptyIndexFile(false);
@@ -207,7 +276,7 @@ public class FileIndexContainerTest {
 	private void verifyHeader(RandomAccessFile file) throws IOException {
 	    assertEquals(FileIndexContainer.MAGIC, file.readInt());
 	    assertEquals(FileIndexContainer.VERSION, file.readInt());
-	    assertEquals(FileIndexContainer.INDEXCONTAINER_HEADER_LENGTH, file.readInt());
+	    assertEquals(FileIndexContainer.INDEXCONTAINER_HEADER_LENGTH, file.readLong());
 	    int expectedByteOrderCode = ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN ? FileIndexContainer.BIG_ENDIAN : FileIndexContainer.LITTLE_ENDIAN;
 	    int byteOrderCode = file.readInt();
 	    assertEquals(expectedByteOrderCode, byteOrderCode);
@@ -216,7 +285,7 @@ public class FileIndexContainerTest {
 	private void verifyIndex(RandomAccessFile file) throws IOException {
 	    assertEquals(FileIndexContainer.INDEXCONTAINER_HEADER_LENGTH, file.getFilePointer());
 	    assertEquals(TEST_INDEX_TYPE, file.readInt());
-        assertEquals(TEST_INDEX_DATA_ARRAY.length, file.readInt());
+        assertEquals(TEST_INDEX_DATA_ARRAY.length, file.readLong());
 	    assertEquals(IndexMetaData.INDEX_OFFSET, file.readInt());
         byte[] actualData = new byte[TEST_INDEX_DATA_ARRAY.length];
 	    file.readFully(actualData);
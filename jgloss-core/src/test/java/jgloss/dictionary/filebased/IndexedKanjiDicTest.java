@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.dictionary.filebased;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import jgloss.dictionary.DictionaryEntry;
+import jgloss.dictionary.ExpressionSearchModes;
+import jgloss.dictionary.KanjiDic;
+import jgloss.dictionary.SearchFieldSelection;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IndexedKanjiDicTest {
+    private static final String DICTIONARY =
+                    "# KANJIDIC test file\n" +
+                    "亜 3021 U4e9c N43 B1 C7 G8 S7 F1509 ア つ.ぐ T1 や つぐ {Asia} {rank next}\n" +
+                    "子 3b52 U5b50 N1255 B39 G1 S3 F72 シ ス ツ こ -こ ね T1 し {child} {sign of the rat}\n" +
+                    "供 3621 U4f9b N383 B9 G6 S8 F609 キョウ ク とも そな.える T1 とも {submit} {offer}\n" +
+                    "食 3f29 U98df N5181 B184 G2 S9 F328 ショク ジキ く.う た.べる T2 しょく {eat} {food}\n";
+
+    private static final SearchFieldSelection ALL_FIELDS = new SearchFieldSelection(true, true, true, true, false);
+
+    private File dictionaryFile;
+
+    private KanjiDic kanjiDic;
+
+    private IndexedKanjiDic indexedKanjiDic;
+
+    @Before
+    public void createDictionary() throws IOException {
+        dictionaryFile = File.createTempFile(IndexedKanjiDicTest.class.getSimpleName(), ".kanjidic");
+        OutputStream out = new FileOutputStream(dictionaryFile);
+        try {
+            out.write(DICTIONARY.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+
+        kanjiDic = new KanjiDic(dictionaryFile.getPath());
+        indexedKanjiDic = new IndexedKanjiDic(dictionaryFile);
+        assertThat(indexedKanjiDic.loadIndex()).isFalse();
+        indexedKanjiDic.buildIndex();
+    }
+
+    @After
+    public void disposeDictionary() {
+        indexedKanjiDic.dispose();
+        dictionaryFile.delete();
+        new File(dictionaryFile.getPath() + FileIndexContainer.EXTENSION).delete();
+    }
+
+    @Test
+    public void testLookupKanji() {
+        KanjiDic.Entry entry = indexedKanjiDic.lookup('供');
+        assertThat(entry).isNotNull();
+        assertThat(entry.getKanji()).isEqualTo('供');
+        assertThat(entry.getReadings()).containsOnly("キョウ", "ク", "とも", "そな.える");
+        assertThat(entry.getNanoriReadings()).containsOnly("とも");
+        assertThat(entry.getTranslations()).containsOnly("submit", "offer");
+        assertThat(entry.getStrokecount()).isEqualTo((byte) 8);
+        assertThat(indexedKanjiDic.lookup('犬')).isNull();
+    }
+
+    @Test
+    public void testLookupKeys() {
+        String[] keys = { "亜", "子", "供", "食", "ア", "つぐ", "亜ぐ", "とも", "そなえる", "供える", "しょく",
+                          "child", "eat", "rank next", "-こ", "犬", "dog" };
+        for (String key : keys) {
+            assertThat(texts(indexedKanjiDic.lookup(key))).as(key).isEqualTo(texts(kanjiDic.lookup(key)));
+        }
+    }
+
+    @Test
+    public void testSearchMatchesKanjiDic() {
+        String[] expressions = { "子", "こ", "とも", "offer", "food" };
+        for (String expression : expressions) {
+            assertThat(search(indexedKanjiDic, expression)).as(expression)
+                .isEqualTo(search(kanjiDic, expression))
+                .isNotEmpty();
+        }
+        assertThat(indexedKanjiDic.contains(ExpressionSearchModes.EXACT, new Object[] { "eat", ALL_FIELDS })).isTrue();
+        assertThat(indexedKanjiDic.contains(ExpressionSearchModes.EXACT, new Object[] { "dog", ALL_FIELDS })).isFalse();
+    }
+
+    @Test
+    public void testLoadIndex() throws IOException {
+        IndexedKanjiDic loaded = new IndexedKanjiDic(dictionaryFile);
+        try {
+            assertThat(loaded.loadIndex()).isTrue();
+            assertThat(texts(loaded.lookup("とも"))).isEqualTo(texts(kanjiDic.lookup("とも")));
+        } finally {
+            loaded.dispose();
+        }
+    }
+
+    private static List<String> texts(List<KanjiDic.Entry> entries) {
+        List<String> texts = new ArrayList<String>();
+        for (KanjiDic.Entry entry : entries) {
+            texts.add(String.valueOf(entry.getKanji()));
+        }
+        return texts;
+    }
+
+    private static List<String> search(KanjiDic dictionary, String expression) {
+        List<String> entries = new ArrayList<String>();
+        Iterator<DictionaryEntry> i = dictionary.search(ExpressionSearchModes.EXACT,
+                        new Object[] { expression, ALL_FIELDS });
+        while (i.hasNext()) {
+            DictionaryEntry entry = i.next();
+            entries.add(entry.getWord(0) + " [" + entry.getReading(0) + "]");
+        }
+        return entries;
+    }
+}
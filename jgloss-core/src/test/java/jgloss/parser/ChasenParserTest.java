@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.parser;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import jgloss.dictionary.SearchException;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests the ChaSen parser with a shell script which stands in for the ChaSen executable.
+ * The script outputs every space-separated word of the input as noun. A line which contains
+ * <code>SLEEP</code> makes the script hang.
+ */
+public class ChasenParserTest {
+    private static final String FAKE_CHASEN =
+                    "#!/bin/sh\n" +
+                    "case \"$1\" in\n" +
+                    "  -V) echo \"ChaSen version 2.4.4 (fake)\"; exit 0;;\n" +
+                    "  -lf) echo \"基本形 未然形 連用形 仮定形 命令形\"; exit 0;;\n" +
+                    "esac\n" +
+                    "while IFS= read -r line; do\n" +
+                    "  case \"$line\" in\n" +
+                    "    *SLEEP*) exec sleep 30;;\n" +
+                    "  esac\n" +
+                    "  for word in $line; do\n" +
+                    "    printf '%s\\t名詞\\tn\\tn\\t%s\\t\\t\\n' \"$word\" \"$word\"\n" +
+                    "  done\n" +
+                    "  echo EOS\n" +
+                    "done\n";
+
+    private static File chasenExecutable;
+
+    @BeforeClass
+    public static void createFakeChasen() throws IOException {
+        assumeTrue(new File("/bin/sh").canExecute());
+
+        chasenExecutable = File.createTempFile(ChasenParserTest.class.getSimpleName(), ".sh");
+        OutputStream out = new FileOutputStream(chasenExecutable);
+        try {
+            // the EUC-JP encoding of the ChaSen output is detected from the -lf output
+            out.write(FAKE_CHASEN.getBytes("EUC-JP"));
+        } finally {
+            out.close();
+        }
+        chasenExecutable.setExecutable(true);
+        assertThat(Chasen.isChasenExecutable(chasenExecutable.getPath())).isTrue();
+    }
+
+    @AfterClass
+    public static void deleteFakeChasen() {
+        ChasenPool.disposeAll();
+        if (chasenExecutable != null) {
+            chasenExecutable.delete();
+        }
+    }
+
+    private ChasenParser createParser() {
+        return new ChasenParser(chasenExecutable.getPath(), null, false);
+    }
+
+    @Test
+    public void testParse() {
+        List<TextAnnotation> annotations = createParser().parse("日本 の 本\n地図".toCharArray(), 0, 9);
+        assertThat(words(annotations)).isEqualTo(Arrays.asList("日本@0", "の@3", "本@5", "地図@7"));
+    }
+
+    @Test
+    public void testConcurrentParsers() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<String>>> results = new ArrayList<Future<List<String>>>();
+            for (int i=0; i<32; i++) {
+                final String word = "語" + i;
+                results.add(executor.submit(new Callable<List<String>>() {
+                    @Override
+                    public List<String> call() {
+                        return words(createParser().parse((word + " 本").toCharArray(), 0, word.length() + 2));
+                    }
+                }));
+            }
+            for (int i=0; i<results.size(); i++) {
+                assertThat(results.get(i).get()).isEqualTo(Arrays.asList("語" + i + "@0", "本@" + (i < 10 ? 3 : 4)));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testTimeoutRestartsProcess() {
+        ChasenParser parser = createParser();
+        ChasenPool pool = parser.getChasenPool();
+        long timeout = pool.getTimeout();
+        pool.setTimeout(500);
+        try {
+            parser.parse("SLEEP".toCharArray(), 0, 5);
+            throw new AssertionError("timeout expected");
+        } catch (SearchException ex) {
+            // expected
+        } finally {
+            pool.setTimeout(timeout);
+        }
+
+        assertThat(words(parser.parse("日本".toCharArray(), 0, 2))).isEqualTo(Arrays.asList("日本@0"));
+    }
+
+    private static List<String> words(List<TextAnnotation> annotations) {
+        List<String> words = new ArrayList<String>();
+        for (TextAnnotation annotation : annotations) {
+            words.add(annotation.getDictionaryForm() + "@" + annotation.getStart());
+        }
+        return words;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.parser;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.junit.Test;
+
+public class ConjugationTest {
+    @Test
+    public void testFindConjugations() {
+        Conjugation[] conjugations = Conjugation.findConjugations("ましたか");
+        assertThat(conjugations).isNotNull();
+        assertThat(conjugations[0].getConjugatedForm()).isEqualTo("ました");
+        assertThat(conjugations[0].getDictionaryForm()).isEqualTo("る");
+
+        conjugations = Conjugation.findConjugations("って");
+        assertThat(conjugations.length).isGreaterThanOrEqualTo(4);
+        for (int i=0; i<4; i++) {
+            assertThat(conjugations[i].getConjugatedForm()).isEqualTo("って");
+        }
+        assertThat(conjugations[0].getDictionaryForm()).isEqualTo("く");
+
+        assertThat(Conjugation.findConjugations("")).isNull();
+        assertThat(Conjugation.findConjugations("xyz")).isNull();
+    }
+
+    @Test
+    public void testFindConjugationsInCharArray() {
+        char[] text = "食べましたか".toCharArray();
+        assertThat(Conjugation.findConjugations(text, 1, text.length))
+            .isSameAs(Conjugation.findConjugations("べましたか"));
+        // the range end limits the match
+        assertThat(Conjugation.findConjugations(text, 2, 4))
+            .isSameAs(Conjugation.findConjugations("まし"));
+    }
+
+    @Test
+    public void testCompiledResourceIsUpToDate() throws IOException {
+        InputStream in = ConjugationAutomaton.class.getResourceAsStream(ConjugationAutomaton.AUTOMATON_RESOURCE);
+        assertThat(in).isNotNull();
+        try {
+            // the resource is generated by ConjugationAutomaton.main in the process-classes phase
+            assertThat(ConjugationAutomaton.read(in)).isEqualTo(ConjugationAutomaton.compile());
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test
+    public void testWriteRead() throws IOException {
+        ConjugationAutomaton automaton = ConjugationAutomaton.compile();
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(data);
+        automaton.write(out);
+        out.close();
+
+        assertThat(ConjugationAutomaton.read(new ByteArrayInputStream(data.toByteArray()))).isEqualTo(automaton);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.parser;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.Iterator;
+
+import jgloss.dictionary.Dictionary;
+import jgloss.dictionary.DictionaryEntry;
+import jgloss.dictionary.SearchMode;
+
+import org.junit.Test;
+
+public class KanjiParserTest {
+    @Test
+    public void testSharedLookupCache() throws Exception {
+        Dictionary dictionary = mock(Dictionary.class);
+        when(dictionary.search(any(SearchMode.class), any(Object[].class)))
+            .thenReturn(Collections.<DictionaryEntry> emptyIterator());
+        Dictionary[] dictionaries = new Dictionary[] { dictionary };
+        LookupCache cache = new LRULookupCache();
+
+        KanjiParser parser1 = new KanjiParser(dictionaries, null, cache, false, false);
+        parser1.parse("漢字".toCharArray(), 0, 2);
+        int lookups = parser1.getLookups();
+        assertThat(lookups).isGreaterThan(0);
+        assertThat(parser1.getCacheHits()).isEqualTo(0);
+        parser1.reset();
+        assertThat(cache.size()).isGreaterThan(0);
+
+        KanjiParser parser2 = new KanjiParser(dictionaries, null, cache, false, false);
+        parser2.parse("漢字".toCharArray(), 0, 2);
+        assertThat(parser2.getCacheHits()).isEqualTo(parser2.getLookups());
+
+        // the second parser gets all results from the shared cache
+        verify(dictionary, times(lookups)).search(any(SearchMode.class), any(Object[].class));
+    }
+
+    @Test
+    public void testPrivateLookupCacheIsClearedOnReset() throws Exception {
+        Dictionary dictionary = mock(Dictionary.class);
+        when(dictionary.search(any(SearchMode.class), any(Object[].class)))
+            .thenReturn(Collections.<DictionaryEntry> emptyIterator());
+
+        KanjiParser parser = new KanjiParser(new Dictionary[] { dictionary }, null);
+        parser.parse("漢字".toCharArray(), 0, 2);
+        assertThat(parser.getLookupCache().size()).isGreaterThan(0);
+        parser.reset();
+        assertThat(parser.getLookupCache().size()).isEqualTo(0);
+        assertThat(parser.getLookups()).isEqualTo(0);
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        Dictionary dictionary = mock(Dictionary.class);
+        when(dictionary.search(any(SearchMode.class), any(Object[].class)))
+            .thenReturn(Collections.<DictionaryEntry> emptyIterator());
+        ParserMetrics metrics = new ParserMetrics();
+
+        KanjiParser parser = new KanjiParser(new Dictionary[] { dictionary }, null);
+        parser.setMetrics(metrics);
+        parser.parse("漢字".toCharArray(), 0, 2);
+        parser.parse("漢字".toCharArray(), 0, 2);
+
+        assertThat(metrics.getParseCount()).isEqualTo(2);
+        assertThat(metrics.getCharactersParsed()).isEqualTo(4);
+        assertThat(metrics.getAnnotationsCreated()).isEqualTo(0);
+        assertThat(metrics.getLookupCount()).isEqualTo(parser.getLookups());
+        assertThat(metrics.getCacheHitCount()).isEqualTo(parser.getCacheHits());
+        // the second parse is answered from the lookup cache
+        assertThat(metrics.getCacheHitRatio()).isEqualTo(0.5);
+    }
+} // class KanjiParserTest
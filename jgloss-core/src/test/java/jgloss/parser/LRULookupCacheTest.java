@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.parser;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import jgloss.dictionary.Dictionary;
+
+import org.junit.Test;
+
+public class LRULookupCacheTest {
+    private final Dictionary dictionary1 = mock(Dictionary.class);
+    private final Dictionary dictionary2 = mock(Dictionary.class);
+
+    @Test
+    public void testGetPut() {
+        LRULookupCache cache = new LRULookupCache(100);
+        assertThat(cache.get(dictionary1, "word")).isNull();
+
+        cache.put(dictionary1, "word", true);
+        cache.put(dictionary2, "word", false);
+        assertThat(cache.get(dictionary1, "word")).isTrue();
+        assertThat(cache.get(dictionary2, "word")).isFalse();
+        assertThat(cache.get(dictionary1, "other")).isNull();
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.getHitCount()).isEqualTo(2);
+        assertThat(cache.getMissCount()).isEqualTo(2);
+
+        cache.clear();
+        assertThat(cache.size()).isEqualTo(0);
+        assertThat(cache.get(dictionary1, "word")).isNull();
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        // a single segment makes the eviction order deterministic
+        LRULookupCache cache = new LRULookupCache(1);
+        cache.put(dictionary1, "a", true);
+        cache.put(dictionary1, "b", true);
+        assertThat(cache.get(dictionary1, "a")).isNull();
+        assertThat(cache.get(dictionary1, "b")).isTrue();
+        assertThat(cache.getEvictionCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testSizeIsBounded() {
+        LRULookupCache cache = new LRULookupCache(50);
+        for (int i=0; i<1000; i++) {
+            cache.put(dictionary1, String.valueOf(i), true);
+        }
+        assertThat(cache.size()).isLessThanOrEqualTo(50);
+        assertThat(cache.getEvictionCount()).isEqualTo(1000 - cache.size());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testInvalidSize() {
+        new LRULookupCache(0);
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        final LRULookupCache cache = new LRULookupCache(500);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Void>> results = new ArrayList<Future<Void>>();
+            for (int t=0; t<4; t++) {
+                results.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        for (int i=0; i<10000; i++) {
+                            String word = String.valueOf(i % 1000);
+                            Boolean cached = cache.get(dictionary1, word);
+                            if (cached != null) {
+                                // the value stored for a word is always the same
+                                assertThat(cached.booleanValue()).isEqualTo(i % 2 == 0);
+                            } else {
+                                cache.put(dictionary1, word, i % 2 == 0);
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(cache.size()).isLessThanOrEqualTo(500);
+        assertThat(cache.getHitCount() + cache.getMissCount()).isEqualTo(40000);
+    }
+} // class LRULookupCacheTest
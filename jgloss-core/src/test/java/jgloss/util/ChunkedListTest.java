@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.util;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ChunkedListTest {
+    private static final Comparator<Integer> NATURAL_ORDER = new Comparator<Integer>() {
+        @Override
+        public int compare(Integer o1, Integer o2) {
+            return o1.compareTo(o2);
+        }
+    };
+
+    @Test
+    public void testAddAndGet() {
+        ChunkedList<Integer> list = new ChunkedList<Integer>(4);
+        for (int i=0; i<100; i++) {
+            list.add(i);
+        }
+
+        assertThat(list.size()).isEqualTo(100);
+        for (int i=0; i<100; i++) {
+            assertThat(list.get(i)).isEqualTo(i);
+        }
+    }
+
+    @Test
+    public void testRandomModifications() {
+        Random random = new Random(42);
+        List<Integer> expected = new ArrayList<Integer>();
+        ChunkedList<Integer> list = new ChunkedList<Integer>(4);
+
+        for (int i=0; i<5000; i++) {
+            int operation = random.nextInt(3);
+            if (operation < 2 || expected.isEmpty()) {
+                int index = random.nextInt(expected.size() + 1);
+                expected.add(index, i);
+                list.add(index, i);
+            } else {
+                int index = random.nextInt(expected.size());
+                assertThat(list.remove(index)).isEqualTo(expected.remove(index));
+            }
+            int index = random.nextInt(expected.size() + 1);
+            if (index < expected.size()) {
+                assertThat(list.get(index)).isEqualTo(expected.get(index));
+            }
+        }
+
+        assertThat(list).isEqualTo(expected);
+    }
+
+    @Test
+    public void testRemoveRange() {
+        ChunkedList<Integer> list = new ChunkedList<Integer>(4);
+        List<Integer> expected = new ArrayList<Integer>();
+        for (int i=0; i<100; i++) {
+            list.add(i);
+            expected.add(i);
+        }
+
+        // remove backwards, as done when the annotations in a document region are removed
+        for (int i=80; i>=10; i--) {
+            list.remove(i);
+            expected.remove(i);
+        }
+
+        assertThat(list).isEqualTo(expected);
+    }
+
+    @Test
+    public void testBinarySearch() {
+        ChunkedList<Integer> list = new ChunkedList<Integer>(4);
+        List<Integer> expected = new ArrayList<Integer>();
+        for (int i=0; i<100; i+=2) {
+            list.add(i);
+            expected.add(i);
+        }
+
+        for (int i=-1; i<=101; i++) {
+            assertThat(list.binarySearch(i, NATURAL_ORDER))
+                .isEqualTo(Collections.binarySearch(expected, i, NATURAL_ORDER));
+        }
+    }
+
+    @Test
+    public void testBinarySearchEmpty() {
+        assertThat(new ChunkedList<Integer>().binarySearch(1, NATURAL_ORDER)).isEqualTo(-1);
+    }
+
+    @Test
+    public void testCreateFromCollection() {
+        List<Integer> elements = Arrays.asList(3, 1, 2);
+        assertThat(new ChunkedList<Integer>(elements)).isEqualTo(elements);
+    }
+
+    @Test
+    public void testClear() {
+        ChunkedList<Integer> list = new ChunkedList<Integer>(Arrays.asList(1, 2, 3));
+        list.clear();
+        assertThat(list).isEmpty();
+        list.add(4);
+        assertThat(list).containsOnly(4);
+    }
+
+    @Test(expected=IndexOutOfBoundsException.class)
+    public void testGetOutOfBounds() {
+        new ChunkedList<Integer>(Arrays.asList(1, 2, 3)).get(3);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.util;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+    @Test
+    public void testEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertThat(histogram.getCount()).isEqualTo(0);
+        assertThat(histogram.getMean(TimeUnit.MILLISECONDS)).isEqualTo(0.0);
+        assertThat(histogram.getPercentile(0.99, TimeUnit.MILLISECONDS)).isEqualTo(0.0);
+    }
+
+    @Test
+    public void testRecord() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000000);
+        histogram.record(3000000);
+
+        assertThat(histogram.getCount()).isEqualTo(2);
+        assertThat(histogram.getTotal(TimeUnit.MILLISECONDS)).isEqualTo(4);
+        assertThat(histogram.getMean(TimeUnit.MILLISECONDS)).isEqualTo(2.0);
+        assertThat(histogram.getMax(TimeUnit.MILLISECONDS)).isEqualTo(3);
+    }
+
+    @Test
+    public void testPercentile() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i=1; i<=100; i++) {
+            histogram.record(i * 1000000L);
+        }
+
+        // buckets are at most 1/8 wider than the durations they contain
+        assertThat(histogram.getPercentile(0.5, TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(50.0)
+            .isLessThanOrEqualTo(50 * 1.125);
+        assertThat(histogram.getPercentile(0.99, TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(99.0)
+            .isLessThanOrEqualTo(100.0);
+        assertThat(histogram.getPercentile(1, TimeUnit.MILLISECONDS)).isEqualTo(100.0);
+    }
+
+    @Test
+    public void testBuckets() {
+        for (long nanos : new long[] { 0, 1, 7, 8, 9, 15, 16, 1000, 123456789, Long.MAX_VALUE / 2 }) {
+            int index = LatencyHistogram.bucketIndex(nanos);
+            assertThat(LatencyHistogram.bucketUpperBound(index)).isGreaterThanOrEqualTo(nanos);
+            if (index > 0) {
+                assertThat(LatencyHistogram.bucketUpperBound(index - 1)).isLessThan(nanos);
+            }
+        }
+    }
+
+    @Test
+    public void testReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000);
+        histogram.reset();
+
+        assertThat(histogram.getCount()).isEqualTo(0);
+        assertThat(histogram.getMax(TimeUnit.NANOSECONDS)).isEqualTo(0);
+        assertThat(histogram.getPercentile(1, TimeUnit.NANOSECONDS)).isEqualTo(0.0);
+    }
+} // class LatencyHistogramTest
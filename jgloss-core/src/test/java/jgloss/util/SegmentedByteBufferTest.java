@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.util;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+
+public class SegmentedByteBufferTest {
+    private static final byte[] DATA = initData();
+
+    private static byte[] initData() {
+        byte[] data = new byte[100];
+        for (int i=0; i<data.length; i++) {
+            data[i] = (byte) i;
+        }
+        return data;
+    }
+
+    @Test
+    public void testGetSingleSegment() {
+        SegmentedByteBuffer buffer = SegmentedByteBuffer.wrap(ByteBuffer.wrap(DATA));
+        assertThat(buffer.size()).isEqualTo(DATA.length);
+        for (int i=0; i<DATA.length; i++) {
+            assertThat(buffer.get(i)).isEqualTo(DATA[i]);
+        }
+    }
+
+    @Test
+    public void testGetMultipleSegments() {
+        SegmentedByteBuffer buffer = SegmentedByteBuffer.wrap(ByteBuffer.wrap(DATA), 16, 8);
+        assertThat(buffer.size()).isEqualTo(DATA.length);
+        for (int i=0; i<DATA.length; i++) {
+            assertThat(buffer.get(i)).isEqualTo(DATA[i]);
+        }
+    }
+
+    @Test
+    public void testGetIntAcrossSegmentBoundary() {
+        ByteBuffer data = ByteBuffer.wrap(DATA);
+        SegmentedByteBuffer buffer = SegmentedByteBuffer.wrap(data, 16, 8);
+        assertThat(buffer.getInt(14)).isEqualTo(data.getInt(14));
+        assertThat(buffer.getLong(30)).isEqualTo(data.getLong(30));
+    }
+
+    @Test
+    public void testByteOrder() {
+        ByteBuffer data = ByteBuffer.wrap(DATA).order(ByteOrder.LITTLE_ENDIAN);
+        SegmentedByteBuffer buffer = SegmentedByteBuffer.wrap(data, 16, 8);
+        assertThat(buffer.getInt(20)).isEqualTo(data.getInt(20));
+        assertThat(buffer.window(20).order()).isEqualTo(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Test
+    public void testWindow() {
+        SegmentedByteBuffer buffer = SegmentedByteBuffer.wrap(ByteBuffer.wrap(DATA), 16, 8);
+        ByteBuffer window = buffer.window(40);
+        long windowOffset = buffer.windowOffset(40);
+        assertThat(windowOffset).isEqualTo(32 - 8);
+        assertThat(windowOffset + window.position()).isEqualTo(40);
+        assertThat(window.get()).isEqualTo((byte) 40);
+        assertThat(windowOffset + window.limit()).isEqualTo(48 + 8);
+        assertThat(buffer.segmentEnd(40)).isEqualTo(48);
+    }
+
+    @Test
+    public void testWindowsAreIndependent() {
+        SegmentedByteBuffer buffer = SegmentedByteBuffer.wrap(ByteBuffer.wrap(DATA), 16, 8);
+        ByteBuffer window = buffer.window(40);
+        window.get();
+        assertThat(buffer.window(40).position()).isEqualTo(40 - 24);
+    }
+
+    @Test
+    public void testLastSegment() {
+        SegmentedByteBuffer buffer = SegmentedByteBuffer.wrap(ByteBuffer.wrap(DATA), 16, 8);
+        assertThat(buffer.segmentEnd(99)).isEqualTo(DATA.length);
+        ByteBuffer window = buffer.window(DATA.length);
+        assertThat(window.hasRemaining()).isFalse();
+    }
+
+    @Test(expected=IndexOutOfBoundsException.class)
+    public void testGetBeforeStart() {
+        SegmentedByteBuffer.wrap(ByteBuffer.wrap(DATA), 16, 8).get(-1);
+    }
+
+    @Test(expected=IndexOutOfBoundsException.class)
+    public void testGetAfterEnd() {
+        SegmentedByteBuffer.wrap(ByteBuffer.wrap(DATA), 16, 8).get(DATA.length);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testIllegalSegmentation() {
+        SegmentedByteBuffer.wrap(ByteBuffer.wrap(DATA), Integer.MAX_VALUE - 1, 8);
+    }
+
+    @Test
+    public void testMap() throws IOException {
+        File file = File.createTempFile(SegmentedByteBufferTest.class.getSimpleName(), ".dat");
+        try {
+            FileOutputStream out = new FileOutputStream(file);
+            try {
+                out.write(DATA);
+            } finally {
+                out.close();
+            }
+
+            RandomAccessFile in = new RandomAccessFile(file, "r");
+            try {
+                SegmentedByteBuffer buffer = SegmentedByteBuffer.map(in.getChannel(), 10, 80,
+                                ByteOrder.BIG_ENDIAN, 16, 8);
+                assertThat(buffer.size()).isEqualTo(80);
+                for (int i=0; i<80; i++) {
+                    assertThat(buffer.get(i)).isEqualTo(DATA[i + 10]);
+                }
+            } finally {
+                in.close();
+            }
+        } finally {
+            file.delete();
+        }
+    }
+}
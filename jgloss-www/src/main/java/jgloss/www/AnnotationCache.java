@@ -0,0 +1,325 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.www;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jgloss.dictionary.Dictionary;
+import jgloss.parser.Parser;
+import jgloss.parser.TextAnnotation;
+
+/**
+ * Thread safe cache of parse results for runs of text, shared by the annotators of all requests.
+ * Web sites repeat the same navigation, header and footer text on every page, which then only
+ * has to be parsed once.
+ * <p>
+ * Entries are addressed by the text and a {@link Configuration} describing the parser and
+ * dictionaries which produced the annotations. The size of the cache is bounded by an estimate
+ * of the memory used by the entries. If the budget is exceeded, the least recently used entries
+ * are evicted.
+ * </p><p>
+ * The cached annotation lists are shared between all users of the cache and must not be modified.
+ * Only results of parsers which do not depend on previously parsed text may be cached, that is
+ * parsers which don't annotate the first occurrence of a word only.
+ * </p>
+ *
+ * @author Michael Koch
+ */
+public class AnnotationCache {
+    /**
+     * Default memory budget in bytes.
+     */
+    public static final long DEFAULT_MAX_BYTES = 8 * 1024 * 1024;
+
+    /**
+     * Estimated memory used by a cache entry and its key, excluding the text and annotations.
+     */
+    private static final int ENTRY_OVERHEAD = 96;
+    /**
+     * Estimated memory used by an annotation object, excluding the strings it references.
+     */
+    private static final int ANNOTATION_OVERHEAD = 48;
+
+    private final Map<Key, Entry> entries = new LinkedHashMap<Key, Entry>( 256, 0.75f, true);
+    private final long maxBytes;
+    /**
+     * Estimated memory used by all entries currently in the cache. Guarded by <code>this</code>.
+     */
+    private long bytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Creates a cache which uses at most {@link #DEFAULT_MAX_BYTES} bytes.
+     */
+    public AnnotationCache() {
+        this( DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Creates a cache whose entries use at most approximately <code>maxBytes</code> bytes.
+     *
+     * @throws IllegalArgumentException if <code>maxBytes</code> is not positive.
+     */
+    public AnnotationCache( long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException( "memory budget must be positive: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the annotations cached for the text, or <code>null</code> if the text is not cached.
+     * The returned list is unmodifiable.
+     */
+    public List<TextAnnotation> get( Configuration configuration, String text) {
+        Key key = new Key( configuration, text);
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get( key);
+        }
+        if (entry != null) {
+            hits.incrementAndGet();
+            return entry.annotations;
+        } else {
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Stores the annotations for the text. The annotations are copied to a new list, but the
+     * annotation objects themselves are stored in the cache and must not be modified afterwards.
+     * Results which are larger than the memory budget of the cache are not stored.
+     */
+    public void put( Configuration configuration, String text, List<TextAnnotation> annotations) {
+        Entry entry = new Entry( text, annotations);
+        if (entry.size > maxBytes) {
+            return;
+        }
+
+        Key key = new Key( configuration, text);
+        synchronized (this) {
+            Entry previous = entries.put( key, entry);
+            bytes += entry.size;
+            if (previous != null) {
+                bytes -= previous.size;
+            }
+
+            // evict least recently used entries until the cache fits the budget again
+            for ( Iterator<Entry> i=entries.values().iterator(); bytes > maxBytes && i.hasNext(); ) {
+                Entry eldest = i.next();
+                i.remove();
+                bytes -= eldest.size;
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Removes all entries from the cache.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Returns the number of texts currently cached.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the estimated memory in bytes used by the entries currently cached.
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Returns the maximum memory in bytes used by the entries of this cache.
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Returns the fraction of lookups which were answered from the cache, or 0 if there were
+     * no lookups yet.
+     */
+    public double getHitRate() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total > 0 ? (double) h / total : 0;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " [size=" + size() + ", bytes=" + getBytes() +
+            ", maxBytes=" + maxBytes + ", hits=" + getHitCount() + ", misses=" + getMissCount() +
+            ", hitRate=" + String.format( "%.1f%%", getHitRate() * 100) +
+            ", evictions=" + getEvictionCount() + "]";
+    }
+
+    /**
+     * Parser settings and dictionaries which determine the annotations of a text. Parsers of
+     * the same class with the same settings using the same dictionary objects produce the same
+     * annotations. Dictionaries are compared by identity, so a reloaded dictionary will not use
+     * the annotations cached for its previous instance.
+     */
+    public static final class Configuration {
+        private final Class<?> parserClass;
+        private final boolean ignoreNewlines;
+        private final Dictionary[] dictionaries;
+        private final int hash;
+
+        /**
+         * Creates the configuration for a parser which uses the given dictionaries.
+         */
+        public Configuration( Parser parser, Dictionary[] dictionaries) {
+            this.parserClass = parser.getClass();
+            this.ignoreNewlines = parser.isIgnoreNewlines();
+            this.dictionaries = dictionaries.clone();
+
+            int h = parserClass.hashCode() * 31 + (ignoreNewlines ? 1 : 0);
+            for (Dictionary d : this.dictionaries) {
+                h = h * 31 + System.identityHashCode( d);
+            }
+            this.hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals( Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Configuration)) {
+                return false;
+            }
+            Configuration other = (Configuration) o;
+            if (hash != other.hash || parserClass != other.parserClass ||
+                ignoreNewlines != other.ignoreNewlines ||
+                dictionaries.length != other.dictionaries.length) {
+                return false;
+            }
+            for ( int i=0; i<dictionaries.length; i++) {
+                if (dictionaries[i] != other.dictionaries[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return parserClass.getSimpleName() + " " + Arrays.toString( dictionaries);
+        }
+    }
+
+    /**
+     * Cache key consisting of the parser configuration and the parsed text.
+     */
+    private static class Key {
+        private final Configuration configuration;
+        private final String text;
+        private final int hash;
+
+        Key( Configuration configuration, String text) {
+            this.configuration = configuration;
+            this.text = text;
+            this.hash = 31 * configuration.hashCode() + text.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals( Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash && text.equals( other.text) &&
+                configuration.equals( other.configuration);
+        }
+    }
+
+    /**
+     * Cached annotations of a text together with their estimated memory use.
+     */
+    private static class Entry {
+        final List<TextAnnotation> annotations;
+        final long size;
+
+        Entry( String text, List<TextAnnotation> annotations) {
+            this.annotations = Collections.unmodifiableList( Arrays.asList
+                ( annotations.toArray( new TextAnnotation[annotations.size()])));
+
+            long s = ENTRY_OVERHEAD + 2L * text.length();
+            for (TextAnnotation a : annotations) {
+                s += ANNOTATION_OVERHEAD + stringSize( a.getReading()) +
+                    stringSize( a.getDictionaryForm()) + stringSize( a.getDictionaryFormReading()) +
+                    stringSize( a.getGrammaticalType()) + stringSize( a.getTranslation());
+            }
+            this.size = s;
+        }
+
+        private static long stringSize( String s) {
+            // strings are often shared with the dictionary entries, but count them anyway to
+            // stay on the safe side of the budget
+            return s != null ? 40 + 2L * s.length() : 0;
+        }
+    }
+} // class AnnotationCache
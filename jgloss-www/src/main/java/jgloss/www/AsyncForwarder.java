@@ -0,0 +1,386 @@
+/*
+ * Copyright (C) 2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.www;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.text.MessageFormat;
+import java.util.ResourceBundle;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import jgloss.util.CharacterEncodingDetector;
+
+import org.eclipse.jetty.client.ContentDecoder;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.util.Callback;
+
+/**
+ * Forwards the response of a remote server to the client in the asynchronous mode of the
+ * {@link JGlossServlet JGlossServlet}. The listener is called by the non-blocking HTTP client
+ * for every part of the response. HTML documents are decoded and annotated part by part
+ * and sent to the client while the rest of the document is still loading. All other content is
+ * tunneled. Writing to the client blocks like in the synchronous mode of the servlet.
+ *
+ * @author Michael Koch
+ */
+class AsyncForwarder extends Response.Listener.Adapter implements AsyncListener {
+    /**
+     * Number of bytes at the start of a document used to detect the character encoding.
+     */
+    private static final int ENCODING_DETECTION_LENGTH = 5000;
+
+    private final JGlossServlet servlet;
+    private final AsyncContext async;
+    private final HttpServletRequest req;
+    private final HttpServletResponse resp;
+    private final URL url;
+    private final URLRewriter rewriter;
+    private final boolean forwardCookies;
+    private final HttpClient client;
+    private final Request remoteRequest;
+
+    /**
+     * Annotator used for the document, or <code>null</code> if the response is tunneled.
+     */
+    private HTMLAnnotator annotator;
+    /**
+     * Decoder for the document, <code>null</code> until the character encoding is detected.
+     */
+    private CharsetDecoder decoder;
+    /**
+     * Received document bytes which are not decoded yet. Contains the start of the document
+     * until the character encoding is detected, afterwards incomplete characters at the end
+     * of a response part.
+     */
+    private ByteBuffer undecoded = ByteBuffer.allocate( ENCODING_DETECTION_LENGTH);
+    private CharBuffer decoded;
+    /**
+     * Output stream to the client for tunneled content.
+     */
+    private OutputStream tunnelOut;
+
+    AsyncForwarder( JGlossServlet servlet, AsyncContext async, URL url, URLRewriter rewriter,
+                    boolean forwardCookies, HttpClient client, Request remoteRequest) {
+        this.servlet = servlet;
+        this.async = async;
+        this.req = (HttpServletRequest) async.getRequest();
+        this.resp = (HttpServletResponse) async.getResponse();
+        this.url = url;
+        this.rewriter = rewriter;
+        this.forwardCookies = forwardCookies;
+        this.client = client;
+        this.remoteRequest = remoteRequest;
+    }
+
+    @Override
+    public void onHeaders( Response response) {
+        try {
+            URLConnection connection = new ResponseConnection( url, response);
+            servlet.forwardResponseHeaders( connection, req, resp, rewriter);
+            if (forwardCookies) {
+                CookieTools.addResponseCookies( connection, resp, req.getServerName(),
+                                                req.getContextPath() + req.getServletPath(),
+                                                req.isSecure(), servlet.getServletContext());
+            }
+
+            servlet.getServletContext().log( "response code " + response.getStatus());
+            resp.setStatus( response.getStatus());
+            if (response.getStatus() == 304) {
+                return;
+            }
+
+            String type = connection.getContentType();
+            servlet.getServletContext().log( "content type " + type + " url " + url.toString());
+            String encoding = connection.getContentEncoding();
+            boolean decodedByClient = isDecodedByClient( encoding);
+            if (servlet.isRewrittenContentType( type) &&
+                (encoding == null || decodedByClient)) {
+                annotator = servlet.createAnnotator();
+            } else {
+                if (type != null) {
+                    resp.setContentType( type);
+                }
+                // the content encoding and length only apply if the content is tunneled unchanged
+                if (!decodedByClient) {
+                    int length = connection.getContentLength();
+                    if (length > 0) {
+                        resp.setContentLength( length);
+                    }
+                    if (encoding != null) {
+                        resp.setHeader( "Content-Encoding", encoding);
+                    }
+                }
+                tunnelOut = resp.getOutputStream();
+            }
+        } catch (IOException ex) {
+            response.abort( ex);
+        }
+    }
+
+    @Override
+    public void onContent( Response response, ByteBuffer content, Callback callback) {
+        try {
+            if (annotator != null) {
+                annotate( content, false);
+            } else if (tunnelOut != null) {
+                write( tunnelOut, content);
+                tunnelOut.flush();
+            }
+            callback.succeeded();
+        } catch (IOException ex) {
+            callback.failed( ex);
+        }
+    }
+
+    @Override
+    public void onComplete( Result result) {
+        try {
+            if (result.isFailed()) {
+                failed( result.getFailure());
+            } else if (annotator != null) {
+                annotate( ByteBuffer.allocate( 0), true);
+                servlet.pageAnnotated();
+            }
+        } catch (IOException ex) {
+            servlet.getServletContext().log( "failed to complete response for " + url, ex);
+        } finally {
+            try {
+                async.complete();
+            } catch (IllegalStateException ex) {
+                // the request was already completed by the container after an error
+            }
+        }
+    }
+
+    /**
+     * Decodes and annotates a part of the document. The character encoding is detected
+     * once enough bytes are available.
+     *
+     * @param endOfInput <code>true</code> if this is the end of the document.
+     */
+    private void annotate( ByteBuffer content, boolean endOfInput) throws IOException {
+        undecoded = append( undecoded, content);
+        if (decoder == null) {
+            if (undecoded.position() < ENCODING_DETECTION_LENGTH && !endOfInput) {
+                return;
+            }
+            startDocument();
+        }
+
+        undecoded.flip();
+        // the decoded buffer is smaller than the undecoded bytes if a large part was received
+        CoderResult result;
+        do {
+            result = decoder.decode( undecoded, decoded, endOfInput);
+            annotateDecoded();
+        } while (result.isOverflow());
+        if (endOfInput) {
+            do {
+                result = decoder.flush( decoded);
+                annotateDecoded();
+            } while (result.isOverflow());
+            annotator.endDocument();
+        }
+        undecoded.compact();
+        resp.getWriter().flush();
+    }
+
+    /**
+     * Detects the character encoding of the document and starts annotating it.
+     */
+    private void startDocument() throws IOException {
+        byte[] start = new byte[undecoded.position()];
+        System.arraycopy( undecoded.array(), 0, start, 0, start.length);
+        Charset charset = Charset.forName( CharacterEncodingDetector.guessEncodingName( start));
+        servlet.getServletContext().log( "using character encoding " + charset.name());
+        decoder = charset.newDecoder()
+            .onMalformedInput( CodingErrorAction.REPLACE)
+            .onUnmappableCharacter( CodingErrorAction.REPLACE);
+        decoded = CharBuffer.allocate( undecoded.capacity());
+
+        resp.setContentType( "text/html; charset=" + charset.name());
+        Writer out = resp.getWriter();
+        annotator.startDocument( rewriter.getDocumentBase(), out, rewriter);
+    }
+
+    private void annotateDecoded() throws IOException {
+        decoded.flip();
+        annotator.annotate( decoded.array(), decoded.arrayOffset() + decoded.position(),
+                            decoded.remaining());
+        decoded.clear();
+    }
+
+    /**
+     * Sends an error page if the remote server could not be accessed. If the response is already
+     * committed, the failure can only be logged.
+     */
+    private void failed( Throwable failure) {
+        servlet.getServletContext().log( "failed to forward " + url, failure);
+        if (resp.isCommitted()) {
+            return;
+        }
+
+        String message;
+        if (failure instanceof UnknownHostException) {
+            message = MessageFormat.format
+                ( ResourceBundle.getBundle( JGlossServlet.MESSAGES, req.getLocale())
+                  .getString( "error.unknownhost"),
+                  new Object[] { url.toExternalForm(), url.getHost() } );
+        } else {
+            message = MessageFormat.format
+                ( ResourceBundle.getBundle( JGlossServlet.MESSAGES, req.getLocale())
+                  .getString( "error.connect"),
+                  new Object[] { url.toExternalForm(), failure.getClass().getName(),
+                                 failure.getMessage() } );
+        }
+        try {
+            resp.reset();
+            resp.sendError( HttpServletResponse.SC_BAD_GATEWAY, message);
+        } catch (IOException | IllegalStateException ex) {
+            servlet.getServletContext().log( "failed to send error page", ex);
+        }
+    }
+
+    /**
+     * Aborts the remote request if the client connection fails.
+     */
+    @Override
+    public void onError( AsyncEvent event) {
+        remoteRequest.abort( event.getThrowable());
+    }
+
+    @Override
+    public void onTimeout( AsyncEvent event) {
+        remoteRequest.abort( new IOException( "asynchronous request timed out"));
+    }
+
+    @Override
+    public void onComplete( AsyncEvent event) {}
+
+    @Override
+    public void onStartAsync( AsyncEvent event) {}
+
+    /**
+     * Test if the HTTP client transparently decodes the content encoding.
+     */
+    private boolean isDecodedByClient( String encoding) {
+        if (encoding != null) {
+            for (ContentDecoder.Factory factory : client.getContentDecoderFactories()) {
+                if (factory.getEncoding().equalsIgnoreCase( encoding)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Appends the remaining bytes of <code>data</code> to the buffer, which is enlarged if needed.
+     */
+    private static ByteBuffer append( ByteBuffer buffer, ByteBuffer data) {
+        if (buffer.remaining() < data.remaining()) {
+            ByteBuffer larger = ByteBuffer.allocate
+                ( Math.max( 2*buffer.capacity(), buffer.position() + data.remaining()));
+            buffer.flip();
+            larger.put( buffer);
+            buffer = larger;
+        }
+        buffer.put( data);
+        return buffer;
+    }
+
+    private static void write( OutputStream out, ByteBuffer data) throws IOException {
+        if (data.hasArray()) {
+            out.write( data.array(), data.arrayOffset() + data.position(), data.remaining());
+            data.position( data.limit());
+        } else {
+            byte[] buf = new byte[data.remaining()];
+            data.get( buf);
+            out.write( buf);
+        }
+    }
+
+    /**
+     * Presents the headers of a response of the HTTP client as URL connection, which lets the
+     * asynchronous mode reuse the header and cookie forwarding of the servlet. The header with
+     * index 0 is the status line, like in <code>HttpURLConnection</code>.
+     */
+    private static class ResponseConnection extends URLConnection {
+        private final Response response;
+
+        ResponseConnection( URL url, Response response) {
+            super( url);
+            this.response = response;
+            connected = true;
+        }
+
+        @Override
+        public void connect() {}
+
+        @Override
+        public String getHeaderField( String name) {
+            return response.getHeaders().get( name);
+        }
+
+        @Override
+        public String getHeaderFieldKey( int n) {
+            HttpField field = getField( n);
+            return field != null ? field.getName() : null;
+        }
+
+        @Override
+        public String getHeaderField( int n) {
+            if (n == 0) {
+                return response.getVersion() + " " + response.getStatus() + " " + response.getReason();
+            }
+            HttpField field = getField( n);
+            return field != null ? field.getValue() : null;
+        }
+
+        private HttpField getField( int n) {
+            if (n < 1 || n > response.getHeaders().size()) {
+                return null;
+            }
+            return response.getHeaders().getField( n-1);
+        }
+    } // class ResponseConnection
+} // class AsyncForwarder
@@ -37,24 +37,92 @@ import javax.servlet.*;
 /**
  * Utility class for forwarding cookies between client-servlet and servlet-remote server.
  * This class tries to support both RFC2965 version 1 and Netscape cookies.
+ * The methods keep no shared mutable state and can be called concurrently from
+ * several servlet threads.
  *
  * @author Michael Koch
  */
 public class CookieTools {
-    private static final StringBuilder parser = new StringBuilder( 100);
-
     /**
-     * Date format of the expires cookie attribute as defined in the Netscape cookie
-     * specification.
+     * Date formats of the expires cookie attribute. The first is defined in the Netscape cookie
+     * specification, the second uses spaces instead of dashes in the date (as seen on Yahoo).
+     * <code>SimpleDateFormat</code> is not thread safe, so every servlet thread gets its own copies.
      */
-    public static final DateFormat expiresDateFormat1 = new SimpleDateFormat
-        ( "EEE, dd-MMM-yyyy HH:mm:ss z", Locale.US);
+    private static final ThreadLocal<DateFormat[]> expiresDateFormats = new ThreadLocal<DateFormat[]>() {
+        @Override
+        protected DateFormat[] initialValue() {
+            return new DateFormat[] {
+                new SimpleDateFormat( "EEE, dd-MMM-yyyy HH:mm:ss z", Locale.US),
+                new SimpleDateFormat( "EEE, dd MMM yyyy HH:mm:ss z", Locale.US)
+            };
+        }
+    };
+
     /**
-     * Date format of the expires cookie attribute as defined in the Netscape cookie
-     * specification; except for spaces instead of dashes in the date (as seen on Yahoo).
+     * The properties of a remote URL which cookies are matched against. They are computed once
+     * per forwarded request instead of once per cookie.
      */
-    public static final DateFormat expiresDateFormat2 = new SimpleDateFormat
-        ( "EEE, dd MMM yyyy HH:mm:ss z", Locale.US);
+    private static class Target {
+        /**
+         * Host name of the remote URL.
+         */
+        final String host;
+        /**
+         * Lowercase effective host name as defined in RFC2965.
+         */
+        final String effectiveHost;
+        final String path;
+        final String port;
+        final boolean https;
+
+        private Target( String host, String path, String port, boolean https) {
+            this.host = host;
+            String effectiveHost = host.toLowerCase();
+            if (effectiveHost.indexOf( '.') == -1) {
+                effectiveHost += ".local";
+            }
+            this.effectiveHost = effectiveHost;
+            this.path = path;
+            this.port = port;
+            this.https = https;
+        }
+
+        /**
+         * Creates the cookie target for a remote URL.
+         *
+         * @return The target, or <code>null</code> if the URL has no host.
+         */
+        static Target forURL( URL url) {
+            String host = url.getHost();
+            if (host==null || host.length()==0) {
+                return null;
+            }
+            String path = url.getPath();
+            if (path==null || path.length()==0) {
+                path = "/";
+            }
+            // this class is only used for protocols http and https
+            boolean https = "https".equalsIgnoreCase( url.getProtocol());
+            int port = url.getPort();
+            if (port == -1) {
+                port = https ? 443 : 80;
+            }
+
+            return new Target( host, path, String.valueOf( port), https);
+        }
+
+        boolean domainMatch( String cdomain) {
+            return domainMatchLowerCase( effectiveHost, cdomain.toLowerCase());
+        }
+
+        boolean portMatch( String cportlist) {
+            return CookieTools.portMatch( port, cportlist);
+        }
+
+        boolean pathMatch( String cpath) {
+            return path.startsWith( cpath);
+        }
+    }
 
     /**
      * Read cookies encapsulated by <CODE>parseResponseCookies</CODE> from the client request and
@@ -78,36 +146,18 @@ public class CookieTools {
             return;
         }
 
-        String host = url.getHost();
-        if (host==null || host.length()==0) {
-	        return;
-        }
-        // build effective host name
-        if (host.indexOf( '.') == -1) {
-	        host += ".local";
-        }
-        String path = url.getPath();
-        if (path==null || path.length()==0) {
-	        path = "/";
-        }
-        int porti = url.getPort();
-        if (porti == -1) {
-            // this method is only called for protocols http and https
-            if ("https".equals( url.getProtocol())) {
-	            porti = 443;
-            } else {
-	            porti = 80;
-            }
+        Target target = Target.forURL( url);
+        if (target == null) {
+            return;
         }
-        String port = String.valueOf( porti);
 
-        StringBuilder cookietext = new StringBuilder( 10000);
+        StringBuilder cookietext = new StringBuilder( 64 * cookies.length);
         int maxVersion = 0;
         for (Cookie c : cookies) {
             context.log( "adding cookie " + c.getName());
 
             // don't send secure cookies over an insecure connection
-            if (c.getSecure() && !"https".equalsIgnoreCase( url.getProtocol())) {
+            if (c.getSecure() && !target.https) {
                 context.log( "security test failed");
                 continue;
             }
@@ -131,19 +181,21 @@ public class CookieTools {
                 String cdomain = unescape( name.substring( 0, i1));
                 String cpath = unescape( name.substring( i1+1, i2));
                 String cportlist = unescape( name.substring( i2+1, i3));
-                if (!domainMatch( host, cdomain)) {
-	                context.log(  "domainmatch failed");
+                // match domain/path/port to target URL as described in RFC2965, sect. 3.3.4
+                boolean match = true;
+                if (!target.domainMatch( cdomain)) {
+                    context.log( "domainmatch failed");
+                    match = false;
                 }
-                if (!portMatch( port, cportlist)) {
-	                context.log(  "portmatch failed");
+                if (!target.portMatch( cportlist)) {
+                    context.log( "portmatch failed");
+                    match = false;
                 }
-                if (!path.startsWith( cpath)) {
-	                context.log(  "path/cpath failed");
+                if (!target.pathMatch( cpath)) {
+                    context.log( "path/cpath failed");
+                    match = false;
                 }
-                // match domain/path/port to target URL as described in RFC2965, sect. 3.3.4
-                if (domainMatch( host, cdomain) &&
-                    portMatch( port, cportlist) &&
-                    path.startsWith( cpath)) {
+                if (match) {
                     name = name.substring( i3 + 1);
 
                     // some servers require the space after the semicolon
@@ -204,25 +256,13 @@ public class CookieTools {
                                            String servletDomain, String servletPath, boolean secure,
                                            ServletContext context) {
         context.log( "parsing response cookies");
-        URL url = connection.getURL();
-        String host = url.getHost();
-        if (host==null || host.length()==0) {
-	        return;
-        }
-        String path = url.getPath();
-        if (path==null || path.length()==0) {
-	        path = "/";
-        }
-        int porti = url.getPort();
-        if (porti == -1) {
-            // this method is only called for protocols http and https
-            if ("https".equals( url.getProtocol())) {
-	            porti = 443;
-            } else {
-	            porti = 80;
-            }
+        Target target = Target.forURL( connection.getURL());
+        if (target == null) {
+            return;
         }
-        String port = String.valueOf( porti);
+        String host = target.host;
+        String path = target.path;
+        String port = target.port;
 
         // Iterate over all headers. The same header can be set multiple times with
         // differing values.
@@ -247,7 +287,6 @@ public class CookieTools {
             int next = -1;
             while ((next = parseCookie( cs, cookie, next+1, version1)) != -1) {
                 context.log( "parse successful");
-                //context.log( parser.toString());
                 // skip this cookie if path servlet-client is not secure and the 
                 // secure attribute is set
                 if (cookie.containsKey( "secure") && !secure) {
@@ -304,12 +343,8 @@ public class CookieTools {
                 }
                 // The effective host name that derives from the request-host does
                 // not domain-match the Domain attribute.
-                String effectiveHost = host;
-                if (host.indexOf( '.') == -1) {
-	                effectiveHost += ".local";
-                }
-                if (!domainMatch( effectiveHost, cdomain)) {
-                    context.log( "domain match test failed: " + effectiveHost + " / " + cdomain);
+                if (!target.domainMatch( cdomain)) {
+                    context.log( "domain match test failed: " + target.effectiveHost + " / " + cdomain);
                     continue;
                 }
                 // The request-host is a HDN (not IP address) and has the form HD,
@@ -327,7 +362,7 @@ public class CookieTools {
                 }
                 // The Port attribute has a "port-list", and the request-port was
                 // not in the list.
-                if (cportlist.length()>0 && !portMatch( port, cportlist)) {
+                if (cportlist.length()>0 && !target.portMatch( cportlist)) {
                     context.log( "port test failed: " + port + "/" + cportlist);
                     continue;
                 }
@@ -339,17 +374,12 @@ public class CookieTools {
                       name, value);
                 String expires = cookie.get( "expires");
                 if (expires != null) {
-	                try {
-	                    Date d = expiresDateFormat1.parse( expires);
-	                    c.setMaxAge( (int) ((d.getTime()-System.currentTimeMillis()) / 1000));
-	                } catch (ParseException ex) {
-	                    try {
-	                        Date d = expiresDateFormat2.parse( expires);
-	                        c.setMaxAge( (int) ((d.getTime()-System.currentTimeMillis()) / 1000));
-	                    } catch (ParseException ex2) {
-	                        context.log( "expires attribute: " + ex2.getMessage());
-	                    }
-	                }
+                    Date d = parseExpires( expires);
+                    if (d != null) {
+                        c.setMaxAge( (int) ((d.getTime()-System.currentTimeMillis()) / 1000));
+                    } else {
+                        context.log( "unparseable expires attribute: " + expires);
+                    }
                 }
 
                 c.setPath( servletPath);
@@ -377,8 +407,13 @@ public class CookieTools {
      * Do a domain-match test as specified in RFC2965.
      */
     protected static boolean domainMatch( String a, String b) {
-        a = a.toLowerCase();
-        b = b.toLowerCase();
+        return domainMatchLowerCase( a.toLowerCase(), b.toLowerCase());
+    }
+
+    /**
+     * Do a domain-match test on two names which are already converted to lower case.
+     */
+    private static boolean domainMatchLowerCase( String a, String b) {
         if (a.equals( b)) {
 	        return true;
         }
@@ -395,6 +430,23 @@ public class CookieTools {
                 a.endsWith( b));
     }
 
+    /**
+     * Parses the value of an expires cookie attribute in one of the date formats used by
+     * Netscape cookies.
+     *
+     * @return The expiration date, or <code>null</code> if the value could not be parsed.
+     */
+    protected static Date parseExpires( String expires) {
+        for (DateFormat format : expiresDateFormats.get()) {
+            try {
+                return format.parse( expires);
+            } catch (ParseException ex) {
+                // try next format
+            }
+        }
+        return null;
+    }
+
     /**
      * Do a port match in a list of ports. The port matches the portlist is empty, 
      * or if it is a substring of the 
@@ -454,7 +506,6 @@ public class CookieTools {
      */
     protected static int parseCookie( String cookie, Map<String, String> attributes, int from,
                                       boolean version1) {
-        parser.delete( 0, parser.length());
         attributes.clear();
 
         final int BEFORE_NAME = 0;
@@ -477,8 +528,6 @@ public class CookieTools {
 
         for ( int i=from; i<cookie.length(); i++) {
             char c = cookie.charAt( i);
-            parser.append( state);
-            parser.append( c);
             
             switch (state) {
             case BEFORE_NAME:
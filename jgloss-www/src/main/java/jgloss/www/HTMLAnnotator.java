@@ -23,15 +23,17 @@
 // WARNING .. this is unfinished code, it didn't compile in the first place !!! (truell)
 
 package jgloss.www;
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.Writer;
 import java.net.MalformedURLException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import jgloss.dictionary.SearchException;
 import jgloss.parser.Parser;
@@ -43,7 +45,8 @@ import org.slf4j.LoggerFactory;
 /**
  * Look up words in a Japanese HTML page and add a tag with the dictionary entries.
  * A CSS Style Sheet and JavaScript fragment will be added which displays the entries
- * when the mouse is over a word.
+ * when the mouse is over a word. An annotator keeps the state of the document it is
+ * annotating and can only be used by one thread at a time.
  */
 public class HTMLAnnotator {
 	private static final Logger LOGGER = LoggerFactory.getLogger(HTMLAnnotator.class);
@@ -54,6 +57,11 @@ public class HTMLAnnotator {
      */
     private final static String SCRIPT_RESOURCE = "/data/HTMLAnnotator";
 
+    /**
+     * Number of characters read from the document in one call.
+     */
+    private final static int READ_BUFFER_SIZE = 4096;
+
     /**
      * Parser used for the document.
      */
@@ -70,6 +78,38 @@ public class HTMLAnnotator {
      * Map from previously generated annotation texts to their corresponding ids.
      */
     private Map<String, Integer> generatedAnnotations;
+    /**
+     * Cache of parse results shared with other annotators, or <code>null</code>.
+     */
+    private AnnotationCache annotationCache;
+    /**
+     * Configuration of the parser used as part of the annotation cache key.
+     */
+    private AnnotationCache.Configuration cacheConfiguration;
+    /**
+     * Set of dictionary forms already annotated in the current document, or <code>null</code>
+     * if every occurrence of a word is annotated.
+     */
+    private Set<String> annotatedWords;
+
+    /**
+     * Output of the document currently annotated.
+     */
+    private Writer out;
+    /**
+     * Rewriter for the URLs of the document currently annotated.
+     */
+    private URLRewriter rewriter;
+    /**
+     * Text or tag read from the document which is not yet written to the output.
+     */
+    private final StringBuilder text = new StringBuilder( 4096);
+    private boolean scriptWritten;
+    private boolean inBody;
+    private boolean inTag;
+    private boolean inForm;
+    private int commentchar;
+    private boolean inComment;
 
     /**
      * Constructs an annotator which uses the given parser and the default 
@@ -116,46 +156,78 @@ public class HTMLAnnotator {
     /**
      * Reads an HTML document from <CODE>in</CODE>, annotates Japanese words with dictionary lookup results
      * and writes the resulting HTML page to <CODE>out</CODE>. 
+     * <P>
+     * The document is processed as it arrives. Whenever no more input is available without
+     * blocking, the output written so far is flushed, so that the client receives the
+     * annotated start of the page while the rest is still being transferred.
+     * </P>
      */
     public void annotate( String docBase, Reader in, Writer out, 
                           URLRewriter rewriter) throws IOException {
+        startDocument( docBase, out, rewriter);
+        char[] buf = new char[READ_BUFFER_SIZE];
+        int len;
+        while ((len=in.read( buf)) != -1) {
+            annotate( buf, 0, len);
+            if (!in.ready()) {
+                // wait for more data from the remote server; send what is annotated so far
+                out.flush();
+            }
+        }
+        endDocument();
+    }
+
+    /**
+     * Starts the annotation of an HTML document which is passed to the annotator in parts as it
+     * arrives. The parts are annotated by calls to {@link #annotate(char[],int,int) annotate},
+     * and the end of the document is signalled by {@link #endDocument() endDocument}.
+     * Flushing the output is left to the caller.
+     */
+    public void startDocument( String docBase, Writer out, URLRewriter rewriter) {
         rewriter.setDocumentBase( docBase);
-        in = new BufferedReader( in);
-        
-        StringBuilder text = new StringBuilder();
-        text.ensureCapacity( 4096);
-
-        boolean scriptWritten = false;
-        boolean inBody = false;
-        boolean inTag = false;
-        boolean inForm = false;
-        int commentchar = 0;
-        boolean inComment = false;
-
-        int i = in.read();
-        while (i != -1) {
-            char c = (char) i;
-            
+        this.out = out;
+        this.rewriter = rewriter;
+        text.delete( 0, text.length());
+        scriptWritten = false;
+        inBody = false;
+        inTag = false;
+        inForm = false;
+        commentchar = 0;
+        inComment = false;
+        if (annotatedWords != null) {
+            annotatedWords.clear();
+        }
+    }
+
+    /**
+     * Annotates the next part of the document started by {@link #startDocument(String,Writer,URLRewriter)
+     * startDocument}. Text and tags which are not complete at the end of the part are kept
+     * until the next part arrives.
+     */
+    public void annotate( char[] buf, int off, int len) throws IOException {
+        for ( int p=off; p<off+len; p++) {
+            char c = buf[p];
+
             if (inTag) {
                 text.append( c);
                 switch (commentchar) {
                 case 1:
                     if (c == '!') {
-	                    commentchar++;
+                        commentchar++;
                     } else {
-	                    commentchar = 0;
+                        commentchar = 0;
                     }
                     break;
                 case 2:
                     if (c == '-') {
-	                    commentchar++;
+                        commentchar++;
                     } else {
-	                    commentchar = 0;
+                        commentchar = 0;
                     }
                     break;
                 case 3:
                     if (c == '-') {
-	                    inComment = true;
+                        inComment = true;
                     }
                     commentchar = 0;
                     break;
@@ -175,11 +247,11 @@ public class HTMLAnnotator {
                         scriptWritten = true;
                     }
                     if (tag.equals( "body")) {
-	                    inBody = true;
+                        inBody = true;
                     } else if (tag.equals( "form")) {
-	                    inForm = true;
+                        inForm = true;
                     } else if (tag.equals( "/html")) {
-	                    inBody = false;
+                        inBody = false;
                     } else if (tag.equals( "/body")) {
                         inBody = false;
                         // Konqueror 2.1 needs an inline style definition for the element.style
@@ -188,7 +260,7 @@ public class HTMLAnnotator {
                                    "<pre id=\"annotation\"></pre></div>\n");
                     }
                     else if (tag.equals( "/form")) {
-	                    inForm = false;
+                        inForm = false;
                     }
                     rewriteURL( tag, text, rewriter);
 
@@ -201,7 +273,7 @@ public class HTMLAnnotator {
                     if (inBody && !inForm) {
                         annotateText( out, text);
                     } else {
-	                    out.write( text.toString());
+                        out.write( text.toString());
                     }
                     text.delete( 0, text.length());
                     if (c=='<') {
@@ -211,14 +283,75 @@ public class HTMLAnnotator {
                 }
                 text.append( c);
             }
-
-            i = in.read();
         }
-        // write remainder
+    }
+
+    /**
+     * Writes the remainder of the document started by {@link #startDocument(String,Writer,URLRewriter)
+     * startDocument}.
+     */
+    public void endDocument() throws IOException {
         if (inBody && !inTag) {
-	        annotateText( out, text);
+            annotateText( out, text);
         }
         out.write( text.toString());
+        text.delete( 0, text.length());
+    }
+
+    /**
+     * Use a cache for the annotations of text runs. Identical runs of text, which are common in
+     * navigation, header and footer elements of web pages, will then only be parsed once.
+     * The cache is not used if the parser annotates the first occurrence of a word only, since
+     * the result of the parser then depends on the previously parsed text. Use a parser which
+     * annotates every occurrence together with {@link #setAnnotateFirstOccurrenceOnly(boolean)
+     * setAnnotateFirstOccurrenceOnly} instead.
+     *
+     * @param cache Cache shared with other annotators, or <code>null</code> to disable caching.
+     * @param configuration Parser configuration, which must describe the parser of this annotator.
+     */
+    public void setAnnotationCache( AnnotationCache cache, AnnotationCache.Configuration configuration) {
+        this.annotationCache = cache;
+        this.cacheConfiguration = configuration;
+    }
+
+    /**
+     * Annotate only the first occurrence of a word in a document. The annotations of later
+     * occurrences are removed by the annotator, which allows the parser to annotate every
+     * occurrence and its results to be cached per text run.
+     */
+    public void setAnnotateFirstOccurrenceOnly( boolean firstOccurrenceOnly) {
+        if (firstOccurrenceOnly) {
+            if (annotatedWords == null) {
+                annotatedWords = new HashSet<String>( 101);
+            }
+        } else {
+            annotatedWords = null;
+        }
+    }
+
+    /**
+     * Test if only the first occurrence of a word in a document is annotated by the annotator.
+     */
+    public boolean isAnnotateFirstOccurrenceOnly() {
+        return annotatedWords != null;
+    }
+
+    /**
+     * Removes the annotations of words which were already annotated earlier in the document.
+     * The list passed in is not modified.
+     */
+    protected List<TextAnnotation> filterFirstOccurrences( List<TextAnnotation> annotations) {
+        if (annotatedWords == null) {
+            return annotations;
+        }
+
+        List<TextAnnotation> firstOccurrences = new ArrayList<TextAnnotation>( annotations.size());
+        for (TextAnnotation annotation : annotations) {
+            if (annotatedWords.add( annotation.getDictionaryForm())) {
+                firstOccurrences.add( annotation);
+            }
+        }
+        return firstOccurrences;
     }
 
     /**
@@ -234,7 +367,20 @@ public class HTMLAnnotator {
         text.getChars( 0, text.length(), chars, 0);
 
         try {
-            List<TextAnnotation> annotations = parser.parse( chars, 0, chars.length);
+            List<TextAnnotation> annotations = null;
+            String cacheKey = null;
+            if (annotationCache != null && !parser.isAnnotateFirstOccurrenceOnly() &&
+                containsJapanese( chars)) {
+                cacheKey = text.toString();
+                annotations = annotationCache.get( cacheConfiguration, cacheKey);
+            }
+            if (annotations == null) {
+                annotations = parser.parse( chars, 0, chars.length);
+                if (cacheKey != null) {
+                    annotationCache.put( cacheConfiguration, cacheKey, annotations);
+                }
+            }
+            annotations = filterFirstOccurrences( annotations);
             StringBuilder anno = new StringBuilder( 200);
             int start = 0; // index of first character of annotated word
             int end = 0; // index of first character after annotated word
@@ -276,6 +422,19 @@ public class HTMLAnnotator {
         }
     }
 
+    /**
+     * Test if the text contains any kana or kanji. Text without Japanese characters is cheap
+     * to parse and not worth caching.
+     */
+    private static boolean containsJapanese( char[] text) {
+        for (char c : text) {
+            if (c >= '\u3040') {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Appends the text for an annotation.
      *
@@ -29,21 +29,27 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.PrintWriter;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.UnknownHostException;
 import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.InflaterInputStream;
 
+import javax.management.ObjectName;
+import javax.servlet.AsyncContext;
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
@@ -53,12 +59,26 @@ import javax.servlet.http.HttpServletResponse;
 import jgloss.dictionary.Dictionary;
 import jgloss.dictionary.DictionaryFactory;
 import jgloss.dictionary.DictionaryInstantiationException;
+import jgloss.dictionary.DictionaryMetrics;
+import jgloss.dictionary.IndexException;
+import jgloss.dictionary.IndexedDictionary;
 import jgloss.dictionary.UnsupportedDescriptorException;
+import jgloss.parser.ChasenPool;
 import jgloss.parser.KanjiParser;
+import jgloss.parser.LRULookupCache;
+import jgloss.parser.LookupCache;
 import jgloss.parser.Parser;
+import jgloss.parser.ParserMetrics;
 import jgloss.util.CharacterEncodingDetector;
+import jgloss.util.JMXTools;
 import jgloss.util.UTF8ResourceBundleControl;
 
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.util.InputStreamContentProvider;
+import org.eclipse.jetty.http.HttpMethod;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+
 /**
  * Servlet which annotates an HTML page with the dictionary entries for
  * Japanese words. The servlet takes an URL, loads the specified page, annotates it
@@ -116,6 +136,27 @@ public class JGlossServlet extends HttpServlet {
      * Initialization parameter name.
      */
     public final static String ENABLE_COMPRESSION = "enable_compression";
+    /**
+     * Initialization parameter name.
+     */
+    public final static String LOOKUP_CACHE_SIZE = "lookup-cache-size";
+    /**
+     * Initialization parameter name.
+     */
+    public final static String ANNOTATION_CACHE_SIZE = "annotation-cache-size";
+    /**
+     * Initialization parameter name.
+     */
+    public final static String ENABLE_STATUS = "enable_status";
+    /**
+     * Initialization parameter name.
+     */
+    public final static String ENABLE_ASYNC = "enable_async";
+
+    /**
+     * Path info of the page which shows the dictionary, parser and cache statistics.
+     */
+    public final static String STATUS_PATH = "/status";
 
     /**
      * CGI parameter name.
@@ -130,7 +171,49 @@ public class JGlossServlet extends HttpServlet {
      */
     public final static String ALLOW_FORM_DATA_FORWARDING = "jgforwardforms";
 
+    /**
+     * Size of the buffer used to copy request and response bodies.
+     */
+    private static final int COPY_BUFFER_SIZE = 8192;
+
+    /**
+     * Number of annotated pages after which the cache statistics are written to the log.
+     */
+    private static final int STATISTICS_LOG_INTERVAL = 1000;
+
     private jgloss.dictionary.Dictionary[] dictionaries;
+    /**
+     * Lookup statistics of the dictionaries, in the same order as the dictionaries.
+     */
+    private DictionaryMetrics[] dictionaryMetrics;
+    /**
+     * Statistics shared by the parsers of all requests.
+     */
+    private final ParserMetrics parserMetrics = new ParserMetrics();
+    /**
+     * Names of the management beans registered by this servlet.
+     */
+    private final List<ObjectName> registeredMBeans = new ArrayList<ObjectName>();
+    /**
+     * Flag if the statistics page is served.
+     */
+    private boolean enableStatus;
+    /**
+     * Cache of dictionary lookups shared by the parsers of all requests.
+     */
+    private LookupCache lookupCache;
+    /**
+     * Cache of annotated text runs shared by the annotators of all requests, or <code>null</code>.
+     */
+    private AnnotationCache annotationCache;
+    /**
+     * Configuration of the parsers created by this servlet, used as part of the annotation cache key.
+     */
+    private AnnotationCache.Configuration parserConfiguration;
+    /**
+     * Number of pages annotated since the servlet was initialized.
+     */
+    private final AtomicLong annotatedPages = new AtomicLong();
     /**
      * Set of protocols allowed in remote urls.
      */
@@ -178,6 +261,11 @@ public class JGlossServlet extends HttpServlet {
      * Flag if compression content encodings should be enabled.
      */
     private boolean enableCompression;
+    /**
+     * Non-blocking HTTP client used to access http and https remote servers in asynchronous mode,
+     * or <code>null</code> if the asynchronous mode is disabled.
+     */
+    private HttpClient asyncClient;
 
     public JGlossServlet() {}
 
@@ -197,6 +285,7 @@ public class JGlossServlet extends HttpServlet {
 
         // load the dictionaries
         List<Dictionary> diclist = new LinkedList<Dictionary>();
+        List<DictionaryMetrics> metricslist = new LinkedList<DictionaryMetrics>();
         String d = config.getInitParameter( DICTIONARIES);
         if (d==null || d.length()==0) {
 	        throw new ServletException( MessageFormat.format
@@ -207,7 +296,21 @@ public class JGlossServlet extends HttpServlet {
         for (String dictionaryName : split( d, ' ')) {
             jgloss.dictionary.Dictionary dic = null;
             try {
-                dic = DictionaryFactory.synchronizedDictionary(DictionaryFactory.createDictionary( dictionaryName));
+                dic = DictionaryFactory.threadSafeDictionary(DictionaryFactory.createDictionary( dictionaryName));
+                DictionaryMetrics metrics = new DictionaryMetrics( dic.getName());
+                dic = DictionaryFactory.instrumentedDictionary( dic, metrics);
+                if (dic instanceof IndexedDictionary &&
+                    !((IndexedDictionary) dic).loadIndex()) {
+                    getServletContext().log( "building index for dictionary " + dic.getName());
+                    ((IndexedDictionary) dic).buildIndex();
+                }
+                metricslist.add( metrics);
+            } catch (IndexException ex) {
+                throw new ServletException( MessageFormat.format
+                                            ( ResourceBundle.getBundle( MESSAGES)
+                                              .getString( "error.loaddictionary"),
+                                              new Object[] { dictionaryName })
+                                            , ex);
             } catch (DictionaryInstantiationException ex) {
                 throw new ServletException( MessageFormat.format
                                             ( ResourceBundle.getBundle( MESSAGES)
@@ -223,10 +326,39 @@ public class JGlossServlet extends HttpServlet {
             diclist.add( dic);
         }
         dictionaries = diclist.toArray(new Dictionary[diclist.size()]);
+        dictionaryMetrics = metricslist.toArray(new DictionaryMetrics[metricslist.size()]);
+
+        int lookupCacheSize;
+        try {
+            lookupCacheSize = Integer.parseInt( config.getInitParameter( LOOKUP_CACHE_SIZE));
+        } catch (Exception ex) { // NullPointerException or NumberFormatException
+            lookupCacheSize = LRULookupCache.DEFAULT_MAX_SIZE;
+        }
+        if (lookupCacheSize > 0) {
+            lookupCache = new LRULookupCache( lookupCacheSize);
+            getServletContext().log( "lookup cache size set to " + lookupCacheSize + " entries");
+        } else {
+            lookupCache = null;
+            getServletContext().log( "lookup cache disabled");
+        }
+
+        int annotationCacheSize;
+        try {
+            annotationCacheSize = Integer.parseInt( config.getInitParameter( ANNOTATION_CACHE_SIZE));
+        } catch (Exception ex) { // NullPointerException or NumberFormatException
+            annotationCacheSize = (int) (AnnotationCache.DEFAULT_MAX_BYTES / 1024);
+        }
+        if (annotationCacheSize > 0) {
+            annotationCache = new AnnotationCache( annotationCacheSize * 1024L);
+            getServletContext().log( "annotation cache size set to " + annotationCacheSize + " KB");
+        } else {
+            annotationCache = null;
+            getServletContext().log( "annotation cache disabled");
+        }
 
         // construct a throwaway annotator to test for a misconfiguration in the initializer
-        Parser parser = new KanjiParser( dictionaries, null);
-        parser.setIgnoreNewlines( true);
+        Parser parser = createParser();
+        parserConfiguration = new AnnotationCache.Configuration( parser, dictionaries);
         try {
             new HTMLAnnotator( parser);
         } catch (IOException ex) {
@@ -360,15 +492,94 @@ public class JGlossServlet extends HttpServlet {
 
         enableCompression = "true".equals( config.getInitParameter( ENABLE_COMPRESSION));
         getServletContext().log( "content compression " + (enableCompression ? "enabled" : "disabled"));
+
+        enableStatus = "true".equals( config.getInitParameter( ENABLE_STATUS));
+        getServletContext().log( "status page " + (enableStatus ? "enabled" : "disabled"));
+
+        if ("true".equals( config.getInitParameter( ENABLE_ASYNC))) {
+            asyncClient = createAsyncClient();
+        }
+        getServletContext().log( "asynchronous mode " + (asyncClient != null ? "enabled" : "disabled"));
+
+        registerMBeans();
+    }
+
+    /**
+     * Creates and starts the HTTP client used in asynchronous mode. Redirects are forwarded to the
+     * client like in blocking mode. If compression is enabled, the client requests and decodes gzip
+     * content encoding.
+     */
+    protected HttpClient createAsyncClient() throws ServletException {
+        HttpClient client = new HttpClient( new SslContextFactory());
+        client.setFollowRedirects( false);
+        if (!enableCompression) {
+            client.getContentDecoderFactories().clear();
+        }
+        try {
+            client.start();
+        } catch (Exception ex) {
+            throw new ServletException( ex);
+        }
+        return client;
+    }
+
+    /**
+     * Makes the dictionary and parser statistics available through JMX.
+     */
+    protected void registerMBeans() {
+        for (DictionaryMetrics metrics : dictionaryMetrics) {
+            addMBean( JMXTools.register( metrics, "DictionaryMetrics", metrics.getDictionaryName()));
+        }
+        addMBean( JMXTools.register( parserMetrics, "ParserMetrics", getServletName()));
+    }
+
+    private void addMBean( ObjectName name) {
+        if (name != null) {
+            registeredMBeans.add( name);
+        }
     }
 
     @Override
 	public void destroy() {
         super.destroy();
 
+        for (ObjectName name : registeredMBeans) {
+            JMXTools.unregister( name);
+        }
+        registeredMBeans.clear();
+
+        if (asyncClient != null) {
+            try {
+                asyncClient.stop();
+            } catch (Exception ex) {
+                getServletContext().log( "failed to stop the asynchronous HTTP client", ex);
+            }
+            asyncClient = null;
+        }
+
         for (Dictionary dictionarie : dictionaries) {
 	        dictionarie.dispose();
         }
+        ChasenPool.disposeAll();
+        if (lookupCache != null) {
+            getServletContext().log( "lookup cache statistics: " + lookupCache);
+            lookupCache.clear();
+        }
+        if (annotationCache != null) {
+            getServletContext().log( "annotation cache statistics: " + annotationCache);
+            annotationCache.clear();
+        }
+    }
+
+    /**
+     * Creates the parser used to annotate a page. The parser annotates every occurrence of a word,
+     * which makes the result of parsing a text run independent of the text preceding it in the page
+     * and thus cacheable. Later occurrences are removed by the annotator.
+     */
+    protected Parser createParser() {
+        KanjiParser parser = new KanjiParser( dictionaries, null, lookupCache, false, false);
+        parser.setMetrics( parserMetrics);
+        return parser;
     }
 
     @Override
@@ -412,6 +623,15 @@ public class JGlossServlet extends HttpServlet {
             return;
         }
 
+        if (STATUS_PATH.equals( pathinfo)) {
+            if (enableStatus) {
+                writeStatus( resp);
+            } else {
+                resp.sendError( HttpServletResponse.SC_NOT_FOUND);
+            }
+            return;
+        }
+
         Set<String> connectionAllowedProtocols;
         if (req.isSecure()) {
 	        connectionAllowedProtocols = secureAllowedProtocols;
@@ -514,6 +734,11 @@ public class JGlossServlet extends HttpServlet {
               url, connectionAllowedProtocols,
               allowCookieForwarding, allowFormDataForwarding);
 
+        if (asyncClient != null && remoteIsHttp && req.isAsyncSupported()) {
+            forwardAsync( req, resp, url, forwardFormData && post, forwardCookies, rewriter);
+            return;
+        }
+
         // prepare the connection to the remote server
         URLConnection connection = url.openConnection();
 
@@ -569,7 +794,7 @@ public class JGlossServlet extends HttpServlet {
         if (forwardFormData && post && remoteIsHttp) {
             InputStream is = req.getInputStream();
             OutputStream os = connection.getOutputStream();
-            byte[] buf = new byte[512];
+            byte[] buf = new byte[COPY_BUFFER_SIZE];
             int len;
             while ((len=is.read( buf)) != -1) {
 	            os.write( buf, 0, len);
@@ -607,15 +832,7 @@ public class JGlossServlet extends HttpServlet {
         getServletContext().log( "content type " + type + " url " +
                                  connection.getURL().toString());
         // check if the response content type is supported
-        boolean supported = false;
-        if (type != null) {
-            for (String rewrittenContentType : rewrittenContentTypes) {
-	            if (type.startsWith( rewrittenContentType)) {
-                    supported = true;
-                    break;
-                }
-            }
-        }
+        boolean supported = isRewrittenContentType( type);
         if (supported) {
             // If the content encoding cannot be decoded by the servlet,
             // the content is tunneled to the browser.
@@ -633,9 +850,73 @@ public class JGlossServlet extends HttpServlet {
         }
     }
 
+    /**
+     * Forwards the request to the remote server using the non-blocking HTTP client. The request
+     * is put in asynchronous mode, and the container thread is released while the remote server
+     * is accessed. The response is annotated and sent to the client as it arrives.
+     *
+     * @param forwardBody Flag if the body of the request is forwarded with a POST request.
+     * @see AsyncForwarder
+     */
+    protected void forwardAsync( HttpServletRequest req, HttpServletResponse resp, URL url,
+                                 boolean forwardBody, boolean forwardCookies, URLRewriter rewriter)
+        throws IOException {
+        // the request headers and cookies are collected on an unconnected URL connection,
+        // using the same rules as blocking requests
+        URLConnection headers = url.openConnection();
+        forwardRequestHeaders( headers, req);
+        if (forwardCookies &&
+            (enableCookieSecureInsecureForwarding ||
+             !req.isSecure() || url.getProtocol().equals( "https"))) {
+	        CookieTools.addRequestCookies( headers, req.getCookies(), getServletContext());
+        }
+
+        Request remoteRequest = asyncClient.newRequest( url.toExternalForm());
+        for (Map.Entry<String, List<String>> header : headers.getRequestProperties().entrySet()) {
+            // forwarded headers like the user agent replace the defaults of the HTTP client
+            remoteRequest.getHeaders().remove( header.getKey());
+            for (String value : header.getValue()) {
+                remoteRequest.header( header.getKey(), value);
+            }
+        }
+        if (forwardBody) {
+            getServletContext().log( "using POST");
+            remoteRequest.method( HttpMethod.POST)
+                .content( new InputStreamContentProvider( req.getInputStream(), COPY_BUFFER_SIZE),
+                          req.getContentType());
+        }
+
+        boolean forwardResponseCookies = forwardCookies &&
+            (enableCookieSecureInsecureForwarding ||
+             req.isSecure() || !url.getProtocol().equals( "https"));
+        AsyncContext async = req.startAsync();
+        // like blocking requests, the remote request is not limited in time
+        async.setTimeout( 0);
+        AsyncForwarder forwarder = new AsyncForwarder( this, async, url, rewriter, forwardResponseCookies,
+                                                       asyncClient, remoteRequest);
+        async.addListener( forwarder);
+        remoteRequest.send( forwarder);
+    }
+
+    /**
+     * Test if documents of the given content type are annotated.
+     *
+     * @param type Content type of the remote server response, may be <code>null</code>.
+     */
+    protected boolean isRewrittenContentType( String type) {
+        if (type != null) {
+            for (String rewrittenContentType : rewrittenContentTypes) {
+	            if (type.startsWith( rewrittenContentType)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     protected void tunnel( URLConnection connection, HttpServletRequest req, HttpServletResponse resp)
         throws ServletException, IOException {
-        byte[] buf = new byte[1024];
+        byte[] buf = new byte[COPY_BUFFER_SIZE];
 
         if (connection.getContentType() != null) {
 	        resp.setContentType( connection.getContentType());
@@ -653,6 +934,10 @@ public class JGlossServlet extends HttpServlet {
             int len = in.read( buf);
             while (len != -1) {
                 out.write( buf, 0, len);
+                if (in.available() == 0) {
+                    // the next read will block, send the data received so far to the client
+                    out.flush();
+                }
                 len = in.read( buf);
             }
         } finally {
@@ -682,15 +967,70 @@ public class JGlossServlet extends HttpServlet {
             resp.setContentType( "text/html; charset=" + reader.getEncoding());
 
             // due to performance reasons, the servlet-client connection never uses compression
-            Parser parser = new KanjiParser( dictionaries, null);
-            parser.setIgnoreNewlines( true);
-            HTMLAnnotator annotator = new HTMLAnnotator( parser);
-            annotator.annotate( rewriter.getDocumentBase(), reader, resp.getWriter(), rewriter);
+            createAnnotator().annotate( rewriter.getDocumentBase(), reader, resp.getWriter(), rewriter);
+            pageAnnotated();
         } finally {
             in.close();
         }
     }
 
+    /**
+     * Creates the annotator for a page, which uses the annotation cache of the servlet.
+     */
+    protected HTMLAnnotator createAnnotator() throws IOException {
+        HTMLAnnotator annotator = new HTMLAnnotator( createParser());
+        annotator.setAnnotateFirstOccurrenceOnly( true);
+        annotator.setAnnotationCache( annotationCache, parserConfiguration);
+        return annotator;
+    }
+
+    /**
+     * Counts an annotated page and regularly writes the cache statistics to the log.
+     */
+    protected void pageAnnotated() {
+        if (annotatedPages.incrementAndGet() % STATISTICS_LOG_INTERVAL == 0) {
+            logCacheStatistics();
+        }
+    }
+
+    /**
+     * Writes the dictionary, parser and cache statistics as plain text page.
+     */
+    protected void writeStatus( HttpServletResponse resp) throws IOException {
+        resp.setContentType( "text/plain");
+        resp.setCharacterEncoding( "UTF-8");
+        resp.setHeader( "Cache-Control", "no-cache");
+        PrintWriter out = resp.getWriter();
+        out.println( annotatedPages.get() + " pages annotated");
+        out.println();
+        for (DictionaryMetrics metrics : dictionaryMetrics) {
+            out.println( "dictionary " + metrics);
+            for (DictionaryMetrics.SearchModeStatistics statistics : metrics.getSearchModeStatistics()) {
+                out.println( "  " + statistics);
+            }
+        }
+        out.println();
+        out.println( "parser: " + parserMetrics);
+        out.println( "lookup cache: " + (lookupCache != null ? lookupCache.toString() : "disabled"));
+        out.println( "annotation cache: " + (annotationCache != null ? annotationCache.toString() : "disabled"));
+        out.flush();
+    }
+
+    /**
+     * Writes the hit rates of the lookup and annotation caches to the servlet log.
+     */
+    protected void logCacheStatistics() {
+        StringBuilder message = new StringBuilder( 200);
+        message.append( annotatedPages.get()).append( " pages annotated");
+        if (lookupCache != null) {
+            message.append( "; lookup cache: ").append( lookupCache);
+        }
+        if (annotationCache != null) {
+            message.append( "; annotation cache: ").append( annotationCache);
+        }
+        getServletContext().log( message.toString());
+    }
+
     @SuppressWarnings("unchecked")
     protected void forwardRequestHeaders( URLConnection connection, HttpServletRequest req) {
         String via = req.getHeader( "Via");
@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.www;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import jgloss.dictionary.Dictionary;
+import jgloss.parser.KanjiParser;
+import jgloss.parser.Parser;
+import jgloss.parser.TextAnnotation;
+
+import org.junit.Test;
+
+public class AnnotationCacheTest {
+    /**
+     * Estimated size of an entry with a text of 10 characters and no annotations.
+     */
+    private static final int EMPTY_ENTRY_SIZE = 96 + 2*10;
+
+    private final Dictionary dictionary = mock( Dictionary.class);
+
+    private final AnnotationCache.Configuration configuration =
+        new AnnotationCache.Configuration( parser( Parser.class, false), new Dictionary[] { dictionary });
+
+    private static Parser parser( Class<? extends Parser> parserClass, boolean ignoreNewlines) {
+        Parser parser = mock( parserClass);
+        when( parser.isIgnoreNewlines()).thenReturn( ignoreNewlines);
+        return parser;
+    }
+
+    @Test
+    public void testHitOnIdenticalText() {
+        AnnotationCache cache = new AnnotationCache();
+        List<TextAnnotation> annotations = Arrays.asList( new TextAnnotation( 0, 2, "子供"));
+        cache.put( configuration, "子供の本", annotations);
+
+        List<TextAnnotation> cached = cache.get( configuration, new String( "子供の本"));
+        assertThat( cached).isEqualTo( annotations);
+        assertThat( cache.getHitCount()).isEqualTo( 1);
+        assertThat( cache.getMissCount()).isEqualTo( 0);
+    }
+
+    @Test
+    public void testMissOnDifferentText() {
+        AnnotationCache cache = new AnnotationCache();
+        cache.put( configuration, "子供の本", Collections.<TextAnnotation> emptyList());
+
+        assertThat( cache.get( configuration, "子供の本だ")).isNull();
+        assertThat( cache.getHitCount()).isEqualTo( 0);
+        assertThat( cache.getMissCount()).isEqualTo( 1);
+    }
+
+    @Test( expected=UnsupportedOperationException.class)
+    public void testCachedAnnotationsAreUnmodifiable() {
+        AnnotationCache cache = new AnnotationCache();
+        cache.put( configuration, "子供", Arrays.asList( new TextAnnotation( 0, 2, "子供")));
+
+        cache.get( configuration, "子供").clear();
+    }
+
+    @Test
+    public void testSameDictionariesAreSameConfiguration() {
+        AnnotationCache cache = new AnnotationCache();
+        cache.put( configuration, "子供", Collections.<TextAnnotation> emptyList());
+
+        AnnotationCache.Configuration same =
+            new AnnotationCache.Configuration( parser( Parser.class, false), new Dictionary[] { dictionary });
+        assertThat( same).isEqualTo( configuration);
+        assertThat( cache.get( same, "子供")).isNotNull();
+    }
+
+    @Test
+    public void testParserClassIsPartOfKey() {
+        AnnotationCache cache = new AnnotationCache();
+        cache.put( configuration, "子供", Collections.<TextAnnotation> emptyList());
+
+        AnnotationCache.Configuration otherParser =
+            new AnnotationCache.Configuration( parser( KanjiParser.class, false), new Dictionary[] { dictionary });
+        assertThat( otherParser).isNotEqualTo( configuration);
+        assertThat( cache.get( otherParser, "子供")).isNull();
+    }
+
+    @Test
+    public void testIgnoreNewlinesIsPartOfKey() {
+        AnnotationCache cache = new AnnotationCache();
+        cache.put( configuration, "子供", Collections.<TextAnnotation> emptyList());
+
+        AnnotationCache.Configuration ignoreNewlines =
+            new AnnotationCache.Configuration( parser( Parser.class, true), new Dictionary[] { dictionary });
+        assertThat( ignoreNewlines).isNotEqualTo( configuration);
+        assertThat( cache.get( ignoreNewlines, "子供")).isNull();
+    }
+
+    @Test
+    public void testDictionaryIdentityIsPartOfKey() {
+        AnnotationCache cache = new AnnotationCache();
+        cache.put( configuration, "子供", Collections.<TextAnnotation> emptyList());
+
+        // a reloaded dictionary is a different object
+        AnnotationCache.Configuration reloaded = new AnnotationCache.Configuration
+            ( parser( Parser.class, false), new Dictionary[] { mock( Dictionary.class) });
+        assertThat( reloaded).isNotEqualTo( configuration);
+        assertThat( cache.get( reloaded, "子供")).isNull();
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntryIsEvicted() {
+        AnnotationCache cache = new AnnotationCache( 2*EMPTY_ENTRY_SIZE + EMPTY_ENTRY_SIZE/2);
+        cache.put( configuration, "0123456789", Collections.<TextAnnotation> emptyList());
+        cache.put( configuration, "abcdefghij", Collections.<TextAnnotation> emptyList());
+        assertThat( cache.getBytes()).isEqualTo( 2*EMPTY_ENTRY_SIZE);
+        // make the first entry the most recently used
+        assertThat( cache.get( configuration, "0123456789")).isNotNull();
+
+        cache.put( configuration, "ABCDEFGHIJ", Collections.<TextAnnotation> emptyList());
+
+        assertThat( cache.size()).isEqualTo( 2);
+        assertThat( cache.getEvictionCount()).isEqualTo( 1);
+        assertThat( cache.getBytes()).isEqualTo( 2*EMPTY_ENTRY_SIZE);
+        assertThat( cache.get( configuration, "abcdefghij")).isNull();
+        assertThat( cache.get( configuration, "0123456789")).isNotNull();
+        assertThat( cache.get( configuration, "ABCDEFGHIJ")).isNotNull();
+    }
+
+    @Test
+    public void testAnnotationsCountTowardsBudget() {
+        AnnotationCache cache = new AnnotationCache();
+        cache.put( configuration, "0123456789", Collections.<TextAnnotation> emptyList());
+        long emptySize = cache.getBytes();
+        cache.put( configuration, "0123456789", Arrays.asList( new TextAnnotation( 0, 2, "子供")));
+
+        assertThat( cache.size()).isEqualTo( 1);
+        assertThat( cache.getBytes()).isGreaterThan( emptySize);
+    }
+
+    @Test
+    public void testEntryLargerThanBudgetIsNotStored() {
+        AnnotationCache cache = new AnnotationCache( EMPTY_ENTRY_SIZE - 1);
+        cache.put( configuration, "0123456789", Collections.<TextAnnotation> emptyList());
+
+        assertThat( cache.size()).isEqualTo( 0);
+        assertThat( cache.getBytes()).isEqualTo( 0);
+        assertThat( cache.getEvictionCount()).isEqualTo( 0);
+    }
+
+    @Test
+    public void testClear() {
+        AnnotationCache cache = new AnnotationCache();
+        cache.put( configuration, "0123456789", Collections.<TextAnnotation> emptyList());
+        cache.clear();
+
+        assertThat( cache.size()).isEqualTo( 0);
+        assertThat( cache.getBytes()).isEqualTo( 0);
+        assertThat( cache.get( configuration, "0123456789")).isNull();
+    }
+} // class AnnotationCacheTest
@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.www;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class CookieToolsTest {
+    private static final int THREADS = 8;
+    private static final int ITERATIONS = 200;
+
+    /**
+     * Connection which returns a fixed list of response headers.
+     */
+    private static class HeaderConnection extends URLConnection {
+        private final String[] headers;
+
+        /**
+         * @param headers Alternating header names and values.
+         */
+        HeaderConnection(URL url, String... headers) {
+            super(url);
+            this.headers = headers;
+        }
+
+        @Override
+        public void connect() throws IOException {
+            connected = true;
+        }
+
+        @Override
+        public String getHeaderFieldKey(int n) {
+            return n >= 1 && 2*n <= headers.length ? headers[2*(n-1)] : null;
+        }
+
+        @Override
+        public String getHeaderField(int n) {
+            return n >= 1 && 2*n <= headers.length ? headers[2*n - 1] : null;
+        }
+    }
+
+    private final ServletContext context = mock(ServletContext.class);
+
+    @Test
+    public void testResponseCookies() throws Exception {
+        Date expires = new Date(System.currentTimeMillis() + 24*60*60*1000L);
+        Cookie cookie = forwardResponseCookie(new URL("http://www.example.com/dir/page.html"),
+                        "id=1234; path=/dir; domain=.example.com; expires=" + formatExpires(expires));
+
+        assertThat(cookie.getName()).isEqualTo(".example.com|%2fdir||id");
+        assertThat(cookie.getValue()).isEqualTo("1234");
+        assertThat(cookie.getDomain()).isEqualTo("proxy.example.org");
+        assertThat(cookie.getPath()).isEqualTo("/jgloss/servlet");
+        assertExpiresIn(cookie, expires);
+    }
+
+    @Test
+    public void testRequestCookies() throws Exception {
+        URL url = new URL("http://www.example.com/dir/page.html");
+        Cookie[] cookies = {
+            new Cookie(".example.com|%2fdir||id", "1234"),
+            new Cookie(".example.com|%2fother||other", "x"),
+            new Cookie(".example.net|%2f||net", "y"),
+            new Cookie("unrelated", "z")
+        };
+
+        URLConnection connection = new HeaderConnection(url);
+        CookieTools.addRequestCookies(connection, cookies, context);
+
+        assertThat(connection.getRequestProperty("Cookie")).isEqualTo("$Version=0; id=1234");
+    }
+
+    @Test
+    public void testParseExpires() {
+        assertThat(CookieTools.parseExpires("Wed, 09-Jun-2021 10:18:14 GMT"))
+            .isEqualTo(CookieTools.parseExpires("Wed, 09 Jun 2021 10:18:14 GMT"));
+        assertThat(CookieTools.parseExpires("Wed, 09-Jun-2021 10:18:14 GMT")).isNotNull();
+        assertThat(CookieTools.parseExpires("tomorrow")).isNull();
+    }
+
+    /**
+     * Forwards cookies with different expiration dates and paths from many threads at once.
+     * Cookie processing used to share a parse buffer and date formats between all threads.
+     */
+    @Test
+    public void testConcurrentCookieForwarding() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Void>> results = new ArrayList<Future<Void>>();
+            for (int t=0; t<THREADS; t++) {
+                final int thread = t;
+                results.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        start.await();
+                        for (int i=0; i<ITERATIONS; i++) {
+                            forwardCookie(thread, i);
+                        }
+                        return null;
+                    }
+                }));
+            }
+
+            start.countDown();
+            for (Future<Void> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void forwardCookie(int thread, int iteration) throws Exception {
+        String path = "/t" + thread + "/i" + iteration;
+        URL url = new URL("http://www.example.com" + path + "/page.html");
+        // distinct expiration date for every thread and iteration
+        Date expires = new Date(System.currentTimeMillis() + (24*60*60 + thread*10000 + iteration*10)*1000L);
+        String value = thread + "-" + iteration;
+
+        Cookie cookie = forwardResponseCookie(url, "id=" + value + "; path=" + path
+                        + "; expires=" + formatExpires(expires));
+        assertThat(cookie.getValue()).isEqualTo(value);
+        assertExpiresIn(cookie, expires);
+
+        URLConnection connection = new HeaderConnection(url);
+        CookieTools.addRequestCookies(connection, new Cookie[] { cookie }, context);
+        assertThat(connection.getRequestProperty("Cookie")).isEqualTo("$Version=0; id=" + value);
+    }
+
+    private Cookie forwardResponseCookie(URL url, String setCookie) {
+        HttpServletResponse resp = mock(HttpServletResponse.class);
+        CookieTools.addResponseCookies(new HeaderConnection(url, "Set-Cookie", setCookie), resp,
+                        "proxy.example.org", "/jgloss/servlet", false, context);
+
+        ArgumentCaptor<Cookie> cookie = ArgumentCaptor.forClass(Cookie.class);
+        verify(resp, times(1)).addCookie(cookie.capture());
+        return cookie.getValue();
+    }
+
+    private static String formatExpires(Date expires) {
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd-MMM-yyyy HH:mm:ss z", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return format.format(expires);
+    }
+
+    private static void assertExpiresIn(Cookie cookie, Date expires) {
+        long expected = (expires.getTime() - System.currentTimeMillis()) / 1000;
+        assertThat((long) cookie.getMaxAge()).isGreaterThan(expected - 5).isLessThan(expected + 5);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.www;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import jgloss.dictionary.Dictionary;
+import jgloss.parser.Parser;
+import jgloss.parser.TextAnnotation;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class HTMLAnnotatorTest {
+    private static final String DOCUMENT_BASE = "http://www.example.org/test.html";
+
+    private static final String TEXT = "子供と子供";
+
+    private final TextAnnotation first = new TextAnnotation( 0, 2, "子供");
+    private final TextAnnotation second = new TextAnnotation( 3, 2, "子供");
+
+    private Parser parser;
+
+    private HTMLAnnotator annotator;
+
+    private JGlossURLRewriter rewriter;
+
+    @Before
+    public void setUp() throws Exception {
+        parser = mock( Parser.class);
+        // the parser annotates every occurrence of a word
+        when( parser.parse( any( char[].class), anyInt(), anyInt())).thenAnswer( new Answer<List<TextAnnotation>>() {
+            @Override
+            public List<TextAnnotation> answer( InvocationOnMock invocation) {
+                Object[] args = invocation.getArguments();
+                String text = new String( (char[]) args[0], (Integer) args[1], (Integer) args[2]);
+                if (text.equals( TEXT)) {
+                    return Arrays.asList( first, second);
+                }
+                return Collections.emptyList();
+            }
+        });
+        annotator = new HTMLAnnotator( parser, "");
+        rewriter = new JGlossURLRewriter( "http://localhost/jgloss-www", new URL( DOCUMENT_BASE),
+                                          new HashSet<String>( Arrays.asList( "http")), false, false);
+    }
+
+    @Test
+    public void testEveryOccurrenceIsAnnotatedByDefault() {
+        annotator.startDocument( DOCUMENT_BASE, new StringWriter(), rewriter);
+
+        assertThat( annotator.isAnnotateFirstOccurrenceOnly()).isFalse();
+        assertThat( annotator.filterFirstOccurrences( Arrays.asList( first, second)))
+            .containsExactly( first, second);
+    }
+
+    @Test
+    public void testLaterOccurrencesInDocumentAreRemoved() {
+        annotator.setAnnotateFirstOccurrenceOnly( true);
+        annotator.startDocument( DOCUMENT_BASE, new StringWriter(), rewriter);
+
+        TextAnnotation other = new TextAnnotation( 2, 1, "と");
+        assertThat( annotator.filterFirstOccurrences( Arrays.asList( first, other, second)))
+            .containsExactly( first, other);
+        assertThat( annotator.filterFirstOccurrences( Arrays.asList( first))).isEmpty();
+    }
+
+    @Test
+    public void testAnnotatedWordsAreResetForNewDocument() {
+        annotator.setAnnotateFirstOccurrenceOnly( true);
+        annotator.startDocument( DOCUMENT_BASE, new StringWriter(), rewriter);
+        annotator.filterFirstOccurrences( Arrays.asList( first));
+
+        annotator.startDocument( DOCUMENT_BASE, new StringWriter(), rewriter);
+        assertThat( annotator.filterFirstOccurrences( Arrays.asList( second))).containsExactly( second);
+    }
+
+    @Test
+    public void testCacheStoresEveryOccurrence() throws IOException {
+        Dictionary[] dictionaries = { mock( Dictionary.class) };
+        AnnotationCache cache = new AnnotationCache();
+        AnnotationCache.Configuration configuration = new AnnotationCache.Configuration( parser, dictionaries);
+        annotator.setAnnotationCache( cache, configuration);
+        annotator.setAnnotateFirstOccurrenceOnly( true);
+
+        String page = "<html><body>" + TEXT + "</body></html>";
+        annotator.annotate( DOCUMENT_BASE, new StringReader( page), new StringWriter(), rewriter);
+        annotator.annotate( DOCUMENT_BASE, new StringReader( page), new StringWriter(), rewriter);
+
+        assertThat( cache.get( configuration, TEXT)).containsExactly( first, second);
+        // parsed once, then taken from the cache
+        verify( parser, times( 1)).parse( TEXT.toCharArray(), 0, TEXT.length());
+    }
+} // class HTMLAnnotatorTest
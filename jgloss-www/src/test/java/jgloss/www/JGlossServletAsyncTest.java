@@ -0,0 +1,318 @@
+/*
+ * Copyright (C) 2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.www;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import jgloss.dictionary.DictionaryFactory;
+import jgloss.dictionary.filebased.EDict;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the asynchronous mode of the {@link JGlossServlet JGlossServlet} against a local
+ * stub server.
+ */
+public class JGlossServletAsyncTest {
+    private static final String FIRST_PART_END = "end of first part";
+
+    private static final String SECOND_PART_END = "end of second part";
+
+    private static final String LARGE_PAGE_START;
+
+    private static final String LARGE_PAGE_REST;
+
+    static {
+        StringBuilder page = new StringBuilder( "<html><head><title>test</title></head><body>\n");
+        for ( int i=0; i<300; i++) {
+            page.append( "<p>子供の本です。</p>\n");
+        }
+        LARGE_PAGE_START = page.toString();
+
+        page = new StringBuilder();
+        for ( int i=0; i<15000; i++) {
+            // mostly ASCII, which decodes to more characters than bytes of Japanese text
+            page.append( "<p>子供 <a href=\"page" + i + ".html\">link number " + i + "</a></p>\n");
+        }
+        page.append( "<p>" + SECOND_PART_END + "</p>\n</body></html>\n");
+        LARGE_PAGE_REST = page.toString();
+    }
+
+    private static final byte[] BINARY_DATA = { 0, 1, 2, 3, (byte) 0xff, (byte) 0xfe };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Server remote;
+
+    private Server proxy;
+
+    /**
+     * Proxy which runs the servlet in blocking mode.
+     */
+    private Server syncProxy;
+
+    /**
+     * Released by the test when the client received the first part of the page.
+     */
+    private final CountDownLatch firstPartReceived = new CountDownLatch( 1);
+
+    /**
+     * Set by the stub server if the first part reached the client before the second part was sent.
+     */
+    private final AtomicBoolean sentIncrementally = new AtomicBoolean();
+
+    /**
+     * Serves an HTML page in two parts, and binary data.
+     */
+    private class StubHandler extends AbstractHandler {
+        @Override
+        public void handle( String target, Request baseRequest, HttpServletRequest request,
+                            HttpServletResponse response) throws IOException {
+            baseRequest.setHandled( true);
+            if (target.equals( "/page.html")) {
+                response.setContentType( "text/html; charset=UTF-8");
+                Writer out = response.getWriter();
+                out.write( "<html><head><title>test</title></head><body>\n<p>子供</p>\n");
+                // the character encoding is detected from the first 5000 bytes
+                for ( int i=0; i<500; i++) {
+                    out.write( "<p>子供の本です。</p>\n");
+                }
+                out.write( "<p>" + FIRST_PART_END + "</p>\n");
+                response.flushBuffer();
+
+                try {
+                    sentIncrementally.set( firstPartReceived.await( 10, TimeUnit.SECONDS));
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+
+                out.write( "<p><a href=\"/next.html\">" + SECOND_PART_END + "</a></p>\n</body></html>\n");
+            } else if (target.equals( "/large.html")) {
+                byte[] start = LARGE_PAGE_START.getBytes( "UTF-8");
+                byte[] rest = LARGE_PAGE_REST.getBytes( "UTF-8");
+                response.setContentType( "text/html; charset=UTF-8");
+                // without chunked transfer encoding the content arrives in parts of the
+                // size of the HTTP client buffer
+                response.setContentLength( start.length + rest.length);
+                OutputStream out = response.getOutputStream();
+                // small parts until the character encoding is detected
+                for ( int i=0; i<start.length; i+=1000) {
+                    out.write( start, i, Math.min( 1000, start.length-i));
+                    response.flushBuffer();
+                    sleep();
+                }
+                // parts which decode to more characters than the detection buffer holds
+                out.write( rest);
+            } else if (target.equals( "/data.bin")) {
+                response.setContentType( "application/octet-stream");
+                response.getOutputStream().write( BINARY_DATA);
+            } else {
+                response.sendError( HttpServletResponse.SC_NOT_FOUND);
+            }
+        }
+
+        private void sleep() {
+            try {
+                Thread.sleep( 20);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @BeforeClass
+    public static void registerDictionaryImplementation() {
+        DictionaryFactory.registerImplementation( EDict.IMPLEMENTATION_UTF8);
+    }
+
+    @Before
+    public void startServers() throws Exception {
+        File dictionary = folder.newFile( "test.edict");
+        Writer dictionaryOut = new OutputStreamWriter( new FileOutputStream( dictionary), "UTF-8");
+        try {
+            dictionaryOut.write( "子供 [こども] /(n) child/children/\n");
+            dictionaryOut.write( "子 [こ] /(n) child/\n");
+        } finally {
+            dictionaryOut.close();
+        }
+
+        remote = new Server( 0);
+        remote.setHandler( new StubHandler());
+        remote.start();
+
+        proxy = startProxy( dictionary, true);
+        syncProxy = startProxy( dictionary, false);
+    }
+
+    private static Server startProxy( File dictionary, boolean async) throws Exception {
+        ServletHolder servlet = new ServletHolder( new JGlossServlet());
+        servlet.setInitParameter( JGlossServlet.DICTIONARIES, dictionary.getAbsolutePath());
+        servlet.setInitParameter( JGlossServlet.ALLOWED_PROTOCOLS, "http");
+        servlet.setInitParameter( JGlossServlet.ENABLE_ASYNC, String.valueOf( async));
+        servlet.setAsyncSupported( async);
+        ServletContextHandler context = new ServletContextHandler();
+        context.addServlet( servlet, "/jgloss-www/*");
+        Server server = new Server( 0);
+        server.setHandler( context);
+        server.start();
+        return server;
+    }
+
+    @After
+    public void stopServers() throws Exception {
+        if (proxy != null) {
+            proxy.stop();
+        }
+        if (syncProxy != null) {
+            syncProxy.stop();
+        }
+        if (remote != null) {
+            remote.stop();
+        }
+    }
+
+    @Test( timeout = 30000)
+    public void testPageIsAnnotatedIncrementally() throws IOException {
+        HttpURLConnection connection = openThroughProxy( "http://localhost:" + getPort( remote) + "/page.html");
+        assertThat( connection.getResponseCode()).isEqualTo( HttpServletResponse.SC_OK);
+        assertThat( connection.getContentType()).isEqualTo( "text/html; charset=UTF-8");
+
+        String page = readUntil( connection.getInputStream(), FIRST_PART_END);
+        assertThat( page).contains( FIRST_PART_END);
+        firstPartReceived.countDown();
+        page += readUntil( connection.getInputStream(), null);
+
+        assertThat( sentIncrementally.get()).isTrue();
+        assertThat( page).contains( "<!-- end of JGloss embedded file -->");
+        assertThat( page).contains( "の本です。");
+        // links point back to the servlet
+        assertThat( page).contains( "<a href=\"http://localhost:" + getPort( proxy) + "/jgloss-www/00/" +
+                                    JGlossURLRewriter.escapeURL( "http://localhost:" + getPort( remote) +
+                                                                 "/next.html") + "\">" + SECOND_PART_END);
+    }
+
+    @Test( timeout = 30000)
+    public void testLargePartsAreAnnotatedCompletely() throws IOException {
+        String remoteURL = "http://localhost:" + getPort( remote) + "/large.html";
+        HttpURLConnection connection = openThroughProxy( proxy, remoteURL);
+        assertThat( connection.getResponseCode()).isEqualTo( HttpServletResponse.SC_OK);
+        String page = readUntil( connection.getInputStream(), null);
+
+        connection = openThroughProxy( syncProxy, remoteURL);
+        assertThat( connection.getResponseCode()).isEqualTo( HttpServletResponse.SC_OK);
+        String syncPage = readUntil( connection.getInputStream(), null);
+
+        assertThat( page).contains( SECOND_PART_END);
+        // rewritten links point to the proxy which annotated the page
+        assertThat( page.replace( "http://localhost:" + getPort( proxy) + "/",
+                                  "http://localhost:" + getPort( syncProxy) + "/"))
+            .isEqualTo( syncPage);
+    }
+
+    @Test( timeout = 30000)
+    public void testOtherContentIsTunneled() throws IOException {
+        HttpURLConnection connection = openThroughProxy( "http://localhost:" + getPort( remote) + "/data.bin");
+        assertThat( connection.getResponseCode()).isEqualTo( HttpServletResponse.SC_OK);
+        assertThat( connection.getContentType()).isEqualTo( "application/octet-stream");
+
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        InputStream in = connection.getInputStream();
+        int b;
+        while ((b = in.read()) != -1) {
+            data.write( b);
+        }
+        in.close();
+        assertThat( Arrays.equals( data.toByteArray(), BINARY_DATA)).isTrue();
+    }
+
+    @Test( timeout = 30000)
+    public void testUnreachableServerIsBadGateway() throws IOException {
+        ServerSocket socket = new ServerSocket( 0);
+        int closedPort = socket.getLocalPort();
+        socket.close();
+
+        HttpURLConnection connection = openThroughProxy( "http://localhost:" + closedPort + "/page.html");
+        assertThat( connection.getResponseCode()).isEqualTo( HttpServletResponse.SC_BAD_GATEWAY);
+    }
+
+    private HttpURLConnection openThroughProxy( String remoteURL) throws IOException {
+        return openThroughProxy( proxy, remoteURL);
+    }
+
+    private static HttpURLConnection openThroughProxy( Server proxy, String remoteURL) throws IOException {
+        URL url = new URL( "http://localhost:" + getPort( proxy) + "/jgloss-www/00/" +
+                           JGlossURLRewriter.escapeURL( remoteURL));
+        return (HttpURLConnection) url.openConnection();
+    }
+
+    private static int getPort( Server server) {
+        return ((ServerConnector) server.getConnectors()[0]).getLocalPort();
+    }
+
+    /**
+     * Reads UTF-8 text until the marker was read or the end of the stream is reached.
+     */
+    private static String readUntil( InputStream in, String marker) throws IOException {
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        byte[] buf = new byte[1024];
+        int len;
+        while ((len = in.read( buf)) != -1) {
+            text.write( buf, 0, len);
+            if (marker != null && text.toString( "UTF-8").contains( marker)) {
+                break;
+            }
+        }
+        return text.toString( "UTF-8");
+    }
+} // class JGlossServletAsyncTest
@@ -37,27 +37,43 @@ public class AnnotationEvent extends EventObject {
  
 	protected Annotation annotation;
     protected int index;
+    protected int endIndex;
     protected int readingIndex;
 
     AnnotationEvent( AnnotationListModel _source, Annotation _annotation, int _index) {
-        this( _source, _annotation, _index, -1);
+        this( _source, _annotation, _index, _index, -1);
     }
 
     AnnotationEvent( AnnotationListModel _source, Annotation _annotation, int _index, int _readingIndex) {
+        this( _source, _annotation, _index, _index, _readingIndex);
+    }
+
+    AnnotationEvent( AnnotationListModel _source, Annotation _annotation, int _index, int _endIndex,
+                     int _readingIndex) {
         super( _source);
         annotation = _annotation;
         index = _index;
+        endIndex = _endIndex;
         readingIndex = _readingIndex;
     }
 
     /**
-     * Returns the annotation which has changed.
+     * Returns the annotation which has changed. If the event covers a range of annotations,
+     * this is the annotation at the start of the range.
      */
     public Annotation getAnnotation() { return annotation; }
     /**
-     * Returns the index of the changed annotation in the annotation model.
+     * Returns the index of the changed annotation in the annotation model. If the event
+     * covers a range of annotations, this is the index of the first annotation in the range.
      */
     public int getIndex() { return index; }
+    /**
+     * Returns the index of the last annotation covered by the event. Insertions and removals
+     * made during a {@link AnnotationListModel#startBatch() batch} are reported as a
+     * single event for a range of annotations. For all other events, the end index equals
+     * the {@link #getIndex() index}.
+     */
+    public int getEndIndex() { return endIndex; }
     /**
      * Index of the reading which changed, if this is a <code>readingChanged</code> event.
      * May be <code>-1</code> if several or all readings changed.
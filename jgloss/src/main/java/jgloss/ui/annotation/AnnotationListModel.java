@@ -24,15 +24,21 @@ package jgloss.ui.annotation;
 
 import static jgloss.ui.annotation.Annotation.COMPARE_BY_START_OFFSET;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.swing.text.Element;
 
+import jgloss.util.ChunkedList;
+
+/**
+ * List of the annotations in a JGloss document, ordered by their position in the document.
+ * The annotations are stored in a {@link ChunkedList}, so that inserting or removing an
+ * annotation takes time independent of the number of annotations in the document.
+ * Insertions and removals made between {@link #startBatch() startBatch} and {@link #endBatch() endBatch}
+ * are reported to the listeners as one event per contiguous range of annotations.
+ */
 public class AnnotationListModel {
     public enum Bias {
         NONE,
@@ -47,12 +53,66 @@ public class AnnotationListModel {
 	 */
     public static final int NO_ANNOTATION = -2;
 
-    private final List<Annotation> annotations;
+    /**
+     * Insertion or removal of a contiguous range of annotations which was not yet reported
+     * to the listeners.
+     */
+    private static class PendingChange {
+        final boolean insertion;
+        int startIndex;
+        int endIndex;
+        Annotation startAnnotation;
+
+        PendingChange( boolean _insertion, int _index, Annotation _annotation) {
+            insertion = _insertion;
+            startIndex = _index;
+            endIndex = _index;
+            startAnnotation = _annotation;
+        }
+
+        /**
+         * Extends the range of this change by an insertion or removal at the given index.
+         *
+         * @return <code>false</code> if the range would not be contiguous afterwards.
+         */
+        boolean extend( boolean _insertion, int _index, Annotation _annotation) {
+            if (_insertion != insertion) {
+                return false;
+            }
+
+            if (insertion) {
+                // the inserted annotations are at startIndex to endIndex in the current list
+                if (_index < startIndex || _index > endIndex+1) {
+                    return false;
+                }
+                if (_index == startIndex) {
+                    startAnnotation = _annotation;
+                }
+                endIndex++;
+            } else {
+                // the removed annotations were at startIndex to endIndex in the list before
+                // the change, the annotation which followed them is now at startIndex
+                if (_index == startIndex) {
+                    endIndex++;
+                } else if (_index == startIndex-1) {
+                    startIndex--;
+                    startAnnotation = _annotation;
+                } else {
+                    return false;
+                }
+            }
+            return true;
+        }
+    } // class PendingChange
+
+    private final ChunkedList<Annotation> annotations;
     private final List<AnnotationListener> annotationListeners = new CopyOnWriteArrayList<AnnotationListener>();
     private int searchindex;
+    private int batchDepth;
+    private PendingChange pendingChange;
 
     public AnnotationListModel( List<Element> _annoElements) {
-        annotations = new ArrayList<Annotation>( _annoElements.size()+10);
+        annotations = new ChunkedList<Annotation>();
         for (Element element : _annoElements) {
 	        annotations.add( new Annotation( this, element));
         }
@@ -65,7 +125,12 @@ public class AnnotationListModel {
     }
 
     public int indexOf( Annotation anno) {
-        return annotations.indexOf( anno);
+        int index = findAnnotationIndex( anno.getAnnotationElement());
+        if (index < 0) {
+            // not found by start offset, fall back to a linear search
+            index = annotations.indexOf( anno);
+        }
+        return index;
     }
 
     /**
@@ -154,8 +219,8 @@ public class AnnotationListModel {
         Annotation anno = new Annotation(this, annoElement);
         // The annotation list is in ascending order by element start offset.
         // Find the index where the new annotation has to be inserted.
-		int insertionPoint = Collections.binarySearch(annotations, anno, COMPARE_BY_START_OFFSET);
-        insertionPoint = -1 - insertionPoint; // Collections.binarySearch returns (-(insertion point) - 1)
+		int insertionPoint = annotations.binarySearch(anno, COMPARE_BY_START_OFFSET);
+        insertionPoint = -1 - insertionPoint; // binarySearch returns (-(insertion point) - 1)
         annotations.add(insertionPoint, anno);
         fireAnnotationInserted(anno, insertionPoint);
     }
@@ -165,49 +230,68 @@ public class AnnotationListModel {
      * JGloss HTML document.
      */
     public void removeAnnotationFor(Element annoElement) {
-        // find the index of the Annotation object representing the annoElement by doing a
-        // binary search through the list of annotations, which is ordered by start offsets.
-        int annoOffset = Collections.binarySearch
-            (annotations, new Annotation(null, annoElement), COMPARE_BY_START_OFFSET);
-        try {
-            // Since the annotation element has already been removed from the document,
-            // the invariant that each Element in the annotation list has a distinct start offset
-            // does not hold and binary search returns one of the elements.
-            // Find the removed element among all elements with same
-            // start offset.
-            int annoOffsetStore = annoOffset;
-
-            // search backward
-            while (annoOffset >= 0 &&
-                   annoElement != annotations.get(annoOffset).getAnnotationElement() &&
-                   annoElement.getStartOffset() ==
-                   annotations.get(annoOffset).getAnnotationElement().getStartOffset()) {
-	            annoOffset--;
-            }
+        int annoOffset = findAnnotationIndex(annoElement);
+        if (annoOffset >= 0) {
+            Annotation annotation = annotations.remove(annoOffset);
+            fireAnnotationRemoved(annotation, annoOffset);
+        } else {
+            LOGGER.severe( "WARNING: assertion failed, removed annotation element not found");
+        }
+    }
 
-            // if not found, search forward
-            if (annoOffset < 0 ||
-                annoElement != annotations.get(annoOffset).getAnnotationElement()) {
-                annoOffset = annoOffsetStore;
+    /**
+     * Finds the index of the Annotation object representing the annotation element by doing a
+     * binary search through the list of annotations, which is ordered by start offsets.
+     *
+     * @return The index of the annotation, or <code>-1</code> if the element is not in the list.
+     */
+    private int findAnnotationIndex(Element annoElement) {
+        int annoOffset = annotations.binarySearch(new Annotation(null, annoElement), COMPARE_BY_START_OFFSET);
+        if (annoOffset < 0) {
+            return -1;
+        }
 
-                while (annoOffset < annotations.size() &&
-                       annoElement != annotations.get(annoOffset).getAnnotationElement() &&
-                       annoElement.getStartOffset() ==
-                       annotations.get(annoOffset).getAnnotationElement().getStartOffset()) {
-	                annoOffset++;
-                }
+        // If the annotation element has already been removed from the document,
+        // the invariant that each Element in the annotation list has a distinct start offset
+        // does not hold and binary search returns one of the elements.
+        // Find the element among all elements with same start offset.
+        int startOffset = annoElement.getStartOffset();
+        for (int i=annoOffset; i>=0 && annotations.get(i).getStartOffset()==startOffset; i--) {
+            if (annotations.get(i).getAnnotationElement() == annoElement) {
+                return i;
             }
-
-            if (annoOffset < annotations.size() &&
-                annotations.get(annoOffset).getAnnotationElement()==annoElement) {
-                Annotation annotation = annotations.remove(annoOffset);
-                fireAnnotationRemoved(annotation, annoOffset);
-            } else {
-                LOGGER.severe( "WARNING: assertion failed, removed annotation element not found");
+        }
+        for (int i=annoOffset+1; i<annotations.size() && annotations.get(i).getStartOffset()==startOffset; i++) {
+            if (annotations.get(i).getAnnotationElement() == annoElement) {
+                return i;
             }
-        } catch (IndexOutOfBoundsException ex) {
-            // element was not found, programming error
-            LOGGER.log(Level.SEVERE, ex.getMessage(), ex);
+        }
+
+        return -1;
+    }
+
+    /**
+     * Starts a batch of changes. Until the matching call to {@link #endBatch() endBatch},
+     * insertions and removals of adjacent annotations are combined into a single event.
+     * Batches may be nested, the events are sent when the outermost batch ends or when a change
+     * can't be combined with the previous ones.
+     */
+    public void startBatch() {
+        batchDepth++;
+    }
+
+    /**
+     * Ends a batch of changes started with {@link #startBatch() startBatch} and notifies the
+     * listeners of changes which were not yet reported.
+     */
+    public void endBatch() {
+        if (batchDepth == 0) {
+            throw new IllegalStateException("no batch started");
+        }
+
+        batchDepth--;
+        if (batchDepth == 0) {
+            firePendingChange();
         }
     }
 
@@ -220,20 +304,49 @@ public class AnnotationListModel {
     }
 
     private void fireAnnotationInserted( Annotation anno, int index) {
-        AnnotationEvent event = new AnnotationEvent( this, anno, index);
-        for (AnnotationListener listener : annotationListeners) {
-        	listener.annotationInserted( event);
-        }
+        addChange( true, anno, index);
     }
 
     private void fireAnnotationRemoved( Annotation anno, int index) {
-        AnnotationEvent event = new AnnotationEvent( this, anno, index);
+        addChange( false, anno, index);
+    }
+
+    /**
+     * Reports an insertion or removal, or adds it to the pending change if a batch is running.
+     */
+    private void addChange( boolean insertion, Annotation anno, int index) {
+        if (pendingChange != null && pendingChange.extend( insertion, index, anno)) {
+            return;
+        }
+
+        firePendingChange();
+        pendingChange = new PendingChange( insertion, index, anno);
+        if (batchDepth == 0) {
+            firePendingChange();
+        }
+    }
+
+    private void firePendingChange() {
+        if (pendingChange == null) {
+            return;
+        }
+
+        PendingChange change = pendingChange;
+        pendingChange = null;
+        AnnotationEvent event = new AnnotationEvent( this, change.startAnnotation, change.startIndex,
+                                                     change.endIndex, -1);
         for (AnnotationListener listener : annotationListeners) {
-        	listener.annotationRemoved( event);
+            if (change.insertion) {
+                listener.annotationInserted( event);
+            } else {
+                listener.annotationRemoved( event);
+            }
         }
     }
 
     public void fireAnnotationChanged( Annotation anno) {
+        // listeners must know about all structural changes before the index is reported
+        firePendingChange();
         AnnotationEvent event = new AnnotationEvent( this, anno, indexOf( anno));
         for (AnnotationListener listener : annotationListeners) {
         	listener.annotationChanged( event);
@@ -241,6 +354,7 @@ public class AnnotationListModel {
     }
 
     public void fireReadingChanged( Annotation anno, int readingIndex) {
+        firePendingChange();
         AnnotationEvent event = new AnnotationEvent( this, anno, indexOf( anno), readingIndex);
         for (AnnotationListener listener : annotationListeners) {
         	listener.readingChanged( event);
@@ -123,7 +123,7 @@ public class ExportMenu extends JMenu implements ActionListener {
         JMenuItem source = (JMenuItem) a.getSource();
         ExportConfiguration export = 
             (ExportConfiguration) source.getClientProperty( EXPORTCONFIG_CLIENT_PROPERTY);
-        export.createExporter().export( export, context, context.getDocument().getDOMDocument(), 
+        export.createExporter().export( export, context, context.getDocument(), 
                                         SwingUtilities.getRoot( this));
     }
 } // class ExportMenu
@@ -25,8 +25,7 @@ package jgloss.ui.export;
 import java.awt.Component;
 
 import jgloss.ui.gloss.JGlossFrameModel;
-
-import org.w3c.dom.Document;
+import jgloss.ui.xml.JGlossDocument;
 
 /**
  * An <code>Exporter</code> runs the export process when the user selects an export menu item.
@@ -38,5 +37,5 @@ interface Exporter {
      * Shows the export file chooser and runs the export.
      */
     void export( ExportConfiguration configuration, 
-                 JGlossFrameModel source, Document doc, Component parent);
+                 JGlossFrameModel source, JGlossDocument doc, Component parent);
 } // interface Exporter
@@ -24,7 +24,7 @@ package jgloss.ui.export;
 
 import jgloss.util.LaTeXEscaper;
 
-import org.w3c.dom.Document;
+import org.xml.sax.ContentHandler;
 
 /**
  * Works like XSLT exporter, but applies a {@link jgloss.util.LaTeXEscaper} to the document first.
@@ -33,10 +33,7 @@ class LaTeXExporter extends XSLTExporter {
     LaTeXExporter() {}
 
     @Override
-	protected Document applyFilter(ExportConfiguration configuration, Document doc) {
-        doc = (Document) doc.cloneNode(true);
-        DOMTextEscaper escaper = new DOMTextEscaper(new LaTeXEscaper());
-        escaper.escapeTextIn( doc);
-        return doc;
+	protected ContentHandler applyFilter(ExportConfiguration configuration, ContentHandler handler) {
+        return new SAXTextEscaper(new LaTeXEscaper(), handler);
     }
 } // class LaTeXExporter
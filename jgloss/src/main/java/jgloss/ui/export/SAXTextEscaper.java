@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.ui.export;
+
+import jgloss.util.Escaper;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+/**
+ * Apply an escaper to the text of a stream of SAX events before passing them on to a content handler.
+ * Currently, all character data and all attributes are escaped. This
+ * may be changed later to escape only nodes known to contain document text data, not meta information.
+ *
+ * @author Michael Koch
+ */
+class SAXTextEscaper extends XMLFilterImpl {
+    private final Escaper escaper;
+
+    SAXTextEscaper( Escaper escaper, ContentHandler handler) {
+        this.escaper = escaper;
+        setContentHandler( handler);
+    }
+
+    @Override
+    public void startElement( String uri, String localName, String qName, Attributes atts)
+        throws SAXException {
+        AttributesImpl escaped = new AttributesImpl( atts);
+        for ( int i=0; i<escaped.getLength(); i++) {
+            escaped.setValue( i, escaper.escape( escaped.getValue( i)));
+        }
+        super.startElement( uri, localName, qName, escaped);
+    }
+
+    @Override
+    public void characters( char[] ch, int start, int length) throws SAXException {
+        char[] escaped = escaper.escape( new String( ch, start, length)).toCharArray();
+        super.characters( escaped, 0, escaped.length);
+    }
+} // class SAXTextEscaper
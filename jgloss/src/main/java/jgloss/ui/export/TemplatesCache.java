@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.ui.export;
+
+import java.io.File;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXSource;
+
+import org.xml.sax.InputSource;
+
+/**
+ * Cache of compiled XSLT style sheets, keyed by the system id of the style sheet. Compiling
+ * a style sheet is much more expensive than applying it, and the compiled {@link Templates}
+ * are thread safe and can be reused for any number of transformations. Style sheets loaded
+ * from a file are recompiled if the file was modified since it was compiled.
+ *
+ * @author Michael Koch
+ */
+class TemplatesCache {
+    private static class Entry {
+        final Templates templates;
+        final long lastModified;
+
+        Entry( Templates templates, long lastModified) {
+            this.templates = templates;
+            this.lastModified = lastModified;
+        }
+    } // class Entry
+
+    private final TransformerFactory transformerFactory;
+
+    private final ConcurrentMap<String, Entry> templates = new ConcurrentHashMap<String, Entry>();
+
+    TemplatesCache( TransformerFactory transformerFactory) {
+        this.transformerFactory = transformerFactory;
+    }
+
+    /**
+     * Returns the compiled style sheet with the given system id, compiling it if it is not
+     * cached or has changed.
+     */
+    public Templates getTemplates( String systemId) throws TransformerConfigurationException {
+        long lastModified = getLastModified( systemId);
+        Entry entry = templates.get( systemId);
+        if (entry == null || entry.lastModified != lastModified) {
+            // two threads may compile the same style sheet concurrently, which is harmless
+            entry = new Entry( transformerFactory.newTemplates( new SAXSource( new InputSource( systemId))),
+                               lastModified);
+            templates.put( systemId, entry);
+        }
+        return entry.templates;
+    }
+
+    /**
+     * Removes all compiled style sheets.
+     */
+    public void clear() {
+        templates.clear();
+    }
+
+    /**
+     * Returns the modification time of a style sheet file, or 0 for style sheets loaded
+     * from other locations, which are not expected to change while the application runs.
+     */
+    private static long getLastModified( String systemId) {
+        if (!systemId.startsWith( "file:")) {
+            return 0;
+        }
+
+        try {
+            return new File( new URI( systemId)).lastModified();
+        } catch (URISyntaxException ex) {
+            return 0;
+        } catch (IllegalArgumentException ex) {
+            return 0;
+        }
+    }
+} // class TemplatesCache
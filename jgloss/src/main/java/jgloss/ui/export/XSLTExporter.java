@@ -39,28 +39,35 @@ import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Result;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerConfigurationException;
-import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.sax.SAXSource;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
 import javax.xml.transform.stream.StreamResult;
 
 import jgloss.JGloss;
 import jgloss.ui.gloss.JGlossFrameModel;
+import jgloss.ui.xml.JGlossDocument;
 
-import org.w3c.dom.Document;
-import org.xml.sax.InputSource;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
 
 /**
  * Standard exporter which applies an XSLT style sheet to the JGloss document and writes the
- * result to a file.
+ * result to a file. The style sheets are compiled once and cached. The document is streamed
+ * to the style sheet as SAX events.
  *
  * @author Michael Koch
  */
 class XSLTExporter implements Exporter {
 	private static final Logger LOGGER = Logger.getLogger(XSLTExporter.class.getPackage().getName());
 	
-	private static final TransformerFactory transformerFactory = TransformerFactory.newInstance();
+	private static final SAXTransformerFactory transformerFactory =
+        (SAXTransformerFactory) TransformerFactory.newInstance();
+
+    /**
+     * Compiled style sheets shared by all exporters.
+     */
+    private static final TemplatesCache templatesCache = new TemplatesCache( transformerFactory);
 
     XSLTExporter() {}
 
@@ -70,22 +77,23 @@ class XSLTExporter implements Exporter {
     @Override
 	public void export(ExportConfiguration configuration,
                        JGlossFrameModel source,
-                       Document doc, Component parent) {
+                       JGlossDocument doc, Component parent) {
         File outfile = chooseOutputFile(configuration, parent);
         if (outfile != null) {
-            doc = applyFilter(configuration, doc);
             transformToFile(outfile, configuration, source, doc, parent);
         }
     }
 
     /**
      * Filter the document in some way not possible with XSLT style sheets.
-     * This implementation returns the unchanged document, derived classes may preprocess the document.
+     * This implementation returns the unchanged handler, derived classes may wrap the
+     * handler to preprocess the document events.
      *
-     * @return a filtered copy of the document.
+     * @param handler Handler which applies the style sheet.
+     * @return The handler to which the document events are sent.
      */
-    protected Document applyFilter(ExportConfiguration configuration, Document doc) {
-        return doc;
+    protected ContentHandler applyFilter(ExportConfiguration configuration, ContentHandler handler) {
+        return handler;
     }
 
     /**
@@ -123,7 +131,7 @@ class XSLTExporter implements Exporter {
      * is thrown.
      */
     protected void transformToFile(File outfile, ExportConfiguration configuration,
-                                   JGlossFrameModel source, Document doc, Component parent) {
+                                   JGlossFrameModel source, JGlossDocument doc, Component parent) {
         OutputStream out = null;
         try {
             out = new BufferedOutputStream(new FileOutputStream(outfile));
@@ -153,11 +161,12 @@ class XSLTExporter implements Exporter {
      * and applies it to the document.
      */
     protected void transform(Result out, ExportConfiguration configuration,
-                             JGlossFrameModel source, Document doc) 
-        throws IOException, TransformerConfigurationException, TransformerException {
-        Transformer transformer = transformerFactory.newTransformer
-            ( new SAXSource( new InputSource( (String) configuration.getTemplate()
-                                              .getValue(source, configuration.getSystemId()))));
+                             JGlossFrameModel source, JGlossDocument doc) 
+        throws IOException, TransformerConfigurationException, SAXException {
+        TransformerHandler handler = transformerFactory.newTransformerHandler
+            ( templatesCache.getTemplates( (String) configuration.getTemplate()
+                                           .getValue(source, configuration.getSystemId())));
+        Transformer transformer = handler.getTransformer();
 
         String encoding = configuration.getEncoding();
         if (encoding != null) {
@@ -166,7 +175,8 @@ class XSLTExporter implements Exporter {
         
         setParameters(configuration, source, transformer);
 
-        transformer.transform( new DOMSource( doc), out);
+        handler.setResult( out);
+        doc.writeTo( applyFilter( configuration, handler));
     }
     
     /**
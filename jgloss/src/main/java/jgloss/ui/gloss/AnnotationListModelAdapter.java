@@ -63,12 +63,12 @@ public class AnnotationListModelAdapter implements ListModel<Annotation>, Annota
 
     @Override
 	public void annotationInserted( AnnotationEvent ae) {
-        fireIntervalAdded( ae.getIndex(), ae.getIndex());
+        fireIntervalAdded( ae.getIndex(), ae.getEndIndex());
     }
 
     @Override
 	public void annotationRemoved( AnnotationEvent ae) {
-        fireIntervalRemoved( ae.getIndex(), ae.getIndex());
+        fireIntervalRemoved( ae.getIndex(), ae.getEndIndex());
     }
 
     @Override
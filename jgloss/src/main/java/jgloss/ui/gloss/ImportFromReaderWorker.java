@@ -24,6 +24,7 @@ package jgloss.ui.gloss;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -34,6 +35,8 @@ import jgloss.dictionary.Dictionary;
 import jgloss.parser.Parser;
 import jgloss.parser.ReadingAnnotationFilter;
 import jgloss.ui.Dictionaries;
+import jgloss.ui.ExclusionList;
+import jgloss.ui.ParserSelector;
 import jgloss.ui.StopableReader;
 import jgloss.ui.util.Cancelable;
 import jgloss.ui.util.JGlossWorker;
@@ -89,7 +92,7 @@ class ImportFromReaderWorker extends JGlossWorker<JGlossDocument, Void> implemen
 
         try {
             document = new JGlossDocumentBuilder().build(documentReader,
-                    detectParagraphs, filter, parser, dictionaries);
+                    detectParagraphs, filter, createParserFactory(), dictionaries);
         } finally {
             try {
                 documentReader.close();
@@ -101,6 +104,27 @@ class ImportFromReaderWorker extends JGlossWorker<JGlossDocument, Void> implemen
         return document;
     }
 
+    /**
+     * Creates a factory for parsers configured like the parser selected for the import, which are
+     * used to annotate the paragraphs of the document in parallel.
+     */
+    private JGlossDocumentBuilder.ParserFactory createParserFactory() {
+        final Class<? extends Parser> parserClass = parser.getClass();
+        final Set<String> exclusions = ExclusionList.getExclusions();
+        final boolean firstOccurrenceOnly = parser.isAnnotateFirstOccurrenceOnly();
+        final boolean ignoreNewlines = parser.isIgnoreNewlines();
+
+        return new JGlossDocumentBuilder.ParserFactory() {
+            @Override
+            public Parser createParser() {
+                Parser workerParser = ParserSelector.createParser(parserClass, dictionaries, exclusions,
+                        firstOccurrenceOnly);
+                workerParser.setIgnoreNewlines(ignoreNewlines);
+                return workerParser;
+            }
+        };
+    }
+
     @Override
     protected void done() {
         try {
@@ -50,6 +50,7 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.OutputStream;
 import java.util.LinkedList;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -170,6 +171,10 @@ public class JGlossFrame extends JPanel implements ActionListener, ListSelection
      * Data model of this frame.
      */
     private JGlossFrameModel model;
+    /**
+     * Loads the HTML document in the background, <code>null</code> if no document is loading.
+     */
+    private Future<?> documentLoader;
 
     /**
      * JGloss document frame object. The frame keeps the <code>JGlossFrame</code> as sole component
@@ -773,7 +778,6 @@ public class JGlossFrame extends JPanel implements ActionListener, ListSelection
         model.setAnnotationListModel(annoModel);
         annotationList.setAnnotationListModel( annoModel);
         annoModel.addAnnotationListener( annotationEditor);
-        restoreSelection();
 
         frame.getContentPane().removeAll();
         frame.getContentPane().add(this);
@@ -807,22 +811,46 @@ public class JGlossFrame extends JPanel implements ActionListener, ListSelection
     }
 
     private JGlossHTMLDoc createHtmlDoc(JGlossFrameModel model) {
-        JGlossHTMLDoc htmlDoc = (JGlossHTMLDoc) kit.createDefaultDocument();
+        final JGlossHTMLDoc htmlDoc = (JGlossHTMLDoc) kit.createDefaultDocument();
 
         // Parser must be set to non-strict mode for editing to work.
         htmlDoc.setStrictParsing( false);
 
-        htmlDoc.setJGlossDocument( model.getDocument());
+        // the document is loaded in the background and displayed while it is growing
+        htmlDoc.addPropertyChangeListener( JGlossHTMLDoc.LOADING_PROPERTY, new PropertyChangeListener() {
+            @Override
+            public void propertyChange( PropertyChangeEvent e) {
+                if (Boolean.FALSE.equals( e.getNewValue())) {
+                    htmlDoc.removePropertyChangeListener( JGlossHTMLDoc.LOADING_PROPERTY, this);
+                    htmlDocLoaded( htmlDoc);
+                }
+            }
+        });
+        documentLoader = htmlDoc.loadJGlossDocument( model.getDocument());
         model.setHTMLDocument( htmlDoc);
 
+        return htmlDoc;
+    }
+
+    private void htmlDocLoaded(JGlossHTMLDoc htmlDoc) {
+        documentLoader = null;
+        if (model == null) {
+            // frame was disposed while loading
+            return;
+        }
+
+        // Listen for changes only now, since the loading itself does not change the document.
         // get notified of title changes
         MarkChangedListener markChangedListener = new MarkChangedListener();
-        htmlDoc.addPropertyChangeListener(markChangedListener);
+        htmlDoc.addPropertyChangeListener(Document.TitleProperty, markChangedListener);
 
         // mark document as changed if some editing occurs
         htmlDoc.addDocumentListener(markChangedListener);
 
-        return htmlDoc;
+        updateTitle();
+        addAnnotationAction.setEnabled( docpane.getSelectionStart() != docpane.getSelectionEnd());
+        restoreSelection();
+        scrollToSelectedAnnotation();
     }
 
     private void showDocpane() {
@@ -831,16 +859,19 @@ public class JGlossFrame extends JPanel implements ActionListener, ListSelection
         if (docpaneScroller != null && docpane != null && annotationEditor != null) {
             docpaneScroller.setViewportView(docpane);
             docpane.followMouse( showAnnotationItem.isSelected());
-            // scroll to selected annotation
-            Annotation current = annotationList.getSelectedValue();
-            if (current != null) {
-                docpane.makeVisible( current.getStartOffset(),
-                        current.getEndOffset());
-            }
+            scrollToSelectedAnnotation();
             docpane.requestFocusInWindow();
         }
     }
 
+    private void scrollToSelectedAnnotation() {
+        Annotation current = annotationList.getSelectedValue();
+        if (current != null) {
+            docpane.makeVisible( current.getStartOffset(),
+                    current.getEndOffset());
+        }
+    }
+
     /**
      * Executes the appropriate action for a selection in the view menu.
      *
@@ -932,7 +963,8 @@ public class JGlossFrame extends JPanel implements ActionListener, ListSelection
             addAnnotationAction.setEnabled(false);
         }
         else {
-            addAnnotationAction.setEnabled(true);
+            // the annotations can't be changed until the document is completely loaded
+            addAnnotationAction.setEnabled(!model.getHTMLDocument().isLoading());
 
             int from;
             int to;
@@ -1184,7 +1216,7 @@ public class JGlossFrame extends JPanel implements ActionListener, ListSelection
     private void annotateDocumentSelection() {
         int selectionStart = docpane.getSelectionStart();
         int selectionEnd = docpane.getSelectionEnd();
-        if (selectionStart == selectionEnd) {
+        if (selectionStart == selectionEnd || model.getHTMLDocument().isLoading()) {
 	        return;
         }
 
@@ -1209,6 +1241,11 @@ public class JGlossFrame extends JPanel implements ActionListener, ListSelection
     public void dispose() {
         JGLOSS_FRAMES.remove( this);
 
+        if (documentLoader != null) {
+            documentLoader.cancel( true);
+            documentLoader = null;
+        }
+
         JGloss.PREFS.removePropertyChangeListener( prefsListener);
         if (model.getDocument() != null) {
 	        DocumentStyleDialog.getDocumentStyleDialog().removeStyleSheet
@@ -1,5 +1,9 @@
 package jgloss.ui.html;
 
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.Arrays;
+
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 import javax.swing.text.Element;
@@ -12,17 +16,29 @@ import jgloss.ui.annotation.AnnotationListModel;
  * which manages both the JGloss HTML document and the annotation list corresponding to it
  * must create an instance of this class to glue the two objects together. In the current JGloss
  * implementation, this is done in class {@link jgloss.ui.gloss.JGlossFrame JGlossFrame}.
+ * Changes made during a {@link JGlossHTMLDoc#COMPOUND_EDIT_PROPERTY compound edit} of the
+ * document are applied to the annotation list in a single batch.
  *
  * @see jgloss.ui.html.JGlossHTMLDoc
  * @see jgloss.ui.annotation.AnnotationListModel
  * @author Michael Koch
  */
-public class AnnotationListSynchronizer implements DocumentListener {
+public class AnnotationListSynchronizer implements DocumentListener, PropertyChangeListener {
     private final AnnotationListModel annotationModel;
 
     public AnnotationListSynchronizer(JGlossHTMLDoc _doc, AnnotationListModel _annotationModel) {
-        _doc.addDocumentListener(this);
         annotationModel = _annotationModel;
+        _doc.addDocumentListener(this);
+        _doc.addPropertyChangeListener(JGlossHTMLDoc.COMPOUND_EDIT_PROPERTY, this);
+    }
+
+    @Override
+    public void propertyChange(PropertyChangeEvent e) {
+        if (Boolean.TRUE.equals(e.getNewValue())) {
+            annotationModel.startBatch();
+        } else {
+            annotationModel.endBatch();
+        }
     }
 
     @Override
@@ -32,12 +48,18 @@ public class AnnotationListSynchronizer implements DocumentListener {
         Element el = e.getDocument().getDefaultRootElement();
         while (el!=null && el.getStartOffset() <= e.getOffset() &&
                el.getEndOffset() >= e.getOffset()+e.getLength()) {
+            Element next = el.getElement( el.getElementIndex( e.getOffset()));
             DocumentEvent.ElementChange change = e.getChange( el);
             if (change != null) {
-	            handleInsert( change.getChildrenAdded());
+                Element[] added = change.getChildrenAdded();
+	            handleInsert( added);
+                if (Arrays.asList( added).contains( next)) {
+                    // the changes of the newly added elements were handled with them
+                    break;
+                }
             }
 
-            el = el.getElement( el.getElementIndex( e.getOffset()));
+            el = next;
         }
     }
 
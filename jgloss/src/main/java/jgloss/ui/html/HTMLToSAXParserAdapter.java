@@ -57,6 +57,11 @@ public class HTMLToSAXParserAdapter {
 
     private static final String CDATA = "CDATA";
 
+    /**
+     * Namespace URI of all elements and attributes. The JGloss document does not use namespaces.
+     */
+    private static final String NO_NAMESPACE = "";
+
     public HTMLToSAXParserAdapter() {
         segment = new Segment();
         segment.setPartialReturn( true);
@@ -93,6 +98,23 @@ public class HTMLToSAXParserAdapter {
         saxContentHandler.endDocument();        
     }
 
+    /**
+     * Starts an element without namespace. The local name is passed along with the qualified
+     * name, since SAX consumers like {@link javax.xml.transform.sax.TransformerHandler TransformerHandler}
+     * require it.
+     */
+    private void startElement( String name, Attributes attributes) throws SAXException {
+        saxContentHandler.startElement( NO_NAMESPACE, name, name, attributes);
+    }
+
+    private void endElement( String name) throws SAXException {
+        saxContentHandler.endElement( NO_NAMESPACE, name, name);
+    }
+
+    private static void addAttribute( AttributesImpl attributes, String name, String value) {
+        attributes.addAttribute( NO_NAMESPACE, name, name, CDATA, value);
+    }
+
     /**
      * Calls {@link #handleElement(Element) handleElement]} for every child of the element.
      */
@@ -189,10 +211,9 @@ public class HTMLToSAXParserAdapter {
     private class CopyElementHandler implements ElementHandler {
         @Override
 		public void handle(Element elem) throws SAXException {
-            saxContentHandler.startElement( null, null, elem.getName(),
-                                            EMPTY_ATTRIBUTES);
+            startElement( elem.getName(), EMPTY_ATTRIBUTES);
             handleChildren(elem);
-            saxContentHandler.endElement( null, null, elem.getName());
+            endElement( elem.getName());
         }
     } // class HeadHandler
 
@@ -209,10 +230,9 @@ public class HTMLToSAXParserAdapter {
 
         @Override
 		public void handle(Element elem) throws SAXException {
-            saxContentHandler.startElement( null, null, elementName,
-                                            EMPTY_ATTRIBUTES);
+            startElement( elementName, EMPTY_ATTRIBUTES);
             handleChildren(elem);
-            saxContentHandler.endElement( null, null, elementName);
+            endElement( elementName);
         }
     } // class NameMapperHandler
 
@@ -222,24 +242,21 @@ public class HTMLToSAXParserAdapter {
     private class HeadHandler implements ElementHandler {
         @Override
 		public void handle( Element head) throws SAXException {
-            saxContentHandler.startElement( null, null, JGlossDocument.Elements.HEAD,
-                                            EMPTY_ATTRIBUTES);
+            startElement( JGlossDocument.Elements.HEAD, EMPTY_ATTRIBUTES);
 
-            saxContentHandler.startElement( null, null, JGlossDocument.Elements.TITLE,
-                                            EMPTY_ATTRIBUTES);
+            startElement( JGlossDocument.Elements.TITLE, EMPTY_ATTRIBUTES);
             String title = htmlDoc.getTitle();
             if (title != null) {
 	            saxContentHandler.characters( title.toCharArray(), 0, title.length());
             }
-            saxContentHandler.endElement( null, null, JGlossDocument.Elements.TITLE);
+            endElement( JGlossDocument.Elements.TITLE);
         
-            saxContentHandler.startElement( null, null, JGlossDocument.Elements.GENERATOR,
-                                            EMPTY_ATTRIBUTES);
+            startElement( JGlossDocument.Elements.GENERATOR, EMPTY_ATTRIBUTES);
             String generator = JGloss.MESSAGES.getString( "jgloss.generator");
             saxContentHandler.characters( generator.toCharArray(), 0, generator.length());
-            saxContentHandler.endElement( null, null, JGlossDocument.Elements.GENERATOR);
+            endElement( JGlossDocument.Elements.GENERATOR);
 
-            saxContentHandler.endElement( null, null, JGlossDocument.Elements.HEAD);
+            endElement( JGlossDocument.Elements.HEAD);
         }
     } // class HeadHandler
 
@@ -252,31 +269,29 @@ public class HTMLToSAXParserAdapter {
             AttributesImpl a = new AttributesImpl();
             String translation = getText( anno.getElement( 1), true);
             if (translation.length() > 0) {
-	            a.addAttribute( null, null, JGlossDocument.Attributes.TRANSLATION,
-                                CDATA, translation);
+	            addAttribute( a, JGlossDocument.Attributes.TRANSLATION, translation);
             }
             String base = (String) anno.getAttributes()
                 .getAttribute( JGlossHTMLDoc.Attributes.BASE);
             if (base != null && base.length() > 0) {
-	            a.addAttribute( null, null, JGlossDocument.Attributes.BASE, CDATA, base);
+	            addAttribute( a, JGlossDocument.Attributes.BASE, base);
             }
             String basere = (String) anno.getAttributes()
                 .getAttribute( JGlossHTMLDoc.Attributes.BASE_READING);
             if (basere != null && basere.length() > 0) {
-	            a.addAttribute( null, null, JGlossDocument.Attributes.BASE_READING, CDATA, basere);
+	            addAttribute( a, JGlossDocument.Attributes.BASE_READING, basere);
             }
             String type = (String) anno.getAttributes()
                 .getAttribute( JGlossHTMLDoc.Attributes.TYPE);
             if (type != null && type.length() > 0) {
-	            a.addAttribute( null, null, JGlossDocument.Attributes.TYPE, CDATA, type);
+	            addAttribute( a, JGlossDocument.Attributes.TYPE, type);
             }
 
-            saxContentHandler.startElement( null, null, JGlossDocument.Elements.ANNOTATION,
-                                            a);
+            startElement( JGlossDocument.Elements.ANNOTATION, a);
 
             handleElement( anno.getElement( 0)); // word element
 
-            saxContentHandler.endElement( null, null, JGlossDocument.Elements.ANNOTATION);
+            endElement( JGlossDocument.Elements.ANNOTATION);
         }
     } // class AnnotationHandler
 
@@ -290,17 +305,17 @@ public class HTMLToSAXParserAdapter {
 
             String reading = getText( rb.getElement( 0), true);
             if (reading.length() > 0) {
-                a.addAttribute( null, null, JGlossDocument.Attributes.READING, CDATA, reading);
+                addAttribute( a, JGlossDocument.Attributes.READING, reading);
             }
      
             String docre = (String) rb.getAttributes().getAttribute( JGlossHTMLDoc.Attributes.DOCREADING);
             if (docre!=null && docre.length()>0) {
-                a.addAttribute( null, null, JGlossDocument.Attributes.DOCREADING, CDATA, docre);
+                addAttribute( a, JGlossDocument.Attributes.DOCREADING, docre);
             }
 
-            saxContentHandler.startElement( null, null, JGlossDocument.Elements.RBASE, a);
+            startElement( JGlossDocument.Elements.RBASE, a);
             handleText( rb.getElement( 1));
-            saxContentHandler.endElement( null, null, JGlossDocument.Elements.RBASE);
+            endElement( JGlossDocument.Elements.RBASE);
         }
     } // class RBHandler
 
@@ -312,8 +327,7 @@ public class HTMLToSAXParserAdapter {
     private class PHandler implements ElementHandler {
         @Override
 		public void handle(Element p) throws SAXException {
-            saxContentHandler.startElement( null, null, HTML.Tag.P.toString(),
-                                            EMPTY_ATTRIBUTES);
+            startElement( HTML.Tag.P.toString(), EMPTY_ATTRIBUTES);
 
             for (int i=0; i<p.getElementCount()-1; i++) {
                 handleElement(p.getElement(i));
@@ -339,7 +353,7 @@ public class HTMLToSAXParserAdapter {
                 handleElement(last);
             }
 
-            saxContentHandler.endElement( null, null, HTML.Tag.P.toString());
+            endElement( HTML.Tag.P.toString());
         }
     }
 } // class HTMLToSAXParserAdapter
@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.ui.html;
+
+import java.awt.EventQueue;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.swing.text.BadLocationException;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Forwards the SAX events of a HTML document generated in a background thread to a
+ * content handler on the event dispatch thread. The events are collected in chunks of
+ * several paragraphs, and each chunk is forwarded in a single event, during which the
+ * target document is not changed by the user. Between chunks, the event dispatch thread
+ * is free to display the part of the document which is already loaded.
+ *
+ * @author Michael Koch
+ */
+class IncrementalHTMLLoader extends DefaultHandler {
+    private static final int START_DOCUMENT = 0;
+    private static final int END_DOCUMENT = 1;
+    private static final int START_ELEMENT = 2;
+    private static final int END_ELEMENT = 3;
+    private static final int CHARACTERS = 4;
+
+    /**
+     * A recorded SAX event.
+     */
+    private static class Event {
+        private final int type;
+        private final String qName;
+        private final Attributes attributes;
+        private final char[] text;
+
+        Event( int type, String qName, Attributes attributes, char[] text) {
+            this.type = type;
+            this.qName = qName;
+            this.attributes = attributes;
+            this.text = text;
+        }
+
+        void forward( ContentHandler handler) throws SAXException {
+            switch (type) {
+            case START_DOCUMENT:
+                handler.startDocument();
+                break;
+            case END_DOCUMENT:
+                handler.endDocument();
+                break;
+            case START_ELEMENT:
+                handler.startElement( "", qName, qName, attributes);
+                break;
+            case END_ELEMENT:
+                handler.endElement( "", qName, qName);
+                break;
+            case CHARACTERS:
+                handler.characters( text, 0, text.length);
+                break;
+            default:
+                throw new IllegalStateException( "unknown event type " + type);
+            }
+        }
+    }
+
+    private final JGlossHTMLDoc htmlDoc;
+    private final ContentHandler target;
+    private final int chunkParagraphs;
+
+    private List<Event> chunk = new ArrayList<Event>();
+    private int paragraphs;
+
+    /**
+     * Exception thrown by the target handler while forwarding a chunk.
+     */
+    private SAXException forwardException;
+
+    /**
+     * @param htmlDoc Document which is loaded.
+     * @param target Handler which builds the document from the SAX events.
+     * @param chunkParagraphs Number of paragraphs which are forwarded together.
+     */
+    IncrementalHTMLLoader( JGlossHTMLDoc htmlDoc, ContentHandler target, int chunkParagraphs) {
+        this.htmlDoc = htmlDoc;
+        this.target = target;
+        this.chunkParagraphs = chunkParagraphs;
+    }
+
+    @Override
+    public void startDocument() {
+        chunk.add( new Event( START_DOCUMENT, null, null, null));
+    }
+
+    @Override
+    public void endDocument() throws SAXException {
+        chunk.add( new Event( END_DOCUMENT, null, null, null));
+        forwardChunk( true);
+    }
+
+    @Override
+    public void startElement( String uri, String localName, String qName, Attributes attributes) {
+        chunk.add( new Event( START_ELEMENT, qName, new AttributesImpl( attributes), null));
+    }
+
+    @Override
+    public void endElement( String uri, String localName, String qName) throws SAXException {
+        chunk.add( new Event( END_ELEMENT, qName, null, null));
+        if ("p".equals( qName) && ++paragraphs >= chunkParagraphs) {
+            forwardChunk( false);
+        }
+    }
+
+    @Override
+    public void characters( char[] ch, int start, int length) {
+        chunk.add( new Event( CHARACTERS, null, null, Arrays.copyOfRange( ch, start, start + length)));
+    }
+
+    /**
+     * Forwards the events collected so far on the event dispatch thread and waits until they
+     * are processed.
+     *
+     * @param lastChunk <code>true</code> if this is the end of the document.
+     */
+    private void forwardChunk( final boolean lastChunk) throws SAXException {
+        final List<Event> events = chunk;
+        chunk = new ArrayList<Event>( events.size());
+        paragraphs = 0;
+
+        try {
+            EventQueue.invokeAndWait( new Runnable() {
+                @Override
+                public void run() {
+                    htmlDoc.startLoadedChunk();
+                    try {
+                        for (Event event : events) {
+                            if (event.type == END_DOCUMENT) {
+                                // insert the remaining elements before the reader completes the document
+                                htmlDoc.flushLoadedChunk();
+                            }
+                            event.forward( target);
+                        }
+                        htmlDoc.flushLoadedChunk();
+                    } catch (SAXException ex) {
+                        forwardException = ex;
+                    } catch (BadLocationException ex) {
+                        forwardException = new SAXException( ex);
+                    } finally {
+                        htmlDoc.endLoadedChunk( lastChunk && forwardException == null);
+                    }
+                }
+            });
+        } catch (InterruptedException ex) {
+            // loading was cancelled
+            Thread.currentThread().interrupt();
+            throw new SAXException( ex);
+        } catch (InvocationTargetException ex) {
+            throw new SAXException( ex);
+        }
+
+        if (forwardException != null) {
+            throw forwardException;
+        }
+    }
+} // class IncrementalHTMLLoader
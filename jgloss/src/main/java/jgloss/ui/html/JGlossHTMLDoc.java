@@ -22,10 +22,14 @@
 
 package jgloss.ui.html;
 
+import java.awt.EventQueue;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -94,6 +98,24 @@ public class JGlossHTMLDoc extends HTMLDocument {
 
     public static final String EMPTY_ELEMENT_PLACEHOLDER = " ";
 
+    /**
+     * Name of the boolean property which is <code>true</code> while the document performs an edit
+     * consisting of many individual document changes, like adding or removing the annotations in a
+     * region. Document listeners may use it to combine their reactions to the individual changes.
+     */
+    public static final String COMPOUND_EDIT_PROPERTY = "compoundEdit";
+
+    /**
+     * Name of the boolean property which is <code>true</code> while the document is
+     * {@link #loadJGlossDocument(JGlossDocument) loaded incrementally}.
+     */
+    public static final String LOADING_PROPERTY = "loading";
+
+    /**
+     * Number of paragraphs which are added to the document at once while loading it incrementally.
+     */
+    private static final int LOAD_CHUNK_PARAGRAPHS = 50;
+
     private final DocumentTreeWalker documentTreeWalker = new DocumentTreeWalker(this);
 
     private JGlossDocument baseDoc;
@@ -104,10 +126,31 @@ public class JGlossHTMLDoc extends HTMLDocument {
     private SAXResult docTransformTarget;
 
     /**
-     * Manages the property change listeners, which are notified of document title changes.
+     * Manages the property change listeners, which are notified of document title changes
+     * and compound edits.
      */
     private final PropertyChangeSupport listeners = new PropertyChangeSupport( this);
 
+    /**
+     * Nesting depth of the currently running compound edits.
+     */
+    private int compoundEditDepth;
+
+    /**
+     * <code>true</code> while the document is loaded incrementally.
+     */
+    private boolean loading;
+
+    /**
+     * Reader which builds the document while it is loaded incrementally.
+     */
+    private JGlossReader loadingReader;
+
+    /**
+     * <code>true</code> while a chunk of an incrementally loaded document is inserted.
+     */
+    private boolean insertingLoadedChunk;
+
     private static final Templates JGLOSS_TO_HTML_TEMPLATES = initTemplates();
 
     private static Templates initTemplates() {
@@ -271,6 +314,28 @@ public class JGlossHTMLDoc extends HTMLDocument {
         public int getParsePosition() {
             return pos;
         }
+
+        /**
+         * Inserts the elements parsed so far into the document. This is used to add complete
+         * paragraphs while the document is loaded incrementally. The flushing built into the
+         * <code>HTMLReader</code> can't be used, since it may insert an annotation before all
+         * of its child elements are parsed.
+         */
+        void flushParsedElements() throws BadLocationException {
+            if (parseBuffer.isEmpty()) {
+                return;
+            }
+
+            if (getLength() == 0) {
+                create( parseBuffer.toArray( new ElementSpec[parseBuffer.size()]));
+            } else {
+                // The end of the document is inside the last paragraph of the previous chunk,
+                // but the parsed elements continue at the level of its parent.
+                parseBuffer.insertElementAt( new ElementSpec( null, ElementSpec.EndTagType), 0);
+                insert( getLength(), parseBuffer.toArray( new ElementSpec[parseBuffer.size()]));
+            }
+            parseBuffer.removeAllElements();
+        }
     }
 
     JGlossHTMLDoc(StyleSheet _styles, HTMLEditorKit.Parser _htmlparser) {
@@ -286,11 +351,7 @@ public class JGlossHTMLDoc extends HTMLDocument {
     public void setJGlossDocument( JGlossDocument _baseDoc) {
         baseDoc = _baseDoc;
 
-        try {
-            jglossDocTransformer = JGLOSS_TO_HTML_TEMPLATES.newTransformer();
-        } catch (TransformerConfigurationException ex) {
-            LOGGER.log(Level.SEVERE, ex.getMessage(), ex);
-        }
+        jglossDocTransformer = newTransformer();
         docTransformTarget = new SAXResult( new SAXToHTMLParserAdapter( getReader( 0),
                                                                         JGlossEditorKit.getDTD()));
         try {
@@ -303,6 +364,143 @@ public class JGlossHTMLDoc extends HTMLDocument {
         baseDoc.linkWithHTMLDoc( this);
     }
 
+    /**
+     * Set the JGloss XML document to which this HTML document corresponds and generate the HTML
+     * document from it in a background thread. The generated elements are added to the document on
+     * the event dispatch thread in chunks of a few paragraphs, so that the start of the document
+     * can be displayed while the rest is still loading. The {@link #LOADING_PROPERTY loading property}
+     * is <code>true</code> until the document is complete. Once it is, the HTML document replaces
+     * the DOM tree of the XML document, which is regenerated when it is needed again.
+     * <p>
+     * This method must be called on the event dispatch thread.
+     * </p>
+     *
+     * @return Future which completes when the document is loaded. Cancelling the future stops the
+     *         loading.
+     */
+    public Future<?> loadJGlossDocument( final JGlossDocument _baseDoc) {
+        assert EventQueue.isDispatchThread();
+
+        baseDoc = _baseDoc;
+        final Transformer transformer = newTransformer();
+        loadingReader = new JGlossReader( 0);
+        reader = loadingReader;
+        final IncrementalHTMLLoader loader = new IncrementalHTMLLoader
+            ( this, new SAXToHTMLParserAdapter( loadingReader, JGlossEditorKit.getDTD()),
+              LOAD_CHUNK_PARAGRAPHS);
+
+        loading = true;
+        listeners.firePropertyChange( LOADING_PROPERTY, false, true);
+
+        FutureTask<Void> loadTask = new FutureTask<Void>( new Callable<Void>() {
+                @Override
+                public Void call() throws TransformerException {
+                    try {
+                        transformer.transform( new DOMSource( _baseDoc.getDOMDocument()),
+                                               new SAXResult( loader));
+                    } catch (TransformerException ex) {
+                        if (!Thread.currentThread().isInterrupted()) {
+                            LOGGER.log(Level.SEVERE, ex.getMessage(), ex);
+                        }
+                        throw ex;
+                    } finally {
+                        // does nothing if the last chunk was loaded successfully
+                        EventQueue.invokeLater( new Runnable() {
+                                @Override
+                                public void run() {
+                                    finishLoading( false);
+                                }
+                            });
+                    }
+                    return null;
+                }
+            });
+        Thread loaderThread = new Thread( loadTask, "JGlossHTMLDoc loader");
+        loaderThread.setDaemon( true);
+        loaderThread.start();
+
+        return loadTask;
+    }
+
+    private static Transformer newTransformer() {
+        try {
+            return JGLOSS_TO_HTML_TEMPLATES.newTransformer();
+        } catch (TransformerConfigurationException ex) {
+            LOGGER.log(Level.SEVERE, ex.getMessage(), ex);
+            return null;
+        }
+    }
+
+    /**
+     * Test if the document is currently loaded incrementally. While it is loading, the
+     * annotation structure of the document must not be changed.
+     *
+     * @see #LOADING_PROPERTY
+     */
+    public boolean isLoading() {
+        return loading;
+    }
+
+    /**
+     * Called by the {@link IncrementalHTMLLoader IncrementalHTMLLoader} on the event dispatch thread before
+     * a chunk of the loaded document is added.
+     */
+    void startLoadedChunk() {
+        insertingLoadedChunk = true;
+        startCompoundEdit();
+    }
+
+    /**
+     * Called by the {@link IncrementalHTMLLoader IncrementalHTMLLoader} on the event dispatch thread
+     * to insert the paragraphs of a chunk which were parsed completely.
+     */
+    void flushLoadedChunk() throws BadLocationException {
+        loadingReader.flushParsedElements();
+    }
+
+    /**
+     * Called by the {@link IncrementalHTMLLoader IncrementalHTMLLoader} on the event dispatch thread after
+     * a chunk of the loaded document is added.
+     *
+     * @param complete <code>true</code> if this was the last chunk of the document and it was
+     *        loaded successfully.
+     */
+    void endLoadedChunk( boolean complete) {
+        insertingLoadedChunk = false;
+        endCompoundEdit();
+        if (complete) {
+            finishLoading( true);
+        }
+    }
+
+    private void finishLoading( boolean complete) {
+        if (!loading) {
+            return;
+        }
+
+        loading = false;
+        loadingReader = null;
+        baseDoc.linkWithHTMLDoc( this);
+        if (complete) {
+            baseDoc.releaseDOMDocument();
+        }
+        listeners.firePropertyChange( LOADING_PROPERTY, true, false);
+    }
+
+    /**
+     * Inserts element specs created by a HTML reader. The chunks of an incrementally loaded
+     * document are always appended to the end of the document, because the position the reader
+     * keeps track of does not include the chunks it did not insert itself, or text edited while
+     * the document is loading.
+     */
+    @Override
+    protected void insert( int offset, ElementSpec[] data) throws BadLocationException {
+        if (insertingLoadedChunk) {
+            offset = getLength();
+        }
+        super.insert( offset, data);
+    }
+
     public JGlossDocument getJGlossDocument() { return baseDoc; }
 
     /**
@@ -419,6 +617,13 @@ public class JGlossHTMLDoc extends HTMLDocument {
         listeners.addPropertyChangeListener( listener);
     }
 
+    /**
+     * Adds a listener which will be notified of changes to a specific property.
+     */
+    public void addPropertyChangeListener( String propertyName, PropertyChangeListener listener) {
+        listeners.addPropertyChangeListener( propertyName, listener);
+    }
+
     /**
      * Removes a previously added document change listener.
      */
@@ -426,6 +631,34 @@ public class JGlossHTMLDoc extends HTMLDocument {
         listeners.removePropertyChangeListener( listener);
     }
 
+    /**
+     * Removes a listener added for a specific property.
+     */
+    public void removePropertyChangeListener( String propertyName, PropertyChangeListener listener) {
+        listeners.removePropertyChangeListener( propertyName, listener);
+    }
+
+    /**
+     * Test if a compound edit is running.
+     *
+     * @see #COMPOUND_EDIT_PROPERTY
+     */
+    public boolean isCompoundEdit() {
+        return compoundEditDepth > 0;
+    }
+
+    private void startCompoundEdit() {
+        if (compoundEditDepth++ == 0) {
+            listeners.firePropertyChange( COMPOUND_EDIT_PROPERTY, false, true);
+        }
+    }
+
+    private void endCompoundEdit() {
+        if (--compoundEditDepth == 0) {
+            listeners.firePropertyChange( COMPOUND_EDIT_PROPERTY, true, false);
+        }
+    }
+
     /**
      * Sets the title of the document. This modifies the <CODE>DocumentTitle</CODE> property
      * of the Document object. Calling this method fires a property change event.
@@ -497,6 +730,7 @@ public class JGlossHTMLDoc extends HTMLDocument {
      * @param editorKit Editor kit needed to insert the newly generated annotation element.
      */
     public void addAnnotation(int start, int end, JGlossEditorKit editorKit) {
+        startCompoundEdit();
         try {
             // find smallest enclosing element of start and don't allow annotation to
             // cross it.
@@ -576,6 +810,8 @@ public class JGlossHTMLDoc extends HTMLDocument {
             }
         } catch (Exception ex) {
             LOGGER.log(Level.SEVERE, ex.getMessage(), ex);
+        } finally {
+            endCompoundEdit();
         }
     }
 
@@ -676,7 +912,49 @@ public class JGlossHTMLDoc extends HTMLDocument {
      * Remove all annotations which intersect the given region of the document.
      */
     public void removeAnnotations(int start, int end) {
-        documentTreeWalker.startWalk(start, end, new AnnotationRemover());
+        startCompoundEdit();
+        writeLock();
+        try {
+            // Removing an annotation may recreate the other elements of its paragraph, so the
+            // annotations are looked up again after each removal. Removing them from back to front
+            // keeps the start offset valid, and each lookup only has to search up to the start of
+            // the previously removed annotation.
+            Element annotation = findLastAnnotationElement(getDefaultRootElement(), start, end);
+            while (annotation != null) {
+                int annotationStart = annotation.getStartOffset();
+                removeAnnotationElement(annotation);
+                annotation = findLastAnnotationElement(getDefaultRootElement(), start, annotationStart);
+            }
+        } finally {
+            writeUnlock();
+            endCompoundEdit();
+        }
+    }
+
+    /**
+     * Returns the last annotation element below the given element which intersects the region,
+     * or <code>null</code> if there is none.
+     */
+    private Element findLastAnnotationElement(Element elem, int start, int end) {
+        if (start >= end || elem.getStartOffset() >= end || elem.getEndOffset() <= start) {
+            return null;
+        }
+        if (elem.getName().equals(AnnotationTags.ANNOTATION.getId())) {
+            return elem;
+        }
+
+        for (int i=elem.getElementIndex(end-1); i>=0; i--) {
+            Element child = elem.getElement(i);
+            if (child.getEndOffset() <= start) {
+                break;
+            }
+            Element annotation = findLastAnnotationElement(child, start, end);
+            if (annotation != null) {
+                return annotation;
+            }
+        }
+
+        return null;
     }
 
     /**
@@ -40,6 +40,7 @@ import jgloss.parser.TextAnnotationCompleter;
 import jgloss.util.StringTools;
 
 import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
 import org.xml.sax.InputSource;
 import org.xml.sax.Locator;
 import org.xml.sax.SAXException;
@@ -151,6 +152,14 @@ class AnnotationGenerator extends DefaultHandler {
         }
         // TODO: use readings list
 
+        annotateText( c, start, length);
+    }
+
+    /**
+     * Parses the text of a paragraph and writes the text with the annotation elements to the
+     * parent handler.
+     */
+    protected void annotateText( char[] c, int start, int length) throws SAXException {
         List<TextAnnotation> annotations = null;
         try {
             annotations = parser.parse( c, start, length);
@@ -158,25 +167,39 @@ class AnnotationGenerator extends DefaultHandler {
             throw new SAXException( ex);
         }
 
-        int lastEnd = start; // index one after the end of the last annotation
         for (TextAnnotation annotation : annotations) {
             taCompleter.complete(annotation);
+        }
+
+        writeAnnotatedText( parent, c, start, length, annotations);
+    }
+
+    /**
+     * Writes the text of a paragraph with annotation elements for the annotated words.
+     *
+     * @param out Handler to which the text and the elements are passed.
+     * @param annotations Completed annotations of the text, in text order.
+     */
+    protected void writeAnnotatedText( ContentHandler out, char[] c, int start, int length,
+                                       List<TextAnnotation> annotations) throws SAXException {
+        int lastEnd = start; // index one after the end of the last annotation
+        for (TextAnnotation annotation : annotations) {
             // handle text between annotations
             if (annotation.getStart() > lastEnd) {
-                parent.characters(c, lastEnd, annotation.getStart() - lastEnd);
+                out.characters(c, lastEnd, annotation.getStart() - lastEnd);
             }
             lastEnd = annotation.getStart() + annotation.getLength();
 
-            createAnnotationElement(c, annotation);
+            createAnnotationElement(out, c, annotation);
         }
 
         // handle remaining unannotated text
         if (lastEnd < start+length) {
-	        parent.characters( c, lastEnd, start+length-lastEnd);
+	        out.characters( c, lastEnd, start+length-lastEnd);
         }
     }
 
-    private void createAnnotationElement(char[] c, TextAnnotation annotation) throws SAXException {
+    private void createAnnotationElement(ContentHandler out, char[] c, TextAnnotation annotation) throws SAXException {
         String annotatedWord = new String(c, annotation.getStart(), annotation.getLength());
         AttributesImpl annoAtts = new AttributesImpl();
         if (annotation.getTranslation() != null) {
@@ -228,7 +251,7 @@ class AnnotationGenerator extends DefaultHandler {
                                    CDATA, annotation.getDictionaryFormReading());
         }
 
-        parent.startElement( "", "", JGlossDocument.Elements.ANNOTATION, annoAtts);
+        out.startElement( "", "", JGlossDocument.Elements.ANNOTATION, annoAtts);
         int partPosition = annotation.getStart(); // position of part substring in c array
         for (String[] part : parts) {
             if (part.length == 2) {
@@ -240,21 +263,21 @@ class AnnotationGenerator extends DefaultHandler {
                     "" : part[1];
                 readingAtts.setValue( 0, thisReading);
 
-                parent.startElement( "", "", JGlossDocument.Elements.RBASE, readingAtts);
+                out.startElement( "", "", JGlossDocument.Elements.RBASE, readingAtts);
             }
 
             // add the reading base, or part without reading
-            parent.characters( c, partPosition, part[0].length());
+            out.characters( c, partPosition, part[0].length());
             partPosition += part[0].length();
 
             if (part.length == 2) {
                 // end reading element
-                parent.endElement( "", "", JGlossDocument.Elements.RBASE);
+                out.endElement( "", "", JGlossDocument.Elements.RBASE);
             }
         }
 
         // end annotation element
-        parent.endElement( "", "", JGlossDocument.Elements.ANNOTATION);
+        out.endElement( "", "", JGlossDocument.Elements.ANNOTATION);
     }
 
     private String shortenIfNeeded(String translation) {
@@ -30,11 +30,16 @@ import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.sax.SAXResult;
 
 import jgloss.ui.html.HTMLToSAXParserAdapter;
 import jgloss.ui.html.JGlossHTMLDoc;
 
 import org.w3c.dom.Document;
+import org.xml.sax.ContentHandler;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
@@ -105,6 +110,25 @@ public class JGlossDocument {
         return doc;
     }
 
+    /**
+     * Writes the document as SAX events to a content handler. If the DOM tree is not up to date
+     * with the linked HTML document, the events are generated directly from the HTML document
+     * without building the DOM tree. This keeps the memory needed to export a large document
+     * independent of the document size.
+     */
+    public synchronized void writeTo( ContentHandler handler) throws SAXException {
+        if (doc == null) {
+            new HTMLToSAXParserAdapter().transform( htmlDoc, handler);
+        } else {
+            try {
+                TransformerFactory.newInstance().newTransformer()
+                    .transform( new DOMSource( doc), new SAXResult( handler));
+            } catch (TransformerException ex) {
+                throw new SAXException( ex);
+            }
+        }
+    }
+
     private void setDocument( Document _doc) {
         doc = _doc;
     }
@@ -132,6 +156,17 @@ public class JGlossDocument {
         doc = null;
     }
 
+    /**
+     * Frees the DOM tree of the document once the linked HTML document holds the complete content.
+     * The DOM tree is regenerated from the HTML document when it is needed again.
+     */
+    public void releaseDOMDocument() {
+        if (htmlDoc == null) {
+            throw new IllegalStateException( "document is not linked with a HTML document");
+        }
+        invalidate();
+    }
+
     private synchronized void validate() {
         try {
             DocumentGenerator generator = new DocumentGenerator();
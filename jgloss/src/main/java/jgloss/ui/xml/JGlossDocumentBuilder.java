@@ -44,6 +44,22 @@ import org.xml.sax.SAXException;
  */
 public class JGlossDocumentBuilder {
 	private static final Logger LOGGER = Logger.getLogger(JGlossDocumentBuilder.class.getPackage().getName());
+
+    /**
+     * Maximum number of threads used to annotate the paragraphs of a document.
+     */
+    private static final int MAX_WORKER_THREADS = 4;
+
+    /**
+     * Creates the parsers used to annotate a document in parallel.
+     */
+    public interface ParserFactory {
+        /**
+         * Creates a new parser. All parsers created by a factory must be configured identically.
+         * The method is called from several threads.
+         */
+        Parser createParser();
+    } // interface ParserFactory
 	
 	private final SAXParser xmlParser;
 
@@ -73,4 +89,37 @@ public class JGlossDocumentBuilder {
         JGlossDocument result = new JGlossDocument( docGen.getGeneratedDocument());
         return result;
     }
+
+    /**
+     * Builds the document, annotating the paragraphs in parallel. Each worker thread uses its own
+     * parser created by the parser factory. The result is the same as that of
+     * {@link #build(Reader,boolean,ReadingAnnotationFilter,Parser,Dictionary[]) build} with a single
+     * parser. If only one processor is available, the document is built sequentially.
+     */
+    public JGlossDocument build( Reader text, boolean detectLineBreaks,
+                                 ReadingAnnotationFilter readingFilter, ParserFactory parserFactory,
+                                 Dictionary[] dictionaries) throws IOException, SAXException {
+        return build( text, detectLineBreaks, readingFilter, parserFactory, dictionaries,
+                      Math.min( Runtime.getRuntime().availableProcessors(), MAX_WORKER_THREADS));
+    }
+
+    JGlossDocument build( Reader text, boolean detectLineBreaks,
+                          ReadingAnnotationFilter readingFilter, ParserFactory parserFactory,
+                          Dictionary[] dictionaries, int workerCount) throws IOException, SAXException {
+        if (workerCount < 2) {
+            return build( text, detectLineBreaks, readingFilter, parserFactory.createParser(), dictionaries);
+        }
+
+        ParallelAnnotationGenerator handler = new ParallelAnnotationGenerator( docGen, readingFilter, parserFactory,
+                                                                               dictionaries, workerCount);
+        InputSource inputSource = new InputSource( new JGlossifyReader( text, null, detectLineBreaks));
+
+        try {
+            xmlParser.parse( inputSource, handler);
+        } finally {
+            handler.dispose();
+        }
+
+        return new JGlossDocument( docGen.getGeneratedDocument());
+    }
 } // class JGlossDocumentBuilder
@@ -0,0 +1,486 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.ui.xml;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jgloss.dictionary.Dictionary;
+import jgloss.parser.Parser;
+import jgloss.parser.ReadingAnnotationFilter;
+import jgloss.parser.TextAnnotation;
+import jgloss.parser.TextAnnotationCompleter;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Annotation generator which parses the paragraphs of the document concurrently. The text
+ * of every paragraph is handed to a pool of worker threads, each of which uses its own
+ * parser and annotation completer. The annotated paragraphs are passed to the parent
+ * handler in document order, together with the other document events, which are buffered
+ * while an earlier paragraph is still being parsed.
+ * <p>
+ * The worker parsers always annotate all occurrences of a word. If the parsers created by the
+ * parser factory annotate only the first occurrence, the annotations of words which
+ * were already annotated in an earlier paragraph are removed when the paragraphs
+ * are reassembled in document order. This gives the same result as parsing the document
+ * with a single parser.
+ * </p>
+ *
+ * @author Michael Koch
+ */
+class ParallelAnnotationGenerator extends AnnotationGenerator {
+    /**
+     * Number of parsed paragraphs per worker thread which may wait for an earlier paragraph
+     * before the document parser is blocked.
+     */
+    private static final int PENDING_PARAGRAPHS_PER_WORKER = 16;
+
+    /**
+     * Parser and completer used by a single worker thread.
+     */
+    private static class Worker {
+        private final Parser parser;
+        private final TextAnnotationCompleter completer;
+
+        Worker(Parser parser, TextAnnotationCompleter completer) {
+            this.parser = parser;
+            this.completer = completer;
+        }
+    }
+
+    private final ExecutorService workers;
+    private final ThreadLocal<Worker> worker;
+    /**
+     * Parsers of all worker threads, reset when the generator is disposed.
+     */
+    private final List<Parser> workerParsers = Collections.synchronizedList(new ArrayList<Parser>());
+
+    private final EventBuffer buffer;
+
+    /**
+     * Words annotated in the paragraphs passed to the parent handler, or <code>null</code>
+     * if all occurrences of a word are annotated.
+     */
+    private final Set<String> annotatedWords;
+
+    public ParallelAnnotationGenerator( DefaultHandler _parent, ReadingAnnotationFilter _readingFilter,
+                                        JGlossDocumentBuilder.ParserFactory _parserFactory,
+                                        Dictionary[] _dictionaries, int workerCount) {
+        this( new EventBuffer( _parent, workerCount * PENDING_PARAGRAPHS_PER_WORKER), _readingFilter,
+              _parserFactory, _parserFactory.createParser(), _dictionaries, workerCount);
+    }
+
+    private ParallelAnnotationGenerator( EventBuffer _buffer, ReadingAnnotationFilter _readingFilter,
+                                         final JGlossDocumentBuilder.ParserFactory _parserFactory,
+                                         Parser _parser, final Dictionary[] _dictionaries, int workerCount) {
+        super( _buffer, _readingFilter, _parser, _dictionaries);
+        buffer = _buffer;
+        annotatedWords = _parser.isAnnotateFirstOccurrenceOnly() ? new HashSet<String>( 1001) : null;
+        workers = Executors.newFixedThreadPool( workerCount, new WorkerThreadFactory());
+        worker = new ThreadLocal<Worker>() {
+            @Override
+            protected Worker initialValue() {
+                Parser parser = _parserFactory.createParser();
+                // first occurrences are determined when the paragraphs are reassembled
+                parser.setAnnotateFirstOccurrenceOnly( false);
+                workerParsers.add( parser);
+                return new Worker( parser, new TextAnnotationCompleter( _dictionaries));
+            }
+        };
+    }
+
+    /**
+     * Submits the text of the paragraph to the worker threads.
+     */
+    @Override
+    protected void annotateText( char[] c, int start, int length) throws SAXException {
+        // the SAX parser reuses the character array
+        final char[] text = Arrays.copyOfRange( c, start, start+length);
+        Future<List<TextAnnotation>> annotations = workers.submit( new Callable<List<TextAnnotation>>() {
+            @Override
+            public List<TextAnnotation> call() throws Exception {
+                Worker w = worker.get();
+                List<TextAnnotation> annotations = w.parser.parse( text, 0, text.length);
+                for (TextAnnotation annotation : annotations) {
+                    w.completer.complete( annotation);
+                }
+                return annotations;
+            }
+        });
+
+        buffer.add( new ParagraphEvent( text, annotations));
+    }
+
+    /**
+     * Removes the annotations of words which were already annotated in an earlier paragraph.
+     */
+    private List<TextAnnotation> filterFirstOccurrences( List<TextAnnotation> annotations) {
+        if (annotatedWords == null) {
+            return annotations;
+        }
+
+        List<TextAnnotation> firstOccurrences = new ArrayList<TextAnnotation>( annotations.size());
+        for (TextAnnotation annotation : annotations) {
+            if (annotatedWords.add( annotation.getDictionaryForm())) {
+                firstOccurrences.add( annotation);
+            }
+        }
+        return firstOccurrences;
+    }
+
+    /**
+     * Stops the worker threads and resets their parsers. Must be called after the document was
+     * parsed, even if parsing failed.
+     */
+    public void dispose() {
+        workers.shutdownNow();
+        try {
+            workers.awaitTermination( 10, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (workerParsers) {
+            for (Parser parser : workerParsers) {
+                parser.reset();
+            }
+        }
+    }
+
+    /**
+     * Document event which is passed to the parent handler after the earlier paragraphs are
+     * annotated.
+     */
+    private abstract static class Event {
+        abstract void replay( ContentHandler out) throws SAXException;
+    }
+
+    private class ParagraphEvent extends Event {
+        private final char[] text;
+        private final Future<List<TextAnnotation>> annotations;
+
+        ParagraphEvent( char[] text, Future<List<TextAnnotation>> annotations) {
+            this.text = text;
+            this.annotations = annotations;
+        }
+
+        boolean isDone() {
+            return annotations.isDone();
+        }
+
+        @Override
+        void replay( ContentHandler out) throws SAXException {
+            List<TextAnnotation> result;
+            try {
+                result = annotations.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new SAXException( ex);
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof Exception) {
+                    throw new SAXException( (Exception) ex.getCause());
+                } else {
+                    throw new SAXException( ex);
+                }
+            }
+
+            writeAnnotatedText( out, text, 0, text.length, filterFirstOccurrences( result));
+        }
+    }
+
+    private static class StartElementEvent extends Event {
+        private final String namespaceURI;
+        private final String localName;
+        private final String qName;
+        private final Attributes atts;
+
+        StartElementEvent( String namespaceURI, String localName, String qName, Attributes atts) {
+            this.namespaceURI = namespaceURI;
+            this.localName = localName;
+            this.qName = qName;
+            // the SAX parser reuses the attributes object
+            this.atts = new AttributesImpl( atts);
+        }
+
+        @Override
+        void replay( ContentHandler out) throws SAXException {
+            out.startElement( namespaceURI, localName, qName, atts);
+        }
+    }
+
+    private static class EndElementEvent extends Event {
+        private final String namespaceURI;
+        private final String localName;
+        private final String qName;
+
+        EndElementEvent( String namespaceURI, String localName, String qName) {
+            this.namespaceURI = namespaceURI;
+            this.localName = localName;
+            this.qName = qName;
+        }
+
+        @Override
+        void replay( ContentHandler out) throws SAXException {
+            out.endElement( namespaceURI, localName, qName);
+        }
+    }
+
+    private static class CharactersEvent extends Event {
+        private final char[] text;
+        private final boolean ignorable;
+
+        CharactersEvent( char[] c, int start, int length, boolean ignorable) {
+            this.text = Arrays.copyOfRange( c, start, start+length);
+            this.ignorable = ignorable;
+        }
+
+        @Override
+        void replay( ContentHandler out) throws SAXException {
+            if (ignorable) {
+                out.ignorableWhitespace( text, 0, text.length);
+            } else {
+                out.characters( text, 0, text.length);
+            }
+        }
+    }
+
+    private static class ProcessingInstructionEvent extends Event {
+        private final String target;
+        private final String data;
+
+        ProcessingInstructionEvent( String target, String data) {
+            this.target = target;
+            this.data = data;
+        }
+
+        @Override
+        void replay( ContentHandler out) throws SAXException {
+            out.processingInstruction( target, data);
+        }
+    }
+
+    private static class PrefixMappingEvent extends Event {
+        private final String prefix;
+        /**
+         * URI of a started prefix mapping, <code>null</code> if the mapping ends.
+         */
+        private final String uri;
+
+        PrefixMappingEvent( String prefix, String uri) {
+            this.prefix = prefix;
+            this.uri = uri;
+        }
+
+        @Override
+        void replay( ContentHandler out) throws SAXException {
+            if (uri != null) {
+                out.startPrefixMapping( prefix, uri);
+            } else {
+                out.endPrefixMapping( prefix);
+            }
+        }
+    }
+
+    private static class SkippedEntityEvent extends Event {
+        private final String name;
+
+        SkippedEntityEvent( String name) {
+            this.name = name;
+        }
+
+        @Override
+        void replay( ContentHandler out) throws SAXException {
+            out.skippedEntity( name);
+        }
+    }
+
+    /**
+     * Passes document events to the parent handler in document order. Events which follow a
+     * paragraph which is not yet annotated are buffered until the paragraph is done.
+     */
+    private static class EventBuffer extends DefaultHandler {
+        private final DefaultHandler parent;
+        private final int maxPendingParagraphs;
+        private final Deque<Event> events = new ArrayDeque<Event>();
+        private int pendingParagraphs;
+
+        EventBuffer( DefaultHandler parent, int maxPendingParagraphs) {
+            this.parent = parent;
+            this.maxPendingParagraphs = maxPendingParagraphs;
+        }
+
+        void add( Event event) throws SAXException {
+            events.addLast( event);
+            if (event instanceof ParagraphEvent) {
+                pendingParagraphs++;
+            }
+            flush( false);
+        }
+
+        /**
+         * Passes the buffered events to the parent handler until a paragraph is reached which
+         * is not yet annotated.
+         *
+         * @param wait <code>true</code> to wait for all paragraphs to be annotated.
+         */
+        private void flush( boolean wait) throws SAXException {
+            while (!events.isEmpty()) {
+                Event event = events.getFirst();
+                if (event instanceof ParagraphEvent) {
+                    // limit the memory used by annotated paragraphs waiting for an earlier paragraph
+                    if (!wait && pendingParagraphs <= maxPendingParagraphs &&
+                        !((ParagraphEvent) event).isDone()) {
+                        break;
+                    }
+                    pendingParagraphs--;
+                }
+                events.removeFirst();
+                event.replay( parent);
+            }
+        }
+
+        @Override
+        public void setDocumentLocator( Locator locator) {
+            parent.setDocumentLocator( locator);
+        }
+
+        @Override
+        public void startDocument() throws SAXException {
+            parent.startDocument();
+        }
+
+        @Override
+        public void endDocument() throws SAXException {
+            flush( true);
+            parent.endDocument();
+        }
+
+        @Override
+        public void startPrefixMapping( String prefix, String uri) throws SAXException {
+            add( new PrefixMappingEvent( prefix, uri));
+        }
+
+        @Override
+        public void endPrefixMapping( String prefix) throws SAXException {
+            add( new PrefixMappingEvent( prefix, null));
+        }
+
+        @Override
+        public void startElement( String namespaceURI, String localName, String qName, Attributes atts)
+            throws SAXException {
+            if (events.isEmpty()) {
+                parent.startElement( namespaceURI, localName, qName, atts);
+            } else {
+                add( new StartElementEvent( namespaceURI, localName, qName, atts));
+            }
+        }
+
+        @Override
+        public void endElement( String namespaceURI, String localName, String qName) throws SAXException {
+            if (events.isEmpty()) {
+                parent.endElement( namespaceURI, localName, qName);
+            } else {
+                add( new EndElementEvent( namespaceURI, localName, qName));
+            }
+        }
+
+        @Override
+        public void characters( char[] c, int start, int length) throws SAXException {
+            if (events.isEmpty()) {
+                parent.characters( c, start, length);
+            } else {
+                add( new CharactersEvent( c, start, length, false));
+            }
+        }
+
+        @Override
+        public void ignorableWhitespace( char[] c, int start, int length) throws SAXException {
+            if (events.isEmpty()) {
+                parent.ignorableWhitespace( c, start, length);
+            } else {
+                add( new CharactersEvent( c, start, length, true));
+            }
+        }
+
+        @Override
+        public void processingInstruction( String target, String data) throws SAXException {
+            add( new ProcessingInstructionEvent( target, data));
+        }
+
+        @Override
+        public void skippedEntity( String name) throws SAXException {
+            add( new SkippedEntityEvent( name));
+        }
+
+        @Override
+        public InputSource resolveEntity( String publicId, String systemId)
+            throws SAXException, IOException {
+            return parent.resolveEntity( publicId, systemId);
+        }
+
+        @Override
+        public void notationDecl( String name, String publicId, String systemId) throws SAXException {
+            parent.notationDecl( name, publicId, systemId);
+        }
+
+        @Override
+        public void unparsedEntityDecl( String name, String publicId, String systemId, String notationName)
+            throws SAXException {
+            parent.unparsedEntityDecl( name, publicId, systemId, notationName);
+        }
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread( Runnable r) {
+            Thread t = new Thread( r, "annotation worker " + threadCount.incrementAndGet());
+            // don't keep the application alive if an import is abandoned
+            t.setDaemon( true);
+            t.setPriority( Thread.NORM_PRIORITY - 1);
+            return t;
+        }
+    }
+} // class ParallelAnnotationGenerator
@@ -0,0 +1,167 @@
+package jgloss.ui.annotation;
+
+import static jgloss.ui.html.AnnotationTags.ANNOTATION;
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.text.Element;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class AnnotationListModelTest {
+    /**
+     * Records the annotation list events as "inserted", "removed" or "changed" with the index range.
+     */
+    private static class RecordingListener implements AnnotationListener {
+        final List<String> events = new ArrayList<String>();
+
+        @Override
+        public void annotationInserted(AnnotationEvent ae) {
+            record("inserted", ae);
+        }
+
+        @Override
+        public void annotationRemoved(AnnotationEvent ae) {
+            record("removed", ae);
+        }
+
+        @Override
+        public void annotationChanged(AnnotationEvent ae) {
+            record("changed", ae);
+        }
+
+        @Override
+        public void readingChanged(AnnotationEvent ae) {
+            record("reading", ae);
+        }
+
+        private void record(String type, AnnotationEvent ae) {
+            events.add(type + " " + ae.getIndex() + "-" + ae.getEndIndex());
+        }
+    }
+
+    private final List<Element> elements = new ArrayList<Element>();
+
+    private AnnotationListModel model;
+
+    private final RecordingListener listener = new RecordingListener();
+
+    @Before
+    public void createModel() {
+        for (int i=0; i<10; i++) {
+            elements.add(createElement(i * 10));
+        }
+        model = new AnnotationListModel(elements);
+        model.addAnnotationListener(listener);
+    }
+
+    private static Element createElement(int startOffset) {
+        Element element = mock(Element.class);
+        when(element.getName()).thenReturn(ANNOTATION.getId());
+        when(element.getStartOffset()).thenReturn(startOffset);
+        when(element.getEndOffset()).thenReturn(startOffset + 5);
+        // empty word and translation elements
+        when(element.getElement(0)).thenReturn(mock(Element.class));
+        when(element.getElement(1)).thenReturn(mock(Element.class));
+        return element;
+    }
+
+    @Test
+    public void testFindAnnotationIndex() {
+        assertThat(model.getAnnotationCount()).isEqualTo(10);
+        assertThat(model.findAnnotationIndex(22, AnnotationListModel.Bias.NONE)).isEqualTo(2);
+        assertThat(model.findAnnotationIndex(27, AnnotationListModel.Bias.NONE))
+            .isEqualTo(AnnotationListModel.NO_ANNOTATION);
+        assertThat(model.findAnnotationIndex(27, AnnotationListModel.Bias.LEFT)).isEqualTo(2);
+        assertThat(model.findAnnotationIndex(27, AnnotationListModel.Bias.RIGHT)).isEqualTo(3);
+    }
+
+    @Test
+    public void testIndexOf() {
+        for (int i=0; i<model.getAnnotationCount(); i++) {
+            assertThat(model.indexOf(model.getAnnotation(i))).isEqualTo(i);
+        }
+    }
+
+    @Test
+    public void testUnbatchedEvents() {
+        model.removeAnnotationFor(elements.get(3));
+        model.addAnnotationFor(createElement(35));
+
+        assertThat(listener.events).containsExactly("removed 3-3", "inserted 3-3");
+        assertThat(model.getAnnotation(3).getStartOffset()).isEqualTo(35);
+    }
+
+    @Test
+    public void testBatchedRemovalBackwards() {
+        model.startBatch();
+        for (int i=7; i>=2; i--) {
+            model.removeAnnotationFor(elements.get(i));
+        }
+        assertThat(listener.events).isEmpty();
+        model.endBatch();
+
+        assertThat(listener.events).containsExactly("removed 2-7");
+        assertThat(model.getAnnotationCount()).isEqualTo(4);
+        assertThat(model.getAnnotation(2).getAnnotationElement()).isSameAs(elements.get(8));
+    }
+
+    @Test
+    public void testBatchedRemovalForwards() {
+        model.startBatch();
+        for (int i=2; i<=7; i++) {
+            model.removeAnnotationFor(elements.get(i));
+        }
+        model.endBatch();
+
+        assertThat(listener.events).containsExactly("removed 2-7");
+    }
+
+    @Test
+    public void testBatchedInsertion() {
+        model.startBatch();
+        model.addAnnotationFor(createElement(52));
+        model.addAnnotationFor(createElement(54));
+        model.addAnnotationFor(createElement(51));
+        model.endBatch();
+
+        assertThat(listener.events).containsExactly("inserted 6-8");
+        assertThat(model.getAnnotationCount()).isEqualTo(13);
+    }
+
+    @Test
+    public void testNonContiguousChangesAreSeparateEvents() {
+        model.startBatch();
+        model.startBatch();
+        model.removeAnnotationFor(elements.get(8));
+        model.removeAnnotationFor(elements.get(2));
+        model.removeAnnotationFor(elements.get(1));
+        model.addAnnotationFor(createElement(12));
+        model.endBatch();
+        // the last change is only reported when the outer batch ends
+        assertThat(listener.events).containsExactly("removed 8-8", "removed 1-2");
+        model.endBatch();
+
+        assertThat(listener.events).containsExactly("removed 8-8", "removed 1-2", "inserted 1-1");
+    }
+
+    @Test
+    public void testChangeEventFlushesBatch() {
+        model.startBatch();
+        model.removeAnnotationFor(elements.get(2));
+        model.fireAnnotationChanged(model.getAnnotation(4));
+        model.endBatch();
+
+        assertThat(listener.events).containsExactly("removed 2-2", "changed 4-4");
+    }
+
+    @Test(expected=IllegalStateException.class)
+    public void testEndBatchWithoutStart() {
+        model.endBatch();
+    }
+}
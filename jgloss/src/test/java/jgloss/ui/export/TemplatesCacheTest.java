@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.ui.export;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TemplatesCacheTest {
+    private File stylesheet;
+
+    private final TemplatesCache cache = new TemplatesCache(TransformerFactory.newInstance());
+
+    @Before
+    public void createStylesheet() throws IOException {
+        stylesheet = File.createTempFile("templatescache", ".xslt");
+        writeStylesheet("a");
+    }
+
+    @After
+    public void deleteStylesheet() {
+        stylesheet.delete();
+    }
+
+    private void writeStylesheet(String output) throws IOException {
+        Writer out = new OutputStreamWriter(new FileOutputStream(stylesheet), "UTF-8");
+        try {
+            out.write("<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
+                      + "<xsl:template match=\"/\">" + output + "</xsl:template></xsl:stylesheet>");
+        } finally {
+            out.close();
+        }
+    }
+
+    @Test
+    public void testTemplatesAreCached() throws TransformerConfigurationException {
+        String systemId = stylesheet.toURI().toString();
+        Templates templates = cache.getTemplates(systemId);
+        assertThat(templates).isNotNull();
+        assertThat(cache.getTemplates(systemId)).isSameAs(templates);
+
+        cache.clear();
+        assertThat(cache.getTemplates(systemId)).isNotSameAs(templates);
+    }
+
+    @Test
+    public void testModifiedStylesheetIsRecompiled() throws TransformerConfigurationException, IOException {
+        String systemId = stylesheet.toURI().toString();
+        Templates templates = cache.getTemplates(systemId);
+
+        writeStylesheet("b");
+        assertThat(stylesheet.setLastModified(stylesheet.lastModified() - 10000)).isTrue();
+        assertThat(cache.getTemplates(systemId)).isNotSameAs(templates);
+    }
+}
@@ -24,21 +24,44 @@ package jgloss.ui.html;
 import static org.custommonkey.xmlunit.XMLAssert.assertXMLEqual;
 import static org.custommonkey.xmlunit.XMLUnit.buildControlDocument;
 import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
+import java.awt.EventQueue;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.lang.reflect.InvocationTargetException;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.swing.text.BadLocationException;
 import javax.swing.text.Element;
 import javax.swing.text.html.StyleSheet;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMResult;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
+import javax.xml.transform.stream.StreamSource;
 
+import jgloss.ui.annotation.AnnotationEvent;
+import jgloss.ui.annotation.AnnotationListModel;
+import jgloss.ui.annotation.AnnotationListener;
 import jgloss.ui.xml.JGlossDocument;
 
 import org.custommonkey.xmlunit.XMLUnit;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
@@ -119,6 +142,93 @@ public class JGlossHTMLDocTest {
         assertXMLEqual(buildControlDocument(getExpectedResult("testAnnotateAll")), jglossDoc.getDOMDocument());
     }
 
+    @Test
+    public void testWriteTo() throws IOException, BadLocationException, SAXException,
+                    TransformerConfigurationException {
+        doc.addAnnotation(77, 80, editorKit);
+
+        // the events are streamed from the HTML document through a compiled style sheet
+        SAXTransformerFactory factory = (SAXTransformerFactory) TransformerFactory.newInstance();
+        TransformerHandler handler = factory.newTransformerHandler(factory.newTemplates(new StreamSource(
+                        JGlossHTMLDocTest.class.getResource("identity.xslt").toExternalForm())));
+        DOMResult result = new DOMResult();
+        handler.setResult(result);
+        jglossDoc.writeTo(handler);
+
+        assertXMLEqual(buildControlDocument(getExpectedResult("testAddAnnotation")), (Document) result.getNode());
+    }
+
+    @Test
+    public void testAnnotationListIsSynchronized() {
+        AnnotationListModel model = new AnnotationListModel(doc.getAnnotationElements());
+        new AnnotationListSynchronizer(doc, model);
+
+        // annotate from back to front, since adding an annotation moves the following text
+        doc.addAnnotation(79, 80, editorKit);
+        doc.addAnnotation(77, 78, editorKit);
+        assertThat(model.getAnnotationCount()).isEqualTo(doc.getAnnotationElements().size()).isGreaterThan(1);
+        for (int i=0; i<model.getAnnotationCount(); i++) {
+            assertThat(model.getAnnotation(i).getAnnotationElement()).isSameAs(doc.getAnnotationElements().get(i));
+            assertThat(model.indexOf(model.getAnnotation(i))).isEqualTo(i);
+        }
+
+        // removing all annotations is reported as a single event
+        int annotationCount = model.getAnnotationCount();
+        AnnotationListener listener = mock(AnnotationListener.class);
+        model.addAnnotationListener(listener);
+        doc.removeAnnotations(0, doc.getLength());
+
+        assertThat(model.getAnnotationCount()).isEqualTo(0);
+        ArgumentCaptor<AnnotationEvent> event = ArgumentCaptor.forClass(AnnotationEvent.class);
+        verify(listener).annotationRemoved(event.capture());
+        assertThat(event.getValue().getIndex()).isEqualTo(0);
+        assertThat(event.getValue().getEndIndex()).isEqualTo(annotationCount - 1);
+    }
+
+    @Test
+    public void testLoadJGlossDocument() throws InterruptedException, InvocationTargetException,
+                    ExecutionException, BadLocationException, SAXException, IOException {
+        // large enough to be loaded in several chunks
+        Document dom = jglossDoc.getDOMDocument();
+        Node paragraph = dom.getElementsByTagName("p").item(0);
+        for (int i=0; i<250; i++) {
+            paragraph.getParentNode().appendChild(paragraph.cloneNode(true));
+        }
+        final JGlossDocument loadedJGlossDoc = new JGlossDocument((Document) dom.cloneNode(true));
+        final JGlossHTMLDoc loadedDoc = new JGlossHTMLDoc(new StyleSheet(), new JGlossParserWrapper());
+        final AnnotationListModel model = new AnnotationListModel(loadedDoc.getAnnotationElements());
+        new AnnotationListSynchronizer(loadedDoc, model);
+        PropertyChangeListener loadingListener = mock(PropertyChangeListener.class);
+        loadedDoc.addPropertyChangeListener(JGlossHTMLDoc.LOADING_PROPERTY, loadingListener);
+
+        final AtomicReference<Future<?>> loader = new AtomicReference<Future<?>>();
+        EventQueue.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                loader.set(loadedDoc.loadJGlossDocument(loadedJGlossDoc));
+                assertThat(loadedDoc.isLoading()).isTrue();
+            }
+        });
+        loader.get().get();
+
+        JGlossDocument expectedJGlossDoc = new JGlossDocument((Document) dom.cloneNode(true));
+        JGlossHTMLDoc expectedDoc = new JGlossHTMLDoc(new StyleSheet(), new JGlossParserWrapper());
+        expectedDoc.setJGlossDocument(expectedJGlossDoc);
+
+        assertThat(loadedDoc.isLoading()).isFalse();
+        verify(loadingListener, times(2)).propertyChange(any(PropertyChangeEvent.class));
+        assertThat(loadedDoc.getText(0, loadedDoc.getLength())).isEqualTo(expectedDoc.getText(0, expectedDoc.getLength()));
+        assertThat(loadedDoc.getAnnotationElements()).hasSize(expectedDoc.getAnnotationElements().size());
+        assertThat(model.getAnnotationCount()).isEqualTo(251);
+        for (int i=0; i<model.getAnnotationCount(); i++) {
+            assertThat(model.getAnnotation(i).getAnnotationElement()).isSameAs(loadedDoc.getAnnotationElements().get(i));
+        }
+
+        // the XML document is regenerated from the loaded HTML document
+        expectedJGlossDoc.releaseDOMDocument();
+        assertXMLEqual(expectedJGlossDoc.getDOMDocument(), loadedJGlossDoc.getDOMDocument());
+    }
+
     @Test
     public void testGetUnannotatedText() {
         assertThat(doc.getUnannotatedText(0, doc.getLength())).isEqualTo("bazq漢う字x。");
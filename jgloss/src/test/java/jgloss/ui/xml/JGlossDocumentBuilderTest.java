@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2002-2015 Michael Koch (tensberg@gmx.net)
+ *
+ * This file is part of JGloss.
+ *
+ * JGloss is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * JGloss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JGloss; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *
+ */
+
+package jgloss.ui.xml;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import jgloss.dictionary.Dictionary;
+import jgloss.parser.AbstractParser;
+import jgloss.parser.Parser;
+import jgloss.parser.TextAnnotation;
+import jgloss.util.StringTools;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+public class JGlossDocumentBuilderTest {
+    /**
+     * Annotates every kanji as a separate word.
+     */
+    private static class KanjiCharacterParser extends AbstractParser {
+        KanjiCharacterParser(boolean firstOccurrenceOnly) {
+            super(null, false, firstOccurrenceOnly);
+        }
+
+        @Override
+        public List<TextAnnotation> parse(char[] text, int start, int length) {
+            List<TextAnnotation> annotations = new ArrayList<TextAnnotation>();
+            for (int i=start; i<start+length; i++) {
+                String word = String.valueOf(text[i]);
+                if (StringTools.isKanji(text[i]) && !ignoreWord(word)) {
+                    annotations.add(new TextAnnotation(i, 1, word));
+                    if (firstOccurrenceOnly) {
+                        annotatedWords.add(word);
+                    }
+                }
+            }
+            return annotations;
+        }
+
+        @Override
+        public String getName() {
+            return "kanji characters";
+        }
+
+        @Override
+        public Locale getLanguage() {
+            return Locale.JAPANESE;
+        }
+    }
+
+    private static class KanjiCharacterParserFactory implements JGlossDocumentBuilder.ParserFactory {
+        private final boolean firstOccurrenceOnly;
+
+        KanjiCharacterParserFactory(boolean firstOccurrenceOnly) {
+            this.firstOccurrenceOnly = firstOccurrenceOnly;
+        }
+
+        @Override
+        public Parser createParser() {
+            return new KanjiCharacterParser(firstOccurrenceOnly);
+        }
+    }
+
+    private static String createText() {
+        StringBuilder text = new StringBuilder();
+        String[] paragraphs = { "日本語の本を読む。", "本屋で日本の地図を買った。", "地図は<b>大きい</b>です。" };
+        for (int i=0; i<200; i++) {
+            text.append(paragraphs[i % paragraphs.length]).append("\n\n");
+        }
+        return text.toString();
+    }
+
+    @Test
+    public void testParallelBuildMatchesSequentialBuild() throws IOException, SAXException {
+        assertParallelBuildMatchesSequentialBuild(false);
+    }
+
+    @Test
+    public void testParallelBuildFirstOccurrenceOnly() throws IOException, SAXException {
+        Document parallel = assertParallelBuildMatchesSequentialBuild(true);
+        assertThat(parallel.getElementsByTagName(JGlossDocument.Elements.ANNOTATION).getLength())
+            .isEqualTo("日本語読屋地図買大".length());
+    }
+
+    private Document assertParallelBuildMatchesSequentialBuild(boolean firstOccurrenceOnly)
+        throws IOException, SAXException {
+        String text = createText();
+        Document sequential = new JGlossDocumentBuilder().build(new StringReader(text), true, null,
+                        new KanjiCharacterParser(firstOccurrenceOnly), new Dictionary[0]).getDOMDocument();
+        Document parallel = new JGlossDocumentBuilder().build(new StringReader(text), true, null,
+                        new KanjiCharacterParserFactory(firstOccurrenceOnly), new Dictionary[0], 3)
+                        .getDOMDocument();
+
+        sequential.normalizeDocument();
+        parallel.normalizeDocument();
+        assertThat(parallel.getElementsByTagName(JGlossDocument.Elements.ANNOTATION).getLength())
+            .isGreaterThan(0);
+        assertThat(parallel.isEqualNode(sequential)).isTrue();
+
+        return parallel;
+    }
+}